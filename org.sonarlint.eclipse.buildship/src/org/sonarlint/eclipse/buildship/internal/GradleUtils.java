@@ -31,7 +31,6 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.annotation.Nullable;
 import org.gradle.tooling.GradleConnector;
-import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.model.gradle.BasicGradleProject;
 import org.gradle.tooling.model.gradle.GradleBuild;
 import org.sonarlint.eclipse.core.SonarLintLogger;
@@ -87,13 +86,12 @@ public class GradleUtils {
     var iProject = (IProject) project.getResource();
 
     // Try to get cached project connection as it is way faster!
-    var connection = getProjectConnection(iProject);
-    if (connection == null) {
+    var gradleBuild = getGradleBuild(iProject);
+    if (gradleBuild == null) {
       return null;
     }
 
     // Check whether this is already the root project, we don't have to check the others then!
-    var gradleBuild = connection.model(GradleBuild.class).get();
     var rootProject = gradleBuild.getRootProject();
     if (rootProject.getProjectDirectory().equals(FileUtils.toLocalFile(iProject))) {
       return project;
@@ -115,8 +113,8 @@ public class GradleUtils {
     var subProjects = new ArrayList<ISonarLintProject>();
 
     // Try to get cached project connection as it is way faster!
-    var connection = getProjectConnection(iProject);
-    if (connection == null) {
+    var gradleBuild = getGradleBuild(iProject);
+    if (gradleBuild == null) {
       return subProjects;
     }
 
@@ -129,7 +127,7 @@ public class GradleUtils {
       var projectPath = localFile.toPath().toRealPath().toString() + "/";
 
       // Iterate over all the projects of the build and try to find the child-projects
-      for (var child : connection.model(GradleBuild.class).get().getProjects()) {
+      for (var child : gradleBuild.getProjects()) {
         var childPath = child.getProjectDirectory().toPath().toRealPath().toString();
         if (childPath.startsWith(projectPath) && !childPath.equals(projectPath)) {
           var possibleMatchedProject = matchGradleProject(allProjects, child);
@@ -175,14 +173,14 @@ public class GradleUtils {
     // 3) The Gradle Tooling API can only access the build directory with very expensive calls
     exclusions.add(Path.fromOSString("/" + project.getName() + "/build"));
 
-    // 4) Try to get cached project connection as it is way faster!
-    var connection = getProjectConnection(project);
-    if (connection == null) {
-      traceExclusions(exclusions, projectPath);
-      return exclusions;
-    }
-
     try {
+      // 4) Try to get cached project connection as it is way faster!
+      var gradleBuild = getGradleBuild(project);
+      if (gradleBuild == null) {
+        traceExclusions(exclusions, projectPath);
+        return exclusions;
+      }
+
       var localFile = FileUtils.toLocalFile(project);
       if (localFile == null) {
         return exclusions;
@@ -190,7 +188,7 @@ public class GradleUtils {
       var localPath = localFile.toPath().toRealPath().toString() + "/";
 
       // 5) Iterate over all the projects of the build and try to find the child-projects
-      for (var child : connection.model(GradleBuild.class).get().getProjects()) {
+      for (var child : gradleBuild.getProjects()) {
         var childPath = child.getProjectDirectory().toPath().toRealPath().toString();
         if (childPath.startsWith(localPath) && !childPath.equals(localPath)) {
           var relativePath = childPath.replace(localPath, "/" + project.getName() + "/");
@@ -212,15 +210,23 @@ public class GradleUtils {
       + String.join(", ", exclusions.stream().map(Object::toString).collect(Collectors.toList())));
   }
 
+  /** The connection is only used for getting the model, it might be closed afterwards when not cached anymore */
+  @Nullable
+  private static GradleBuild getGradleBuild(IProject project) {
+    try (var lease = acquireProjectConnection(project)) {
+      return lease != null ? lease.getConnection().model(GradleBuild.class).get() : null;
+    }
+  }
+
   @Nullable
-  private static ProjectConnection getProjectConnection(IProject project) {
-    var projectConnection = ProjectConnectionCache.getConnection(SonarLintUtils.getConfigScopeId(project));
-    if (projectConnection != null) {
-      return projectConnection;
+  private static ProjectConnectionCache.Lease acquireProjectConnection(IProject project) {
+    var lease = ProjectConnectionCache.acquireConnection(SonarLintUtils.getConfigScopeId(project));
+    if (lease != null) {
+      return lease;
     }
 
     try {
-      projectConnection = GradleConnector.newConnector()
+      var projectConnection = GradleConnector.newConnector()
         .forProjectDirectory(FileUtils.toLocalFile(project))
         .connect();
 
@@ -232,8 +238,7 @@ public class GradleUtils {
           configScopeIds.add(SonarLintUtils.getConfigScopeId((IProject) sonarLintProject.getResource()));
         }
       }
-      ProjectConnectionCache.putConnection(configScopeIds, projectConnection);
-      return projectConnection;
+      return ProjectConnectionCache.putConnection(configScopeIds, projectConnection);
     } catch (Exception err) {
       SonarLintLogger.get().error("Project '" + project.getName()
         + "' cannot be interacted with from the Gradle Tooling API.", err);
@@ -19,14 +19,15 @@
  */
 package org.sonarlint.eclipse.buildship.internal;
 
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.jobs.Job;
+import java.util.Map;
+import java.util.Set;
 import org.eclipse.jdt.annotation.Nullable;
 import org.gradle.tooling.ProjectConnection;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache;
 
 /**
  *  For Gradle we rely on the Eclipse Buildship plug-in that contains the Gradle Tooling API bundled with it. We have
@@ -35,51 +36,126 @@ import org.gradle.tooling.ProjectConnection;
  *
  *  Having a cache for the connections that are linked to one or multiple configuration scope ids is necessary to lower
  *  the time it takes for projects to index and perform
+ *
+ *  Connections are only handed out as a {@link Lease}, a connection removed from the cache (invalidated or evicted)
+ *  while still in use is only closed once the last lease on it is closed.
  */
-public class ProjectConnectionCache {
+public class ProjectConnectionCache extends AbstractConfigScopeIdCache<ProjectConnection> {
+  private static final ProjectConnectionCache INSTANCE = new ProjectConnectionCache();
+
+  /** Every entry is one project, the connections are shared between the projects of a multi-project build */
+  private static final long MAXIMUM_PROJECTS = 64;
+
   // Multiple configuration scope ids can share one connection, e.g. multi project builds where there is one root
   // project and multiple sub-projects that are independent in Eclipse due to the flat hierarchy.
-  private static final ConcurrentHashMap<List<String>, ProjectConnection> cache = new ConcurrentHashMap<>();
+  private final Map<ProjectConnection, Set<String>> configScopeIdsPerConnection = new HashMap<>();
+  private final Map<ProjectConnection, Integer> leasesPerConnection = new HashMap<>();
 
   private ProjectConnectionCache() {
-    // utility class
+    // singleton
   }
 
+  /** @return a lease on the cached connection that has to be closed after use, null when there is none cached */
   @Nullable
-  public static ProjectConnection getConnection(String configScopeId) {
-    for (var entry : cache.entrySet()) {
-      if (entry.getKey().contains(configScopeId)) {
-        return entry.getValue();
-      }
+  public static Lease acquireConnection(String configScopeId) {
+    synchronized (INSTANCE) {
+      var connection = INSTANCE.getEntry(configScopeId);
+      return connection != null ? INSTANCE.lease(connection) : null;
     }
-    return null;
   }
 
   // Big projects can take up to a minute to load (e.g. SonarQube takes 30 seconds at most but only has 360 kLOC) and
-  // the Gradle project information likely won't change in that time while the project is loaded.
-  public static void putConnection(List<String> configScopeIds, ProjectConnection connection) {
-    cache.put(configScopeIds, connection);
-    new RemoveConnectionJob(configScopeIds)
-      .schedule(60000);
+  // the Gradle project information won't change as long as the build scripts of the project are not changed.
+  /** @return a lease on the new connection, closing it when it was not cached for any project */
+  public static Lease putConnection(List<String> configScopeIds, ProjectConnection connection) {
+    synchronized (INSTANCE) {
+      var lease = INSTANCE.lease(connection);
+      INSTANCE.configScopeIdsPerConnection.computeIfAbsent(connection, c -> new HashSet<>()).addAll(configScopeIds);
+      for (var configScopeId : configScopeIds) {
+        INSTANCE.putEntry(configScopeId, connection);
+      }
+      return lease;
+    }
+  }
+
+  private Lease lease(ProjectConnection connection) {
+    leasesPerConnection.merge(connection, 1, Integer::sum);
+    return new Lease(connection);
+  }
+
+  private synchronized void release(ProjectConnection connection) {
+    var leases = leasesPerConnection.merge(connection, -1, Integer::sum);
+    if (leases != null && leases <= 0) {
+      leasesPerConnection.remove(connection);
+      closeIfUnused(connection);
+    }
   }
 
-  public static void removeConnection(List<String> configScopeIds) {
-    cache.remove(configScopeIds);
+  @Override
+  protected Set<InvalidationEvent> getInvalidationEvents() {
+    return EnumSet.of(InvalidationEvent.PROJECT_CLOSED, InvalidationEvent.BUILD_MODEL_CHANGED);
   }
 
-  private static class RemoveConnectionJob extends Job {
-    private final List<String> configScopeIds;
+  /** When one project of a multi-project build is invalidated, the connection is not valid for any of them */
+  @Override
+  protected synchronized void onEvent(String configScopeId, InvalidationEvent event) {
+    if (!getInvalidationEvents().contains(event)) {
+      return;
+    }
+    var connection = peekEntry(configScopeId);
+    if (connection == null) {
+      return;
+    }
+    var configScopeIds = configScopeIdsPerConnection.get(connection);
+    if (configScopeIds == null) {
+      super.onEvent(configScopeId, event);
+      return;
+    }
+    for (var sharingConfigScopeId : Set.copyOf(configScopeIds)) {
+      super.onEvent(sharingConfigScopeId, event);
+    }
+  }
+
+  @Override
+  protected long getMaximumWeight() {
+    return MAXIMUM_PROJECTS;
+  }
+
+  /** Only close the connection once no project is using it anymore */
+  @Override
+  protected synchronized void onRemoval(String configScopeId, ProjectConnection connection) {
+    var configScopeIds = configScopeIdsPerConnection.get(connection);
+    if (configScopeIds != null) {
+      configScopeIds.remove(configScopeId);
+    }
+    closeIfUnused(connection);
+  }
+
+  /** Neither cached for any project nor leased */
+  private void closeIfUnused(ProjectConnection connection) {
+    var configScopeIds = configScopeIdsPerConnection.get(connection);
+    if ((configScopeIds != null && !configScopeIds.isEmpty()) || leasesPerConnection.containsKey(connection)) {
+      return;
+    }
+    configScopeIdsPerConnection.remove(connection);
+    connection.close();
+  }
+
+  /** Keeps the connection open while in use, has to be closed exactly once */
+  public static class Lease implements AutoCloseable {
+    private final ProjectConnection connection;
+
+    private Lease(ProjectConnection connection) {
+      this.connection = connection;
+    }
 
-    public RemoveConnectionJob(List<String> configScopeIds) {
-      // INFO: We use the hash here as more or less an "id" of the job, meaningless otherwise!
-      super("Delete cache entry for: " + configScopeIds.hashCode());
-      this.configScopeIds = configScopeIds;
+    public ProjectConnection getConnection() {
+      return connection;
     }
 
     @Override
-    protected IStatus run(IProgressMonitor monitor) {
-      removeConnection(configScopeIds);
-      return Status.OK_STATUS;
+    public void close() {
+      INSTANCE.release(connection);
     }
   }
 }
@@ -19,49 +19,94 @@
  */
 package org.sonarlint.eclipse.cdt.internal;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import org.eclipse.jdt.annotation.Nullable;
 
+/**
+ *  Creates the build wrapper output used by the CFamily analyzer. Files sharing the same include paths and defined
+ *  symbols (usually most files of a CDT configuration) share the same compiler probes, that are therefore only written
+ *  once. The probes are identified by a key derived from their content in order to be stable across analyses.
+ */
 public class BuildWrapperJsonFactory {
   private static final String COMPILER = "clang";
+  private static final String PROBE_KEY_PREFIX = "sonarlint-probe-";
 
   public String create(Collection<ConfiguredFile> files, String baseDirPath) {
-    var builder = new StringBuilder();
-    builder.append("{"
+    var writer = new StringWriter();
+    try {
+      write(files, baseDirPath, writer);
+    } catch (IOException e) {
+      // Not happening with a StringWriter
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  public void write(Collection<ConfiguredFile> files, String baseDirPath, Writer writer) throws IOException {
+    writer.write("{"
       + "\"version\":0,"
       + "\"captures\":[");
 
+    // Maps the content of a probe to its key, the probe was already written when present
+    var probeKeys = new HashMap<String, String>();
     var first = true;
     for (var file : files) {
       if (first) {
         first = false;
       } else {
-        builder.append(",");
+        writer.write(",");
       }
-      writeFile(builder, baseDirPath, file.path(), file.includes(), file.symbols());
+      writeFile(writer, probeKeys, baseDirPath, file.path(), file.includes(), file.symbols());
     }
 
-    builder.append("]}");
-    return builder.toString();
+    writer.write("]}");
   }
 
-  private static void writeFile(StringBuilder builder, String baseDirPath, String filePath, String[] includes, Map<String, String> symbols) {
+  private static void writeFile(Writer writer, Map<String, String> probeKeys, String baseDirPath, String filePath,
+    String[] includes, Map<String, String> symbols) throws IOException {
     var probeStdout = probeStdout(symbols);
     var probeStderr = probeStderr(includes);
-    writeCompilerProbe(builder, filePath, probeStdout, probeStderr);
-    builder.append(",");
-    writeCompilerProbe(builder, filePath, probeStdout, probeStderr);
-    builder.append(",");
-    builder.append("{")
-      .append("\"compiler\":\"" + COMPILER + "\",")
-      .append("\"cwd\":" + quote(baseDirPath) + ",")
-      .append("\"executable\":" + quote(filePath) + ",")
-      .append("\"cmd\":[")
-      .append("\"clang\"")
-      .append("," + quote(filePath) + "")
-      .append("]}");
+    var probeContent = probeStdout + probeStderr;
+    var probeKey = probeKeys.get(probeContent);
+    if (probeKey == null) {
+      probeKey = probeKey(probeContent);
+      probeKeys.put(probeContent, probeKey);
+      writeCompilerProbe(writer, probeKey, probeStdout, probeStderr);
+      writer.write(",");
+      writeCompilerProbe(writer, probeKey, probeStdout, probeStderr);
+      writer.write(",");
+    }
+    writer.write("{");
+    writer.write("\"compiler\":\"" + COMPILER + "\",");
+    writer.write("\"cwd\":" + quote(baseDirPath) + ",");
+    writer.write("\"executable\":" + quote(probeKey) + ",");
+    writer.write("\"cmd\":[");
+    writer.write("\"clang\"");
+    writer.write("," + quote(filePath));
+    writer.write("]}");
+  }
 
+  private static String probeKey(String probeContent) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(probeContent.getBytes(StandardCharsets.UTF_8));
+      var builder = new StringBuilder(PROBE_KEY_PREFIX);
+      for (var i = 0; i < 8; i++) {
+        builder.append(String.format("%02x", digest[i]));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 is available on every Java platform
+      throw new IllegalStateException(e);
+    }
   }
 
   private static String probeStderr(String[] includes) {
@@ -81,14 +126,13 @@ public class BuildWrapperJsonFactory {
     return builder.toString();
   }
 
-  private static void writeCompilerProbe(StringBuilder builder, String compilerKey, String stdout, String stderr) {
-    builder
-      .append("{")
-      .append("\"compiler\":\"").append(COMPILER).append("\",")
-      .append("\"executable\":").append(quote(compilerKey)).append(",")
-      .append("\"stdout\":").append(quote(stdout)).append(",")
-      .append("\"stderr\":").append(quote(stderr))
-      .append("}");
+  private static void writeCompilerProbe(Writer writer, String compilerKey, String stdout, String stderr) throws IOException {
+    writer.write("{");
+    writer.write("\"compiler\":\"" + COMPILER + "\",");
+    writer.write("\"executable\":" + quote(compilerKey) + ",");
+    writer.write("\"stdout\":" + quote(stdout) + ",");
+    writer.write("\"stderr\":" + quote(stderr));
+    writer.write("}");
   }
 
   private static String quote(@Nullable String string) {
@@ -58,7 +58,7 @@ public class CProjectConfiguratorExtension implements IAnalysisConfigurator, IFi
     cdtUtils = isCdtPresent() ? new CdtUtils() : null;
   }
 
-  private static boolean isCdtPresent() {
+  static boolean isCdtPresent() {
     try {
       Class.forName("org.eclipse.cdt.core.CCorePlugin");
       return true;
@@ -22,13 +22,19 @@ package org.sonarlint.eclipse.cdt.internal;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -46,6 +52,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.analysis.IPreAnalysisContext;
 import org.sonarlint.eclipse.core.analysis.SonarLintLanguage;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisWorkDirPool;
 import org.sonarlint.eclipse.core.internal.jobs.DefaultPreAnalysisContext;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
@@ -53,14 +60,19 @@ import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
 public class CdtUtils {
   private static final String CFAMILY_USE_CACHE = "sonar.cfamily.useCache";
+  private static final String CFAMILY_CACHE_ENABLED = "sonar.cfamily.cache.enabled";
+  private static final String CFAMILY_CACHE_PATH = "sonar.cfamily.cache.path";
   private static final String BUILD_WRAPPER_OUTPUT_PROP = "sonar.cfamily.build-wrapper-output";
   private static final String BUILD_WRAPPER_OUTPUT_FILENAME = "build-wrapper-dump.json";
+  private static final String BUILD_WRAPPER_OUTPUT_DIR = "cfamily-build-wrapper";
+  private static final String CFAMILY_CACHE_DIR = "cfamily-cache";
   private static final Charset BUILD_WRAPPER_OUTPUT_CHARSET = StandardCharsets.UTF_8;
   private final BuildWrapperJsonFactory jsonFactory;
   private final CCorePlugin cCorePlugin;
   private final Predicate<IFile> fileValidator;
   private final SonarLintLogger logger;
   private final BiFunction<IProject, String, IContentType> contentTypeResolver;
+  private final Map<IProject, ProjectCaptures> capturesPerProject = new ConcurrentHashMap<>();
 
   public CdtUtils() {
     this(new BuildWrapperJsonFactory(), CCorePlugin.getDefault(), CoreModel::isTranslationUnit,
@@ -119,10 +131,15 @@ public class CdtUtils {
         return;
       }
 
-      var jsonPath = writeJson(context, context.getProject(), configuredFiles);
-      logger.debug("Wrote build info to: " + jsonPath.toString());
-      context.setAnalysisProperty(CFAMILY_USE_CACHE, Boolean.FALSE.toString());
+      var jsonPath = writeJson(context, context.getProject(), configuredFiles, removedFilesFromAnalysis);
       context.setAnalysisProperty(BUILD_WRAPPER_OUTPUT_PROP, jsonPath.getParent().toString());
+
+      // The CFamily analyzer can reuse the results of the previous analyses of files that did not change
+      var cacheDir = context.getProject().getWorkingDir().resolve(CFAMILY_CACHE_DIR);
+      Files.createDirectories(cacheDir);
+      context.setAnalysisProperty(CFAMILY_USE_CACHE, Boolean.TRUE.toString());
+      context.setAnalysisProperty(CFAMILY_CACHE_ENABLED, Boolean.TRUE.toString());
+      context.setAnalysisProperty(CFAMILY_CACHE_PATH, cacheDir.toString());
     } catch (Exception e) {
       logger.error(e.getMessage(), e);
     }
@@ -131,13 +148,14 @@ public class CdtUtils {
   private Collection<ConfiguredFile> configureCProject(IPreAnalysisContext context, ISonarLintProject project,
     Collection<ISonarLintFile> filesToAnalyze, Collection<ISonarLintFile> removedFilesFromAnalysis) {
     var files = new LinkedList<ConfiguredFile>();
-    var infoProvider = cCorePlugin.getScannerInfoProvider((IProject) project.getResource());
+    var iProject = (IProject) project.getResource();
+    var infoProvider = cCorePlugin.getScannerInfoProvider(iProject);
 
     for (ISonarLintFile file : filesToAnalyze) {
       var builder = new ConfiguredFile.Builder((IFile) file.getResource());
 
       var path = ((DefaultPreAnalysisContext) context).getLocalPath(file);
-      var fileInfo = infoProvider.getScannerInformation(file.getResource());
+      var fileInfo = ScannerInfoCache.get().getScannerInformation(iProject, infoProvider, (IFile) file.getResource());
 
       // We cannot work on this file when:
       // - fileInfo is null which means there was no information (yet) available to CDT about the file
@@ -161,9 +179,63 @@ public class CdtUtils {
     return files;
   }
 
-  private Path writeJson(IPreAnalysisContext context, ISonarLintProject project, Collection<ConfiguredFile> files) throws IOException {
-    var json = jsonFactory.create(files, getBaseDir(context, project));
-    return createJsonFile(context.getAnalysisTemporaryFolder(), json);
+  /**
+   *  The build wrapper output is written to a directory of the project that is reused across analyses. It contains the
+   *  files configured by the previous analyses as well, so that analyses of the same project running at the same time
+   *  find all their files, and it is only written again when the configuration of any file changed.
+   */
+  private Path writeJson(IPreAnalysisContext context, ISonarLintProject project, Collection<ConfiguredFile> files,
+    Collection<ISonarLintFile> removedFiles) throws IOException {
+    var baseDir = getBaseDir(context, project);
+    var outputDir = project.getWorkingDir().resolve(BUILD_WRAPPER_OUTPUT_DIR);
+    var jsonFilePath = outputDir.resolve(BUILD_WRAPPER_OUTPUT_FILENAME);
+    // The captures of projects closed or deleted in the meantime are not needed anymore
+    capturesPerProject.keySet().removeIf(p -> !p.isOpen());
+    var captures = capturesPerProject.computeIfAbsent((IProject) project.getResource(), p -> new ProjectCaptures());
+
+    synchronized (captures) {
+      var changed = captures.update(files, removedFiles, baseDir, project);
+      if (!changed && Files.exists(jsonFilePath)) {
+        logger.debug("Reused build info of '" + jsonFilePath + "' as the configuration of the files did not change");
+        return jsonFilePath;
+      }
+
+      var allFiles = captures.files(files, project);
+      Files.createDirectories(outputDir);
+      var tempFilePath = Files.createTempFile(outputDir, BUILD_WRAPPER_OUTPUT_FILENAME, ".tmp");
+      try {
+        writeJsonFile(tempFilePath, allFiles, baseDir);
+        replace(tempFilePath, jsonFilePath);
+      } catch (IOException err) {
+        // The previous file might still be read by an analysis (e.g. on Windows), fall back to the analysis folder
+        Files.deleteIfExists(tempFilePath);
+        captures.reset();
+        logger.debug("Unable to update build info of '" + jsonFilePath + "', writing it for this analysis only: "
+          + err.getMessage());
+        jsonFilePath = context.getAnalysisTemporaryFolder().resolve(BUILD_WRAPPER_OUTPUT_FILENAME);
+        Files.createDirectories(jsonFilePath.getParent());
+        writeJsonFile(jsonFilePath, files, baseDir);
+      }
+
+      // The content is not logged as it can be huge for projects with large include paths and macro sets
+      logger.debug("CDT generated build wrapper output '" + jsonFilePath + "' for C/C++ analysis containing "
+        + allFiles.size() + " files (" + Files.size(jsonFilePath) + " bytes)");
+      return jsonFilePath;
+    }
+  }
+
+  private void writeJsonFile(Path jsonFilePath, Collection<ConfiguredFile> files, String baseDir) throws IOException {
+    try (var writer = Files.newBufferedWriter(jsonFilePath, BUILD_WRAPPER_OUTPUT_CHARSET)) {
+      jsonFactory.write(files, baseDir, writer);
+    }
+  }
+
+  private static void replace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException err) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
   }
 
   private static String getBaseDir(IPreAnalysisContext context, ISonarLintProject project) {
@@ -200,18 +272,6 @@ public class CdtUtils {
     }
   }
 
-  private static Path createJsonFile(Path workDir, String content) throws IOException {
-    var jsonFilePath = workDir.resolve(BUILD_WRAPPER_OUTPUT_FILENAME);
-    Files.createDirectories(workDir);
-
-    // In order to be able to trace the build wrapper output content for
-    SonarLintLogger.get().debug("CDT generated build wrapper output '" + jsonFilePath
-      + "' for C/C++ analysis written containing: " + content);
-
-    Files.write(jsonFilePath, content.getBytes(BUILD_WRAPPER_OUTPUT_CHARSET));
-    return jsonFilePath;
-  }
-
   @Nullable
   public SonarLintLanguage language(IFile iFile) {
     return getFileLanguage(iFile.getProject(), iFile);
@@ -287,4 +347,65 @@ public class CdtUtils {
 
     return exclusions;
   }
+
+  /**
+   *  The files of a project configured by the previous analyses. The files deleted or not configured anymore are pruned
+   *  on every analysis, and at most {@link #MAX_CAPTURED_FILES} files are kept: the ones least recently analyzed are
+   *  dropped first, but never the ones of the current analysis.
+   */
+  private static class ProjectCaptures {
+    private static final int MAX_CAPTURED_FILES = 10_000;
+
+    /** In access order, so that the least recently analyzed files come first */
+    private final Map<String, ConfiguredFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    @Nullable
+    private String baseDir;
+
+    /** @return whether the build wrapper output has to be written again */
+    private boolean update(Collection<ConfiguredFile> configuredFiles, Collection<ISonarLintFile> removedFiles,
+      String currentBaseDir, ISonarLintProject project) {
+      var changed = !currentBaseDir.equals(baseDir);
+      baseDir = currentBaseDir;
+      var removedResources = removedFiles.stream().map(ISonarLintFile::getResource).collect(Collectors.toSet());
+      changed |= files.values().removeIf(f -> !f.file().exists() || removedResources.contains(f.file()));
+      for (var file : configuredFiles) {
+        if (isTemporaryCopy(file, project)) {
+          // Only valid for this analysis, therefore not kept
+          changed = true;
+        } else {
+          changed |= !file.equals(files.put(file.path(), file));
+        }
+      }
+      var iterator = files.values().iterator();
+      while (files.size() > Math.max(MAX_CAPTURED_FILES, configuredFiles.size())) {
+        iterator.next();
+        iterator.remove();
+        changed = true;
+      }
+      return changed;
+    }
+
+    /** Sorted by path for a stable output */
+    private Collection<ConfiguredFile> files(Collection<ConfiguredFile> configuredFiles, ISonarLintProject project) {
+      var result = new ArrayList<>(files.values());
+      configuredFiles.stream()
+        .filter(f -> isTemporaryCopy(f, project))
+        .forEach(result::add);
+      result.sort(Comparator.comparing(ConfiguredFile::path));
+      return result;
+    }
+
+    private void reset() {
+      files.clear();
+      baseDir = null;
+    }
+
+    /**
+     *  Copies made in the analysis folder only exist for one analysis, unlike the local mirror of remote files that is
+     *  in the working directory as well but kept up-to-date across analyses.
+     */
+    private static boolean isTemporaryCopy(ConfiguredFile file, ISonarLintProject project) {
+      return AnalysisWorkDirPool.isAnalysisFolderPath(project, Path.of(file.path()));
+    }
+  }
 }
@@ -19,8 +19,10 @@
  */
 package org.sonarlint.eclipse.cdt.internal;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import org.eclipse.core.resources.IFile;
 
 public class ConfiguredFile {
@@ -52,6 +54,24 @@ public class ConfiguredFile {
     return path;
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ConfiguredFile)) {
+      return false;
+    }
+    var other = (ConfiguredFile) obj;
+    return file.equals(other.file) && path.equals(other.path) && Arrays.equals(includes, other.includes)
+      && symbols.equals(other.symbols);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(file, path, Arrays.hashCode(includes), symbols);
+  }
+
   public static class Builder {
     private String[] includes = new String[0];
     private Map<String, String> symbols = Collections.emptyMap();
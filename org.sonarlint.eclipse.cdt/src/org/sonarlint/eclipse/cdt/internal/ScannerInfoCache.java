@@ -0,0 +1,159 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.cdt.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.cdt.core.language.settings.providers.ILanguageSettingsChangeEvent;
+import org.eclipse.cdt.core.language.settings.providers.ILanguageSettingsChangeListener;
+import org.eclipse.cdt.core.language.settings.providers.LanguageSettingsManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfoProvider;
+import org.eclipse.cdt.core.settings.model.CProjectDescriptionEvent;
+import org.eclipse.cdt.core.settings.model.ICProjectDescriptionListener;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ *  Caches the scanner information (include paths and defined symbols) provided by CDT per file of the active build
+ *  configuration of a project, as computing it for every file on every analysis is expensive for projects with large
+ *  include paths and macro sets.
+ *
+ *  The information of a project is invalidated when its CDT project description is applied or loaded (e.g. changing
+ *  the active configuration or the build settings) and when the language settings providers discovered new entries
+ *  (e.g. from the build output). Missing information is not cached, as it might only become available once CDT is
+ *  ready. At most {@link #MAX_CACHED_FILES} files are kept per project, the least recently analyzed ones are dropped
+ *  first.
+ */
+public class ScannerInfoCache implements ICProjectDescriptionListener, ILanguageSettingsChangeListener {
+  private static final int MAX_CACHED_FILES = 10_000;
+
+  @Nullable
+  private static ScannerInfoCache instance;
+
+  private final ConcurrentHashMap<IProject, ProjectScannerInfo> projects = new ConcurrentHashMap<>();
+  /** Incremented on every invalidation, so that information computed in the meantime is not cached */
+  private final AtomicLong generation = new AtomicLong();
+
+  private ScannerInfoCache() {
+    // singleton, only created when CDT is present
+  }
+
+  public static synchronized ScannerInfoCache get() {
+    if (instance == null) {
+      instance = new ScannerInfoCache();
+      CoreModel.getDefault().addCProjectDescriptionListener(instance,
+        CProjectDescriptionEvent.APPLIED | CProjectDescriptionEvent.LOADED);
+      LanguageSettingsManager.registerLanguageSettingsChangeListener(instance);
+    }
+    return instance;
+  }
+
+  /** Unregisters the listeners when the cache was used, only to be called when CDT is present */
+  public static synchronized void stop() {
+    if (instance != null) {
+      CoreModel.getDefault().removeCProjectDescriptionListener(instance);
+      LanguageSettingsManager.unregisterLanguageSettingsChangeListener(instance);
+      instance.projects.clear();
+      instance = null;
+    }
+  }
+
+  @Nullable
+  IScannerInfo getScannerInformation(IProject project, IScannerInfoProvider infoProvider, IFile file) {
+    var configurationId = activeConfigurationId(project);
+    if (configurationId == null) {
+      return infoProvider.getScannerInformation(file);
+    }
+
+    var projectInfo = projects.get(project);
+    if (projectInfo == null || !projectInfo.configurationId.equals(configurationId)) {
+      projectInfo = new ProjectScannerInfo(configurationId);
+      projects.put(project, projectInfo);
+    }
+    var cached = projectInfo.files.get(file);
+    if (cached != null) {
+      return cached;
+    }
+
+    var currentGeneration = generation.get();
+    var info = infoProvider.getScannerInformation(file);
+    if (info != null && info.getDefinedSymbols() != null && !info.getDefinedSymbols().isEmpty()
+      && currentGeneration == generation.get()) {
+      projectInfo.files.put(file, info);
+    }
+    return info;
+  }
+
+  @Nullable
+  private static String activeConfigurationId(IProject project) {
+    try {
+      var description = CoreModel.getDefault().getProjectDescription(project, false);
+      if (description == null) {
+        return null;
+      }
+      var configuration = description.getActiveConfiguration();
+      return configuration != null ? configuration.getId() : null;
+    } catch (Exception err) {
+      // Don't cache anything when the configuration cannot be determined
+      return null;
+    }
+  }
+
+  @Override
+  public void handleEvent(CProjectDescriptionEvent event) {
+    invalidate(event.getProject());
+  }
+
+  @Override
+  public void handleEvent(ILanguageSettingsChangeEvent event) {
+    invalidate(ResourcesPlugin.getWorkspace().getRoot().getProject(event.getProjectName()));
+  }
+
+  void invalidate(@Nullable IProject project) {
+    generation.incrementAndGet();
+    if (project != null) {
+      projects.remove(project);
+    }
+  }
+
+  private static class ProjectScannerInfo {
+    private final String configurationId;
+    /** In access order, so that the least recently analyzed files are dropped first */
+    private final Map<IFile, IScannerInfo> files = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<IFile, IScannerInfo> eldest) {
+        return size() > MAX_CACHED_FILES;
+      }
+    });
+
+    private ProjectScannerInfo(String configurationId) {
+      this.configurationId = configurationId;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.cdt.internal;
+
+import org.eclipse.core.runtime.Plugin;
+import org.osgi.framework.BundleContext;
+
+public class SonarLintCdtPlugin extends Plugin {
+
+  @Override
+  public void stop(BundleContext context) throws Exception {
+    // The cache references CDT classes, it must not be loaded when CDT is not installed
+    if (CProjectConfiguratorExtension.isCdtPresent()) {
+      ScannerInfoCache.stop();
+    }
+    super.stop(context);
+  }
+
+}
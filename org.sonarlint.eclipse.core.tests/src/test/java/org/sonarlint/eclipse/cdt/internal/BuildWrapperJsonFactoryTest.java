@@ -70,6 +70,26 @@ public class BuildWrapperJsonFactoryTest {
 
   }
 
+  @Test
+  public void should_write_shared_probes_once() {
+    var defines = new LinkedHashMap<String, String>();
+    defines.put("MACRO1", "V1");
+
+    var info = new ArrayList<ConfiguredFile>();
+    for (var path : new String[] {"path/to/file1", "path/to/file2", "path/to/file3"}) {
+      info.add(new ConfiguredFile.Builder(mock(IFile.class))
+        .includes(new String[] {"/path/to/include1"})
+        .symbols(defines)
+        .path(path)
+        .build());
+    }
+
+    var json = writer.create(info, "/path/to/projectBaseDir");
+    assertThat(json.split("\"stdout\":", -1)).hasSize(3);
+    assertThat(json.split("\"cmd\":", -1)).hasSize(4);
+    assertThat(json).contains("\"cmd\":[\"clang\",\"path/to/file3\"]");
+  }
+
   private String loadExpected() throws IOException, URISyntaxException {
     var str = new String(Files.readAllBytes(Paths.get("src", "test", "resources", "expected.json")), StandardCharsets.UTF_8);
     return str.replace("\n", "").replace("\r", "");
@@ -19,8 +19,10 @@
  */
 package org.sonarlint.eclipse.cdt.internal;
 
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.Map;
 import java.util.function.Predicate;
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.parser.IScannerInfo;
@@ -36,13 +38,18 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatchers;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.analysis.IPreAnalysisContext;
+import org.sonarlint.eclipse.core.internal.jobs.DefaultPreAnalysisContext;
 import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintProjectAdapter;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -80,7 +87,6 @@ public class CProjectConfiguratorTest {
     when(project.getLocation()).thenReturn(Path.fromOSString(projectBaseDir.toString()));
     when(infoProvider.getScannerInformation(file)).thenReturn(info);
     when(fileValidator.test(file)).thenReturn(true);
-    when(jsonFactory.create(anyCollection(), anyString())).thenReturn("json");
 
     var context = mock(IPreAnalysisContext.class);
     var slProject = new DefaultSonarLintProjectAdapter(project);
@@ -93,15 +99,148 @@ public class CProjectConfiguratorTest {
     configurator.configure(context, monitor);
 
     // build-wrapper-dump.json was not created as no useful file was provided to the CDT integraton
-    verify(jsonFactory, never()).create(ArgumentMatchers.any(), ArgumentMatchers.any());
+    verify(jsonFactory, never()).write(any(), any(), any());
 
     // properties were not set
     verify(context, never()).setAnalysisProperty("sonar.cfamily.build-wrapper-output", temp.getRoot().toPath().toString());
-    verify(context, never()).setAnalysisProperty("sonar.cfamily.useCache", "false");
+    verify(context, never()).setAnalysisProperty("sonar.cfamily.useCache", "true");
 
     // no errors
     verify(logger, never()).error(ArgumentMatchers.any(), ArgumentMatchers.any());
     verify(logger, never()).error(ArgumentMatchers.any());
   }
 
+  @Test
+  public void should_write_build_wrapper_output_and_enable_cache() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory).write(anyCollection(), eq(setup.projectBaseDir.toString()), any());
+    var buildWrapperDir = setup.workingDir.resolve("cfamily-build-wrapper");
+    assertThat(buildWrapperDir.resolve("build-wrapper-dump.json")).exists();
+    verify(setup.context).setAnalysisProperty("sonar.cfamily.build-wrapper-output", buildWrapperDir.toString());
+
+    var cacheDir = setup.workingDir.resolve("cfamily-cache");
+    assertThat(cacheDir).isDirectory();
+    verify(setup.context).setAnalysisProperty("sonar.cfamily.useCache", "true");
+    verify(setup.context).setAnalysisProperty("sonar.cfamily.cache.enabled", "true");
+    verify(setup.context).setAnalysisProperty("sonar.cfamily.cache.path", cacheDir.toString());
+
+    verify(logger, never()).error(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  public void should_reuse_build_wrapper_output_when_configuration_did_not_change() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory, times(1)).write(anyCollection(), any(), any());
+    verify(setup.context, times(2)).setAnalysisProperty("sonar.cfamily.build-wrapper-output",
+      setup.workingDir.resolve("cfamily-build-wrapper").toString());
+  }
+
+  @Test
+  public void should_rewrite_build_wrapper_output_when_configuration_changed() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    setup.withScannerInfo(Map.of("FOO", "2"), "/usr/include");
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    setup.withScannerInfo(Map.of("FOO", "2"), "/usr/local/include");
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory, times(3)).write(anyCollection(), any(), any());
+  }
+
+  @Test
+  public void should_rewrite_build_wrapper_output_when_file_was_deleted() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    when(setup.file.exists()).thenReturn(false);
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory, times(2)).write(anyCollection(), any(), any());
+  }
+
+  @Test
+  public void should_reuse_build_wrapper_output_for_mirrored_remote_files() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+    setup.withLocalPath(setup.workingDir.resolve("mirror").resolve("main.c"));
+
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory, times(1)).write(anyCollection(), any(), any());
+  }
+
+  @Test
+  public void should_rewrite_build_wrapper_output_for_copies_in_analysis_folder() throws Exception {
+    var setup = new CProjectSetup();
+    setup.withScannerInfo(Map.of("FOO", "1"), "/usr/include");
+    setup.withLocalPath(setup.workingDir.resolve("analysis-123").resolve("main.c"));
+
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+    configurator.configure(setup.context, mock(IProgressMonitor.class));
+
+    verify(jsonFactory, times(2)).write(anyCollection(), any(), any());
+  }
+
+  private class CProjectSetup {
+    private final java.nio.file.Path projectBaseDir;
+    private final java.nio.file.Path workingDir;
+    private final IFile file = mock(IFile.class);
+    private final IScannerInfoProvider infoProvider = mock(IScannerInfoProvider.class);
+    private final DefaultPreAnalysisContext context = mock(DefaultPreAnalysisContext.class);
+    private final ISonarLintFile slFile = mock(ISonarLintFile.class);
+
+    private CProjectSetup() throws Exception {
+      projectBaseDir = temp.newFolder().toPath();
+      workingDir = temp.newFolder().toPath();
+      var analysisFolder = temp.newFolder().toPath();
+
+      var project = mock(IProject.class);
+      when(project.isOpen()).thenReturn(true);
+      when(project.getLocation()).thenReturn(Path.fromOSString(projectBaseDir.toString()));
+      when(cCorePlugin.getScannerInfoProvider(project)).thenReturn(infoProvider);
+      var slProject = mock(ISonarLintProject.class);
+      when(slProject.getResource()).thenReturn(project);
+      when(slProject.getWorkingDir()).thenReturn(workingDir);
+
+      when(file.getProject()).thenReturn(project);
+      when(file.exists()).thenReturn(true);
+      when(fileValidator.test(file)).thenReturn(true);
+      when(slFile.getResource()).thenReturn(file);
+
+      var localPath = projectBaseDir.resolve("main.c");
+      Files.createFile(localPath);
+      when(context.getProject()).thenReturn(slProject);
+      when(context.getFilesToAnalyze()).thenReturn(Collections.singleton(slFile));
+      when(context.getLocalPath(slFile)).thenReturn(localPath.toString());
+      when(context.getAnalysisTemporaryFolder()).thenReturn(analysisFolder);
+    }
+
+    private void withLocalPath(java.nio.file.Path localPath) throws Exception {
+      Files.createDirectories(localPath.getParent());
+      Files.createFile(localPath);
+      when(context.getLocalPath(slFile)).thenReturn(localPath.toString());
+    }
+
+    private void withScannerInfo(Map<String, String> symbols, String... includes) {
+      var info = mock(IScannerInfo.class);
+      when(info.getDefinedSymbols()).thenReturn(symbols);
+      when(info.getIncludePaths()).thenReturn(includes);
+      when(infoProvider.getScannerInformation(file)).thenReturn(info);
+    }
+  }
+
 }
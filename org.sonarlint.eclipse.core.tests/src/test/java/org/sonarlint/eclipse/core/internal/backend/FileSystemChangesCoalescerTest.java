@@ -0,0 +1,115 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.backend;
+
+import java.net.URI;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileSystemChangesCoalescerTest {
+
+  private final FileSystemChangesCoalescer coalescer = new FileSystemChangesCoalescer();
+
+  private static ISonarLintFile file(String path) {
+    var file = mock(ISonarLintFile.class);
+    when(file.uri()).thenReturn(URI.create("file:///project/" + path));
+    return file;
+  }
+
+  @Test
+  public void should_keep_added_when_changed_afterwards() {
+    var file = file("Foo.java");
+    coalescer.added(file);
+    coalescer.changed(file);
+
+    var batch = coalescer.drain();
+    assertThat(batch.getAdded()).containsExactly(file);
+    assertThat(batch.getChanged()).isEmpty();
+    assertThat(batch.getRemoved()).isEmpty();
+  }
+
+  @Test
+  public void should_drop_files_added_and_removed() {
+    var file = file("Foo.java");
+    coalescer.added(file);
+    coalescer.removed(file.uri());
+
+    assertThat(coalescer.drain().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_turn_removed_and_added_into_changed() {
+    var file = file("Foo.java");
+    coalescer.removed(file.uri());
+    coalescer.added(file);
+
+    var batch = coalescer.drain();
+    assertThat(batch.getAdded()).isEmpty();
+    assertThat(batch.getChanged()).containsExactly(file);
+    assertThat(batch.getRemoved()).isEmpty();
+  }
+
+  @Test
+  public void should_keep_removed_when_changed_before() {
+    var file = file("Foo.java");
+    coalescer.changed(file);
+    coalescer.changed(file);
+    coalescer.removed(file.uri());
+
+    var batch = coalescer.drain();
+    assertThat(batch.getChanged()).isEmpty();
+    assertThat(batch.getRemoved()).containsExactly(file.uri());
+  }
+
+  @Test
+  public void should_discard_content_change_but_keep_removal() {
+    var added = file("Added.java");
+    var changed = file("Changed.java");
+    var removed = file("Removed.java");
+    coalescer.added(added);
+    coalescer.changed(changed);
+    coalescer.removed(removed.uri());
+
+    assertThat(coalescer.discardContentChange(added.uri())).isTrue();
+    assertThat(coalescer.discardContentChange(changed.uri())).isFalse();
+    assertThat(coalescer.discardContentChange(removed.uri())).isFalse();
+
+    var batch = coalescer.drain();
+    assertThat(batch.getAdded()).isEmpty();
+    assertThat(batch.getChanged()).isEmpty();
+    assertThat(batch.getRemoved()).containsExactly(removed.uri());
+  }
+
+  @Test
+  public void should_be_empty_after_drain() throws InterruptedException {
+    coalescer.changed(file("Foo.java"));
+    coalescer.changed(file("Bar.java"));
+    assertThat(coalescer.size()).isEqualTo(2);
+    assertThat(coalescer.awaitSizeBelow(2, 10)).isFalse();
+
+    assertThat(coalescer.drain().getChanged()).hasSize(2);
+    assertThat(coalescer.size()).isZero();
+    assertThat(coalescer.awaitSizeBelow(2, 10)).isTrue();
+  }
+}
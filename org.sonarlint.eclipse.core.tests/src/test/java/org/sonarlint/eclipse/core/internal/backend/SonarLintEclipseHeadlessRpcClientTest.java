@@ -0,0 +1,167 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.backend;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.LogListener;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisState;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintProjectAdapter;
+import org.sonarlint.eclipse.tests.common.SonarTestCase;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+
+public class SonarLintEclipseHeadlessRpcClientTest extends SonarTestCase {
+  private static final AtomicInteger PROJECT_COUNTER = new AtomicInteger();
+
+  private final SonarLintEclipseHeadlessRpcClient underTest = mock(SonarLintEclipseHeadlessRpcClient.class, CALLS_REAL_METHODS);
+  private final RunningAnalysesTracker tracker = RunningAnalysesTracker.get();
+  private final List<String> debugMessages = Collections.synchronizedList(new ArrayList<>());
+  private final LogListener logListener = new DebugLogListener();
+  private IProject project;
+  private String configScopeId;
+
+  @Before
+  public void prepare() throws CoreException {
+    project = workspace.getRoot().getProject("RpcClient" + PROJECT_COUNTER.incrementAndGet());
+    project.create(MONITOR);
+    project.open(MONITOR);
+    configScopeId = ConfigScopeSynchronizer.getConfigScopeId(new DefaultSonarLintProjectAdapter(project));
+    SonarLintLogger.get().addLogListener(logListener);
+  }
+
+  @After
+  public void cleanup() throws CoreException {
+    SonarLintLogger.get().removeLogListener(logListener);
+    project.delete(true, true, MONITOR);
+  }
+
+  @Test
+  public void should_ignore_issues_of_cancelled_analysis() {
+    var analysis = new AnalysisState(UUID.randomUUID(), List.of(URI.create("file:///A.java")), TriggerType.EDITOR_CHANGE);
+    tracker.track(analysis);
+    var cancelledBefore = tracker.getCancelledCount();
+    var wastedBefore = tracker.getWastedCount();
+
+    tracker.cancel(analysis);
+    underTest.raiseIssues(configScopeId, new HashMap<URI, List<RaisedIssueDto>>(), false, analysis.getId());
+
+    assertThat(tracker.getCancelledCount()).isEqualTo(cancelledBefore + 1);
+    assertThat(tracker.getWastedCount()).isEqualTo(wastedBefore + 1);
+    assertThat(debugMessages).contains("Ignoring the issues of cancelled analysis with id '" + analysis.getId() + "'");
+    // Only the results of the cancelled request are wasted, the ID is not remembered afterwards
+    assertThat(tracker.discardIfCancelled(analysis.getId())).isFalse();
+  }
+
+  @Test
+  public void should_not_ignore_issues_of_running_analysis() {
+    var fileUri = URI.create("file:///A.java");
+    var analysis = new AnalysisState(UUID.randomUUID(), List.of(fileUri), TriggerType.EDITOR_CHANGE);
+    tracker.track(analysis);
+    var wastedBefore = tracker.getWastedCount();
+    var issuesByFileUri = new HashMap<URI, List<RaisedIssueDto>>();
+
+    underTest.raiseIssues(configScopeId, issuesByFileUri, false, analysis.getId());
+
+    assertThat(tracker.getWastedCount()).isEqualTo(wastedBefore);
+    assertThat(tracker.getById(analysis.getId())).isNull();
+    // The files of the analysis without any issue are included, so that their markers are removed
+    assertThat(issuesByFileUri).containsOnlyKeys(fileUri);
+    assertThat(debugMessages).noneMatch(msg -> msg.contains(analysis.getId().toString()));
+  }
+
+  @Test
+  public void should_trace_statistics_of_cancelled_analyses() {
+    var traces = Collections.synchronizedList(new ArrayList<String>());
+    var traceListener = new DebugLogListener() {
+      @Override
+      public void traceIdeMessage(@Nullable String msg) {
+        if (msg != null && msg.startsWith("[RunningAnalysesTracker#")) {
+          traces.add(msg);
+        }
+      }
+    };
+    SonarLintLogger.get().addLogListener(traceListener);
+    try {
+      var analysis = new AnalysisState(UUID.randomUUID(), List.of(), TriggerType.EDITOR_CHANGE);
+      tracker.track(analysis);
+      tracker.cancel(analysis);
+      tracker.discardIfCancelled(analysis.getId());
+    } finally {
+      SonarLintLogger.get().removeLogListener(traceListener);
+    }
+
+    assertThat(traces).hasSize(2).allMatch(msg -> msg.startsWith("[RunningAnalysesTracker#traceStatistics] running="));
+    assertThat(traces.get(1)).endsWith(", cancelled=" + tracker.getCancelledCount() + ", wasted=" + tracker.getWastedCount());
+  }
+
+  private class DebugLogListener implements LogListener {
+    @Override
+    public void info(@Nullable String msg) {
+      // Not needed
+    }
+
+    @Override
+    public void error(@Nullable String msg) {
+      // Not needed
+    }
+
+    @Override
+    public void error(@Nullable String msg, Throwable t) {
+      // Not needed
+    }
+
+    @Override
+    public void debug(@Nullable String msg) {
+      debugMessages.add(msg);
+    }
+
+    @Override
+    public void debug(@Nullable String msg, Throwable t) {
+      debugMessages.add(msg);
+    }
+
+    @Override
+    public void traceIdeMessage(@Nullable String msg) {
+      // Not needed
+    }
+
+    @Override
+    public void traceIdeMessage(@Nullable String msg, Throwable t) {
+      // Not needed
+    }
+  }
+}
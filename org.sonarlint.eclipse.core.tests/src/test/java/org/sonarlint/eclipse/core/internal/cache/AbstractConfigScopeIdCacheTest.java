@@ -0,0 +1,172 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.cache;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache.InvalidationEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AbstractConfigScopeIdCacheTest {
+  private final TestCache underTest = new TestCache(3);
+
+  @Test
+  public void should_count_hits_and_misses() {
+    underTest.putEntry("a", "value");
+
+    assertThat(underTest.getEntry("a")).isEqualTo("value");
+    assertThat(underTest.getEntry("b")).isNull();
+    assertThat(underTest.getHitCount()).isEqualTo(1);
+    assertThat(underTest.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_evict_least_recently_used_entries() {
+    underTest.putEntry("a", "1");
+    underTest.putEntry("b", "1");
+    underTest.putEntry("c", "1");
+    underTest.getEntry("a");
+
+    underTest.putEntry("d", "1");
+
+    assertThat(underTest.peek("b")).isNull();
+    assertThat(underTest.peek("a")).isNotNull();
+    assertThat(underTest.peek("c")).isNotNull();
+    assertThat(underTest.peek("d")).isNotNull();
+    assertThat(underTest.getEvictionCount()).isEqualTo(1);
+    assertThat(underTest.removed).containsExactly("b");
+  }
+
+  @Test
+  public void should_evict_based_on_weights() {
+    // Every value weighs its length
+    underTest.putEntry("a", "1");
+    underTest.putEntry("b", "1");
+    underTest.putEntry("c", "12");
+
+    assertThat(underTest.peek("a")).isNull();
+    assertThat(underTest.peek("b")).isNotNull();
+    assertThat(underTest.peek("c")).isNotNull();
+
+    underTest.putEntry("b", "123");
+
+    assertThat(underTest.entries()).containsExactly("123");
+    assertThat(underTest.removed).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  public void peek_should_not_count_as_access() {
+    underTest.putEntry("a", "1");
+    underTest.putEntry("b", "1");
+    underTest.putEntry("c", "1");
+    underTest.peek("a");
+
+    underTest.putEntry("d", "1");
+
+    assertThat(underTest.peek("a")).isNull();
+    assertThat(underTest.getHitCount()).isZero();
+    assertThat(underTest.getMissCount()).isZero();
+  }
+
+  @Test
+  public void should_only_invalidate_on_relevant_events() {
+    var configScopeId = UUID.randomUUID().toString();
+    underTest.putEntry(configScopeId, "1");
+    underTest.putEntry("other", "1");
+
+    AbstractConfigScopeIdCache.invalidate(configScopeId, InvalidationEvent.BUILD_MODEL_CHANGED);
+    assertThat(underTest.peek(configScopeId)).isNotNull();
+    assertThat(underTest.getInvalidationCount()).isZero();
+
+    AbstractConfigScopeIdCache.invalidate(configScopeId, InvalidationEvent.PROJECT_CLOSED);
+    assertThat(underTest.peek(configScopeId)).isNull();
+    assertThat(underTest.peek("other")).isNotNull();
+    assertThat(underTest.getInvalidationCount()).isEqualTo(1);
+    assertThat(underTest.removed).containsExactly(configScopeId);
+  }
+
+  @Test
+  public void should_broadcast_events_to_all_caches() {
+    var configScopeId = UUID.randomUUID().toString();
+    var other = new TestCache(3);
+    underTest.putEntry(configScopeId, "1");
+    other.putEntry(configScopeId, "1");
+
+    AbstractConfigScopeIdCache.invalidate(configScopeId, InvalidationEvent.PROJECT_CLOSED);
+
+    assertThat(underTest.peek(configScopeId)).isNull();
+    assertThat(other.peek(configScopeId)).isNull();
+  }
+
+  @Test
+  public void should_notify_removal_when_replaced_or_cleared() {
+    underTest.putEntry("a", "1");
+    underTest.putEntry("a", "2");
+    underTest.putEntry("b", "1");
+
+    underTest.clear();
+
+    assertThat(underTest.removed).containsExactlyInAnyOrder("a", "a", "b");
+    assertThat(underTest.entries()).isEmpty();
+  }
+
+  private static class TestCache extends AbstractConfigScopeIdCache<String> {
+    private final long maximumWeight;
+    private final List<String> removed = new ArrayList<>();
+
+    private TestCache(long maximumWeight) {
+      this.maximumWeight = maximumWeight;
+    }
+
+    // The protected methods are not accessible from the test itself, as it lives in another bundle
+    private String peek(String configScopeId) {
+      return peekEntry(configScopeId);
+    }
+
+    private List<String> entries() {
+      return getEntries();
+    }
+
+    @Override
+    protected Set<InvalidationEvent> getInvalidationEvents() {
+      return EnumSet.of(InvalidationEvent.PROJECT_CLOSED);
+    }
+
+    @Override
+    protected long getMaximumWeight() {
+      return maximumWeight;
+    }
+
+    @Override
+    protected int weigh(String value) {
+      return value.length();
+    }
+
+    @Override
+    protected void onRemoval(String configScopeId, String value) {
+      removed.add(configScopeId);
+    }
+  }
+}
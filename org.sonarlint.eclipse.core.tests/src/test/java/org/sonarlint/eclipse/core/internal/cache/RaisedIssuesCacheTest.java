@@ -0,0 +1,141 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.cache;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import org.eclipse.core.resources.IProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.IssueFlowDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.IssueLocationDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RaisedIssuesCacheTest {
+  private final RaisedIssuesCache underTest = RaisedIssuesCache.INSTANCE;
+  private final ISonarLintProject project = mock(ISonarLintProject.class);
+  private final ISonarLintFile fileA = mock(ISonarLintFile.class);
+  private final ISonarLintFile fileB = mock(ISonarLintFile.class);
+
+  @Before
+  public void prepare() {
+    // The cache is a singleton, every test uses its own configuration scope
+    var resource = mock(IProject.class);
+    when(resource.getLocationURI()).thenReturn(URI.create("file:///workspace/" + UUID.randomUUID()));
+    when(project.getResource()).thenReturn(resource);
+    when(fileA.getProject()).thenReturn(project);
+    when(fileB.getProject()).thenReturn(project);
+  }
+
+  @Test
+  public void should_cache_issues_per_file_and_kind() {
+    var issues = List.of(issue("message"));
+    underTest.put(fileA, issues, true, true);
+    underTest.put(fileB, List.of(), false, false);
+
+    assertThat(underTest.contains(fileA, true)).isTrue();
+    assertThat(underTest.contains(fileA, false)).isFalse();
+    assertThat(underTest.contains(fileB, false)).isTrue();
+
+    var projectIssues = underTest.get(project);
+    assertThat(projectIssues.getProject()).isSameAs(project);
+    assertThat(projectIssues.getIssues(true)).containsOnlyKeys(fileA);
+    assertThat(projectIssues.getIssues(true).get(fileA).getIssues()).isSameAs(issues);
+    assertThat(projectIssues.getIssues(true).get(fileA).isViableForStatusChange()).isTrue();
+    assertThat(projectIssues.getIssues(false)).containsOnlyKeys(fileB);
+  }
+
+  @Test
+  public void should_not_contain_unknown_files() {
+    assertThat(underTest.contains(fileA, true)).isFalse();
+    assertThat(underTest.get(project)).isNull();
+  }
+
+  @Test
+  public void should_track_size_when_replacing_and_removing_issues() {
+    var issue = issue("message");
+    underTest.put(fileA, List.of(issue), true, false);
+    var oneIssue = underTest.get(project).getSize();
+    assertThat(oneIssue).isEqualTo(RaisedIssuesCache.estimateSize(issue));
+
+    underTest.put(fileA, List.of(issue, issue), true, false);
+    assertThat(underTest.get(project).getSize()).isEqualTo(2 * oneIssue);
+
+    underTest.remove(fileA, true);
+    assertThat(underTest.get(project).getSize()).isZero();
+    assertThat(underTest.contains(fileA, true)).isFalse();
+  }
+
+  @Test
+  public void should_remove_all_report_issues() {
+    underTest.put(fileA, List.of(issue("message")), true, false);
+    underTest.put(fileB, List.of(issue("message")), false, false);
+
+    underTest.removeAllReportIssues();
+
+    assertThat(underTest.contains(fileA, true)).isTrue();
+    assertThat(underTest.contains(fileB, false)).isFalse();
+  }
+
+  @Test
+  public void should_weigh_project_again_when_removing_issues() {
+    var weightBefore = underTest.getTotalWeight();
+    var largeIssue = issue("x".repeat(10_000));
+    underTest.put(fileA, List.of(largeIssue), true, false);
+    underTest.put(fileB, List.of(largeIssue), false, false);
+    assertThat(underTest.getTotalWeight()).isGreaterThan(weightBefore + 30);
+
+    underTest.removeAllReportIssues();
+    var weightWithoutReport = underTest.getTotalWeight();
+    assertThat(weightWithoutReport).isBetween(weightBefore + 15, weightBefore + 25);
+
+    underTest.remove(fileA, true);
+    assertThat(underTest.getTotalWeight()).isEqualTo(weightBefore + 1);
+  }
+
+  @Test
+  public void should_estimate_size_of_flows() {
+    var plain = issue("message");
+    var withFlows = issue("message");
+    var location = mock(IssueLocationDto.class);
+    when(location.getMessage()).thenReturn("a rather long message of a secondary location");
+    var flow = mock(IssueFlowDto.class);
+    when(flow.getLocations()).thenReturn(List.of(location, location, location));
+    when(withFlows.getFlows()).thenReturn(List.of(flow));
+
+    assertThat(RaisedIssuesCache.estimateSize(withFlows)).isGreaterThan(RaisedIssuesCache.estimateSize(plain) + 3 * 2 * 45);
+    assertThat(RaisedIssuesCache.estimateSize(issue("a longer message"))).isEqualTo(RaisedIssuesCache.estimateSize(plain) + 2 * 9);
+  }
+
+  private static RaisedIssueDto issue(String message) {
+    var issue = mock(RaisedIssueDto.class);
+    when(issue.getPrimaryMessage()).thenReturn(message);
+    when(issue.getFlows()).thenReturn(List.of());
+    when(issue.getQuickFixes()).thenReturn(List.of());
+    return issue;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.cache;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache.InvalidationEvent;
+import org.sonarsource.sonarlint.core.rpc.protocol.backend.tracking.TaintVulnerabilityDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaintVulnerabilitiesCacheTest {
+  private static final Path FILE_A = Path.of("src/A.java");
+  private static final Path FILE_B = Path.of("src/B.java");
+
+  private final TaintVulnerabilitiesCache underTest = new TaintVulnerabilitiesCache();
+  private final String configScopeId = "taint-" + UUID.randomUUID();
+  private final AtomicInteger fetchCount = new AtomicInteger();
+
+  @Test
+  public void should_fetch_once_and_reuse_index() throws Exception {
+    var taint = taint(UUID.randomUUID(), FILE_A);
+
+    var first = underTest.getTaintVulnerabilities(configScopeId, () -> fetch(taint));
+    var second = underTest.getTaintVulnerabilities(configScopeId, () -> fetch(taint));
+
+    assertThat(fetchCount.get()).isEqualTo(1);
+    assertThat(second).isSameAs(first);
+    assertThat(second.get(FILE_A)).containsExactly(taint);
+    assertThat(second.get(FILE_B)).isEmpty();
+  }
+
+  @Test
+  public void should_not_cache_index_when_project_changed_while_fetching() throws Exception {
+    var taint = taint(UUID.randomUUID(), FILE_A);
+
+    var index = underTest.getTaintVulnerabilities(configScopeId, () -> {
+      underTest.update(configScopeId, Set.of(), List.of(taint(UUID.randomUUID(), FILE_B)), List.of());
+      return fetch(taint);
+    });
+    assertThat(index.get(FILE_A)).containsExactly(taint);
+
+    underTest.getTaintVulnerabilities(configScopeId, () -> fetch(taint));
+    assertThat(fetchCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_cache_index_when_project_synchronized_while_fetching() throws Exception {
+    underTest.getTaintVulnerabilities(configScopeId, () -> {
+      underTest.didSynchronize(configScopeId);
+      return fetch();
+    });
+    underTest.getTaintVulnerabilities(configScopeId, this::fetch);
+
+    assertThat(fetchCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_cache_index_when_project_closed_while_fetching() throws Exception {
+    underTest.getTaintVulnerabilities(configScopeId, () -> {
+      AbstractConfigScopeIdCache.invalidate(configScopeId, InvalidationEvent.PROJECT_CLOSED);
+      return fetch();
+    });
+    underTest.getTaintVulnerabilities(configScopeId, this::fetch);
+
+    assertThat(fetchCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_cache_index_when_only_other_projects_changed_while_fetching() throws Exception {
+    var otherConfigScopeId = "other-" + UUID.randomUUID();
+
+    underTest.getTaintVulnerabilities(configScopeId, () -> {
+      underTest.update(otherConfigScopeId, Set.of(), List.of(taint(UUID.randomUUID(), FILE_A)), List.of());
+      underTest.didSynchronize(otherConfigScopeId);
+      return fetch();
+    });
+    underTest.getTaintVulnerabilities(configScopeId, this::fetch);
+
+    assertThat(fetchCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_apply_changes_to_fetched_index() throws Exception {
+    var closedId = UUID.randomUUID();
+    var updatedId = UUID.randomUUID();
+    var unchanged = taint(UUID.randomUUID(), FILE_A);
+    var index = underTest.getTaintVulnerabilities(configScopeId,
+      () -> fetch(taint(closedId, FILE_A), taint(updatedId, FILE_A), unchanged));
+
+    var added = taint(UUID.randomUUID(), FILE_B);
+    // The updated taint vulnerability now belongs to another file
+    var updated = taint(updatedId, FILE_B);
+    underTest.update(configScopeId, Set.of(closedId), List.of(added), List.of(updated));
+
+    assertThat(underTest.getTaintVulnerabilities(configScopeId, this::fetch)).isSameAs(index);
+    assertThat(fetchCount.get()).isEqualTo(1);
+    assertThat(index.get(FILE_A)).containsExactly(unchanged);
+    assertThat(index.get(FILE_B)).containsExactlyInAnyOrder(added, updated);
+  }
+
+  @Test
+  public void should_drop_file_when_its_last_taint_vulnerability_is_closed() throws Exception {
+    var id = UUID.randomUUID();
+    var index = underTest.getTaintVulnerabilities(configScopeId, () -> fetch(taint(id, FILE_A)));
+
+    underTest.update(configScopeId, Set.of(id), List.of(), List.of());
+
+    assertThat(index.get(FILE_A)).isEmpty();
+  }
+
+  @Test
+  public void should_ignore_changes_when_index_not_fetched_yet() throws Exception {
+    underTest.update(configScopeId, Set.of(), List.of(taint(UUID.randomUUID(), FILE_A)), List.of());
+
+    assertThat(underTest.getEntry(configScopeId)).isNull();
+  }
+
+  private List<TaintVulnerabilityDto> fetch(TaintVulnerabilityDto... taintVulnerabilities) {
+    fetchCount.incrementAndGet();
+    return List.of(taintVulnerabilities);
+  }
+
+  private static TaintVulnerabilityDto taint(UUID id, Path ideFilePath) {
+    var taint = mock(TaintVulnerabilityDto.class);
+    when(taint.getId()).thenReturn(id);
+    when(taint.getIdeFilePath()).thenReturn(ideFilePath);
+    return taint;
+  }
+}
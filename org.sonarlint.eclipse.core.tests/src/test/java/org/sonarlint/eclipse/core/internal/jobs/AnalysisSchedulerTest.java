@@ -0,0 +1,232 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest.FileWithDocument;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisSchedulerTest {
+  /** All the analyses of the tests are run one after another, and only once the blocking job is done */
+  private static final ISchedulingRule RULE = new ISchedulingRule() {
+    @Override
+    public boolean contains(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    @Override
+    public boolean isConflicting(ISchedulingRule rule) {
+      return rule == this;
+    }
+  };
+
+  private final ISonarLintProject project = mock(ISonarLintProject.class);
+  private final ISonarLintFile fileA = mock(ISonarLintFile.class);
+  private final ISonarLintFile fileB = mock(ISonarLintFile.class);
+  private final List<FakeAnalysisJob> jobs = new CopyOnWriteArrayList<>();
+  private final AnalysisScheduler underTest = new AnalysisScheduler(request -> {
+    var job = new FakeAnalysisJob(request);
+    jobs.add(job);
+    return job;
+  });
+  private final CountDownLatch gate = new CountDownLatch(1);
+  private final CountDownLatch blockerStarted = new CountDownLatch(1);
+
+  @Before
+  public void blockAnalyses() throws InterruptedException {
+    when(project.getName()).thenReturn("project");
+    var blocker = new Job("Block analyses") {
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        blockerStarted.countDown();
+        await(gate);
+        return Status.OK_STATUS;
+      }
+    };
+    blocker.setRule(RULE);
+    blocker.schedule();
+    assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @After
+  public void releaseAnalyses() throws InterruptedException {
+    gate.countDown();
+    for (var job : jobs) {
+      job.release.countDown();
+      job.join();
+    }
+  }
+
+  @Test
+  public void should_merge_automatic_requests_into_the_queued_analysis() {
+    underTest.schedule(request(TriggerType.ANALYSIS_READY, fileA));
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileB));
+
+    assertThat(jobs).hasSize(2);
+    assertThat(jobs.get(0).getState()).isEqualTo(Job.NONE);
+    assertThat(jobs.get(1).getState()).isEqualTo(Job.WAITING);
+    assertThat(files(jobs.get(1).request)).containsExactly(fileA, fileB);
+    assertThat(jobs.get(1).request.getTriggerType()).isEqualTo(TriggerType.EDITOR_CHANGE);
+    // Fetching server issues is kept from the older request
+    assertThat(jobs.get(1).request.shouldFetchServerIssues()).isTrue();
+  }
+
+  @Test
+  public void should_keep_the_more_important_trigger_when_merging() {
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA));
+    underTest.schedule(request(TriggerType.ANALYSIS_READY, fileA));
+
+    assertThat(jobs).hasSize(2);
+    assertThat(files(jobs.get(1).request)).containsExactly(fileA);
+    assertThat(jobs.get(1).request.getTriggerType()).isEqualTo(TriggerType.EDITOR_CHANGE);
+  }
+
+  @Test
+  public void should_not_merge_manual_analyses() {
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA, fileB));
+    underTest.schedule(request(TriggerType.MANUAL, fileA));
+
+    assertThat(jobs).hasSize(2);
+    assertThat(jobs.get(0).getState()).isEqualTo(Job.WAITING);
+    assertThat(files(jobs.get(1).request)).containsExactly(fileA);
+    assertThat(jobs.get(1).request.getTriggerType()).isEqualTo(TriggerType.MANUAL);
+  }
+
+  @Test
+  public void should_supersede_queued_analysis_by_manual_analysis_covering_its_files() {
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA));
+    underTest.schedule(request(TriggerType.MANUAL, fileA, fileB));
+
+    assertThat(jobs).hasSize(2);
+    assertThat(jobs.get(0).getState()).isEqualTo(Job.NONE);
+    assertThat(files(jobs.get(1).request)).containsExactly(fileA, fileB);
+    assertThat(jobs.get(1).request.getTriggerType()).isEqualTo(TriggerType.MANUAL);
+  }
+
+  @Test
+  public void should_only_cancel_the_analysis_when_no_other_request_is_part_of_it() {
+    var typing = underTest.schedule(request(TriggerType.EDITOR_TYPING, fileA));
+    var save = underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileB));
+    var merged = jobs.get(1);
+
+    typing.cancel();
+    assertThat(merged.getState()).isEqualTo(Job.WAITING);
+
+    save.cancel();
+    assertThat(merged.getState()).isEqualTo(Job.NONE);
+  }
+
+  @Test
+  public void should_notify_merged_requests_with_the_result_of_the_analysis_they_ended_up_in() throws InterruptedException {
+    var results = new CopyOnWriteArrayList<IStatus>();
+    var first = underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA));
+    first.addDoneListener(results::add);
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileB));
+
+    gate.countDown();
+    jobs.get(1).release.countDown();
+    jobs.get(1).join();
+
+    assertThat(results).extracting(IStatus::getSeverity).containsExactly(IStatus.OK);
+  }
+
+  @Test
+  public void should_cancel_running_analysis_superseded_by_a_new_request() throws InterruptedException {
+    var results = new CopyOnWriteArrayList<IStatus>();
+    var first = underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA));
+    first.addDoneListener(results::add);
+    gate.countDown();
+    assertThat(jobs.get(0).started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    underTest.schedule(request(TriggerType.EDITOR_CHANGE, fileA, fileB));
+    jobs.get(0).join();
+    assertThat(jobs.get(0).getResult().getSeverity()).isEqualTo(IStatus.CANCEL);
+    assertThat(results).isEmpty();
+
+    // The first request is now part of the new analysis
+    jobs.get(1).release.countDown();
+    jobs.get(1).join();
+    assertThat(results).extracting(IStatus::getSeverity).containsExactly(IStatus.OK);
+  }
+
+  private AnalyzeProjectRequest request(TriggerType triggerType, ISonarLintFile... files) {
+    var filesWithDocument = List.of(files).stream()
+      .map(file -> new FileWithDocument(file, null))
+      .collect(Collectors.toList());
+    return new AnalyzeProjectRequest(project, filesWithDocument, triggerType, !triggerType.isOnTheFly());
+  }
+
+  private static List<ISonarLintFile> files(AnalyzeProjectRequest request) {
+    return request.getFiles().stream().map(FileWithDocument::getFile).collect(Collectors.toList());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class FakeAnalysisJob extends Job {
+    private final AnalyzeProjectRequest request;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private FakeAnalysisJob(AnalyzeProjectRequest request) {
+      super("Fake analysis");
+      this.request = request;
+      setRule(RULE);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      started.countDown();
+      try {
+        while (!release.await(10, TimeUnit.MILLISECONDS)) {
+          if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+          }
+        }
+      } catch (InterruptedException err) {
+        Thread.currentThread().interrupt();
+      }
+      return Status.OK_STATUS;
+    }
+  }
+}
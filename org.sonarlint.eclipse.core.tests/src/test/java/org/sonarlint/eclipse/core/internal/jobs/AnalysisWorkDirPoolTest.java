@@ -0,0 +1,116 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisWorkDirPoolTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final AnalysisWorkDirPool underTest = AnalysisWorkDirPool.get();
+  private final ISonarLintProject project = mock(ISonarLintProject.class);
+  private Path workingDir;
+
+  @Before
+  public void prepare() throws Exception {
+    workingDir = temp.newFolder().toPath().resolve("work");
+    when(project.getWorkingDir()).thenReturn(workingDir);
+    when(project.getName()).thenReturn("project");
+  }
+
+  @Test
+  public void should_only_create_folder_when_used() throws Exception {
+    try (var lease = underTest.lease(project)) {
+      assertThat(workingDir).doesNotExist();
+
+      var dir = lease.get();
+      assertThat(dir).isDirectory();
+      assertThat(lease.get()).isEqualTo(dir);
+      assertThat(AnalysisWorkDirPool.isAnalysisFolderPath(project, dir.resolve("main.c"))).isTrue();
+    }
+  }
+
+  @Test
+  public void should_reuse_emptied_folder() throws Exception {
+    Path dir;
+    try (var lease = underTest.lease(project)) {
+      dir = lease.get();
+      Files.createDirectories(dir.resolve("sub"));
+      Files.writeString(dir.resolve("sub").resolve("file.txt"), "content");
+    }
+    underTest.waitForCleanups();
+
+    try (var lease = underTest.lease(project)) {
+      assertThat(lease.get()).isEqualTo(dir).isEmptyDirectory();
+    }
+  }
+
+  @Test
+  public void should_delete_folder_leased_before_project_was_discarded() throws Exception {
+    var lease = underTest.lease(project);
+    var dir = lease.get();
+    Files.writeString(dir.resolve("file.txt"), "content");
+
+    underTest.discard(project);
+    lease.close();
+    underTest.waitForCleanups();
+
+    assertThat(dir).doesNotExist();
+    try (var newLease = underTest.lease(project)) {
+      assertThat(newLease.get()).isNotEqualTo(dir);
+    }
+  }
+
+  @Test
+  public void should_not_sweep_folder_still_leased_when_project_is_reopened() throws Exception {
+    var lease = underTest.lease(project);
+    var dir = lease.get();
+
+    underTest.discard(project);
+    try (var newLease = underTest.lease(project)) {
+      assertThat(newLease.get()).isNotEqualTo(dir);
+    }
+    underTest.waitForCleanups();
+    assertThat(dir).isDirectory();
+
+    lease.close();
+    underTest.waitForCleanups();
+    assertThat(dir).doesNotExist();
+  }
+
+  @Test
+  public void should_only_consider_analysis_folders_as_temporary() {
+    assertThat(AnalysisWorkDirPool.isAnalysisFolderPath(project, workingDir.resolve("analysis-123").resolve("main.c"))).isTrue();
+    assertThat(AnalysisWorkDirPool.isAnalysisFolderPath(project, workingDir.resolve("mirror").resolve("main.c"))).isFalse();
+    assertThat(AnalysisWorkDirPool.isAnalysisFolderPath(project, workingDir)).isFalse();
+    assertThat(AnalysisWorkDirPool.isAnalysisFolderPath(project, temp.getRoot().toPath().resolve("main.c"))).isFalse();
+  }
+}
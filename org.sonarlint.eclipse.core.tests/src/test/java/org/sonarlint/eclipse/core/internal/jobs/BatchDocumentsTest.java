@@ -0,0 +1,133 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintFileAdapter;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintProjectAdapter;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.tests.common.SonarTestCase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchDocumentsTest extends SonarTestCase {
+  private static final AtomicInteger PROJECT_COUNTER = new AtomicInteger();
+
+  private IProject project;
+  private ISonarLintFile foo;
+  private ISonarLintFile bar;
+
+  @Before
+  public void createProject() throws CoreException {
+    project = workspace.getRoot().getProject("BatchDocuments" + PROJECT_COUNTER.incrementAndGet());
+    project.create(MONITOR);
+    project.open(MONITOR);
+    var slProject = new DefaultSonarLintProjectAdapter(project);
+    foo = new DefaultSonarLintFileAdapter(slProject, createFile("Foo.java", "\uFEFFclass Foo {\n}\n"));
+    bar = new DefaultSonarLintFileAdapter(slProject, createFile("Bar.java", "class Bar {\n}\n"));
+  }
+
+  @After
+  public void deleteProject() throws CoreException {
+    project.delete(true, true, MONITOR);
+  }
+
+  private IFile createFile(String name, String content) throws CoreException {
+    var file = project.getFile(name);
+    file.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), true, MONITOR);
+    file.setCharset(StandardCharsets.UTF_8.name(), MONITOR);
+    return file;
+  }
+
+  @Test
+  public void should_load_every_file_once_until_released() {
+    try (var documents = new BatchDocuments()) {
+      var document = documents.get(foo);
+      assertThat(document.get()).isEqualTo("class Foo {\n}\n");
+      assertThat(document.getNumberOfLines()).isEqualTo(3);
+      assertThat(documents.get(foo)).isSameAs(document);
+
+      documents.release(foo);
+      assertThat(documents.get(foo)).isNotSameAs(document);
+    }
+  }
+
+  @Test
+  public void should_keep_files_referenced_by_other_files() {
+    try (var documents = new BatchDocuments()) {
+      var barDocument = documents.getReferenced(bar, foo);
+      var fooDocument = documents.getReferenced(foo, foo);
+      documents.release(foo);
+      documents.release(bar);
+
+      assertThat(documents.get(bar)).isSameAs(barDocument);
+      assertThat(documents.get(foo)).isNotSameAs(fooDocument);
+    }
+  }
+
+  @Test
+  public void should_disconnect_file_buffer_of_open_file_when_released() throws CoreException {
+    var manager = FileBuffers.getTextFileBufferManager();
+    var path = foo.getResource().getFullPath();
+    // Simulates an editor with unsaved changes
+    manager.connect(path, LocationKind.IFILE, MONITOR);
+    try {
+      var buffer = manager.getTextFileBuffer(path, LocationKind.IFILE);
+      buffer.getDocument().set("class Unsaved {\n}\n");
+
+      try (var documents = new BatchDocuments()) {
+        assertThat(documents.get(foo)).isSameAs(buffer.getDocument());
+        documents.release(foo);
+      }
+    } finally {
+      manager.disconnect(path, LocationKind.IFILE, MONITOR);
+    }
+    // Would still be connected by the batch otherwise
+    assertThat(manager.getTextFileBuffer(path, LocationKind.IFILE)).isNull();
+  }
+
+  @Test
+  public void should_disconnect_file_buffers_of_referenced_files_when_closed() throws CoreException {
+    var manager = FileBuffers.getTextFileBufferManager();
+    var path = bar.getResource().getFullPath();
+    manager.connect(path, LocationKind.IFILE, MONITOR);
+    var documents = new BatchDocuments();
+    try {
+      documents.getReferenced(bar, foo);
+      documents.release(bar);
+    } finally {
+      manager.disconnect(path, LocationKind.IFILE, MONITOR);
+    }
+    assertThat(manager.getTextFileBuffer(path, LocationKind.IFILE)).isNotNull();
+
+    documents.close();
+    assertThat(manager.getTextFileBuffer(path, LocationKind.IFILE)).isNull();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.eclipse.core.resources.IProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest.FileWithDocument;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeferredAnalysisQueueTest {
+  private final List<AnalyzeProjectRequest> replayed = new ArrayList<>();
+  private final DeferredAnalysisQueue underTest = new DeferredAnalysisQueue(replayed::add);
+  private final ISonarLintProject project = mock(ISonarLintProject.class);
+  private final ISonarLintFile fileA = mock(ISonarLintFile.class);
+  private final ISonarLintFile fileB = mock(ISonarLintFile.class);
+  private final ISonarLintFile openFile = mock(ISonarLintFile.class);
+  private String configScopeId;
+
+  @Before
+  public void prepare() {
+    // The readiness is kept in a static cache, every test uses its own configuration scope
+    var location = URI.create("file:///workspace/" + UUID.randomUUID());
+    configScopeId = location.toString();
+    var resource = mock(IProject.class);
+    when(resource.getLocationURI()).thenReturn(location);
+    when(project.getResource()).thenReturn(resource);
+    when(project.getName()).thenReturn("project");
+    AnalysisReadyStatusCache.changeAnalysisReadiness(configScopeId, false);
+  }
+
+  @Test
+  public void should_not_park_when_ready() {
+    AnalysisReadyStatusCache.changeAnalysisReadiness(configScopeId, true);
+
+    assertThat(underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileA))).isFalse();
+  }
+
+  @Test
+  public void should_not_park_manual_analysis() {
+    assertThat(underTest.deferIfNotReady(request(TriggerType.MANUAL, fileA))).isFalse();
+  }
+
+  @Test
+  public void should_park_and_merge_requests_until_ready() {
+    assertThat(underTest.deferIfNotReady(request(TriggerType.EDITOR_OPEN, fileA))).isTrue();
+    assertThat(underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileB))).isTrue();
+    assertThat(replayed).isEmpty();
+
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> List.of());
+
+    assertThat(replayed).hasSize(1);
+    assertThat(files(replayed.get(0))).containsExactly(fileA, fileB);
+    assertThat(AnalysisReadyStatusCache.getAnalysisReadiness(configScopeId)).isTrue();
+  }
+
+  @Test
+  public void should_merge_open_files_into_replayed_request() {
+    underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileA));
+
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> openFiles(fileA, openFile));
+
+    assertThat(replayed).hasSize(1);
+    assertThat(replayed.get(0).getProject()).isSameAs(project);
+    assertThat(files(replayed.get(0))).containsExactlyInAnyOrder(fileA, openFile);
+  }
+
+  @Test
+  public void should_keep_parked_while_not_ready() {
+    underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileA));
+
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), false, p -> openFiles(openFile));
+
+    assertThat(replayed).isEmpty();
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> List.of());
+    assertThat(replayed).hasSize(1);
+  }
+
+  @Test
+  public void should_replay_only_once() {
+    underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileA));
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> List.of());
+
+    // Already ready, neither the parked nor the open files are analyzed again
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> openFiles(openFile));
+
+    assertThat(replayed).hasSize(1);
+  }
+
+  @Test
+  public void should_not_replay_discarded_requests() {
+    underTest.deferIfNotReady(request(TriggerType.EDITOR_CHANGE, fileA));
+    underTest.discard(configScopeId);
+
+    underTest.changeAnalysisReadiness(Set.of(configScopeId), true, p -> List.of());
+
+    assertThat(replayed).isEmpty();
+  }
+
+  private AnalyzeProjectRequest request(TriggerType triggerType, ISonarLintFile file) {
+    return new AnalyzeProjectRequest(project, List.of(new FileWithDocument(file, null)), triggerType, false);
+  }
+
+  private static Collection<FileWithDocument> openFiles(ISonarLintFile... files) {
+    return List.of(files).stream().map(f -> new FileWithDocument(f, null)).collect(Collectors.toList());
+  }
+
+  private static List<ISonarLintFile> files(AnalyzeProjectRequest request) {
+    return request.getFiles().stream().map(FileWithDocument::getFile).collect(Collectors.toList());
+  }
+}
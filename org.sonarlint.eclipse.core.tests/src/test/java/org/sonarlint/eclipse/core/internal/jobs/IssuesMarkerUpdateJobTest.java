@@ -0,0 +1,188 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintProjectAdapter;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarlint.eclipse.tests.common.SonarTestCase;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssuesMarkerUpdateJobTest extends SonarTestCase {
+  private static final AtomicInteger PROJECT_COUNTER = new AtomicInteger();
+
+  private IProject project;
+  private ISonarLintProject slProject;
+  private RecordingUpdateJob updateJob;
+
+  @Before
+  public void createProject() throws CoreException {
+    project = workspace.getRoot().getProject("MarkerUpdate" + PROJECT_COUNTER.incrementAndGet());
+    project.create(MONITOR);
+    project.open(MONITOR);
+    slProject = new DefaultSonarLintProjectAdapter(project);
+    updateJob = new RecordingUpdateJob();
+  }
+
+  @After
+  public void deleteProject() throws CoreException {
+    updateJob.releaseAll();
+    project.delete(true, true, MONITOR);
+  }
+
+  @Test
+  public void should_apply_requests_in_order() throws Exception {
+    var r0Started = updateJob.block("r0");
+    updateJob.add(slProject, request("r0"), true);
+    assertThat(r0Started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Queued while the first request is being processed
+    updateJob.add(slProject, request("r1"), false);
+    updateJob.add(slProject, request("r2"), true);
+    updateJob.add(slProject, request("r3"), false);
+    updateJob.release("r0");
+
+    updateJob.awaitProcessed(4);
+    assertThat(updateJob.processed).containsExactly("r0", "r1", "r2", "r3");
+  }
+
+  @Test
+  public void should_requeue_remaining_requests_before_newer_ones_on_cancellation() throws Exception {
+    var r0Started = updateJob.block("r0");
+    updateJob.add(slProject, request("r0"), true);
+    assertThat(r0Started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Both are polled at once by the next run, the second one is cancelled after the first was applied
+    var r1Started = updateJob.block("r1");
+    updateJob.cancelOnce("r2");
+    updateJob.add(slProject, request("r1"), true);
+    updateJob.add(slProject, request("r2"), true);
+    updateJob.release("r0");
+    assertThat(r1Started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Queued after r2 was polled, so it must be applied after r2 is re-queued
+    updateJob.add(slProject, request("r3"), true);
+    updateJob.release("r1");
+
+    updateJob.awaitProcessed(5);
+    assertThat(updateJob.processed).containsExactly("r0", "r1", "r2", "r2", "r3");
+  }
+
+  @Test
+  public void should_drop_pending_requests_of_discarded_project() throws Exception {
+    var r0Started = updateJob.block("r0");
+    updateJob.add(slProject, request("r0"), true);
+    assertThat(r0Started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    updateJob.add(slProject, request("r1"), true);
+    updateJob.discard(slProject);
+    updateJob.release("r0");
+
+    // A new job is created for the project, it only runs after the discarded one released the project rule
+    updateJob.add(slProject, request("r2"), true);
+
+    updateJob.awaitProcessed(2);
+    assertThat(updateJob.processed).containsExactly("r0", "r2");
+  }
+
+  @Test
+  public void should_ignore_requests_of_closed_project() throws Exception {
+    project.close(MONITOR);
+
+    updateJob.add(slProject, request("r0"), true);
+    project.open(MONITOR);
+    updateJob.add(slProject, request("r1"), true);
+
+    updateJob.awaitProcessed(1);
+    assertThat(updateJob.processed).containsExactly("r1");
+  }
+
+  private static Map<URI, List<RaisedIssueDto>> request(String name) {
+    return Map.of(URI.create("file:///" + name), List.of());
+  }
+
+  private static class RecordingUpdateJob extends IssuesMarkerUpdateJob {
+    private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+    private final Semaphore processedPermits = new Semaphore(0);
+    private final Map<String, CountDownLatch> started = new ConcurrentHashMap<>();
+    private final Map<String, CountDownLatch> gates = new ConcurrentHashMap<>();
+    private final Set<String> toCancel = Collections.synchronizedSet(new HashSet<>());
+
+    private CountDownLatch block(String name) {
+      gates.put(name, new CountDownLatch(1));
+      var latch = new CountDownLatch(1);
+      started.put(name, latch);
+      return latch;
+    }
+
+    private void release(String name) {
+      gates.get(name).countDown();
+    }
+
+    private void releaseAll() {
+      gates.values().forEach(CountDownLatch::countDown);
+    }
+
+    private void cancelOnce(String name) {
+      toCancel.add(name);
+    }
+
+    private void awaitProcessed(int count) throws InterruptedException {
+      assertThat(processedPermits.tryAcquire(count, 10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Override
+    protected boolean process(ISonarLintProject project, Request req, Job job, IProgressMonitor monitor) {
+      var name = req.getIssuesByFileUri().keySet().iterator().next().getPath().substring(1);
+      var startedLatch = started.remove(name);
+      if (startedLatch != null) {
+        startedLatch.countDown();
+        try {
+          gates.get(name).await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      processed.add(name);
+      processedPermits.release();
+      return !toCancel.remove(name);
+    }
+  }
+}
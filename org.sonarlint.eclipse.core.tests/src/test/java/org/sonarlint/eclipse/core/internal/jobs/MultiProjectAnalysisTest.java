@@ -0,0 +1,176 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MultiProjectAnalysisTest {
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private final AtomicInteger completed = new AtomicInteger();
+
+  @Test
+  public void should_run_all_jobs_and_report_progress() throws Exception {
+    var jobs = new ArrayList<Job>();
+    for (var i = 0; i < 5; i++) {
+      jobs.add(new TrackingJob(null, 10));
+    }
+    var monitor = new SubTaskMonitor();
+
+    var status = MultiProjectAnalysis.run("test", jobs, 2, SubMonitor.convert(monitor, jobs.size()));
+
+    assertThat(status).isEqualTo(Status.OK_STATUS);
+    assertThat(completed.get()).isEqualTo(5);
+    assertThat(monitor.lastSubTask).isEqualTo("5/5 projects analyzed");
+  }
+
+  @Test
+  public void should_bound_the_number_of_jobs_running_at_once() throws Exception {
+    var jobs = new ArrayList<Job>();
+    for (var i = 0; i < 8; i++) {
+      jobs.add(new TrackingJob(null, 50));
+    }
+
+    MultiProjectAnalysis.run("test", jobs, 2, SubMonitor.convert(new NullProgressMonitor(), jobs.size()));
+
+    assertThat(completed.get()).isEqualTo(8);
+    assertThat(maxRunning.get()).isBetween(1, 2);
+  }
+
+  @Test
+  public void should_not_run_jobs_of_the_same_project_at_once() throws Exception {
+    var project = mock(ISonarLintProject.class);
+    var jobs = new ArrayList<Job>();
+    for (var i = 0; i < 4; i++) {
+      jobs.add(new TrackingJob(MultiProjectAnalysis.projectRule(project), 50));
+    }
+
+    MultiProjectAnalysis.run("test", jobs, 4, SubMonitor.convert(new NullProgressMonitor(), jobs.size()));
+
+    assertThat(completed.get()).isEqualTo(4);
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void project_rule_should_only_conflict_with_the_same_project() {
+    var project = mock(ISonarLintProject.class);
+    var rule = MultiProjectAnalysis.projectRule(project);
+
+    assertThat(rule.isConflicting(MultiProjectAnalysis.projectRule(project))).isTrue();
+    assertThat(rule.isConflicting(MultiProjectAnalysis.projectRule(mock(ISonarLintProject.class)))).isFalse();
+    assertThat(rule.contains(rule)).isTrue();
+    assertThat(rule.contains(MultiProjectAnalysis.projectRule(project))).isFalse();
+  }
+
+  @Test
+  public void should_cancel_remaining_jobs_when_cancelled() throws Exception {
+    var started = new CountDownLatch(1);
+    var jobs = List.<Job>of(new BlockingJob(started), new BlockingJob(started));
+    var monitor = new NullProgressMonitor() {
+      @Override
+      public boolean isCanceled() {
+        return started.getCount() == 0;
+      }
+    };
+
+    var status = MultiProjectAnalysis.run("test", jobs, 1, SubMonitor.convert(monitor, jobs.size()));
+
+    assertThat(status).isEqualTo(Status.CANCEL_STATUS);
+    for (var job : jobs) {
+      job.join();
+      assertThat(job.getResult().getSeverity()).isEqualTo(IStatus.CANCEL);
+    }
+  }
+
+  private class TrackingJob extends Job {
+    private final long durationMillis;
+
+    private TrackingJob(ISchedulingRule rule, long durationMillis) {
+      super("tracking");
+      this.durationMillis = durationMillis;
+      setSystem(true);
+      setRule(rule);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      var current = running.incrementAndGet();
+      maxRunning.accumulateAndGet(current, Math::max);
+      try {
+        TimeUnit.MILLISECONDS.sleep(durationMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+      completed.incrementAndGet();
+      return Status.OK_STATUS;
+    }
+  }
+
+  private static class BlockingJob extends Job {
+    private final CountDownLatch started;
+
+    private BlockingJob(CountDownLatch started) {
+      super("blocking");
+      this.started = started;
+      setSystem(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      started.countDown();
+      while (!monitor.isCanceled()) {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      return Status.CANCEL_STATUS;
+    }
+  }
+
+  private static class SubTaskMonitor extends NullProgressMonitor {
+    private String lastSubTask;
+
+    @Override
+    public void subTask(String name) {
+      lastSubTask = name;
+    }
+  }
+}
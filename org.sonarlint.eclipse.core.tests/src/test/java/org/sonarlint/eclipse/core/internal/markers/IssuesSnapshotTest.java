@@ -0,0 +1,88 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.markers;
+
+import java.io.DataOutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.eclipse.core.internal.markers.IssuesSnapshot.FileSnapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssuesSnapshotTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_what_was_written() throws Exception {
+    var snapshotPath = temp.getRoot().toPath().resolve("issues-snapshot.bin");
+    var first = new FileSnapshot(URI.create("file:///project/A.java"), 1234L, 42L, List.of(
+      Map.of("message", "Remove this unused import", "lineNumber", 3, "provisional", false),
+      Map.of("message", "Ünïcödé message", "charStart", 10, "charEnd", 20)));
+    var second = new FileSnapshot(URI.create("file:///project/B.java"), 5678L, 0L, List.of());
+
+    IssuesSnapshot.write(snapshotPath, List.of(first, second));
+    var snapshots = IssuesSnapshot.read(snapshotPath);
+
+    assertThat(snapshots).extracting(FileSnapshot::getUri).containsExactly(first.getUri(), second.getUri());
+    assertThat(snapshots.get(0).getMarkers()).containsExactlyElementsOf(first.getMarkers());
+    assertThat(snapshots.get(1).getMarkers()).isEmpty();
+    assertThat(snapshotPath.resolveSibling("issues-snapshot.bin.tmp")).doesNotExist();
+  }
+
+  @Test
+  public void should_write_strings_longer_than_64k() throws Exception {
+    var snapshotPath = temp.getRoot().toPath().resolve("issues-snapshot.bin");
+    var longMessage = "é".repeat(70_000);
+
+    IssuesSnapshot.write(snapshotPath, List.of(new FileSnapshot(URI.create("file:///project/A.java"), 1L, 1L,
+      List.of(Map.of("message", longMessage)))));
+
+    assertThat(IssuesSnapshot.read(snapshotPath).get(0).getMarkers().get(0)).containsEntry("message", longMessage);
+  }
+
+  @Test
+  public void should_only_write_simple_attributes() throws Exception {
+    var snapshotPath = temp.getRoot().toPath().resolve("issues-snapshot.bin");
+
+    IssuesSnapshot.write(snapshotPath, List.of(new FileSnapshot(URI.create("file:///project/A.java"), 1L, 1L,
+      List.of(Map.of("message", "msg", "creationTime", 123L, "flows", new Object())))));
+
+    assertThat(IssuesSnapshot.read(snapshotPath).get(0).getMarkers().get(0)).containsOnlyKeys("message");
+  }
+
+  @Test
+  public void should_ignore_snapshot_of_other_version() throws Exception {
+    var snapshotPath = temp.getRoot().toPath().resolve("issues-snapshot.bin");
+    try (var output = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(snapshotPath)))) {
+      output.writeInt(0x534c4953);
+      output.writeInt(1);
+      output.writeBoolean(true);
+    }
+
+    assertThat(IssuesSnapshot.read(snapshotPath)).isEmpty();
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.resources;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.eclipse.core.internal.utils.PathPrefixMatcher;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.tests.common.SonarTestCase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectFilesIndexTest extends SonarTestCase {
+  private static final AtomicInteger PROJECT_COUNTER = new AtomicInteger();
+  private static final int SAVE_NUMBER = 42;
+
+  private IProject project;
+  private DefaultSonarLintProjectAdapter adapter;
+
+  @Before
+  public void createProject() throws CoreException {
+    project = workspace.getRoot().getProject("FilesIndex" + PROJECT_COUNTER.incrementAndGet());
+    project.create(MONITOR);
+    project.open(MONITOR);
+    adapter = new DefaultSonarLintProjectAdapter(project);
+    createFile("A.java");
+    createFile("src/B.java");
+    createFile(".settings/settings.txt");
+  }
+
+  @After
+  public void deleteProject() throws CoreException {
+    project.delete(true, true, MONITOR);
+  }
+
+  @Test
+  public void should_walk_project_when_nothing_persisted() {
+    var index = new ProjectFilesIndex(adapter);
+    assertThat(index.isBuilt()).isFalse();
+
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).containsOnly("A.java", "src/B.java");
+    assertThat(index.isBuilt()).isTrue();
+  }
+
+  @Test
+  public void should_load_persisted_index_and_replay_changes() throws CoreException {
+    var persisted = new ProjectFilesIndex(adapter);
+    persisted.getFiles(PathPrefixMatcher.EMPTY, -1);
+    persisted.save(SAVE_NUMBER);
+
+    var loaded = new ProjectFilesIndex(adapter);
+    // Changes since the last save are replayed before the index is loaded
+    var removed = project.getFile("A.java");
+    removed.delete(true, MONITOR);
+    loaded.fileRemoved(removed.getProjectRelativePath());
+    loaded.fileChanged(createFile("D.java"));
+    // Not replayed, so only found when walking the project
+    createFile("C.java");
+
+    assertThat(paths(loaded.getFiles(PathPrefixMatcher.EMPTY, SAVE_NUMBER))).containsOnly("src/B.java", "D.java");
+  }
+
+  @Test
+  public void should_walk_project_when_save_number_differs() throws CoreException {
+    var persisted = new ProjectFilesIndex(adapter);
+    persisted.getFiles(PathPrefixMatcher.EMPTY, -1);
+    persisted.save(SAVE_NUMBER);
+    createFile("C.java");
+
+    var index = new ProjectFilesIndex(adapter);
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, SAVE_NUMBER + 1))).containsOnly("A.java", "src/B.java", "C.java");
+  }
+
+  @Test
+  public void should_walk_project_when_exclusions_differ() throws CoreException {
+    var persisted = new ProjectFilesIndex(adapter);
+    persisted.getFiles(PathPrefixMatcher.EMPTY, -1);
+    persisted.save(SAVE_NUMBER);
+    createFile("C.java");
+
+    var index = new ProjectFilesIndex(adapter);
+    var exclusions = new PathPrefixMatcher(List.of(project.getFolder("src").getFullPath()));
+    assertThat(paths(index.getFiles(exclusions, SAVE_NUMBER))).containsOnly("A.java", "C.java");
+  }
+
+  @Test
+  public void should_walk_project_when_too_many_changes_to_replay() throws CoreException {
+    var persisted = new ProjectFilesIndex(adapter);
+    persisted.getFiles(PathPrefixMatcher.EMPTY, -1);
+    persisted.save(SAVE_NUMBER);
+    createFile("C.java");
+
+    var index = new ProjectFilesIndex(adapter);
+    for (var i = 0; i <= 10_000; i++) {
+      index.fileRemoved(project.getFile("Removed" + i + ".java").getProjectRelativePath());
+    }
+
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, SAVE_NUMBER))).containsOnly("A.java", "src/B.java", "C.java");
+  }
+
+  @Test
+  public void should_apply_changes_to_built_index() throws CoreException {
+    var index = new ProjectFilesIndex(adapter);
+    index.getFiles(PathPrefixMatcher.EMPTY, -1);
+    var version = index.getVersion();
+
+    var added = createFile("src/E.java");
+    index.fileChanged(added);
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).contains("src/E.java");
+    assertThat(index.getVersion()).isGreaterThan(version);
+
+    added.delete(true, MONITOR);
+    index.fileRemoved(added.getProjectRelativePath());
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).doesNotContain("src/E.java");
+  }
+
+  @Test
+  public void should_not_index_added_files_excluded_or_inside_hidden_folders() throws CoreException {
+    var index = new ProjectFilesIndex(adapter);
+    var exclusions = new PathPrefixMatcher(List.of(project.getFolder("src").getFullPath()));
+    index.getFiles(exclusions, -1);
+
+    index.fileChanged(createFile("src/E.java"));
+    index.fileChanged(createFile(".hidden/F.java"));
+
+    assertThat(paths(index.getFiles(exclusions, -1))).containsOnly("A.java");
+  }
+
+  @Test
+  public void should_check_again_files_becoming_derived() throws CoreException {
+    var index = new ProjectFilesIndex(adapter);
+    index.getFiles(PathPrefixMatcher.EMPTY, -1);
+    var file = project.getFile("A.java");
+
+    file.setDerived(true, MONITOR);
+    index.fileChanged(file);
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).containsOnly("src/B.java");
+
+    file.setDerived(false, MONITOR);
+    index.fileChanged(file);
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).containsOnly("A.java", "src/B.java");
+  }
+
+  @Test
+  public void should_walk_project_again_when_invalidated() throws CoreException {
+    var index = new ProjectFilesIndex(adapter);
+    index.getFiles(PathPrefixMatcher.EMPTY, -1);
+    createFile("C.java");
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).doesNotContain("C.java");
+
+    index.invalidate();
+
+    assertThat(paths(index.getFiles(PathPrefixMatcher.EMPTY, -1))).contains("C.java");
+  }
+
+  @Test
+  public void should_keep_index_up_to_date_from_resource_deltas() throws CoreException {
+    assertThat(paths(adapter.files())).containsOnly("A.java", "src/B.java");
+
+    createFile("src/C.java");
+    project.getFile("A.java").delete(true, MONITOR);
+    project.getFolder("src").setDerived(true, MONITOR);
+    createFile("D.java");
+
+    assertThat(paths(adapter.files())).containsOnly("D.java");
+  }
+
+  private IFile createFile(String relativePath) throws CoreException {
+    var file = project.getFile(relativePath);
+    var parent = file.getParent();
+    if (parent instanceof IFolder && !parent.exists()) {
+      ((IFolder) parent).create(true, true, MONITOR);
+    }
+    file.create(new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)), true, MONITOR);
+    return file;
+  }
+
+  private static List<String> paths(Collection<ISonarLintFile> files) {
+    return files.stream().map(ISonarLintFile::getProjectRelativePath).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.resources;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RemoteFileMirrorTest {
+  private static final long REMOTE_TIME = 1_600_000_000_000L;
+  private static final FileTime OLD_TIME = FileTime.fromMillis(1_500_000_000_000L);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final ISonarLintFile file = mock(ISonarLintFile.class);
+  private final IFileStore fileStore = mock(IFileStore.class);
+  private final IFileInfo info = mock(IFileInfo.class);
+  private final NullProgressMonitor monitor = new NullProgressMonitor();
+  private Path workingDir;
+  private String remoteContent;
+
+  @Before
+  public void prepare() throws Exception {
+    workingDir = temp.newFolder().toPath();
+    var project = mock(ISonarLintProject.class);
+    when(project.getWorkingDir()).thenReturn(workingDir);
+    when(file.getProject()).thenReturn(project);
+    when(file.getProjectRelativePath()).thenReturn("src/main.c");
+    when(file.getName()).thenReturn("main.c");
+
+    when(fileStore.fetchInfo(anyInt(), any())).thenReturn(info);
+    when(fileStore.openInputStream(anyInt(), any()))
+      .thenAnswer(invocation -> new ByteArrayInputStream(remoteContent.getBytes(StandardCharsets.UTF_8)));
+    doAnswer(invocation -> {
+      IFileStore destination = invocation.getArgument(0);
+      Files.writeString(destination.toLocalFile(EFS.NONE, null).toPath(), remoteContent);
+      return null;
+    }).when(fileStore).copy(any(), anyInt(), any());
+  }
+
+  @Test
+  public void should_copy_remote_file_again_only_when_modification_time_changed() throws Exception {
+    withRemoteFile("int main() {}", REMOTE_TIME);
+
+    var mirror = RemoteFileMirror.mirror(file, fileStore, monitor);
+    assertThat(mirror).hasContent("int main() {}");
+    assertThat(mirror.getFileName()).hasToString("main.c");
+    assertThat(Files.getLastModifiedTime(mirror).toMillis()).isEqualTo(REMOTE_TIME);
+
+    assertThat(RemoteFileMirror.mirror(file, fileStore, monitor)).isEqualTo(mirror);
+    verify(fileStore, times(1)).copy(any(), anyInt(), any());
+
+    withRemoteFile("int main() { return 0; }", REMOTE_TIME + 1000);
+    assertThat(RemoteFileMirror.mirror(file, fileStore, monitor)).hasContent("int main() { return 0; }");
+    verify(fileStore, times(2)).copy(any(), anyInt(), any());
+  }
+
+  @Test
+  public void should_copy_remote_file_again_when_length_changed() throws Exception {
+    withRemoteFile("int main() {}", REMOTE_TIME);
+    RemoteFileMirror.mirror(file, fileStore, monitor);
+
+    withRemoteFile("int main() { return 0; }", REMOTE_TIME);
+    assertThat(RemoteFileMirror.mirror(file, fileStore, monitor)).hasContent("int main() { return 0; }");
+    verify(fileStore, times(2)).copy(any(), anyInt(), any());
+  }
+
+  @Test
+  public void should_compare_content_hash_without_modification_time() throws Exception {
+    withRemoteFile("int main() {}", EFS.NONE);
+
+    var mirror = RemoteFileMirror.mirror(file, fileStore, monitor);
+    assertThat(mirror).hasContent("int main() {}");
+    Files.setLastModifiedTime(mirror, OLD_TIME);
+
+    // Same content, the mirror is not written again
+    RemoteFileMirror.mirror(file, fileStore, monitor);
+    assertThat(Files.getLastModifiedTime(mirror)).isEqualTo(OLD_TIME);
+
+    withRemoteFile("int main() { return 0; }", EFS.NONE);
+    assertThat(RemoteFileMirror.mirror(file, fileStore, monitor)).isEqualTo(mirror).hasContent("int main() { return 0; }");
+    verify(fileStore, times(0)).copy(any(), anyInt(), any());
+  }
+
+  private void withRemoteFile(String content, long lastModified) {
+    remoteContent = content;
+    when(info.getLastModified()).thenReturn(lastModified);
+    when(info.getLength()).thenReturn((long) content.getBytes(StandardCharsets.UTF_8).length);
+  }
+}
@@ -24,7 +24,10 @@ import java.io.StringWriter;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -46,6 +49,11 @@ import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintProjectAdap
 import org.sonarlint.eclipse.core.internal.utils.StringUtils;
 import org.sonarlint.eclipse.tests.common.SonarTestCase;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.rules.ImpactDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.FileEditDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.IssueFlowDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.IssueLocationDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.QuickFixDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.TextEditDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.common.CleanCodeAttribute;
 import org.sonarsource.sonarlint.core.rpc.protocol.common.Either;
@@ -275,4 +283,86 @@ public class SonarLintMarkerUpdaterTest extends SonarTestCase {
     assertThat(markers[0].getAttribute(MarkerUtils.SONAR_MARKER_CREATION_DATE_ATTR))
       .isEqualTo(Long.toString(introduction.toEpochMilli()));
   }
+
+  @Test
+  public void should_keep_secondary_markers_when_flows_and_quick_fixes_did_not_change() throws Exception {
+    var issue = newMockRaisedIssueDto();
+    when(issue.getSeverityMode()).thenReturn(Either.forLeft(new StandardModeDetails(IssueSeverity.MAJOR, RuleType.CODE_SMELL)));
+    withFlow(issue, new TextRangeDto(5, 4, 5, 14));
+    withQuickFix(issue, new TextRangeDto(1, 0, 1, 5));
+
+    processRaisedIssueDto(issue);
+    var before = secondaryMarkerIds();
+    processRaisedIssueDto(issue);
+
+    assertThat(before).hasSize(2);
+    assertThat(secondaryMarkerIds()).isEqualTo(before);
+  }
+
+  @Test
+  public void should_replace_secondary_markers_of_changed_flows() throws Exception {
+    var issue = newMockRaisedIssueDto();
+    when(issue.getSeverityMode()).thenReturn(Either.forLeft(new StandardModeDetails(IssueSeverity.MAJOR, RuleType.CODE_SMELL)));
+    withFlow(issue, new TextRangeDto(5, 4, 5, 14));
+    withQuickFix(issue, new TextRangeDto(1, 0, 1, 5));
+    processRaisedIssueDto(issue);
+    var flowMarkersBefore = markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID);
+    var quickFixMarkersBefore = markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID);
+
+    withFlow(issue, new TextRangeDto(6, 0, 6, 4));
+    processRaisedIssueDto(issue);
+
+    var flowMarkersAfter = markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID);
+    assertThat(flowMarkersAfter).hasSize(1).doesNotContainAnyElementsOf(flowMarkersBefore);
+    assertThat(markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID)).isEqualTo(quickFixMarkersBefore);
+  }
+
+  @Test
+  public void should_delete_orphan_secondary_markers() throws Exception {
+    var issue = newMockRaisedIssueDto();
+    when(issue.getSeverityMode()).thenReturn(Either.forLeft(new StandardModeDetails(IssueSeverity.MAJOR, RuleType.CODE_SMELL)));
+    withFlow(issue, new TextRangeDto(5, 4, 5, 14));
+    processRaisedIssueDto(issue);
+    var referenced = secondaryMarkerIds();
+    var orphan = project.getFile("src/Findbugs.java").createMarker(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID);
+
+    processRaisedIssueDto(issue);
+
+    assertThat(orphan.exists()).isFalse();
+    assertThat(secondaryMarkerIds()).isEqualTo(referenced);
+  }
+
+  private static void withFlow(RaisedIssueDto issue, TextRangeDto textRange) {
+    var location = mock(IssueLocationDto.class);
+    when(location.getTextRange()).thenReturn(textRange);
+    when(location.getMessage()).thenReturn("secondary location");
+    var flow = mock(IssueFlowDto.class);
+    when(flow.getLocations()).thenReturn(List.of(location));
+    when(issue.getFlows()).thenReturn(List.of(flow));
+  }
+
+  private static void withQuickFix(RaisedIssueDto issue, TextRangeDto textRange) {
+    var textEdit = mock(TextEditDto.class);
+    when(textEdit.range()).thenReturn(textRange);
+    when(textEdit.newText()).thenReturn("fixed");
+    var fileEdit = mock(FileEditDto.class);
+    when(fileEdit.target()).thenReturn(project.getFile("src/Findbugs.java").getLocationURI());
+    when(fileEdit.textEdits()).thenReturn(List.of(textEdit));
+    var quickFix = mock(QuickFixDto.class);
+    when(quickFix.message()).thenReturn("Fix it");
+    when(quickFix.fileEdits()).thenReturn(List.of(fileEdit));
+    when(issue.getQuickFixes()).thenReturn(List.of(quickFix));
+  }
+
+  private static Set<Long> secondaryMarkerIds() throws CoreException {
+    return Stream.concat(markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID).stream(),
+      markerIds(SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID).stream())
+      .collect(Collectors.toSet());
+  }
+
+  private static Set<Long> markerIds(String markerId) throws CoreException {
+    return Stream.of(project.getFile("src/Findbugs.java").findMarkers(markerId, false, IResource.DEPTH_ZERO))
+      .map(IMarker::getId)
+      .collect(Collectors.toSet());
+  }
 }
@@ -0,0 +1,58 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.utils;
+
+import org.eclipse.core.runtime.Path;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathClassifierTest {
+
+  @Test
+  public void should_classify_files_inside_ignored_directories() {
+    assertThat(PathClassifier.classify(new Path("/project/.git/config"), false)).isEqualTo(PathClassifier.VCS);
+    assertThat(PathClassifier.classify(new Path("/project/.svn/entries"), false)).isEqualTo(PathClassifier.VCS);
+    assertThat(PathClassifier.classify(new Path("/project/node_modules/lib/index.js"), false)).isEqualTo(PathClassifier.NODE_JS);
+    assertThat(PathClassifier.classify(new Path("/project/package-lock.json"), false)).isEqualTo(PathClassifier.NODE_JS);
+    assertThat(PathClassifier.classify(new Path("/project/venv/lib/site.py"), false)).isEqualTo(PathClassifier.PYTHON);
+    assertThat(PathClassifier.classify(new Path("/project/file:/plugin/Foo.java"), false)).isEqualTo(PathClassifier.ECLIPSE_PDE);
+  }
+
+  @Test
+  public void should_combine_reasons() {
+    assertThat(PathClassifier.classify(new Path("/project/venv/node_modules/.git/HEAD"), false))
+      .isEqualTo(PathClassifier.VCS | PathClassifier.NODE_JS | PathClassifier.PYTHON);
+  }
+
+  @Test
+  public void should_only_check_last_segment_of_containers() {
+    assertThat(PathClassifier.classify(new Path("/project/node_modules"), false)).isEqualTo(PathClassifier.NONE);
+    assertThat(PathClassifier.classify(new Path("/project/node_modules"), true)).isEqualTo(PathClassifier.NODE_JS);
+    assertThat(PathClassifier.shouldSkip(new Path("/project/.git"), true)).isTrue();
+  }
+
+  @Test
+  public void should_not_classify_other_paths() {
+    assertThat(PathClassifier.shouldSkip(new Path("/project/src/main/java/Foo.java"), false)).isFalse();
+    assertThat(PathClassifier.shouldSkip(new Path("/project/src/gitignored/venvironment.py"), false)).isFalse();
+    assertThat(PathClassifier.shouldSkip(new Path("/project/src"), true)).isFalse();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.utils;
+
+import java.util.List;
+import org.eclipse.core.runtime.Path;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathPrefixMatcherTest {
+
+  private final PathPrefixMatcher matcher = new PathPrefixMatcher(List.of(
+    new Path("/project/target"),
+    new Path("/project/build/generated"),
+    new Path("/other/bin")));
+
+  @Test
+  public void should_match_excluded_paths_and_their_children() {
+    assertThat(matcher.matches(new Path("/project/target"))).isTrue();
+    assertThat(matcher.matches(new Path("/project/target/classes/Foo.class"))).isTrue();
+    assertThat(matcher.matches(new Path("/project/build/generated/Bar.java"))).isTrue();
+    assertThat(matcher.matches(new Path("/other/bin/Baz.class"))).isTrue();
+  }
+
+  @Test
+  public void should_not_match_other_paths() {
+    assertThat(matcher.matches(new Path("/project"))).isFalse();
+    assertThat(matcher.matches(new Path("/project/src/Foo.java"))).isFalse();
+    assertThat(matcher.matches(new Path("/project/build/Bar.java"))).isFalse();
+    assertThat(matcher.matches(new Path("/other/src/bin/Baz.java"))).isFalse();
+  }
+
+  @Test
+  public void should_match_on_segments_only() {
+    assertThat(matcher.matches(new Path("/project/targets/Foo.java"))).isFalse();
+    assertThat(matcher.matches(new Path("/other/binary/Baz.class"))).isFalse();
+  }
+
+  @Test
+  public void should_not_match_anything_when_empty() {
+    assertThat(PathPrefixMatcher.EMPTY.isEmpty()).isTrue();
+    assertThat(PathPrefixMatcher.EMPTY.matches(new Path("/project/target"))).isFalse();
+  }
+
+  @Test
+  public void should_be_equal_when_compiled_from_same_paths() {
+    var other = new PathPrefixMatcher(List.of(
+      new Path("/other/bin"),
+      new Path("/project/build/generated"),
+      new Path("/project/target")));
+
+    assertThat(matcher).isEqualTo(other).hasSameHashCodeAs(other);
+    assertThat(matcher).isNotEqualTo(PathPrefixMatcher.EMPTY);
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.vcs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.core.resources.IProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.dircache.DirCacheEditor;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.dircache.DirCacheEntry;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.CommitBuilder;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Constants;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.FileMode;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.ObjectId;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.PersonIdent;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Repository;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.RepositoryBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JGitFacadeTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final JGitFacade underTest = new JGitFacade();
+  private Path workTree;
+  private Repository repository;
+
+  @Before
+  public void prepare() throws IOException {
+    workTree = temp.newFolder("repo").toPath().toRealPath();
+    repository = new RepositoryBuilder().setWorkTree(workTree.toFile()).build();
+    repository.create();
+  }
+
+  @After
+  public void close() {
+    repository.close();
+  }
+
+  @Test
+  public void should_collect_modified_untracked_and_staged_files() throws IOException {
+    write("A.java", "class A {}");
+    write("B.java", "class B {}");
+    stage("A.java", "B.java");
+    commit(Constants.HEAD);
+
+    write("A.java", "class A { int a; }");
+    write("C.java", "class C {}");
+    write("D.java", "class D {}");
+    stage("D.java");
+    Files.delete(workTree.resolve("B.java"));
+
+    var changedFiles = underTest.getChangedFiles(project(workTree), null);
+
+    assertThat(changedFiles).hasValueSatisfying(paths -> assertThat(paths).containsOnly("A.java", "C.java", "D.java"));
+  }
+
+  @Test
+  public void should_strip_prefix_of_nested_project() throws IOException {
+    write("module/src/X.java", "class X {}");
+    write("other/Y.java", "class Y {}");
+    stage("module/src/X.java", "other/Y.java");
+    commit(Constants.HEAD);
+
+    write("module/src/X.java", "class X { int x; }");
+    write("other/Y.java", "class Y { int y; }");
+    write("module/New.java", "class New {}");
+
+    var moduleProject = project(workTree.resolve("module"));
+    var rootProject = project(workTree);
+
+    assertThat(underTest.getChangedFiles(moduleProject, null))
+      .hasValueSatisfying(paths -> assertThat(paths).containsOnly("src/X.java", "New.java"));
+    assertThat(underTest.getChangedFiles(rootProject, null))
+      .hasValueSatisfying(paths -> assertThat(paths).containsOnly("module/src/X.java", "module/New.java", "other/Y.java"));
+  }
+
+  @Test
+  public void should_include_files_changed_since_merge_base() throws IOException {
+    write("A.java", "class A {}");
+    write("Removed.java", "class Removed {}");
+    stage("A.java", "Removed.java");
+    var base = commit(Constants.HEAD);
+    // The base branch moved on after HEAD diverged from it, its own changes must not be included
+    write("OnMain.java", "class OnMain {}");
+    stage("OnMain.java");
+    commit(Constants.R_HEADS + "main", base);
+    unstage("OnMain.java");
+    Files.delete(workTree.resolve("OnMain.java"));
+
+    write("A.java", "class A { int a; }");
+    write("F.java", "class F {}");
+    stage("A.java", "F.java");
+    unstage("Removed.java");
+    Files.delete(workTree.resolve("Removed.java"));
+    commit(Constants.HEAD, base);
+
+    assertThat(underTest.getChangedFiles(project(workTree), null)).hasValueSatisfying(paths -> assertThat(paths).isEmpty());
+    assertThat(underTest.getChangedFiles(project(workTree), "main"))
+      .hasValueSatisfying(paths -> assertThat(paths).containsOnly("A.java", "F.java"));
+  }
+
+  @Test
+  public void should_prefer_remote_branch_for_merge_base() throws IOException {
+    write("A.java", "class A {}");
+    stage("A.java");
+    var first = commit(Constants.HEAD);
+    write("A.java", "class A { int a; }");
+    stage("A.java");
+    var second = commit(Constants.HEAD, first);
+    updateRef(Constants.R_HEADS + "main", second);
+    updateRef(Constants.R_REMOTES + "origin/main", first);
+
+    assertThat(underTest.getChangedFiles(project(workTree), "main"))
+      .hasValueSatisfying(paths -> assertThat(paths).containsOnly("A.java"));
+  }
+
+  @Test
+  public void should_ignore_unknown_base_branch() throws IOException {
+    write("A.java", "class A {}");
+    stage("A.java");
+    commit(Constants.HEAD);
+    write("A.java", "class A { int a; }");
+
+    assertThat(underTest.getChangedFiles(project(workTree), "unknown"))
+      .hasValueSatisfying(paths -> assertThat(paths).containsOnly("A.java"));
+  }
+
+  @Test
+  public void should_not_collect_changed_files_of_bare_repository() throws IOException {
+    var bareDir = temp.newFolder("bare.git").toPath().toRealPath();
+    try (var bare = new RepositoryBuilder().setGitDir(bareDir.toFile()).setBare().build()) {
+      bare.create(true);
+
+      assertThat(underTest.getChangedFiles(project(bareDir), null)).isEmpty();
+    }
+  }
+
+  @Test
+  public void should_not_collect_changed_files_outside_of_repository() throws IOException {
+    var projectDir = temp.newFolder("not-a-repo").toPath().toRealPath();
+    Files.write(projectDir.resolve("A.java"), "class A {}".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(underTest.getChangedFiles(project(projectDir), null)).isEmpty();
+  }
+
+  private static ISonarLintProject project(Path location) {
+    var resource = mock(IProject.class);
+    when(resource.getLocationURI()).thenReturn(location.toUri());
+    when(resource.getName()).thenReturn(location.getFileName().toString());
+    var project = mock(ISonarLintProject.class);
+    when(project.getResource()).thenReturn(resource);
+    when(project.getName()).thenReturn(location.getFileName().toString());
+    return project;
+  }
+
+  private void write(String path, String content) throws IOException {
+    var file = workTree.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void stage(String... paths) throws IOException {
+    var index = repository.lockDirCache();
+    try (var inserter = repository.newObjectInserter()) {
+      var editor = index.editor();
+      for (var path : paths) {
+        var file = workTree.resolve(path);
+        var content = Files.readAllBytes(file);
+        var blobId = inserter.insert(Constants.OBJ_BLOB, content);
+        var lastModified = Files.getLastModifiedTime(file).toInstant();
+        editor.add(new DirCacheEditor.PathEdit(path) {
+          @Override
+          public void apply(DirCacheEntry entry) {
+            entry.setFileMode(FileMode.REGULAR_FILE);
+            entry.setObjectId(blobId);
+            entry.setLength(content.length);
+            entry.setLastModified(lastModified);
+          }
+        });
+      }
+      inserter.flush();
+      editor.commit();
+    } finally {
+      index.unlock();
+    }
+  }
+
+  private void unstage(String path) throws IOException {
+    var index = repository.lockDirCache();
+    try {
+      var editor = index.editor();
+      editor.add(new DirCacheEditor.DeletePath(path));
+      editor.commit();
+    } finally {
+      index.unlock();
+    }
+  }
+
+  /** Commits the content of the index and moves the given ref to the new commit */
+  private ObjectId commit(String refName, ObjectId... parents) throws IOException {
+    try (var inserter = repository.newObjectInserter()) {
+      var treeId = repository.readDirCache().writeTree(inserter);
+      var commit = new CommitBuilder();
+      commit.setTreeId(treeId);
+      commit.setParentIds(parents);
+      var ident = new PersonIdent("SonarLint", "sonarlint@sonarsource.com");
+      commit.setAuthor(ident);
+      commit.setCommitter(ident);
+      commit.setMessage("Commit on " + refName);
+      var commitId = inserter.insert(commit);
+      inserter.flush();
+      updateRef(refName, commitId);
+      return commitId;
+    }
+  }
+
+  private void updateRef(String refName, ObjectId objectId) throws IOException {
+    var update = repository.updateRef(refName);
+    update.setNewObjectId(objectId);
+    update.setForceUpdate(true);
+    update.update();
+  }
+}
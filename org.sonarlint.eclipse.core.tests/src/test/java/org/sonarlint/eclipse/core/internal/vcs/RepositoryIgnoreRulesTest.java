@@ -0,0 +1,161 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.vcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.ConfigConstants;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Repository;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.RepositoryBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RepositoryIgnoreRulesTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File workTree;
+  private Repository repository;
+
+  @Before
+  public void prepare() throws IOException {
+    workTree = temp.newFolder("repo");
+    repository = new RepositoryBuilder().setWorkTree(workTree).build();
+    repository.create();
+
+    // Don't depend on the global excludes file of the machine running the tests
+    var globalExcludes = temp.newFile("global-ignore");
+    write(globalExcludes, "*.tmp\n");
+    var config = repository.getConfig();
+    config.setString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_EXCLUDESFILE,
+      globalExcludes.getAbsolutePath());
+    config.save();
+
+    write(new File(workTree, ".gitignore"), "*.log\nbuild/\n!keep.log\n!secret-shared.txt\n");
+    write(new File(workTree, "module/.gitignore"), "!important.log\ngenerated/\n!generated/Keep.java\n");
+    write(new File(repository.getDirectory(), "info/exclude"), "secret*\n!keep.tmp\n");
+  }
+
+  @After
+  public void close() {
+    repository.close();
+  }
+
+  @Test
+  public void should_let_deeper_gitignore_win() {
+    var rules = rules(p -> true);
+
+    assertThat(rules.isIgnored("app.log", false)).isTrue();
+    assertThat(rules.isIgnored("module/other.log", false)).isTrue();
+    assertThat(rules.isIgnored("module/important.log", false)).isFalse();
+    assertThat(rules.isIgnored("important.log", false)).isTrue();
+    assertThat(rules.isIgnored("src/App.java", false)).isFalse();
+  }
+
+  @Test
+  public void should_apply_negation() {
+    var rules = rules(p -> true);
+
+    assertThat(rules.isIgnored("keep.log", false)).isFalse();
+    assertThat(rules.isIgnored("module/keep.log", false)).isFalse();
+  }
+
+  @Test
+  public void should_ignore_everything_inside_ignored_directory() {
+    var rules = rules(p -> true);
+
+    assertThat(rules.isIgnored("build", true)).isTrue();
+    assertThat(rules.isIgnored("build/classes/App.class", false)).isTrue();
+    assertThat(rules.isIgnored("module/generated/Foo.java", false)).isTrue();
+    // A file cannot be included again when its parent directory is ignored
+    assertThat(rules.isIgnored("module/generated/Keep.java", false)).isTrue();
+  }
+
+  @Test
+  public void should_check_info_exclude_after_gitignore_and_before_global_excludes() {
+    var rules = rules(p -> true);
+
+    assertThat(rules.isIgnored("secret.txt", false)).isTrue();
+    assertThat(rules.isIgnored("secret-shared.txt", false)).isFalse();
+    assertThat(rules.isIgnored("file.tmp", false)).isTrue();
+    assertThat(rules.isIgnored("keep.tmp", false)).isFalse();
+  }
+
+  @Test
+  public void should_reload_gitignore_outside_workspace_when_modified() throws IOException {
+    var rules = rules(p -> false);
+    assertThat(rules.isIgnored("App.txt", false)).isFalse();
+
+    var gitignore = new File(workTree, ".gitignore");
+    var lastModified = gitignore.lastModified();
+    write(gitignore, "*.log\n*.txt\n");
+    gitignore.setLastModified(lastModified + 2_000);
+    rules.refresh();
+
+    assertThat(rules.isIgnored("App.txt", false)).isTrue();
+  }
+
+  @Test
+  public void should_load_gitignore_outside_workspace_when_created() throws IOException {
+    var rules = rules(p -> false);
+    assertThat(rules.isIgnored("other/App.txt", false)).isFalse();
+
+    write(new File(workTree, "other/.gitignore"), "*.txt\n");
+    rules.refresh();
+
+    assertThat(rules.isIgnored("other/App.txt", false)).isTrue();
+  }
+
+  @Test
+  public void should_reload_gitignore_inside_workspace_only_when_invalidated() throws IOException {
+    var rules = rules(p -> true);
+    assertThat(rules.isIgnored("App.txt", false)).isFalse();
+
+    var gitignore = new File(workTree, ".gitignore");
+    var lastModified = gitignore.lastModified();
+    write(gitignore, "*.log\n*.txt\n");
+    gitignore.setLastModified(lastModified + 2_000);
+    rules.refresh();
+    assertThat(rules.isIgnored("App.txt", false)).isFalse();
+
+    rules.invalidate("");
+    assertThat(rules.isIgnored("App.txt", false)).isTrue();
+  }
+
+  private RepositoryIgnoreRules rules(Predicate<Path> insideWorkspace) {
+    var rules = new RepositoryIgnoreRules(repository, insideWorkspace);
+    rules.refresh();
+    return rules;
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Files.createDirectories(file.toPath().getParent());
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -25,12 +25,17 @@ import java.util.Collection;
 import java.util.regex.Pattern;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaModel;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
@@ -50,6 +55,7 @@ import org.sonarlint.eclipse.tests.common.SonarTestCase;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -255,6 +261,87 @@ public class JdtUtilsTest extends SonarTestCase {
     assertThat(captor.getValue()).isEmpty();
   }
 
+  @Test
+  public void shouldReuseCachedConfiguration() throws JavaModelException, IOException {
+    var outputFolder = temp.newFolder("bin");
+    var project = mockProjectWithOutput(outputFolder);
+
+    jdtUtils.configureJavaProject(project, mock(IPreAnalysisContext.class));
+    var context = mock(IPreAnalysisContext.class);
+    jdtUtils.configureJavaProject(project, context);
+
+    verify(project, times(1)).getResolvedClasspath(true);
+    assertThat(captureBinaries(context)).containsExactly(outputFolder.getAbsolutePath().replaceAll(Pattern.quote("\\"), "/"));
+  }
+
+  @Test
+  public void shouldComputeConfigurationAgainOnClasspathChange() throws JavaModelException, IOException {
+    var project = mockProjectWithOutput(temp.newFolder("bin"));
+    jdtUtils.configureJavaProject(project, mock(IPreAnalysisContext.class));
+
+    var delta = mock(IJavaElementDelta.class);
+    when(delta.getElement()).thenReturn(project);
+    when(delta.getKind()).thenReturn(IJavaElementDelta.CHANGED);
+    when(delta.getFlags()).thenReturn(IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED);
+    when(delta.getAffectedChildren()).thenReturn(new IJavaElementDelta[0]);
+    var event = mock(ElementChangedEvent.class);
+    when(event.getDelta()).thenReturn(delta);
+    JavaProjectConfigurationCache.get().elementChanged(event);
+    jdtUtils.configureJavaProject(project, mock(IPreAnalysisContext.class));
+
+    verify(project, times(2)).getResolvedClasspath(true);
+  }
+
+  @Test
+  public void shouldNotCheckFileSystemOnCacheHit() throws JavaModelException, IOException {
+    var outputFolder = temp.newFolder("bin");
+    var project = mockProjectWithOutput(outputFolder);
+    jdtUtils.configureJavaProject(project, mock(IPreAnalysisContext.class));
+
+    // Without a resource delta the deletion is not noticed, the cached configuration is used as is
+    outputFolder.delete();
+    var context = mock(IPreAnalysisContext.class);
+    jdtUtils.configureJavaProject(project, context);
+
+    verify(project, times(1)).getResolvedClasspath(true);
+    assertThat(captureBinaries(context)).hasSize(1);
+  }
+
+  @Test
+  public void shouldNotReuseDeletedOutputDirectory() throws JavaModelException, IOException {
+    var outputFolder = temp.newFolder("bin");
+    var project = mockProjectWithOutput(outputFolder);
+    jdtUtils.configureJavaProject(project, mock(IPreAnalysisContext.class));
+
+    outputFolder.delete();
+    var outputDelta = mock(IResourceDelta.class);
+    when(outputDelta.getKind()).thenReturn(IResourceDelta.REMOVED);
+    var rootDelta = mock(IResourceDelta.class);
+    when(rootDelta.findMember(project.getOutputLocation())).thenReturn(outputDelta);
+    var event = mock(IResourceChangeEvent.class);
+    when(event.getDelta()).thenReturn(rootDelta);
+    JavaProjectConfigurationCache.get().resourceChanged(event);
+    var context = mock(IPreAnalysisContext.class);
+    jdtUtils.configureJavaProject(project, context);
+
+    verify(project, times(2)).getResolvedClasspath(true);
+    assertThat(captureBinaries(context)).isEmpty();
+  }
+
+  private IJavaProject mockProjectWithOutput(File outputFolder) throws JavaModelException {
+    var project = mock(IJavaProject.class);
+    when(project.getElementType()).thenReturn(IJavaElement.JAVA_PROJECT);
+    when(project.getResolvedClasspath(true)).thenReturn(new IClasspathEntry[0]);
+    when(project.getOutputLocation()).thenReturn(new Path(outputFolder.getAbsolutePath()));
+    return project;
+  }
+
+  private static Collection<?> captureBinaries(IPreAnalysisContext context) {
+    var captor = ArgumentCaptor.forClass(Collection.class);
+    verify(context).setAnalysisProperty(ArgumentMatchers.eq("sonar.java.binaries"), captor.capture());
+    return captor.getValue();
+  }
+
   @Test
   public void shouldConfigureProjectsWithCircularDependencies() throws CoreException, IOException {
     // the bug appeared when at least 3 projects were involved: the first project depends on the second one which has a circular dependency
@@ -0,0 +1,193 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.ui.internal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisScheduler;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarlint.eclipse.ui.internal.LiveAnalysisTrigger.DocumentTracker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LiveAnalysisTriggerTest {
+
+  private final Document document = new Document("");
+  private TestTracker tracker;
+
+  @Before
+  public void prepare() {
+    var project = mock(ISonarLintProject.class);
+    var file = mock(ISonarLintFile.class);
+    when(file.getName()).thenReturn("Foo.java");
+    when(file.getProject()).thenReturn(project);
+    tracker = new TestTracker(file, document);
+  }
+
+  @After
+  public void cleanup() throws InterruptedException {
+    tracker.close();
+    tracker.join();
+  }
+
+  @Test
+  public void delay_should_adapt_to_typing_speed_and_analysis_duration() throws InterruptedException {
+    tracker.enabled = false;
+    assertThat(tracker.delay()).isEqualTo(200);
+
+    tracker.now = 10_000;
+    document.set("a");
+    for (var i = 0; i < 10; i++) {
+      tracker.now += 400;
+      document.set("a" + i);
+    }
+    var slowTypingDelay = tracker.delay();
+    assertThat(slowTypingDelay).isBetween(700L, 800L);
+
+    // A pause is not the typing speed
+    tracker.now += 10_000;
+    document.set("b");
+    assertThat(tracker.delay()).isEqualTo(slowTypingDelay);
+
+    // Fast typing
+    for (var i = 0; i < 20; i++) {
+      tracker.now += 10;
+      document.set("c" + i);
+    }
+    assertThat(tracker.delay()).isEqualTo(200);
+    tracker.join();
+
+    tracker.enabled = true;
+    document.set("d");
+    tracker.join();
+    tracker.now += 2_400;
+    tracker.completeAnalysis(Status.OK_STATUS);
+    assertThat(tracker.delay()).isEqualTo(1_200);
+  }
+
+  @Test
+  public void should_cancel_analysis_of_outdated_content() throws InterruptedException {
+    document.set("a");
+    tracker.join();
+    var firstRequest = tracker.request;
+    assertThat(tracker.calls).containsExactly("open", "content:a", "analyze");
+    verify(firstRequest, never()).cancel();
+
+    document.set("ab");
+    verify(firstRequest).cancel();
+
+    tracker.join();
+    assertThat(tracker.calls).containsExactly("open", "content:a", "analyze", "content:ab", "analyze");
+    assertThat(tracker.request).isNotSameAs(firstRequest);
+  }
+
+  @Test
+  public void should_revert_to_content_on_disk_when_closed_without_saving() throws InterruptedException {
+    document.set("a");
+    tracker.join();
+    var request = tracker.request;
+
+    tracker.close();
+    tracker.join();
+    verify(request).cancel();
+    assertThat(tracker.calls).containsExactly("open", "content:a", "analyze", "content:null", "close");
+
+    // No longer listening to the document
+    document.set("ab");
+    tracker.join();
+    assertThat(tracker.calls).hasSize(5);
+  }
+
+  @Test
+  public void should_only_close_file_when_no_content_was_sent() throws InterruptedException {
+    tracker.schedule();
+    tracker.join();
+    tracker.close();
+    tracker.join();
+
+    assertThat(tracker.calls).containsExactly("open", "close");
+  }
+
+  private static class TestTracker extends DocumentTracker {
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private volatile long now;
+    private volatile boolean enabled = true;
+    @Nullable
+    private volatile AnalysisScheduler.ScheduledRequest request;
+
+    TestTracker(ISonarLintFile file, Document document) {
+      super(file, document);
+    }
+
+    @SuppressWarnings("unchecked")
+    void completeAnalysis(IStatus result) {
+      ArgumentCaptor<Consumer<IStatus>> listener = ArgumentCaptor.forClass(Consumer.class);
+      verify(request).addDoneListener(listener.capture());
+      listener.getValue().accept(result);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+
+    @Override
+    protected boolean isEnabled() {
+      return enabled;
+    }
+
+    @Override
+    protected void didOpenFile() {
+      calls.add("open");
+    }
+
+    @Override
+    protected void didChangeFileContent(@Nullable String unsavedContent) {
+      calls.add("content:" + unsavedContent);
+    }
+
+    @Override
+    protected void didCloseFile() {
+      calls.add("close");
+    }
+
+    @Override
+    protected AnalysisScheduler.ScheduledRequest scheduleAnalysis(AnalyzeProjectRequest analyzeRequest) {
+      calls.add("analyze");
+      request = mock(AnalysisScheduler.ScheduledRequest.class);
+      return request;
+    }
+  }
+}
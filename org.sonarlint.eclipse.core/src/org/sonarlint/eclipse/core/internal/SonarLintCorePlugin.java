@@ -25,14 +25,19 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.util.tracker.ServiceTracker;
+import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
 import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache.InvalidationEvent;
 import org.sonarlint.eclipse.core.internal.engine.connected.ConnectionManager;
 import org.sonarlint.eclipse.core.internal.event.AnalysisListenerManager;
 import org.sonarlint.eclipse.core.internal.extension.AbstractSonarLintExtensionTracker;
 import org.sonarlint.eclipse.core.internal.extension.SonarLintExtensionTracker;
+import org.sonarlint.eclipse.core.internal.markers.IssuesSnapshot;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintProjectConfiguration;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintProjectConfigurationManager;
+import org.sonarlint.eclipse.core.internal.resources.ProjectFilesIndexManager;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
 public class SonarLintCorePlugin extends Plugin {
@@ -77,10 +82,13 @@ public class SonarLintCorePlugin extends Plugin {
   public void start(BundleContext context) throws Exception {
     super.start(context);
     SonarLintGlobalConfiguration.init();
+    ProjectFilesIndexManager.INSTANCE.init();
+    IssuesSnapshot.restoreAsync();
   }
 
   @Override
   public void stop(BundleContext context) throws Exception {
+    IssuesSnapshot.save();
     SonarLintBackendService.get().stop();
     proxyTracker.close();
 
@@ -88,6 +96,7 @@ public class SonarLintCorePlugin extends Plugin {
       connectionsManager.stop();
     }
     SonarLintGlobalConfiguration.stop();
+    ProjectFilesIndexManager.INSTANCE.stop();
     SonarLintExtensionTracker.close();
     AbstractSonarLintExtensionTracker.closeTracker();
 
@@ -117,6 +126,8 @@ public class SonarLintCorePlugin extends Plugin {
 
   public static void saveConfig(ISonarLintProject project, SonarLintProjectConfiguration config) {
     getInstance().getProjectConfigManager().save(project.getScopeContext(), config);
+    AbstractConfigScopeIdCache.invalidate(ConfigScopeSynchronizer.getConfigScopeId(project),
+      InvalidationEvent.PREFERENCE_CHANGED);
   }
 
 }
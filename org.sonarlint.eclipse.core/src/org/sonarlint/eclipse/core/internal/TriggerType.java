@@ -19,15 +19,18 @@
  */
 package org.sonarlint.eclipse.core.internal;
 
+import org.eclipse.core.runtime.jobs.Job;
+
 public enum TriggerType {
-  ANALYSIS_READY("Analysis Ready", ServerIssueFetchStrategy.FETCH),
-  EDITOR_OPEN("Editor open", ServerIssueFetchStrategy.FETCH),
-  MANUAL("Manual trigger", ServerIssueFetchStrategy.FETCH),
-  MANUAL_CHANGESET("Manual trigger changeset", ServerIssueFetchStrategy.FETCH),
-  EDITOR_CHANGE("Editor change", ServerIssueFetchStrategy.DONT_FETCH),
-  BINDING_CHANGE("Binding change", ServerIssueFetchStrategy.FETCH),
-  STANDALONE_CONFIG_CHANGE("Standalone config change", ServerIssueFetchStrategy.DONT_FETCH),
-  AFTER_RESOLVE("After resolve", ServerIssueFetchStrategy.DONT_FETCH);
+  ANALYSIS_READY("Analysis Ready", ServerIssueFetchStrategy.FETCH, Priority.BACKGROUND),
+  EDITOR_OPEN("Editor open", ServerIssueFetchStrategy.FETCH, Priority.EDITOR),
+  MANUAL("Manual trigger", ServerIssueFetchStrategy.FETCH, Priority.MANUAL),
+  MANUAL_CHANGESET("Manual trigger changeset", ServerIssueFetchStrategy.FETCH, Priority.MANUAL),
+  EDITOR_CHANGE("Editor change", ServerIssueFetchStrategy.DONT_FETCH, Priority.EDITOR),
+  EDITOR_TYPING("Editor typing", ServerIssueFetchStrategy.DONT_FETCH, Priority.EDITOR),
+  BINDING_CHANGE("Binding change", ServerIssueFetchStrategy.FETCH, Priority.BACKGROUND),
+  STANDALONE_CONFIG_CHANGE("Standalone config change", ServerIssueFetchStrategy.DONT_FETCH, Priority.BACKGROUND),
+  AFTER_RESOLVE("After resolve", ServerIssueFetchStrategy.DONT_FETCH, Priority.EDITOR);
 
   /** For the analysis out of process this information is required */
   private enum ServerIssueFetchStrategy {
@@ -35,12 +38,27 @@ public enum TriggerType {
     FETCH
   }
 
+  /** Ranks the analyses, the ones the user is actively waiting for come first */
+  private enum Priority {
+    MANUAL(Job.INTERACTIVE),
+    EDITOR(Job.SHORT),
+    BACKGROUND(Job.DECORATE);
+
+    private final int jobPriority;
+
+    Priority(int jobPriority) {
+      this.jobPriority = jobPriority;
+    }
+  }
+
   private final String name;
   private final ServerIssueFetchStrategy fetchStrategy;
+  private final Priority priority;
 
-  TriggerType(String name, ServerIssueFetchStrategy fetchStrategy) {
+  TriggerType(String name, ServerIssueFetchStrategy fetchStrategy, Priority priority) {
     this.name = name;
     this.fetchStrategy = fetchStrategy;
+    this.priority = priority;
   }
 
   public String getName() {
@@ -54,4 +72,14 @@ public enum TriggerType {
   public boolean isOnTheFly() {
     return this != MANUAL && this != MANUAL_CHANGESET;
   }
+
+  /** The priority of the {@link Job} running the analysis */
+  public int getJobPriority() {
+    return priority.jobPriority;
+  }
+
+  /** Whether an analysis with this trigger is more important than one with the other trigger */
+  public boolean hasHigherPriorityThan(TriggerType other) {
+    return priority.compareTo(other.priority) < 0;
+  }
 }
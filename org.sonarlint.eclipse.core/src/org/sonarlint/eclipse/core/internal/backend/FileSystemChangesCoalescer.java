@@ -0,0 +1,176 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.backend;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+
+/**
+ *  Collects the file system changes of multiple resource change events until they are sent to SLCORE. Changes on the
+ *  same file are merged, so every file is reported at most once per batch:
+ *
+ *  - added, then changed: added (with the latest state)
+ *  - added, then removed: not reported at all as SLCORE never knew about it
+ *  - changed, then removed: removed
+ *  - removed, then added (or changed): changed, e.g. on a "git checkout" or a Maven build replacing files
+ */
+public class FileSystemChangesCoalescer {
+  private enum Kind {
+    ADDED, CHANGED, REMOVED
+  }
+
+  private final LinkedHashMap<URI, Change> changes = new LinkedHashMap<>();
+
+  public synchronized void added(ISonarLintFile file) {
+    var uri = file.uri();
+    var previous = changes.get(uri);
+    if (previous == null || previous.kind == Kind.ADDED) {
+      changes.put(uri, new Change(Kind.ADDED, file));
+    } else {
+      changes.put(uri, new Change(Kind.CHANGED, file));
+    }
+  }
+
+  public synchronized void changed(ISonarLintFile file) {
+    var uri = file.uri();
+    var previous = changes.get(uri);
+    if (previous != null && previous.kind == Kind.ADDED) {
+      changes.put(uri, new Change(Kind.ADDED, file));
+    } else {
+      changes.put(uri, new Change(Kind.CHANGED, file));
+    }
+  }
+
+  public synchronized void removed(URI uri) {
+    var previous = changes.get(uri);
+    if (previous != null && previous.kind == Kind.ADDED) {
+      changes.remove(uri);
+    } else {
+      changes.put(uri, new Change(Kind.REMOVED, null));
+    }
+  }
+
+  /**
+   *  Drops the pending addition or change of a file whose unsaved content is sent to SLCORE directly, otherwise the
+   *  content on disk would replace it once the batch is propagated. A pending removal is kept.
+   *
+   *  @return true if the dropped change was an addition, so SLCORE does not know about the file yet
+   */
+  public synchronized boolean discardContentChange(URI uri) {
+    var previous = changes.get(uri);
+    if (previous == null || previous.kind == Kind.REMOVED) {
+      return false;
+    }
+    changes.remove(uri);
+    notifyAll();
+    return previous.kind == Kind.ADDED;
+  }
+
+  /** Number of distinct files with pending changes */
+  public synchronized int size() {
+    return changes.size();
+  }
+
+  /** Takes all the pending changes and wakes up the producers waiting in {@link #awaitSizeBelow(int, long)} */
+  public synchronized Batch drain() {
+    var added = new ArrayList<ISonarLintFile>();
+    var changed = new ArrayList<ISonarLintFile>();
+    var removed = new ArrayList<URI>();
+    for (var entry : changes.entrySet()) {
+      var change = entry.getValue();
+      switch (change.kind) {
+        case ADDED:
+          added.add(change.file);
+          break;
+        case CHANGED:
+          changed.add(change.file);
+          break;
+        case REMOVED:
+          removed.add(entry.getKey());
+          break;
+      }
+    }
+    changes.clear();
+    notifyAll();
+    return new Batch(added, changed, removed);
+  }
+
+  /**
+   *  Used for back-pressure: blocks the caller as long as there are too many pending changes, but at most for the
+   *  given time so that a stuck consumer won't block the producer forever.
+   *
+   *  @return true if the number of pending changes is below the limit
+   */
+  public synchronized boolean awaitSizeBelow(int maximum, long timeoutMillis) throws InterruptedException {
+    var deadline = System.currentTimeMillis() + timeoutMillis;
+    while (changes.size() >= maximum) {
+      var remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+
+  private static class Change {
+    private final Kind kind;
+    @Nullable
+    private final ISonarLintFile file;
+
+    private Change(Kind kind, @Nullable ISonarLintFile file) {
+      this.kind = kind;
+      this.file = file;
+    }
+  }
+
+  public static class Batch {
+    private final List<ISonarLintFile> added;
+    private final List<ISonarLintFile> changed;
+    private final List<URI> removed;
+
+    private Batch(List<ISonarLintFile> added, List<ISonarLintFile> changed, List<URI> removed) {
+      this.added = Collections.unmodifiableList(added);
+      this.changed = Collections.unmodifiableList(changed);
+      this.removed = Collections.unmodifiableList(removed);
+    }
+
+    public List<ISonarLintFile> getAdded() {
+      return added;
+    }
+
+    public List<ISonarLintFile> getChanged() {
+      return changed;
+    }
+
+    public List<URI> getRemoved() {
+      return removed;
+    }
+
+    public boolean isEmpty() {
+      return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+  }
+}
@@ -19,39 +19,41 @@
  */
 package org.sonarlint.eclipse.core.internal.backend;
 
-import java.io.File;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import org.eclipse.core.filesystem.EFS;
-import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.Nullable;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.analysis.SonarLintLanguage;
 import org.sonarlint.eclipse.core.documentation.SonarLintDocumentation;
-import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
-import org.sonarlint.eclipse.core.internal.cache.DefaultSonarLintProjectAdapterCache;
 import org.sonarlint.eclipse.core.internal.cache.IProjectScopeProviderCache;
 import org.sonarlint.eclipse.core.internal.extension.SonarLintExtensionTracker;
 import org.sonarlint.eclipse.core.internal.jobs.TestFileClassifier;
+import org.sonarlint.eclipse.core.internal.resources.RemoteFileMirror;
+import org.sonarlint.eclipse.core.internal.utils.PathClassifier;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
@@ -70,11 +72,36 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
   public static final String SONARLINT_CONFIG_FILE = "connectedMode.json";
   public static final Pattern SONARLINT_JSON_REGEX = Pattern.compile("^\\" + SONARLINT_FOLDER + "/.*\\.json$", Pattern.CASE_INSENSITIVE);
 
+  /**
+   *  The time window (in milliseconds) in which the file system changes are collected before sending them to SLCORE,
+   *  can be configured via "-Dsonarlint.fs.notifier.window=500" for example.
+   */
+  private static final long WINDOW_MS = Long.getLong("sonarlint.fs.notifier.window", 200);
+  /** When this many files have pending changes, they're propagated immediately and the producer is slowed down */
+  private static final int MAX_PENDING_CHANGES = 5_000;
+  private static final long BACK_PRESSURE_TIMEOUT_MS = 30_000;
+  /** When this many resource change events are waiting to be visited, the workspace waits before notifying more */
+  private static final int MAX_PENDING_EVENTS = 100;
+
   private final SonarLintRpcServer backend;
-  private final ExecutorService fileSystemNotifierService = Executors.newSingleThreadExecutor(SonarLintUtils.threadFactory("sonarlint-fs-notifier", false));
+  private final ExecutorService fileSystemNotifierService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+    new ArrayBlockingQueue<>(MAX_PENDING_EVENTS), SonarLintUtils.threadFactory("sonarlint-fs-notifier", false),
+    FileSystemSynchronizer::waitForPendingEvents);
+  private final FileSystemChangesCoalescer pendingChanges = new FileSystemChangesCoalescer();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  /** Batches and unsaved contents are sent one after another, so that SLCORE receives them in the order of draining */
+  private final Object sendLock = new Object();
+  private final Job propagateJob;
 
   FileSystemSynchronizer(SonarLintRpcServer backend) {
     this.backend = backend;
+    this.propagateJob = new Job("SonarLint - Propagate FileSystem changes") {
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        return propagateChanges(monitor);
+      }
+    };
+    propagateJob.setSystem(true);
   }
 
   @Override
@@ -88,6 +115,21 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
     });
   }
 
+  /**
+   *  Every event holds on to its resource delta until visited, so the queue is bounded. Instead of running the task in
+   *  the notifying thread, which would change the order in which the events are merged, it waits for a free slot.
+   */
+  private static void waitForPendingEvents(Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      return;
+    }
+    try {
+      executor.getQueue().put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private void computeResourceChanged(IResourceChangeEvent event) {
     var addedFiles = new ArrayList<ISonarLintFile>();
     var changedFiles = new ArrayList<ISonarLintFile>();
@@ -103,78 +145,103 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
       return;
     }
 
-    // In order to not intervene with the DefaultSonarLintProjectAdapter we have to invalidate the cache as early as
-    // possible! Otherwise "importing a project", then "analyzing whole project" wouldn't work because the initial
-    // "DefaultSonarLintProjectAdapter#files()" call will always include no files after an import, they have to be
-    // "added" first and that is done the first time this is called!
-    final ISonarLintProject project;
-    if (!addedFiles.isEmpty()) {
-      project = addedFiles.get(0).getProject();
-    } else if (!changedFiles.isEmpty()) {
-      project = changedFiles.get(0).getProject();
-    } else {
-      // The variable has to be "final" to be usable in the thread spawned by the job, therefore we set it here
-      // to null in order to not have it in a "uninitialized" state as it doesn't default to "null"!
-      project = null;
+    // The order matters for merging the changes on the same file across events, e.g. a file replaced inside one event
+    // is removed first and then added again.
+    removedFiles.forEach(pendingChanges::removed);
+    addedFiles.forEach(pendingChanges::added);
+    changedFiles.forEach(pendingChanges::changed);
+
+    if (pendingChanges.size() >= MAX_PENDING_CHANGES) {
+      // Don't wait for the window to end but flush now and slow down the producer (this single thread executor) until
+      // the job caught up, otherwise a huge change (e.g. "git checkout" on a large repository) would pile up in memory.
+      propagateJob.schedule();
+      try {
+        if (!pendingChanges.awaitSizeBelow(MAX_PENDING_CHANGES, BACK_PRESSURE_TIMEOUT_MS)) {
+          SonarLintLogger.get().debug("File system changes are propagated slower than they are happening");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } else if (flushScheduled.compareAndSet(false, true)) {
+      // The window starts with the first change and is not extended by the following ones, so that the changes are
+      // propagated with a maximum delay even when the resource change events don't stop coming.
+      propagateJob.schedule(WINDOW_MS);
     }
+  }
 
-    if (project != null) {
-      // Invalidate cache if files were added, or changed as otherwise importing another related hierarchical project
-      // as well as manually selecting multiple projects for analysis would be affected and could potentially lead to
-      // incorrect results!
-      DefaultSonarLintProjectAdapterCache.INSTANCE.removeEntry(
-        ConfigScopeSynchronizer.getConfigScopeId(project));
+  private IStatus propagateChanges(IProgressMonitor monitor) {
+    flushScheduled.set(false);
+    synchronized (sendLock) {
+      return propagateChanges(pendingChanges.drain(), monitor);
     }
+  }
 
-    var job = new Job("SonarLint - Propagate FileSystem changes") {
-      @Override
-      protected IStatus run(IProgressMonitor monitor) {
-        // For added files this won't include SonarLint configuration files in order to not suggest connections twice
-        // after a project import (everything after an import is also considered "added"). In case of changes done
-        // either inside or outside the IDE, the files will be included.
-        var addedDto = addedFiles.stream()
-          .map(f -> FileSystemSynchronizer.toFileDto(f, monitor))
-          .filter(Objects::nonNull)
-          .collect(toList());
-        var changedDto = changedFiles.stream()
-          .map(f -> FileSystemSynchronizer.toFileDto(f, monitor))
-          .filter(Objects::nonNull)
-          .collect(toList());
-
-        // In order to add additional "changes" for informing the sub-projects we have to make the lists modifiable!
-        var allAddedDtos = new ArrayList<>(addedDto);
-        var allChangedDtos = new ArrayList<>(changedDto);
-
-        var addedSonarLintDto = allAddedDtos.stream()
-          .filter(dto -> SONARLINT_JSON_REGEX.matcher(dto.getIdeRelativePath().toString()).find())
-          .collect(toList());
-        var changedSonarLintDto = allChangedDtos.stream()
-          .filter(dto -> SONARLINT_JSON_REGEX.matcher(dto.getIdeRelativePath().toString()).find())
-          .collect(toList());
-
-        // Only if there were actual changes to SonarLint configuration files we want to do the hussle and check for
-        // sub-projects and inform them as well!
-        if (!addedSonarLintDto.isEmpty() || !changedSonarLintDto.isEmpty()) {
-          // INFO: "project" cannot be null in this case!
-          for (var subProject : getSubProjects(project)) {
-            var addedSubProjectDto = addedSonarLintDto.stream()
-              .map(dto -> toSubProjectFileDto(subProject, dto))
-              .collect(toList());
-            var changedSubProjectDto = changedSonarLintDto.stream()
-              .map(dto -> toSubProjectFileDto(subProject, dto))
-              .collect(toList());
-            allAddedDtos.addAll(addedSubProjectDto);
-            allChangedDtos.addAll(changedSubProjectDto);
-          }
-        }
+  private IStatus propagateChanges(FileSystemChangesCoalescer.Batch batch, IProgressMonitor monitor) {
+    if (batch.isEmpty()) {
+      return Status.OK_STATUS;
+    }
 
-        backend.getFileService().didUpdateFileSystem(new DidUpdateFileSystemParams(allAddedDtos, allChangedDtos, removedFiles));
-        return Status.OK_STATUS;
+    // For added files this won't include SonarLint configuration files in order to not suggest connections twice
+    // after a project import (everything after an import is also considered "added"). In case of changes done
+    // either inside or outside the IDE, the files will be included.
+    var allAddedDtos = new ArrayList<ClientFileDto>();
+    var allChangedDtos = new ArrayList<ClientFileDto>();
+    var addedSonarLintFiles = new HashMap<ISonarLintProject, List<ClientFileDto>>();
+    var changedSonarLintFiles = new HashMap<ISonarLintProject, List<ClientFileDto>>();
+    addFileDtos(batch.getAdded(), allAddedDtos, addedSonarLintFiles, monitor);
+    addFileDtos(batch.getChanged(), allChangedDtos, changedSonarLintFiles, monitor);
+
+    // Only if there were actual changes to SonarLint configuration files we want to do the hussle and check for
+    // sub-projects and inform them as well! As a batch spans multiple events, this is done for every project that
+    // had its configuration files changed.
+    var projectsWithSonarLintFiles = new HashSet<ISonarLintProject>(addedSonarLintFiles.keySet());
+    projectsWithSonarLintFiles.addAll(changedSonarLintFiles.keySet());
+    for (var project : projectsWithSonarLintFiles) {
+      for (var subProject : getSubProjects(project)) {
+        addedSonarLintFiles.getOrDefault(project, List.of()).stream()
+          .map(dto -> toSubProjectFileDto(subProject, dto))
+          .forEach(allAddedDtos::add);
+        changedSonarLintFiles.getOrDefault(project, List.of()).stream()
+          .map(dto -> toSubProjectFileDto(subProject, dto))
+          .forEach(allChangedDtos::add);
       }
-    };
+    }
+
+    backend.getFileService().didUpdateFileSystem(new DidUpdateFileSystemParams(allAddedDtos, allChangedDtos,
+      new ArrayList<>(batch.getRemoved())));
+    return Status.OK_STATUS;
+  }
 
-    job.setSystem(true);
-    job.schedule();
+  /**
+   *  The unsaved content of an editor replaces a pending change of the same file, as the latter would make SLCORE read
+   *  the file from disk again afterwards. Providing no content makes SLCORE read the file from disk immediately.
+   */
+  void didChangeFileContent(ISonarLintFile file, @Nullable String unsavedContent) {
+    synchronized (sendLock) {
+      var added = pendingChanges.discardContentChange(file.uri());
+      var dto = toFileDto(file, unsavedContent, new NullProgressMonitor());
+      if (dto == null) {
+        return;
+      }
+      var params = added
+        ? new DidUpdateFileSystemParams(List.of(dto), List.of(), List.of())
+        : new DidUpdateFileSystemParams(List.of(), List.of(dto), List.of());
+      backend.getFileService().didUpdateFileSystem(params);
+    }
+  }
+
+  private static void addFileDtos(List<ISonarLintFile> files, List<ClientFileDto> dtos,
+    Map<ISonarLintProject, List<ClientFileDto>> sonarLintFilesPerProject, IProgressMonitor monitor) {
+    for (var file : files) {
+      var dto = toFileDto(file, monitor);
+      if (dto == null) {
+        continue;
+      }
+      dtos.add(dto);
+      if (SONARLINT_JSON_REGEX.matcher(dto.getIdeRelativePath().toString()).find()) {
+        sonarLintFilesPerProject.computeIfAbsent(file.getProject(), p -> new ArrayList<>()).add(dto);
+      }
+    }
   }
 
   private static boolean visitDeltaPostChange(IResourceDelta delta, List<ISonarLintFile> addedFiles,
@@ -184,11 +251,8 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
 
     // Immediately rule out files in the VCS and files related to Node.js "metadata" / storage or Python virtual
     // environments. We don't care for these ones no matter if removed, changed, or added!
-    // INFO: We also exclude buggy Eclipse PDE files!
-    if (SonarLintUtils.insideVCSFolder(fullPath)
-      || SonarLintUtils.isNodeJsRelated(fullPath)
-      || SonarLintUtils.isPythonRelated(fullPath)
-      || SonarLintUtils.isIncorrectEclipsePDE(fullPath)) {
+    // INFO: We also exclude buggy Eclipse PDE files and the directories ignored by the user!
+    if (PathClassifier.shouldSkip(fullPath, res.getType() != IResource.FILE)) {
       return false;
     }
 
@@ -200,6 +264,9 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
         removedFiles.add(fileUri);
         SonarLintLogger.get().debug("File removed: " + fileUri);
       }
+      if (res.getType() == IResource.FILE) {
+        RemoteFileMirror.remove(res);
+      }
       return true;
     }
 
@@ -218,28 +285,11 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
       return false;
     }
 
-    var project = slFile.getProject();
-    Set<IPath> exclusions;
-    if (SonarLintCorePlugin.loadConfig(project).isIndexingBasedOnEclipsePlugIns()) {
-      var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(project);
-      exclusions = IProjectScopeProviderCache.INSTANCE.getEntry(configScopeId);
-      if (exclusions == null) {
-        exclusions = getExclusions((IProject) project.getResource());
-        IProjectScopeProviderCache.INSTANCE.putEntry(configScopeId, exclusions);
-      }
-    } else {
-      SonarLintLogger.get().traceIdeMessage("[FileSystemSynchronizer#visitDeltaPostChange] No exclusions calculated "
-        + "as '" + project.getName() + "' opted out of indexing based on other Eclipse plug-ins!");
-      exclusions = new HashSet<>();
-    }
-
     // Compared to "DefaultSonarLintProjectAdapter#files" this is only on a resource delta, therefore we won't visit
-    // the folders containing the files that were added / changed. And therefore we have to iterate over the exclusions
-    // instead of just checking whether the "whole" path is in there (as it would be the case for a folder).
-    for (var exclusion : exclusions) {
-      if (SonarLintUtils.isChild(fullPath, exclusion)) {
-        return false;
-      }
+    // the folders containing the files that were added / changed. The exclusions are compiled per project so that
+    // checking a path is only one walk over its segments instead of comparing it with every exclusion.
+    if (IProjectScopeProviderCache.INSTANCE.getExclusions(slFile.getProject()).matches(fullPath)) {
+      return false;
     }
 
     if (delta.getKind() == IResourceDelta.ADDED) {
@@ -277,6 +327,15 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
    */
   @Nullable
   static ClientFileDto toFileDto(ISonarLintFile slFile, IProgressMonitor monitor) {
+    return toFileDto(slFile, null, monitor);
+  }
+
+  /**
+   *  Same as {@link #toFileDto(ISonarLintFile, IProgressMonitor)} but with the unsaved content of an editor. When
+   *  provided, SLCORE will use it instead of reading the file from disk until the file is reported again without it.
+   */
+  @Nullable
+  static ClientFileDto toFileDto(ISonarLintFile slFile, @Nullable String unsavedContent, IProgressMonitor monitor) {
     String configScopeId = null;
     try {
       configScopeId = ConfigScopeSynchronizer.getConfigScopeId(slFile.getProject());
@@ -289,24 +348,23 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
     }
 
     Path fsPath;
-    File localFile;
     try {
       var fileStore = EFS.getStore(slFile.getResource().getLocationURI());
-      localFile = fileStore.toLocalFile(EFS.NONE, monitor);
+      var localFile = fileStore.toLocalFile(EFS.NONE, monitor);
       if (localFile != null) {
         fsPath = localFile.toPath().toRealPath();
       } else {
-        fsPath = null;
+        // Instead of sending the content of remote files every time, SLCORE reads them from their local mirror
+        fsPath = RemoteFileMirror.mirror(slFile, fileStore, monitor);
       }
 
     } catch (Exception e) {
       SonarLintLogger.get().debug("Error while looking for file path for file " + slFile, e);
       fsPath = null;
-      localFile = null;
     }
 
-    String fileContent = null;
-    if (matchesSonarLintConfigurationFiles(slFile) || localFile == null) {
+    String fileContent = unsavedContent;
+    if (fileContent == null && (matchesSonarLintConfigurationFiles(slFile) || fsPath == null)) {
       fileContent = slFile.getDocument().get();
     }
 
@@ -370,15 +428,8 @@ public class FileSystemSynchronizer implements IResourceChangeListener {
     return language != null ? Language.valueOf(language.name()) : null;
   }
 
-  private static Set<IPath> getExclusions(IProject project) {
-    var exclusions = new HashSet<IPath>();
-    for (var projectScopeProvider : SonarLintExtensionTracker.getInstance().getProjectScopeProviders()) {
-      exclusions.addAll(projectScopeProvider.getExclusions(project));
-    }
-    return exclusions;
-  }
-
   public void shutdown() {
     fileSystemNotifierService.shutdownNow();
+    propagateJob.cancel();
   }
 }
@@ -19,14 +19,22 @@
  */
 package org.sonarlint.eclipse.core.internal.backend;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.internal.jobs.AnalysisState;
 
 /**
  * The analysis state will be updated and queried from two different places
+ *
+ * The IDs of cancelled analyses are remembered for a while, as SLCORE might still raise the issues of an analysis that
+ * was already running when its request got cancelled. These results are outdated and must not end up as markers.
  */
 public class RunningAnalysesTracker {
   private static final RunningAnalysesTracker INSTANCE = new RunningAnalysesTracker();
@@ -35,7 +43,19 @@ public class RunningAnalysesTracker {
     return INSTANCE;
   }
 
+  private static final int MAX_CANCELLED_IDS = 1_000;
+
   private final Map<UUID, AnalysisState> analysisStateById = new ConcurrentHashMap<>();
+  private final Set<UUID> cancelledIds = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+      return size() > MAX_CANCELLED_IDS;
+    }
+  }));
+  private final AtomicLong cancelledCount = new AtomicLong();
+  private final AtomicLong wastedCount = new AtomicLong();
 
   public void track(AnalysisState analysisState) {
     analysisStateById.put(analysisState.getId(), analysisState);
@@ -45,8 +65,42 @@ public class RunningAnalysesTracker {
     analysisStateById.remove(analysisState.getId());
   }
 
+  /** The analysis was cancelled (by the user, by a newer request, or by SLCORE), its results are ignored */
+  public void cancel(AnalysisState analysisState) {
+    cancelledIds.add(analysisState.getId());
+    if (analysisStateById.remove(analysisState.getId()) != null) {
+      cancelledCount.incrementAndGet();
+      traceStatistics();
+    }
+  }
+
+  /** @return true when the analysis was cancelled, counting its results as wasted */
+  public boolean discardIfCancelled(UUID analysisId) {
+    if (cancelledIds.remove(analysisId)) {
+      wastedCount.incrementAndGet();
+      traceStatistics();
+      return true;
+    }
+    return false;
+  }
+
   @Nullable
   public AnalysisState getById(UUID analysisId) {
     return analysisStateById.get(analysisId);
   }
+
+  /** Number of analyses cancelled while running in SLCORE */
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  /** Number of cancelled analyses whose results still came in and were ignored */
+  public long getWastedCount() {
+    return wastedCount.get();
+  }
+
+  public void traceStatistics() {
+    SonarLintLogger.get().traceIdeMessage("[RunningAnalysesTracker#traceStatistics] running=" + analysisStateById.size()
+      + ", cancelled=" + getCancelledCount() + ", wasted=" + getWastedCount());
+  }
 }
@@ -58,6 +58,7 @@ import org.sonarlint.eclipse.core.internal.utils.DurationUtils;
 import org.sonarlint.eclipse.core.internal.utils.JavaRuntimeUtils;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.internal.vcs.VcsService;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 import org.sonarsource.sonarlint.core.rpc.client.SloopLauncher;
 import org.sonarsource.sonarlint.core.rpc.client.SonarLintRpcClientDelegate;
@@ -70,6 +71,8 @@ import org.sonarsource.sonarlint.core.rpc.protocol.backend.branch.DidVcsReposito
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.connection.config.DidChangeCredentialsParams;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.connection.projects.GetAllProjectsParams;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.connection.projects.SonarProjectDto;
+import org.sonarsource.sonarlint.core.rpc.protocol.backend.file.DidCloseFileParams;
+import org.sonarsource.sonarlint.core.rpc.protocol.backend.file.DidOpenFileParams;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.initialize.BackendCapability;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.initialize.ClientConstantInfoDto;
 import org.sonarsource.sonarlint.core.rpc.protocol.backend.initialize.HttpConfigurationDto;
@@ -384,6 +387,29 @@ public class SonarLintBackendService {
       .didVcsRepositoryChange(new DidVcsRepositoryChangeParams(ConfigScopeSynchronizer.getConfigScopeId(project)));
   }
 
+  public void didOpenFile(ISonarLintFile file) {
+    getBackend().getFileService().didOpenFile(new DidOpenFileParams(ConfigScopeSynchronizer.getConfigScopeId(file.getProject()), file.uri()));
+  }
+
+  public void didCloseFile(ISonarLintFile file) {
+    getBackend().getFileService().didCloseFile(new DidCloseFileParams(ConfigScopeSynchronizer.getConfigScopeId(file.getProject()), file.uri()));
+  }
+
+  /**
+   *  Inform the backend about the content of a file that is not yet saved, so that it can be analyzed as the user
+   *  types. Providing no content makes the backend read the file from disk again, e.g. when the editor was closed
+   *  without saving. This goes through the file system synchronization so that pending changes of the file on disk
+   *  don't replace the content afterwards.
+   */
+  public void didChangeFileContent(ISonarLintFile file, @Nullable String unsavedContent) {
+    // Waits for the initialization, the synchronizer is only available afterwards
+    getBackend();
+    var synchronizer = fileSystemSynchronizer;
+    if (synchronizer != null) {
+      synchronizer.didChangeFileContent(file, unsavedContent);
+    }
+  }
+
   public void credentialsChanged(ConnectionFacade connection) {
     getBackend().getConnectionService().didChangeCredentials(new DidChangeCredentialsParams(connection.getId()));
   }
@@ -227,6 +227,11 @@ public abstract class SonarLintEclipseHeadlessRpcClient implements SonarLintRpcC
       return;
     }
 
+    if (analysisId != null && RunningAnalysesTracker.get().discardIfCancelled(analysisId)) {
+      SonarLintLogger.get().debug("Ignoring the issues of cancelled analysis with id '" + analysisId + "'");
+      return;
+    }
+
     // Due to the AnalysisTracker using a ConcurrentHashMap, we have to explicitly check that the key ("analysisId") is
     // not null before trying to get the value associated to this key.
     var currentAnalysis = analysisId == null ? null : RunningAnalysesTracker.get().getById(analysisId);
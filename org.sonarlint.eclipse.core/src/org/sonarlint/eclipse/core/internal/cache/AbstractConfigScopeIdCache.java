@@ -19,59 +19,226 @@
  */
 package org.sonarlint.eclipse.core.internal.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.eclipse.jdt.annotation.Nullable;
-import org.sonarlint.eclipse.core.internal.jobs.AbstractSonarJob;
+import org.sonarlint.eclipse.core.SonarLintLogger;
 
 /**
  *  This is the base for all caches that are linked to a configuration scope id. This can be both IProject and
- *  ISonarLintProject as "configScopeId" is generated by `IProject#getLocationURI().toString()`. The actual cache
- *  implementation will provide the duration for how long the cache is valid before the entry is removed
+ *  ISonarLintProject as "configScopeId" is generated by `IProject#getLocationURI().toString()`.
+ *
+ *  Entries are not expiring after some time but are invalidated by explicit events (see {@link InvalidationEvent})
+ *  that are broadcast to all the caches via {@link #invalidate(String, InvalidationEvent)}. The actual cache
+ *  implementation provides which events it reacts to and how much memory it is allowed to take, the least recently
+ *  used entries are evicted when the limit is exceeded. Reads are lock-free, only evicting entries is synchronized.
  *
  *  @param <T> values stored per configuration scope id
  */
 public abstract class AbstractConfigScopeIdCache<T> {
-  private final ConcurrentHashMap<String, T> cache = new ConcurrentHashMap<>();
+  /** Events on which cache entries can be invalidated, every cache decides for itself which ones are relevant */
+  public enum InvalidationEvent {
+    /** The project was closed or removed from the workspace */
+    PROJECT_CLOSED,
+    /** The SonarLint configuration of the project changed */
+    PREFERENCE_CHANGED,
+    /** A file defining the build model of the project changed, e.g. ".classpath", "pom.xml", "build.gradle" */
+    BUILD_MODEL_CHANGED
+  }
+
+  private static final List<AbstractConfigScopeIdCache<?>> CACHES = new CopyOnWriteArrayList<>();
+
+  private final ConcurrentHashMap<String, CacheEntry<T>> cache = new ConcurrentHashMap<>();
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong totalWeight = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  protected AbstractConfigScopeIdCache() {
+    CACHES.add(this);
+  }
+
+  /** Broadcast an event to all the caches, each one will handle it based on {@link #getInvalidationEvents()} */
+  public static void invalidate(String configScopeId, InvalidationEvent event) {
+    for (var cache : CACHES) {
+      cache.onEvent(configScopeId, event);
+    }
+  }
+
+  /** Log the statistics of all the caches, only meant for debugging purposes */
+  public static void traceStatistics() {
+    for (var cache : CACHES) {
+      SonarLintLogger.get().traceIdeMessage("[AbstractConfigScopeIdCache#traceStatistics] " + cache);
+    }
+  }
 
   @Nullable
-  public synchronized T getEntry(String configScopeId) {
-    if (!cache.containsKey(configScopeId)) {
+  public T getEntry(String configScopeId) {
+    var entry = cache.get(configScopeId);
+    if (entry == null) {
+      misses.increment();
       return null;
     }
-    return cache.get(configScopeId);
+    hits.increment();
+    entry.lastAccess = clock.incrementAndGet();
+    return entry.value;
   }
 
-  public synchronized void putEntry(String configScopeId, T entry) {
-    cache.put(configScopeId, entry);
-    new DeleteCacheEntryJob<T>(this, configScopeId)
-      .schedule(getCacheDuration());
+  public void putEntry(String configScopeId, T value) {
+    var entry = new CacheEntry<>(value, weigh(value), clock.incrementAndGet());
+    var previous = cache.put(configScopeId, entry);
+    totalWeight.addAndGet(entry.weight);
+    if (previous != null) {
+      totalWeight.addAndGet(-previous.weight);
+      if (previous.value != value) {
+        onRemoval(configScopeId, previous.value);
+      }
+    }
+    if (totalWeight.get() > getMaximumWeight()) {
+      evict();
+    }
+  }
+
+  public void removeEntry(String configScopeId) {
+    var previous = cache.remove(configScopeId);
+    if (previous != null) {
+      totalWeight.addAndGet(-previous.weight);
+      onRemoval(configScopeId, previous.value);
+    }
+  }
+
+  /** Weighs the entry again after its value changed in place, unless it was replaced or removed in the meantime */
+  protected void reweighEntry(String configScopeId, T value) {
+    var entry = cache.get(configScopeId);
+    if (entry == null || entry.value != value) {
+      return;
+    }
+    var reweighed = new CacheEntry<>(value, weigh(value), entry.lastAccess);
+    if (cache.replace(configScopeId, entry, reweighed)) {
+      totalWeight.addAndGet(reweighed.weight - entry.weight);
+      if (totalWeight.get() > getMaximumWeight()) {
+        evict();
+      }
+    }
+  }
+
+  /** The value currently cached, without counting as an access to it, e.g. for handling events */
+  @Nullable
+  protected T peekEntry(String configScopeId) {
+    var entry = cache.get(configScopeId);
+    return entry != null ? entry.value : null;
   }
 
-  public synchronized void removeEntry(String configScopeId) {
-    cache.remove(configScopeId);
+  /** The values currently cached, without counting as an access to them */
+  protected List<T> getEntries() {
+    var entries = new ArrayList<T>(cache.size());
+    cache.values().forEach(entry -> entries.add(entry.value));
+    return entries;
   }
 
-  /** Should be a meaningful period based on the actual cache implementation */
-  protected abstract long getCacheDuration();
+  public void clear() {
+    for (var configScopeId : Set.copyOf(cache.keySet())) {
+      removeEntry(configScopeId);
+    }
+  }
 
-  private static class DeleteCacheEntryJob<T> extends AbstractSonarJob {
-    private final AbstractConfigScopeIdCache<T> cache;
-    private final String configScopeId;
+  /** Evict the least recently used entries until the cache is below its maximum weight again */
+  private synchronized void evict() {
+    while (totalWeight.get() > getMaximumWeight() && !cache.isEmpty()) {
+      @Nullable
+      Entry<String, CacheEntry<T>> leastRecentlyUsed = null;
+      var oldestAccess = Long.MAX_VALUE;
+      for (var entry : cache.entrySet()) {
+        if (entry.getValue().lastAccess < oldestAccess) {
+          oldestAccess = entry.getValue().lastAccess;
+          leastRecentlyUsed = entry;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        return;
+      }
+      // Only the entry found is removed, a value put concurrently in the meantime is more recent and has to be kept
+      var configScopeId = leastRecentlyUsed.getKey();
+      var entry = leastRecentlyUsed.getValue();
+      if (cache.remove(configScopeId, entry)) {
+        totalWeight.addAndGet(-entry.weight);
+        onRemoval(configScopeId, entry.value);
+        evictions.increment();
+      }
+    }
+  }
 
-    public DeleteCacheEntryJob(AbstractConfigScopeIdCache<T> cache, String configScopeId) {
-      super("Delete cache entry for: " + configScopeId);
-      this.cache = cache;
-      this.configScopeId = configScopeId;
+  /**
+   *  Default behavior is to remove the entry of the configuration scope id the event is linked to, caches can override
+   *  this when an event affects more than one entry.
+   */
+  protected void onEvent(String configScopeId, InvalidationEvent event) {
+    if (getInvalidationEvents().contains(event) && cache.containsKey(configScopeId)) {
+      invalidations.increment();
+      removeEntry(configScopeId);
     }
+  }
+
+  /** Should be the events after which the cached values might not be correct anymore */
+  protected abstract Set<InvalidationEvent> getInvalidationEvents();
+
+  /** Should be a meaningful limit based on the actual cache implementation, compared to the sum of all weights */
+  protected abstract long getMaximumWeight();
+
+  /** By default every entry weighs the same and the maximum weight is the maximum number of entries */
+  protected int weigh(T value) {
+    return 1;
+  }
+
+  /** Called when an entry is removed, replaced, evicted, or invalidated, e.g. for releasing resources */
+  protected void onRemoval(String configScopeId, T value) {
+    // Nothing to do by default
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  public long getTotalWeight() {
+    return totalWeight.get();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " [size=" + cache.size() + ", weight=" + getTotalWeight() + ", hits="
+      + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", invalidations="
+      + getInvalidationCount() + "]";
+  }
+
+  private static class CacheEntry<T> {
+    private final T value;
+    private final int weight;
+    private volatile long lastAccess;
 
-    @Override
-    protected IStatus doRun(IProgressMonitor monitor) throws CoreException {
-      cache.removeEntry(configScopeId);
-      return Status.OK_STATUS;
+    private CacheEntry(T value, int weight, long lastAccess) {
+      this.value = value;
+      this.weight = weight;
+      this.lastAccess = lastAccess;
     }
   }
 }
@@ -19,10 +19,19 @@
  */
 package org.sonarlint.eclipse.core.internal.cache;
 
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Set;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
+import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
 import org.sonarlint.eclipse.core.internal.backend.FileSystemSynchronizer;
 import org.sonarlint.eclipse.core.internal.backend.SonarLintEclipseHeadlessRpcClient;
+import org.sonarlint.eclipse.core.internal.extension.SonarLintExtensionTracker;
+import org.sonarlint.eclipse.core.internal.utils.PathPrefixMatcher;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
 /**
  *  For caching the information aggregated from the implementations of the extension point. Currently, only used for
@@ -32,17 +41,75 @@ import org.sonarlint.eclipse.core.internal.backend.SonarLintEclipseHeadlessRpcCl
  *  But due to computation over the extension points is quite costly, having a cache in place for something that isn't
  *  changing too often is helpful. E.g. in case multiple changes are coming in at a time and the file system
  *  synchronization needs to happen one after another.
+ *
+ *  The exclusions are cached already compiled into a {@link PathPrefixMatcher}, so that checking whether a resource is
+ *  excluded costs only one walk over its path segments, no matter how many exclusions the extensions contributed.
  */
-public class IProjectScopeProviderCache extends AbstractConfigScopeIdCache<Set<IPath>> {
+public class IProjectScopeProviderCache extends AbstractConfigScopeIdCache<PathPrefixMatcher> {
   public static final IProjectScopeProviderCache INSTANCE = new IProjectScopeProviderCache();
 
+  /** Summed up over all projects, this is the number of excluded paths kept in memory at most */
+  private static final long MAXIMUM_EXCLUDED_PATHS = 100_000;
+
   /**
-   *  Cache this information for 60 seconds as changes to the project "properties" (e.g. JDT, Maven, Gradle, ...) don't
-   *  happen too often, maybe once every now and then! Therefore when calculated once we can re-use this information
-   *  for the next 60 seconds and when it is requested every now and then, it is okey to re-calculate it!
+   *  Changes to the project "properties" (e.g. JDT, Maven, Gradle, ...) don't happen too often, maybe once every now
+   *  and then! When they happen, they are reflected in the build model files of the project.
    */
   @Override
-  protected long getCacheDuration() {
-    return 60_000;
+  protected Set<InvalidationEvent> getInvalidationEvents() {
+    return EnumSet.of(InvalidationEvent.PROJECT_CLOSED, InvalidationEvent.PREFERENCE_CHANGED,
+      InvalidationEvent.BUILD_MODEL_CHANGED);
+  }
+
+  /**
+   *  A change in the build model of one project can affect the exclusions of others, e.g. a Gradle multi-project
+   *  build where the root project configures its sub-projects. Re-calculating them is okay as it doesn't happen often.
+   */
+  @Override
+  protected void onEvent(String configScopeId, InvalidationEvent event) {
+    if (event == InvalidationEvent.BUILD_MODEL_CHANGED) {
+      clear();
+    } else {
+      super.onEvent(configScopeId, event);
+    }
+  }
+
+  @Override
+  protected long getMaximumWeight() {
+    return MAXIMUM_EXCLUDED_PATHS;
+  }
+
+  @Override
+  protected int weigh(PathPrefixMatcher value) {
+    return value.getPaths().size() + 1;
+  }
+
+  /**
+   *  When the user has opted out of using Eclipse plug-ins for the indexing and exclusions, we don't call the
+   *  extension points to get them and skip the whole process.
+   *
+   *  Otherwise, we try to load it from the cache first and if that is not possible, we access the extension points!
+   *
+   *  @param project used for the extension points and its configuration scope id as a key in the cache
+   *  @return based on the user decision to opt out or not, no exclusions or the ones coming from the extension points
+   */
+  public PathPrefixMatcher getExclusions(ISonarLintProject project) {
+    if (!SonarLintCorePlugin.loadConfig(project).isIndexingBasedOnEclipsePlugIns()) {
+      SonarLintLogger.get().traceIdeMessage("[IProjectScopeProviderCache#getExclusions] No exclusions calculated as '"
+        + project.getName() + "' opted out of indexing based on other Eclipse plug-ins!");
+      return PathPrefixMatcher.EMPTY;
+    }
+
+    var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(project);
+    var exclusions = getEntry(configScopeId);
+    if (exclusions == null) {
+      var paths = new HashSet<IPath>();
+      for (var projectScopeProvider : SonarLintExtensionTracker.getInstance().getProjectScopeProviders()) {
+        paths.addAll(projectScopeProvider.getExclusions((IProject) project.getResource()));
+      }
+      exclusions = new PathPrefixMatcher(paths);
+      putEntry(configScopeId, exclusions);
+    }
+    return exclusions;
   }
 }
@@ -0,0 +1,198 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.cache;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
+
+/**
+ *  For caching the issues last raised per file, including the ones not shown due to the "only issues on new code" and
+ *  "include resolved issues" preferences. When one of them changes, the markers can be updated based on the cached
+ *  issues instead of analyzing the files again.
+ *
+ *  Only the lists received from SLCORE are kept, without copying them, as their flows and quick fixes are required
+ *  for creating the markers again. As a single issue with many flows or quick fixes can retain way more memory than
+ *  a plain one, the cache is bounded by the estimated size of the issues and not by their number. When it exceeds its
+ *  limit the issues of the least recently used projects are evicted, the open files of these projects then have to
+ *  be analyzed again for updating their markers.
+ */
+public class RaisedIssuesCache extends AbstractConfigScopeIdCache<RaisedIssuesCache.ProjectIssues> {
+  public static final RaisedIssuesCache INSTANCE = new RaisedIssuesCache();
+
+  /** Summed up over all projects, this is the estimated size of the issues kept in memory at most, in KiB */
+  private static final long MAXIMUM_SIZE_KIB = 64L * 1024;
+  /** Rough size of an issue without its texts: identifiers, rule key, text range, impacts, ... */
+  private static final long ISSUE_OVERHEAD = 512;
+  /** Rough size of a flow location or a quick fix edit without its text */
+  private static final long LOCATION_OVERHEAD = 64;
+
+  private RaisedIssuesCache() {
+    // singleton
+  }
+
+  /** Changing the binding of a project leads to all the files being analyzed again */
+  @Override
+  protected Set<InvalidationEvent> getInvalidationEvents() {
+    return EnumSet.of(InvalidationEvent.PROJECT_CLOSED, InvalidationEvent.PREFERENCE_CHANGED);
+  }
+
+  @Override
+  protected long getMaximumWeight() {
+    return MAXIMUM_SIZE_KIB;
+  }
+
+  @Override
+  protected int weigh(ProjectIssues value) {
+    return (int) Math.min(Integer.MAX_VALUE, value.size.get() / 1024 + 1);
+  }
+
+  /** The number of bytes retained by an issue, estimated from its texts and the number of its locations */
+  public static long estimateSize(RaisedIssueDto issue) {
+    var size = ISSUE_OVERHEAD + sizeOf(issue.getPrimaryMessage());
+    for (var flow : issue.getFlows()) {
+      for (var location : flow.getLocations()) {
+        size += LOCATION_OVERHEAD + sizeOf(location.getMessage());
+      }
+    }
+    for (var quickFix : issue.getQuickFixes()) {
+      size += LOCATION_OVERHEAD + sizeOf(quickFix.message());
+      for (var fileEdit : quickFix.fileEdits()) {
+        for (var textEdit : fileEdit.textEdits()) {
+          size += LOCATION_OVERHEAD + sizeOf(textEdit.newText());
+        }
+      }
+    }
+    return size;
+  }
+
+  private static long sizeOf(@Nullable String text) {
+    return text == null ? 0 : (2L * text.length());
+  }
+
+  public void put(ISonarLintFile file, List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, boolean viableForStatusChange) {
+    var project = file.getProject();
+    var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(project);
+    var projectIssues = getEntry(configScopeId);
+    if (projectIssues == null) {
+      projectIssues = new ProjectIssues(project);
+    }
+    projectIssues.put(file, new FileIssues(issues, viableForStatusChange), issuesAreOnTheFly);
+    // Weigh the entry again, as its size changed
+    putEntry(configScopeId, projectIssues);
+  }
+
+  public void remove(ISonarLintFile file, boolean issuesAreOnTheFly) {
+    var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(file.getProject());
+    var projectIssues = getEntry(configScopeId);
+    if (projectIssues != null) {
+      projectIssues.put(file, null, issuesAreOnTheFly);
+      reweighEntry(configScopeId, projectIssues);
+    }
+  }
+
+  /** When the report markers are deleted, their issues are not relevant anymore */
+  public void removeAllReportIssues() {
+    for (var projectIssues : getEntries()) {
+      for (var file : Set.copyOf(projectIssues.report.keySet())) {
+        projectIssues.put(file, null, false);
+      }
+      reweighEntry(ConfigScopeSynchronizer.getConfigScopeId(projectIssues.getProject()), projectIssues);
+    }
+  }
+
+  /**
+   *  When the issues of a file are not known (anymore), e.g. as the project was evicted or the markers were restored
+   *  from the last session, its markers can only be updated by analyzing it again.
+   */
+  public boolean contains(ISonarLintFile file, boolean issuesAreOnTheFly) {
+    var projectIssues = getEntry(ConfigScopeSynchronizer.getConfigScopeId(file.getProject()));
+    return projectIssues != null && (issuesAreOnTheFly ? projectIssues.onTheFly : projectIssues.report).containsKey(file);
+  }
+
+  @Nullable
+  public ProjectIssues get(ISonarLintProject project) {
+    return getEntry(ConfigScopeSynchronizer.getConfigScopeId(project));
+  }
+
+  /** The issues of all the projects currently cached */
+  public List<ProjectIssues> getAll() {
+    return getEntries();
+  }
+
+  /** The issues of one project, separately for the on-the-fly and the report markers */
+  public static class ProjectIssues {
+    private final ISonarLintProject project;
+    private final Map<ISonarLintFile, FileIssues> onTheFly = new ConcurrentHashMap<>();
+    private final Map<ISonarLintFile, FileIssues> report = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    private ProjectIssues(ISonarLintProject project) {
+      this.project = project;
+    }
+
+    private void put(ISonarLintFile file, @Nullable FileIssues issues, boolean issuesAreOnTheFly) {
+      var map = issuesAreOnTheFly ? onTheFly : report;
+      var previous = issues != null ? map.put(file, issues) : map.remove(file);
+      size.addAndGet((issues != null ? issues.size : 0) - (previous != null ? previous.size : 0));
+    }
+
+    public ISonarLintProject getProject() {
+      return project;
+    }
+
+    public Map<ISonarLintFile, FileIssues> getIssues(boolean issuesAreOnTheFly) {
+      return Map.copyOf(issuesAreOnTheFly ? onTheFly : report);
+    }
+
+    /** The estimated size of all the issues of the project, in bytes */
+    public long getSize() {
+      return size.get();
+    }
+  }
+
+  public static class FileIssues {
+    private final List<RaisedIssueDto> issues;
+    private final boolean viableForStatusChange;
+    private final long size;
+
+    private FileIssues(List<RaisedIssueDto> issues, boolean viableForStatusChange) {
+      this.issues = issues;
+      this.viableForStatusChange = viableForStatusChange;
+      this.size = issues.stream().mapToLong(RaisedIssuesCache::estimateSize).sum();
+    }
+
+    public List<RaisedIssueDto> getIssues() {
+      return issues;
+    }
+
+    public boolean isViableForStatusChange() {
+      return viableForStatusChange;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.cache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
+import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
+import org.sonarlint.eclipse.core.internal.utils.JobUtils;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+import org.sonarsource.sonarlint.core.rpc.protocol.backend.tracking.TaintVulnerabilityDto;
+
+/**
+ *  For caching the taint vulnerabilities of a project indexed by the IDE file path, so that refreshing the markers of
+ *  multiple files only needs a single request to SLCORE instead of one per file. The index is fetched once after every
+ *  synchronization of the configuration scope and then kept up to date based on the changes SLCORE notifies about
+ *  (see {@link #update(String, Set, List, List)}).
+ *
+ *  Changes notified for a project while its index is being fetched cannot be applied to it, in that case the fetched
+ *  index is not cached and fetched again the next time. Changes of other projects do not matter here.
+ */
+public class TaintVulnerabilitiesCache extends AbstractConfigScopeIdCache<TaintVulnerabilitiesCache.ProjectTaintVulnerabilities> {
+  public static final TaintVulnerabilitiesCache INSTANCE = new TaintVulnerabilitiesCache();
+
+  /** Summed up over all projects, this is the number of taint vulnerabilities kept in memory at most */
+  private static final long MAXIMUM_TAINT_VULNERABILITIES = 100_000;
+
+  /**
+   *  Per configuration scope, incremented on every change so that an index fetched in the meantime is not cached. The
+   *  counter of a closed project is dropped, an index fetched while it was closed is not cached either.
+   */
+  private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  // Visible for testing
+  public TaintVulnerabilitiesCache() {
+    // singleton, except for tests
+  }
+
+  /** The binding of the project defines which taint vulnerabilities there are */
+  @Override
+  protected Set<InvalidationEvent> getInvalidationEvents() {
+    return EnumSet.of(InvalidationEvent.PROJECT_CLOSED, InvalidationEvent.PREFERENCE_CHANGED);
+  }
+
+  @Override
+  protected long getMaximumWeight() {
+    return MAXIMUM_TAINT_VULNERABILITIES;
+  }
+
+  @Override
+  protected int weigh(ProjectTaintVulnerabilities value) {
+    return value.size() + 1;
+  }
+
+  @Override
+  protected void onEvent(String configScopeId, InvalidationEvent event) {
+    super.onEvent(configScopeId, event);
+    if (event == InvalidationEvent.PROJECT_CLOSED) {
+      generations.remove(configScopeId);
+    }
+  }
+
+  private AtomicLong generation(String configScopeId) {
+    return generations.computeIfAbsent(configScopeId, k -> new AtomicLong());
+  }
+
+  /** After a synchronization the taint vulnerabilities are fetched again the next time they are needed */
+  public void didSynchronize(String configScopeId) {
+    generation(configScopeId).incrementAndGet();
+    removeEntry(configScopeId);
+  }
+
+  /** Applies the changes notified by SLCORE, nothing to do when the index of the project was not fetched yet */
+  public void update(String configScopeId, Set<UUID> closedTaintVulnerabilityIds, List<TaintVulnerabilityDto> addedTaintVulnerabilities,
+    List<TaintVulnerabilityDto> updatedTaintVulnerabilities) {
+    generation(configScopeId).incrementAndGet();
+    var index = peekEntry(configScopeId);
+    if (index == null) {
+      return;
+    }
+    index.removeAll(closedTaintVulnerabilityIds);
+    index.putAll(addedTaintVulnerabilities);
+    index.putAll(updatedTaintVulnerabilities);
+    // Weigh the entry again, as its size changed
+    putEntry(configScopeId, index);
+  }
+
+  /**
+   *  @param project the taint vulnerabilities are fetched for, when not cached yet
+   *  @return the index of the taint vulnerabilities of the project
+   */
+  public ProjectTaintVulnerabilities getTaintVulnerabilities(ISonarLintProject project, IProgressMonitor monitor)
+    throws InterruptedException, ExecutionException {
+    return getTaintVulnerabilities(ConfigScopeSynchronizer.getConfigScopeId(project),
+      () -> JobUtils.waitForFuture(monitor, SonarLintBackendService.get().listAllTaintVulnerabilities(project))
+        .getTaintVulnerabilities());
+  }
+
+  // Visible for testing
+  public ProjectTaintVulnerabilities getTaintVulnerabilities(String configScopeId, Fetcher fetcher)
+    throws InterruptedException, ExecutionException {
+    var index = getEntry(configScopeId);
+    if (index == null) {
+      var counter = generation(configScopeId);
+      var currentGeneration = counter.get();
+      index = new ProjectTaintVulnerabilities();
+      index.putAll(fetcher.fetch());
+      if (generations.get(configScopeId) == counter && currentGeneration == counter.get()) {
+        putEntry(configScopeId, index);
+      }
+    }
+    return index;
+  }
+
+  /** Fetches all the taint vulnerabilities of a project from SLCORE */
+  @FunctionalInterface
+  public interface Fetcher {
+    List<TaintVulnerabilityDto> fetch() throws InterruptedException, ExecutionException;
+  }
+
+  /** The taint vulnerabilities of one project, indexed by their ID and their IDE file path */
+  public static class ProjectTaintVulnerabilities {
+    private final Map<UUID, TaintVulnerabilityDto> byId = new HashMap<>();
+    private final Map<Path, Map<UUID, TaintVulnerabilityDto>> byIdeFilePath = new HashMap<>();
+
+    private synchronized void putAll(Collection<TaintVulnerabilityDto> taintVulnerabilities) {
+      for (var taintVulnerability : taintVulnerabilities) {
+        remove(taintVulnerability.getId());
+        byId.put(taintVulnerability.getId(), taintVulnerability);
+        byIdeFilePath.computeIfAbsent(taintVulnerability.getIdeFilePath(), p -> new LinkedHashMap<>())
+          .put(taintVulnerability.getId(), taintVulnerability);
+      }
+    }
+
+    private synchronized void removeAll(Collection<UUID> ids) {
+      ids.forEach(this::remove);
+    }
+
+    private void remove(UUID id) {
+      var previous = byId.remove(id);
+      if (previous != null) {
+        var ofFile = byIdeFilePath.get(previous.getIdeFilePath());
+        if (ofFile != null) {
+          ofFile.remove(id);
+          if (ofFile.isEmpty()) {
+            byIdeFilePath.remove(previous.getIdeFilePath());
+          }
+        }
+      }
+    }
+
+    /** @param ideFilePath relative to the project */
+    public synchronized List<TaintVulnerabilityDto> get(Path ideFilePath) {
+      var ofFile = byIdeFilePath.get(ideFilePath);
+      return ofFile != null ? new ArrayList<>(ofFile.values()) : List.of();
+    }
+
+    private synchronized int size() {
+      return byId.size();
+    }
+  }
+}
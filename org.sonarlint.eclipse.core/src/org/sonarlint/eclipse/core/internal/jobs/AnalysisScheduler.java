@@ -0,0 +1,248 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  Central place for scheduling analyses triggered automatically, in order to not analyze the same files over and over
+ *  again when a lot of triggers come in at once (e.g. saving multiple times, SLCORE being ready for analysis on many
+ *  projects, or binding changes):
+ *
+ *  - there is at most one queued (not yet running) analysis per project, new requests are merged into it
+ *  - manual analyses are never merged as they have their own report, but they replace the queued analysis when
+ *    covering all of its files
+ *  - a running analysis that was triggered automatically is cancelled when a new request covers all of its files, as
+ *    its result would be outdated anyway; this can be disabled via "-Dsonarlint.analysis.cancelSuperseded=false"
+ *
+ *  As the job of an analysis can contain the files of multiple requests, every request gets its own
+ *  {@link ScheduledRequest}: cancelling it only cancels the job when no other request is part of it anymore.
+ *
+ *  The priority of the job depends on the {@link TriggerType}: manual analyses first, then the ones triggered by the
+ *  editor, and the ones running in the background last.
+ */
+public class AnalysisScheduler {
+  private static final AnalysisScheduler INSTANCE = new AnalysisScheduler(AnalyzeProjectJob::create);
+  private static final boolean CANCEL_SUPERSEDED_RUNNING = Boolean.parseBoolean(
+    System.getProperty("sonarlint.analysis.cancelSuperseded", "true"));
+
+  private final Function<AnalyzeProjectRequest, Job> jobFactory;
+  private final Map<ISonarLintProject, ScheduledAnalysis> queued = new HashMap<>();
+  private final Map<ISonarLintProject, List<ScheduledAnalysis>> running = new HashMap<>();
+
+  public static AnalysisScheduler get() {
+    return INSTANCE;
+  }
+
+  // Visible for testing
+  public AnalysisScheduler(Function<AnalyzeProjectRequest, Job> jobFactory) {
+    this.jobFactory = jobFactory;
+  }
+
+  /** @return the handle of the request, that might be analyzed together with others */
+  public synchronized ScheduledRequest schedule(AnalyzeProjectRequest request) {
+    var project = request.getProject();
+    var newFiles = files(request);
+    var scheduledRequest = new ScheduledRequest();
+    var scheduledRequests = new ArrayList<ScheduledRequest>();
+    scheduledRequests.add(scheduledRequest);
+
+    var effectiveRequest = request;
+    var queuedAnalysis = queued.get(project);
+    if (queuedAnalysis != null) {
+      var queuedRequest = queuedAnalysis.request;
+      var canMerge = request.getTriggerType().isOnTheFly() && queuedRequest.getTriggerType().isOnTheFly();
+      var superseded = canMerge || (queuedRequest.getTriggerType().isOnTheFly() && newFiles.containsAll(files(queuedRequest)));
+      if (superseded) {
+        // The requests of the queued analysis are analyzed by the new one, they must not be notified of the cancellation
+        var movedRequests = new ArrayList<>(queuedAnalysis.scheduledRequests);
+        queuedAnalysis.scheduledRequests.clear();
+        // When the job cannot be cancelled anymore it just started running, then it is handled like the running ones
+        if (queuedAnalysis.job.cancel()) {
+          queued.remove(project);
+          if (canMerge) {
+            effectiveRequest = merge(queuedRequest, request);
+          }
+          scheduledRequests.addAll(movedRequests);
+          SonarLintLogger.get().debug("Queued analysis of project '" + project.getName() + "' superseded by "
+            + request.getTriggerType().getName());
+        } else {
+          queuedAnalysis.scheduledRequests.addAll(movedRequests);
+        }
+      }
+    }
+
+    if (CANCEL_SUPERSEDED_RUNNING) {
+      for (var runningAnalysis : running.getOrDefault(project, List.of())) {
+        if (runningAnalysis.request.getTriggerType().isOnTheFly() && newFiles.containsAll(files(runningAnalysis.request))) {
+          scheduledRequests.addAll(runningAnalysis.scheduledRequests);
+          runningAnalysis.scheduledRequests.clear();
+          runningAnalysis.job.cancel();
+        }
+      }
+    }
+
+    var job = jobFactory.apply(effectiveRequest);
+    var analysis = new ScheduledAnalysis(effectiveRequest, job, scheduledRequests);
+    scheduledRequests.forEach(r -> r.analysis = analysis);
+    job.addJobChangeListener(new JobChangeAdapter() {
+      @Override
+      public void running(IJobChangeEvent event) {
+        started(analysis);
+      }
+
+      @Override
+      public void done(IJobChangeEvent event) {
+        finished(analysis, event.getResult());
+      }
+    });
+    // A queued manual analysis that could not be replaced is kept, new requests should not be merged into this one
+    var previous = queued.get(project);
+    if (previous == null || previous.request.getTriggerType().isOnTheFly()) {
+      queued.put(project, analysis);
+    }
+    job.schedule();
+    return scheduledRequest;
+  }
+
+  /** The job is only cancelled when no other request is analyzed by it */
+  private synchronized void cancel(ScheduledRequest scheduledRequest) {
+    var analysis = scheduledRequest.analysis;
+    if (analysis == null) {
+      return;
+    }
+    scheduledRequest.analysis = null;
+    analysis.scheduledRequests.remove(scheduledRequest);
+    if (analysis.scheduledRequests.isEmpty()) {
+      analysis.job.cancel();
+    }
+  }
+
+  private synchronized void started(ScheduledAnalysis analysis) {
+    var project = analysis.request.getProject();
+    queued.remove(project, analysis);
+    running.computeIfAbsent(project, p -> new ArrayList<>()).add(analysis);
+  }
+
+  private void finished(ScheduledAnalysis analysis, @Nullable IStatus result) {
+    List<ScheduledRequest> done;
+    synchronized (this) {
+      var project = analysis.request.getProject();
+      // Cancelled before running
+      queued.remove(project, analysis);
+      var runningAnalyses = running.get(project);
+      if (runningAnalyses != null) {
+        runningAnalyses.remove(analysis);
+        if (runningAnalyses.isEmpty()) {
+          running.remove(project);
+        }
+      }
+      // Requests moved to another analysis in the meantime are notified by that one
+      done = new ArrayList<>(analysis.scheduledRequests);
+      done.forEach(r -> r.analysis = null);
+      analysis.scheduledRequests.clear();
+    }
+    done.forEach(r -> r.notifyDone(result));
+  }
+
+  private static Set<ISonarLintFile> files(AnalyzeProjectRequest request) {
+    return request.getFiles().stream()
+      .map(AnalyzeProjectRequest.FileWithDocument::getFile)
+      .collect(Collectors.toSet());
+  }
+
+  /** The newer request provides the more recent document, the more important trigger is kept */
+  static AnalyzeProjectRequest merge(AnalyzeProjectRequest older, AnalyzeProjectRequest newer) {
+    var files = new LinkedHashMap<ISonarLintFile, AnalyzeProjectRequest.FileWithDocument>();
+    older.getFiles().forEach(f -> files.put(f.getFile(), f));
+    newer.getFiles().forEach(f -> {
+      var previous = files.get(f.getFile());
+      if (previous == null || f.getDocument() != null || previous.getDocument() == null) {
+        files.put(f.getFile(), f);
+      }
+    });
+
+    var triggerType = older.getTriggerType().hasHigherPriorityThan(newer.getTriggerType())
+      ? older.getTriggerType()
+      : newer.getTriggerType();
+    return new AnalyzeProjectRequest(newer.getProject(), new ArrayList<>(files.values()), triggerType,
+      older.shouldClearReport() || newer.shouldClearReport(),
+      older.shouldFetchServerIssues() || newer.shouldFetchServerIssues());
+  }
+
+  /** A request as seen by whoever scheduled it, independent of the analysis it ended up in */
+  public class ScheduledRequest {
+    @Nullable
+    private ScheduledAnalysis analysis;
+    private final List<Consumer<IStatus>> doneListeners = new ArrayList<>();
+
+    private ScheduledRequest() {
+    }
+
+    /** Cancels the analysis of the request, other requests analyzed together with it are not affected */
+    public void cancel() {
+      AnalysisScheduler.this.cancel(this);
+    }
+
+    /** Notified with the result of the analysis the request ended up in, unless cancelled before */
+    public synchronized void addDoneListener(Consumer<IStatus> listener) {
+      doneListeners.add(listener);
+    }
+
+    private void notifyDone(@Nullable IStatus result) {
+      List<Consumer<IStatus>> listeners;
+      synchronized (this) {
+        listeners = new ArrayList<>(doneListeners);
+      }
+      if (result != null) {
+        listeners.forEach(l -> l.accept(result));
+      }
+    }
+  }
+
+  private static class ScheduledAnalysis {
+    private final AnalyzeProjectRequest request;
+    private final Job job;
+    private final List<ScheduledRequest> scheduledRequests;
+
+    private ScheduledAnalysis(AnalyzeProjectRequest request, Job job, List<ScheduledRequest> scheduledRequests) {
+      this.request = request;
+      this.job = job;
+      this.scheduledRequests = scheduledRequests;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  Most analyses don't need a temporary folder at all: it is only used by analysis configurators (e.g. CDT).
+ *  Therefore the folder of an analysis is only created when it is used for the first time, and reused by the next
+ *  analyses of the same project afterwards.
+ *
+ *  When an analysis is done, its folder is emptied in the background before being handed out again, so that the
+ *  analysis itself does not have to wait for (possibly large) recursive deletions. Folders left over by a previous
+ *  session are deleted in the background as well when a project needs a folder for the first time in this session. This
+ *  is only done once per project, as after closing and reopening it, folders of analyses still running are still in
+ *  use. Only the folders currently leased are handed back to the pool: once a project was discarded, its folders still
+ *  leased are deleted when their analysis is done.
+ */
+public class AnalysisWorkDirPool {
+  private static final AnalysisWorkDirPool INSTANCE = new AnalysisWorkDirPool();
+  private static final String PREFIX = "analysis-";
+  private static final int MAX_POOLED_PER_PROJECT = 4;
+
+  private final Map<ISonarLintProject, ArrayDeque<Path>> pooledPerProject = new HashMap<>();
+  private final Map<ISonarLintProject, Set<Path>> leasedPerProject = new HashMap<>();
+  private final Set<ISonarLintProject> sweptProjects = new HashSet<>();
+  private final Janitor janitor = new Janitor();
+
+  public static AnalysisWorkDirPool get() {
+    return INSTANCE;
+  }
+
+  private AnalysisWorkDirPool() {
+    // singleton
+  }
+
+  /** The folder is not created yet, this only happens once {@link Lease#get()} is called */
+  public Lease lease(ISonarLintProject project) {
+    return new Lease(project);
+  }
+
+  /**
+   *  The analysis folders are the only temporary ones in the working directory of a project, other folders in there
+   *  (e.g. the local mirror of remote files) are kept across analyses.
+   */
+  public static boolean isAnalysisFolderPath(ISonarLintProject project, Path path) {
+    var workingDir = project.getWorkingDir();
+    if (!path.startsWith(workingDir) || path.equals(workingDir)) {
+      return false;
+    }
+    return workingDir.relativize(path).getName(0).toString().startsWith(PREFIX);
+  }
+
+  private synchronized Path acquire(ISonarLintProject project) throws IOException {
+    if (sweptProjects.add(project)) {
+      sweepLeftovers(project);
+    }
+    var pooled = pooledPerProject.get(project);
+    Path dir;
+    if (pooled != null && !pooled.isEmpty()) {
+      dir = pooled.pop();
+    } else {
+      var workingDir = project.getWorkingDir();
+      Files.createDirectories(workingDir);
+      dir = Files.createTempDirectory(workingDir, PREFIX);
+    }
+    leasedPerProject.computeIfAbsent(project, p -> new HashSet<>()).add(dir);
+    return dir;
+  }
+
+  /** @param emptied whether the folder could be emptied, otherwise it is not reused */
+  private synchronized void release(ISonarLintProject project, Path dir, boolean emptied) {
+    var leased = leasedPerProject.get(project);
+    var stillLeased = leased != null && leased.remove(dir);
+    if (leased != null && leased.isEmpty()) {
+      leasedPerProject.remove(project);
+    }
+    if (!emptied || !stillLeased) {
+      // Not reusable, or leased before the project was discarded and therefore not needed anymore
+      deleteQuietly(dir);
+      return;
+    }
+    var pooled = pooledPerProject.computeIfAbsent(project, p -> new ArrayDeque<>());
+    if (pooled.size() < MAX_POOLED_PER_PROJECT) {
+      pooled.push(dir);
+    } else {
+      janitor.delete(project, dir, false);
+    }
+  }
+
+  /** Projects closed or deleted don't need their folders anymore */
+  public synchronized void discard(ISonarLintProject project) {
+    var pooled = pooledPerProject.remove(project);
+    if (pooled != null) {
+      pooled.forEach(dir -> janitor.delete(project, dir, false));
+    }
+    leasedPerProject.remove(project);
+  }
+
+  // Visible for testing
+  public void waitForCleanups() throws InterruptedException {
+    janitor.join();
+  }
+
+  private void sweepLeftovers(ISonarLintProject project) {
+    var workingDir = project.getWorkingDir();
+    if (!Files.isDirectory(workingDir)) {
+      return;
+    }
+    try (var children = Files.list(workingDir)) {
+      children
+        .filter(child -> child.getFileName().toString().startsWith(PREFIX) && Files.isDirectory(child))
+        .forEach(child -> janitor.delete(project, child, false));
+    } catch (IOException err) {
+      SonarLintLogger.get().debug("Unable to list the working directory of project '" + project.getName() + "'", err);
+    }
+  }
+
+  /** The temporary folder of one analysis, to be closed once the analysis is done */
+  public class Lease implements AutoCloseable {
+    private final ISonarLintProject project;
+    @Nullable
+    private Path dir;
+
+    private Lease(ISonarLintProject project) {
+      this.project = project;
+    }
+
+    public synchronized Path get() {
+      if (dir == null) {
+        try {
+          dir = acquire(project);
+        } catch (IOException err) {
+          throw new IllegalStateException("Unable to create the analysis folder of project '" + project.getName() + "'", err);
+        }
+      }
+      return dir;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (dir != null) {
+        janitor.delete(project, dir, true);
+        dir = null;
+      }
+    }
+  }
+
+  private class Janitor extends Job {
+    private final ConcurrentLinkedQueue<Cleanup> queue = new ConcurrentLinkedQueue<>();
+
+    private Janitor() {
+      super("Clean up SonarLint analysis folders");
+      setSystem(true);
+      setPriority(DECORATE);
+    }
+
+    private void delete(ISonarLintProject project, Path dir, boolean keepForReuse) {
+      queue.add(new Cleanup(project, dir, keepForReuse));
+      schedule();
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      Cleanup cleanup;
+      while ((cleanup = queue.poll()) != null) {
+        var emptied = deleteContent(cleanup.dir);
+        if (cleanup.keepForReuse) {
+          release(cleanup.project, cleanup.dir, emptied);
+        } else {
+          deleteQuietly(cleanup.dir);
+        }
+      }
+      return Status.OK_STATUS;
+    }
+
+    /** @return whether the folder is empty afterwards, folders that could not be emptied are not reused */
+    private boolean deleteContent(Path dir) {
+      try (var paths = Files.walk(dir)) {
+        paths.sorted(Comparator.reverseOrder())
+          .filter(path -> !path.equals(dir))
+          .forEach(AnalysisWorkDirPool::deleteQuietly);
+      } catch (IOException err) {
+        SonarLintLogger.get().debug("Unable to clean up analysis folder '" + dir + "'", err);
+        return false;
+      }
+      try (var remaining = Files.list(dir)) {
+        return remaining.findAny().isEmpty();
+      } catch (IOException err) {
+        return false;
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException err) {
+      // Might still be used, e.g. on Windows, it will be deleted with the next session's leftovers
+    }
+  }
+
+  private static class Cleanup {
+    private final ISonarLintProject project;
+    private final Path dir;
+    private final boolean keepForReuse;
+
+    private Cleanup(ISonarLintProject project, Path dir, boolean keepForReuse) {
+      this.project = project;
+      this.dir = dir;
+      this.keepForReuse = keepForReuse;
+    }
+  }
+}
@@ -66,29 +66,25 @@ public class AnalyzeChangedFilesJob extends WorkspaceJob {
       SonarLintLogger.get().info("Analyzing " + fileCount + " changed file(s) in " + changedFilesPerProject.size() + " project(s)");
 
       global.setTaskName("Analysis");
-      var analysisMonitor = SubMonitor.convert(global.newChild(80), changedFilesPerProject.size());
+      var requests = new ArrayList<AnalyzeProjectRequest>();
       for (var entry : changedFilesPerProject.entrySet()) {
-        if (monitor.isCanceled()) {
-          return Status.CANCEL_STATUS;
-        }
         var project = entry.getKey();
         if (!project.isOpen()) {
-          analysisMonitor.worked(1);
           continue;
         }
-        global.setTaskName("Analyzing project " + project.getName());
         var filesToAnalyze = entry.getValue().stream()
           .map(f -> new FileWithDocument(f, null))
           .collect(Collectors.toList());
-
-        var req = new AnalyzeProjectRequest(project, filesToAnalyze, TriggerType.MANUAL_CHANGESET, false);
-
-        var job = AnalyzeProjectJob.create(req);
-        var subMonitor = analysisMonitor.newChild(1);
-        job.run(subMonitor);
-        subMonitor.done();
+        requests.add(new AnalyzeProjectRequest(project, filesToAnalyze, TriggerType.MANUAL_CHANGESET, false));
       }
-
+      var analysisMonitor = SubMonitor.convert(global.newChild(80), requests.size());
+      var status = MultiProjectAnalysis.run(getName(), requests, analysisMonitor);
+      if (!status.isOK()) {
+        return status;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.CANCEL_STATUS;
     } catch (Exception e) {
       SonarLintLogger.get().error(UNABLE_TO_ANALYZE_CHANGED_FILES, e);
       return new Status(IStatus.ERROR, SonarLintCorePlugin.PLUGIN_ID, UNABLE_TO_ANALYZE_CHANGED_FILES, e);
@@ -19,11 +19,10 @@
  */
 package org.sonarlint.eclipse.core.internal.jobs;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,13 +47,14 @@ import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
 import org.sonarlint.eclipse.core.internal.extension.SonarLintExtensionTracker;
 import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest.FileWithDocument;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintFileAdapter;
 import org.sonarlint.eclipse.core.internal.resources.SonarLintProperty;
 import org.sonarlint.eclipse.core.internal.utils.CanceledException;
 import org.sonarlint.eclipse.core.internal.utils.FileExclusionsChecker;
-import org.sonarlint.eclipse.core.internal.utils.FileUtils;
 import org.sonarlint.eclipse.core.internal.utils.JobUtils;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.internal.utils.StringUtils;
+import org.sonarlint.eclipse.core.internal.vcs.VcsService;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 import org.sonarsource.sonarlint.shaded.org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
@@ -68,15 +68,20 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
   private final List<SonarLintProperty> extraProps;
   private final TriggerType triggerType;
   private final boolean shouldClearReport;
+  private final boolean shouldFetchServerIssues;
   private final Collection<FileWithDocument> files;
+  private final AnalyzeProjectRequest request;
 
   public AnalyzeProjectJob(AnalyzeProjectRequest request) {
     super(jobTitle(request), request.getProject());
+    this.request = request;
     this.project = request.getProject();
     this.extraProps = SonarLintGlobalConfiguration.getExtraPropertiesForLocalAnalysis(request.getProject());
     this.files = request.getFiles();
     this.triggerType = request.getTriggerType();
     this.shouldClearReport = request.shouldClearReport();
+    this.shouldFetchServerIssues = request.shouldFetchServerIssues();
+    setPriority(triggerType.getJobPriority());
   }
 
   public static AbstractSonarProjectJob create(AnalyzeProjectRequest request) {
@@ -98,23 +103,37 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
 
     SonarLintLogger.get().debug("Trigger: " + triggerType.name());
 
-    // Handle Sloop not ready for an analysis
+    // Handle Sloop not ready for an analysis: automatic analyses are replayed once ready, manual ones are cancelled
     if (!checkIfReady()) {
-      SonarLintLogger.get().debug("Analysis cancelled due to the engines not yet being ready");
-      return Status.CANCEL_STATUS;
+      if (DeferredAnalysisQueue.get().deferIfNotReady(request)) {
+        return Status.OK_STATUS;
+      }
+      if (!checkIfReady()) {
+        SonarLintLogger.get().debug("Analysis cancelled due to the engines not yet being ready");
+        return Status.CANCEL_STATUS;
+      }
     }
     SonarLintLogger.get().debug("Analysis started with the engines being ready");
 
-    Path analysisWorkDir = null;
+    var analysisWorkDir = AnalysisWorkDirPool.get().lease(getProject());
     try {
       var excludedFiles = new ArrayList<ISonarLintFile>();
       var filesToAnalyze = new ArrayList<FileWithDocument>();
 
       var exclusionsChecker = new FileExclusionsChecker(getProject());
+      var notExcludedFiles = new ArrayList<FileWithDocument>();
       files.forEach(fWithDoc -> {
         var file = fWithDoc.getFile();
-        if (exclusionsChecker.isExcluded(file, true, monitor) || isScmIgnored(file)) {
+        if (exclusionsChecker.isExcluded(file, true, monitor)) {
           excludedFiles.add(file);
+        } else {
+          notExcludedFiles.add(fWithDoc);
+        }
+      });
+      var scmIgnoredFiles = getScmIgnoredFiles(notExcludedFiles);
+      notExcludedFiles.forEach(fWithDoc -> {
+        if (scmIgnoredFiles.contains(fWithDoc.getFile())) {
+          excludedFiles.add(fWithDoc.getFile());
         } else {
           filesToAnalyze.add(fWithDoc);
         }
@@ -132,8 +151,7 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
       // Configure
       var mergedExtraProps = new LinkedHashMap<String, String>();
 
-      analysisWorkDir = Files.createTempDirectory(getProject().getWorkingDir(), "sonarlint");
-      var inputFiles = buildInputFiles(analysisWorkDir, filesToAnalyzeMap);
+      var inputFiles = buildInputFiles(filesToAnalyzeMap);
       configure(getProject(), inputFiles, mergedExtraProps, analysisWorkDir, monitor);
 
       extraProps.forEach(sonarProperty -> mergedExtraProps.put(sonarProperty.getName(), sonarProperty.getValue()));
@@ -177,9 +195,7 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
       SonarLintLogger.get().error("Error during execution of SonarLint analysis", e);
       return new Status(IStatus.WARNING, SonarLintCorePlugin.PLUGIN_ID, "Error when executing SonarLint analysis", e);
     } finally {
-      if (analysisWorkDir != null) {
-        FileUtils.deleteRecursively(analysisWorkDir);
-      }
+      analysisWorkDir.close();
     }
 
     return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
@@ -212,27 +228,39 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
     return true;
   }
 
-  private static boolean isScmIgnored(ISonarLintFile file) {
-    var ignored = file.isScmIgnored();
-    if (ignored) {
-      SonarLintLogger.get().debug("File '" + file.getName() + "' skipped from analysis because it is ignored by SCM");
+  /** Files coming from SonarLint itself are checked all at once, others might provide their own implementation */
+  private static Set<ISonarLintFile> getScmIgnoredFiles(Collection<FileWithDocument> files) {
+    var defaultFiles = new ArrayList<ISonarLintFile>();
+    var ignored = new HashSet<ISonarLintFile>();
+    for (var fWithDoc : files) {
+      var file = fWithDoc.getFile();
+      if (file instanceof DefaultSonarLintFileAdapter) {
+        defaultFiles.add(file);
+      } else if (file.isScmIgnored()) {
+        ignored.add(file);
+      }
     }
+    if (!defaultFiles.isEmpty()) {
+      ignored.addAll(VcsService.getIgnored(defaultFiles));
+    }
+    ignored.forEach(file -> SonarLintLogger.get().debug("File '" + file.getName()
+      + "' skipped from analysis because it is ignored by SCM"));
     return ignored;
   }
 
-  private static List<EclipseInputFile> buildInputFiles(Path tempDirectory, final Map<ISonarLintFile, IDocument> filesToAnalyze) {
+  private static List<EclipseInputFile> buildInputFiles(final Map<ISonarLintFile, IDocument> filesToAnalyze) {
     var inputFiles = new ArrayList<EclipseInputFile>(filesToAnalyze.size());
 
     for (final var fileWithDoc : filesToAnalyze.entrySet()) {
       var file = fileWithDoc.getKey();
-      var inputFile = new EclipseInputFile(file, tempDirectory, fileWithDoc.getValue());
+      var inputFile = new EclipseInputFile(file, fileWithDoc.getValue());
       inputFiles.add(inputFile);
     }
     return inputFiles;
   }
 
   private static void configure(final ISonarLintProject project, List<EclipseInputFile> filesToAnalyze,
-    final Map<String, String> extraProperties, Path tempDir, final IProgressMonitor monitor) {
+    final Map<String, String> extraProperties, AnalysisWorkDirPool.Lease tempDir, final IProgressMonitor monitor) {
     var configurators = SonarLintExtensionTracker.getInstance().getAnalysisConfigurators();
     var context = new DefaultPreAnalysisContext(project, extraProperties, filesToAnalyze, tempDir);
     for (var configurator : configurators) {
@@ -252,8 +280,18 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
     try {
       RunningAnalysesTracker.get().track(analysisState);
 
-      var future = SonarLintBackendService.get().analyzeFilesAndTrack(getProject(), analysisId, fileURIs, extraProps, triggerType.shouldFetch(), startTime);
-      JobUtils.waitForFutureInJob(monitor, future);
+      var future = SonarLintBackendService.get().analyzeFilesAndTrack(getProject(), analysisId, fileURIs, extraProps, shouldFetchServerIssues, startTime);
+      try {
+        JobUtils.waitForFutureInJob(monitor, future);
+      } catch (CanceledException | InterruptedException err) {
+        // Cancelling the future also cancels the request in SLCORE, issues it might still raise are ignored
+        future.cancel(true);
+        RunningAnalysesTracker.get().cancel(analysisState);
+        SonarLintLogger.get().debug("Analysis with id '" + analysisId + "' was cancelled");
+        throw err;
+      }
+    } catch (CanceledException err) {
+      throw err;
     } catch (Exception err) {
       // If the analysis fails we assume that there will also be no "raiseIssues(...)" called. If so, we only handle it
       // incorrectly if this fails on a manual analysis invocation (we assume it is an update coming from SonarLint
@@ -268,6 +306,7 @@ public class AnalyzeProjectJob extends AbstractSonarProjectJob {
       var cause = err.getCause();
       if (cause instanceof ResponseErrorException
         && ResponseErrorCode.RequestCancelled.getValue() == ((ResponseErrorException) cause).getResponseError().getCode()) {
+        RunningAnalysesTracker.get().cancel(analysisState);
         SonarLintLogger.get().debug("Analysis with id '" + analysisId + "' was cancelled by SonarLint Core scheduler");
         return;
       }
@@ -32,6 +32,7 @@ public class AnalyzeProjectRequest {
   private final Collection<FileWithDocument> files;
   private final TriggerType triggerType;
   private final boolean shouldClearReport;
+  private final boolean shouldFetchServerIssues;
 
   public static class FileWithDocument {
     private final ISonarLintFile file;
@@ -56,10 +57,17 @@ public class AnalyzeProjectRequest {
 
   public AnalyzeProjectRequest(ISonarLintProject project, Collection<FileWithDocument> files, TriggerType triggerType,
     boolean shouldClearReport) {
+    this(project, files, triggerType, shouldClearReport, triggerType.shouldFetch());
+  }
+
+  /** Used when merging requests, as the trigger of one might fetch server issues while the other doesn't */
+  AnalyzeProjectRequest(ISonarLintProject project, Collection<FileWithDocument> files, TriggerType triggerType,
+    boolean shouldClearReport, boolean shouldFetchServerIssues) {
     this.project = project;
     this.triggerType = triggerType;
     this.files = files;
     this.shouldClearReport = shouldClearReport;
+    this.shouldFetchServerIssues = shouldFetchServerIssues;
   }
 
   public Collection<FileWithDocument> getFiles() {
@@ -77,4 +85,8 @@ public class AnalyzeProjectRequest {
   public boolean shouldClearReport() {
     return shouldClearReport;
   }
+
+  public boolean shouldFetchServerIssues() {
+    return shouldFetchServerIssues;
+  }
 }
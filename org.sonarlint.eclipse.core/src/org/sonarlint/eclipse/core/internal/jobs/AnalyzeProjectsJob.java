@@ -19,6 +19,7 @@
  */
 package org.sonarlint.eclipse.core.internal.jobs;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import org.eclipse.core.resources.WorkspaceJob;
@@ -49,26 +50,22 @@ public class AnalyzeProjectsJob extends WorkspaceJob {
     try {
       global.setTaskName("Analysis");
       SonarLintMarkerUpdater.deleteAllMarkersFromReport();
-      var analysisMonitor = SubMonitor.convert(global.newChild(100), filesPerProject.size());
+      var requests = new ArrayList<AnalyzeProjectRequest>();
       for (var entry : filesPerProject.entrySet()) {
-        if (monitor.isCanceled()) {
-          return Status.CANCEL_STATUS;
-        }
         var project = entry.getKey();
-        if (!project.isOpen()) {
-          analysisMonitor.worked(1);
-          continue;
+        if (project.isOpen()) {
+          requests.add(new AnalyzeProjectRequest(project, entry.getValue(), TriggerType.MANUAL, false));
         }
-        global.setTaskName("Analyzing project " + project.getName());
-
-        var req = new AnalyzeProjectRequest(project, entry.getValue(), TriggerType.MANUAL, false);
-
-        var job = AnalyzeProjectJob.create(req);
-        var subMonitor = analysisMonitor.newChild(1);
-        job.run(subMonitor);
-        subMonitor.done();
       }
-
+      global.setTaskName("Analyzing " + requests.size() + " project(s)");
+      var analysisMonitor = SubMonitor.convert(global.newChild(100), requests.size());
+      var status = MultiProjectAnalysis.run(getName(), requests, analysisMonitor);
+      if (!status.isOK()) {
+        return status;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.CANCEL_STATUS;
     } catch (Exception e) {
       SonarLintLogger.get().error(UNABLE_TO_ANALYZE_FILES, e);
       return new Status(IStatus.ERROR, SonarLintCorePlugin.PLUGIN_ID, UNABLE_TO_ANALYZE_FILES, e);
@@ -0,0 +1,163 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.resources.DefaultSonarLintFileAdapter;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintIssuable;
+
+/**
+ *  The documents used for computing the marker positions during one batch of marker updates. Every file is only loaded
+ *  once per batch, even when it is needed for many markers (e.g. all the locations of a taint vulnerability), instead
+ *  of every call to {@link ISonarLintFile#getDocument()} connecting the file buffer and reading the file again.
+ *
+ *  Files opened in an editor use the document of their file buffer, as the markers have to match its (maybe unsaved)
+ *  content. The buffer is connected until the document is released. The content of the other files is read from disk
+ *  once, without creating a file buffer, and only the line information is computed for it.
+ *
+ *  In order to not keep the content of all the files of a batch in memory, the document of a file is released once
+ *  its markers are updated. Only the documents of files referenced by the (cross-file) flows of other files are kept
+ *  until the batch is closed, as these are likely to be needed again.
+ *
+ *  Not thread-safe, every batch is only used by one job.
+ */
+// Visible for testing
+public class BatchDocuments implements AutoCloseable {
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private final Map<ISonarLintFile, IDocument> documents = new HashMap<>();
+  private final Map<ISonarLintFile, IPath> connectedBuffers = new HashMap<>();
+  private final Set<ISonarLintFile> referencedFiles = new HashSet<>();
+
+  // Visible for testing
+  public IDocument get(ISonarLintFile file) {
+    var document = documents.get(file);
+    if (document == null) {
+      document = load(file);
+      documents.put(file, document);
+    }
+    return document;
+  }
+
+  /** The document of a file referenced by a location of another file, it is kept until the batch is closed */
+  // Visible for testing
+  public IDocument getReferenced(ISonarLintFile file, ISonarLintIssuable referencingIssuable) {
+    if (!file.equals(referencingIssuable)) {
+      referencedFiles.add(file);
+    }
+    return get(file);
+  }
+
+  /** Once the markers of the file are updated, its document is no longer needed unless referenced by another file */
+  // Visible for testing
+  public void release(ISonarLintFile file) {
+    if (referencedFiles.contains(file)) {
+      return;
+    }
+    documents.remove(file);
+    var path = connectedBuffers.remove(file);
+    if (path != null) {
+      disconnect(path);
+    }
+  }
+
+  private IDocument load(ISonarLintFile file) {
+    var resource = file.getResource();
+    if (file instanceof DefaultSonarLintFileAdapter && resource instanceof IFile) {
+      var path = resource.getFullPath();
+      var textFileBufferManager = FileBuffers.getTextFileBufferManager();
+      if (textFileBufferManager.getTextFileBuffer(path, LocationKind.IFILE) != null) {
+        try {
+          textFileBufferManager.connect(path, LocationKind.IFILE, new NullProgressMonitor());
+          connectedBuffers.put(file, path);
+          var textFileBuffer = textFileBufferManager.getTextFileBuffer(path, LocationKind.IFILE);
+          if (textFileBuffer != null) {
+            return textFileBuffer.getDocument();
+          }
+        } catch (CoreException e) {
+          SonarLintLogger.get().debug("Unable to connect to the file buffer of " + path, e);
+        }
+      } else {
+        var location = resource.getLocation();
+        if (location != null) {
+          try {
+            return new Document(read(location.toFile().toPath(), file.getCharset()));
+          } catch (IOException e) {
+            SonarLintLogger.get().debug("Unable to read the content of " + location, e);
+          }
+        }
+      }
+    }
+    return file.getDocument();
+  }
+
+  /** The same as the file buffer would contain: decoded with the charset of the file and without byte order mark */
+  private static String read(Path path, Charset charset) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read until the buffer is full or the end of the file is reached
+      }
+      buffer.flip();
+      var content = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(buffer)
+        .toString();
+      return !content.isEmpty() && content.charAt(0) == BYTE_ORDER_MARK ? content.substring(1) : content;
+    }
+  }
+
+  private static void disconnect(IPath path) {
+    try {
+      FileBuffers.getTextFileBufferManager().disconnect(path, LocationKind.IFILE, new NullProgressMonitor());
+    } catch (CoreException e) {
+      // Ignore
+    }
+  }
+
+  @Override
+  public void close() {
+    connectedBuffers.values().forEach(BatchDocuments::disconnect);
+    connectedBuffers.clear();
+    documents.clear();
+    referencedFiles.clear();
+  }
+}
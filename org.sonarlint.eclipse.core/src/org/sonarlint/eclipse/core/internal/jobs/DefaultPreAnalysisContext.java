@@ -36,10 +36,11 @@ public class DefaultPreAnalysisContext implements IPreAnalysisContext {
 
   private final ISonarLintProject project;
   private final Map<String, String> analysisProperties;
-  private final Path tempDir;
+  private final AnalysisWorkDirPool.Lease tempDir;
   private final Map<ISonarLintFile, EclipseInputFile> filesToAnalyze;
 
-  public DefaultPreAnalysisContext(ISonarLintProject project, Map<String, String> analysisProperties, List<EclipseInputFile> filesToAnalyze, Path tempDir) {
+  public DefaultPreAnalysisContext(ISonarLintProject project, Map<String, String> analysisProperties, List<EclipseInputFile> filesToAnalyze,
+    AnalysisWorkDirPool.Lease tempDir) {
     this.project = project;
     this.analysisProperties = analysisProperties;
     this.filesToAnalyze = Collections
@@ -78,9 +79,10 @@ public class DefaultPreAnalysisContext implements IPreAnalysisContext {
     return filesToAnalyze.get(file).getPath();
   }
 
+  /** The folder is only created when used for the first time */
   @Override
   public Path getAnalysisTemporaryFolder() {
-    return tempDir;
+    return tempDir.get();
   }
 
 }
@@ -0,0 +1,163 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest.FileWithDocument;
+import org.sonarlint.eclipse.core.internal.markers.IssuesSnapshot;
+import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  Analyses requested while SLCORE is not yet ready for the project (e.g. on startup, or while synchronizing after a
+ *  binding change) are parked here instead of being dropped. While parked, the requests of a project are merged the
+ *  same way as by the {@link AnalysisScheduler}, and once the project is ready for analysis the pending files are
+ *  analyzed together with the open ones.
+ *
+ *  Manual analyses are not parked, as they have their own report the user is waiting for.
+ */
+public class DeferredAnalysisQueue {
+  private static final DeferredAnalysisQueue INSTANCE = new DeferredAnalysisQueue(request -> AnalysisScheduler.get().schedule(request));
+
+  private final Consumer<AnalyzeProjectRequest> replayer;
+  private final Map<String, ParkedRequest> parkedByConfigScopeId = new HashMap<>();
+  private final AtomicLong replayedCount = new AtomicLong();
+  private final AtomicLong totalWaitMillis = new AtomicLong();
+
+  public static DeferredAnalysisQueue get() {
+    return INSTANCE;
+  }
+
+  // Visible for testing
+  public DeferredAnalysisQueue(Consumer<AnalyzeProjectRequest> replayer) {
+    this.replayer = replayer;
+  }
+
+  /**
+   *  Readiness is checked and the request parked atomically, so that a request is never parked after its project got
+   *  ready in the meantime.
+   *
+   *  @return true when the request was parked, false when the project is ready or the request cannot be parked
+   */
+  public synchronized boolean deferIfNotReady(AnalyzeProjectRequest request) {
+    var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(request.getProject());
+    if (!request.getTriggerType().isOnTheFly() || AnalysisReadyStatusCache.getAnalysisReadiness(configScopeId)) {
+      return false;
+    }
+
+    var parked = parkedByConfigScopeId.get(configScopeId);
+    if (parked == null) {
+      parkedByConfigScopeId.put(configScopeId, new ParkedRequest(request));
+    } else {
+      parked.request = AnalysisScheduler.merge(parked.request, request);
+    }
+    SonarLintLogger.get().debug("Analysis of project '" + request.getProject().getName()
+      + "' deferred until it is ready for analysis");
+    return true;
+  }
+
+  /**
+   *  Updates the readiness of the given configuration scopes and replays the requests parked for the ones now ready.
+   *  When a project was not ready before, its configuration (e.g. the rules after a binding synchronization) changed,
+   *  so its open files are analyzed again, together with the parked files.
+   *
+   *  @param openFiles the files of a project that are open in an editor, and should be analyzed automatically
+   */
+  public synchronized void changeAnalysisReadiness(Set<String> configurationScopeIds, boolean readiness,
+    Function<ISonarLintProject, Collection<FileWithDocument>> openFiles) {
+    var replayed = false;
+    for (var configScopeId : configurationScopeIds) {
+      var wasReady = AnalysisReadyStatusCache.getAnalysisReadiness(configScopeId);
+      AnalysisReadyStatusCache.changeAnalysisReadiness(configScopeId, readiness);
+      if (!readiness) {
+        continue;
+      }
+
+      var parked = parkedByConfigScopeId.remove(configScopeId);
+      var request = parked != null ? parked.request : null;
+      if (!wasReady) {
+        var project = parked != null
+          ? Optional.of(parked.request.getProject())
+          : SonarLintUtils.tryResolveProject(configScopeId);
+        var files = project.map(openFiles).orElse(List.of());
+        if (!files.isEmpty()) {
+          var openFilesRequest = new AnalyzeProjectRequest(project.get(), files, TriggerType.ANALYSIS_READY, false);
+          request = request != null ? AnalysisScheduler.merge(request, openFilesRequest) : openFilesRequest;
+        }
+        if (project.isPresent()) {
+          // Issues restored from the last session are only kept for the files analyzed now, nothing confirms the others
+          var analyzedFiles = request != null
+            ? request.getFiles().stream().map(FileWithDocument::getFile).collect(Collectors.toList())
+            : List.<ISonarLintFile>of();
+          IssuesSnapshot.discardProvisionalMarkersAsync(project.get(), analyzedFiles);
+        }
+      }
+
+      if (parked != null) {
+        var waitMillis = System.currentTimeMillis() - parked.parkedAt;
+        replayedCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        SonarLintLogger.get().debug("Replaying deferred analysis of project '" + parked.request.getProject().getName()
+          + "' after waiting " + waitMillis + " ms");
+        replayed = true;
+      }
+      if (request != null) {
+        replayer.accept(request);
+      }
+    }
+    if (replayed) {
+      traceStatistics();
+    }
+  }
+
+  /** Parked requests of projects closed or removed in the meantime are of no use anymore */
+  public synchronized void discard(String configScopeId) {
+    parkedByConfigScopeId.remove(configScopeId);
+  }
+
+  public void traceStatistics() {
+    var count = replayedCount.get();
+    var totalWait = totalWaitMillis.get();
+    SonarLintLogger.get().traceIdeMessage("[DeferredAnalysisQueue#traceStatistics] replayed=" + count
+      + ", totalWaitMillis=" + totalWait + ", averageWaitMillis=" + (count == 0 ? 0 : (totalWait / count)));
+  }
+
+  private static class ParkedRequest {
+    private final long parkedAt = System.currentTimeMillis();
+    private AnalyzeProjectRequest request;
+
+    private ParkedRequest(AnalyzeProjectRequest request) {
+      this.request = request;
+    }
+  }
+}
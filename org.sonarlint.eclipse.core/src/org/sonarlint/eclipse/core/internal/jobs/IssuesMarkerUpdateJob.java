@@ -20,117 +20,238 @@
 package org.sonarlint.eclipse.core.internal.jobs;
 
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicReference;
-import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.CoreException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
+import org.sonarlint.eclipse.core.internal.cache.RaisedIssuesCache;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 import org.sonarsource.sonarlint.core.rpc.protocol.client.issue.RaisedIssueDto;
 
-public class IssuesMarkerUpdateJob extends AbstractSonarJob {
+/**
+ *  Updates the issue markers raised by SLCORE. Every project has its own job, only holding a scheduling rule on the
+ *  project, so that the markers of multiple projects are updated in parallel and workspace operations on other
+ *  projects are not blocked. The number of projects updated at once is bounded and can be configured via
+ *  "-Dsonarlint.markers.parallelProjects=4" for example. Between two files the rule is yielded to waiting jobs that
+ *  conflict with it, e.g. a build or a refactoring triggered by the user.
+ *
+ *  As the requests of a project are always processed by the same job in the order they were added, older results
+ *  never replace newer ones.
+ */
+public class IssuesMarkerUpdateJob {
 
   public static final IssuesMarkerUpdateJob INSTANCE = new IssuesMarkerUpdateJob();
 
-  private final Queue<Request> workQueue = new ConcurrentLinkedQueue<>();
+  private static final int PARALLEL_PROJECTS = Math.max(1, Integer.getInteger("sonarlint.markers.parallelProjects",
+    Math.min(4, Runtime.getRuntime().availableProcessors())));
 
-  private IssuesMarkerUpdateJob() {
-    super("Update issues markers for projects");
+  private final JobGroup group = new JobGroup("Update issues markers for projects", PARALLEL_PROJECTS, 0);
+  private final ConcurrentHashMap<ISonarLintProject, ProjectJob> jobsPerProject = new ConcurrentHashMap<>();
+
+  // Visible for testing
+  protected IssuesMarkerUpdateJob() {
   }
 
   public void add(ISonarLintProject project, Map<URI, List<RaisedIssueDto>> issuesByFileUri, boolean issuesAreOnTheFly) {
-    workQueue.add(new Request(project, issuesByFileUri, issuesAreOnTheFly));
-    schedule();
+    if (!project.isOpen()) {
+      // The project was closed in the meantime, a job created now would never be discarded
+      return;
+    }
+    jobsPerProject.computeIfAbsent(project, ProjectJob::new).add(new Request(issuesByFileUri, issuesAreOnTheFly, false));
   }
 
-  @Override
-  protected IStatus doRun(IProgressMonitor monitor) throws CoreException {
-    var requests = new ArrayList<Request>();
-    Request request;
-    while ((request = workQueue.poll()) != null) {
-      requests.add(request);
+  /** When a project is closed its pending requests are dropped, a running update stops at the next file */
+  public void discard(ISonarLintProject project) {
+    var job = jobsPerProject.remove(project);
+    if (job != null) {
+      job.discard();
     }
+  }
 
-    if (requests.isEmpty()) {
-      return Status.OK_STATUS;
+  /**
+   *  After the issue filter preferences changed, the markers of all the projects are updated from the issues they last
+   *  raised instead of analyzing them again. The files no longer in the cache have to be analyzed again, see
+   *  {@link RaisedIssuesCache#contains(org.sonarlint.eclipse.core.resource.ISonarLintFile, boolean)}.
+   */
+  public void applyIssueFilters() {
+    for (var projectIssues : RaisedIssuesCache.INSTANCE.getAll()) {
+      if (!projectIssues.getProject().isOpen()) {
+        continue;
+      }
+      jobsPerProject.computeIfAbsent(projectIssues.getProject(), ProjectJob::new).add(new Request(Map.of(), false, true));
     }
+  }
 
-    var status = new AtomicReference<>(Status.OK_STATUS);
-    var toNotify = new HashSet<ISonarLintProject>();
-    // Requests that could not be processed (cancellation) are re-queued so their markers are not lost.
-    var remaining = new ArrayList<Request>();
+  private final class ProjectJob extends AbstractSonarJob {
+    private final ISonarLintProject project;
+    private final ArrayDeque<Request> workQueue = new ArrayDeque<>();
+    private boolean discarded;
+
+    private ProjectJob(ISonarLintProject project) {
+      super("Update issues markers for project '" + project.getName() + "'");
+      this.project = project;
+      setRule(project.getResource());
+      setJobGroup(group);
+    }
 
-    ResourcesPlugin.getWorkspace().run(m -> {
+    private synchronized void add(Request request) {
+      if (discarded) {
+        return;
+      }
+      workQueue.add(request);
+      schedule();
+    }
+
+    private void discard() {
+      synchronized (this) {
+        discarded = true;
+        workQueue.clear();
+      }
+      cancel();
+    }
+
+    private synchronized List<Request> poll() {
+      var requests = new ArrayList<>(workQueue);
+      workQueue.clear();
+      return requests;
+    }
+
+    /** Requests that could not be processed (cancellation) are re-queued before the newer ones */
+    private synchronized void requeue(List<Request> requests) {
+      if (discarded) {
+        return;
+      }
+      for (var i = requests.size() - 1; i >= 0; i--) {
+        workQueue.addFirst(requests.get(i));
+      }
+    }
+
+    private synchronized boolean hasWork() {
+      return !workQueue.isEmpty();
+    }
+
+    @Override
+    protected IStatus doRun(IProgressMonitor monitor) {
+      var requests = poll();
+      if (requests.isEmpty()) {
+        return Status.OK_STATUS;
+      }
+
+      var status = Status.OK_STATUS;
+      var updated = false;
       for (var i = 0; i < requests.size(); i++) {
         var req = requests.get(i);
-        if (monitor.isCanceled()) {
-          status.set(Status.CANCEL_STATUS);
-          remaining.addAll(requests.subList(i, requests.size()));
-          return;
-        }
         try {
-          updateProject(req);
-          toNotify.add(req.project);
+          if (!process(project, req, this, monitor)) {
+            status = Status.CANCEL_STATUS;
+            requeue(requests.subList(i, requests.size()));
+            break;
+          }
+          updated = true;
         } catch (RuntimeException e) {
-          // A failure for one project must not prevent the other projects' markers from being updated.
-          SonarLintLogger.get().error("Failed to update issue markers for project '" + req.project.getName() + "'", e);
+          // A failure for one request must not prevent the following ones from being processed.
+          SonarLintLogger.get().error("Failed to update issue markers for project '" + project.getName() + "'", e);
         }
       }
-    }, monitor);
 
-    if (!toNotify.isEmpty()) {
-      SonarLintCorePlugin.getAnalysisListenerManager().notifyListeners(() -> toNotify);
-    }
+      if (updated) {
+        SonarLintCorePlugin.getAnalysisListenerManager().notifyListeners(() -> Set.of(project));
+      }
 
-    if (!remaining.isEmpty()) {
-      workQueue.addAll(remaining);
-    }
+      // New requests may have been queued while this job was running, or requests were re-queued after cancellation.
+      if (hasWork()) {
+        schedule();
+      }
 
-    // New requests may have been queued while this job was running, or requests were re-queued after cancellation.
-    if (!workQueue.isEmpty()) {
-      schedule();
+      return status;
     }
-
-    return status.get();
   }
 
-  private static void updateProject(Request req) {
+  /**
+   *  Applies one request to the markers of the project, the rule of the given job is yielded between two files.
+   *
+   *  @return false when cancelled before all the files were updated
+   */
+  // Visible for testing
+  protected boolean process(ISonarLintProject project, Request req, Job job, IProgressMonitor monitor) {
+    if (req.applyIssueFiltersOnly) {
+      return applyIssueFilters(project, job, monitor);
+    }
     var countAllIssues = req.issuesByFileUri.values().stream().mapToInt(List::size).sum();
-    SonarLintLogger.get().info("Found " + countAllIssues + " issue(s) on project '" + req.project.getName() + "'");
+    SonarLintLogger.get().info("Found " + countAllIssues + " issue(s) on project '" + project.getName() + "'");
+
+    var issuesIncludingResolved = SonarLintGlobalConfiguration.issuesIncludingResolved();
+    var issuesOnlyNewCode = SonarLintGlobalConfiguration.issuesOnlyNewCode();
+    var viableForStatusChange = SonarLintUtils.checkProjectSupportsAnticipatedStatusChange(project);
 
+    try (var documents = new BatchDocuments()) {
+      for (var entry : req.issuesByFileUri.entrySet()) {
+        if (monitor.isCanceled()) {
+          return false;
+        }
+        var slFile = SonarLintUtils.findFileFromUri(entry.getKey());
+        if (slFile != null) {
+          SonarLintMarkerUpdater.createOrUpdateMarkers(slFile, entry.getValue(), req.issuesAreOnTheFly,
+            issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange, documents);
+          documents.release(slFile);
+        }
+        job.yieldRule(monitor);
+      }
+    }
+    return true;
+  }
+
+  /** @return false when cancelled before all the files were updated */
+  private static boolean applyIssueFilters(ISonarLintProject project, Job job, IProgressMonitor monitor) {
+    var projectIssues = RaisedIssuesCache.INSTANCE.get(project);
+    if (projectIssues == null) {
+      return true;
+    }
     var issuesIncludingResolved = SonarLintGlobalConfiguration.issuesIncludingResolved();
     var issuesOnlyNewCode = SonarLintGlobalConfiguration.issuesOnlyNewCode();
-    var viableForStatusChange = SonarLintUtils.checkProjectSupportsAnticipatedStatusChange(req.project);
 
-    for (var entry : req.issuesByFileUri.entrySet()) {
-      var slFile = SonarLintUtils.findFileFromUri(entry.getKey());
-      if (slFile != null) {
-        SonarLintMarkerUpdater.createOrUpdateMarkers(slFile, entry.getValue(), req.issuesAreOnTheFly,
-          issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange);
+    try (var documents = new BatchDocuments()) {
+      for (var issuesAreOnTheFly : new boolean[] {true, false}) {
+        for (var entry : projectIssues.getIssues(issuesAreOnTheFly).entrySet()) {
+          if (monitor.isCanceled()) {
+            return false;
+          }
+          var fileIssues = entry.getValue();
+          SonarLintMarkerUpdater.applyIssueFilters(entry.getKey(), fileIssues.getIssues(), issuesAreOnTheFly,
+            issuesIncludingResolved, issuesOnlyNewCode, fileIssues.isViableForStatusChange(), documents);
+          documents.release(entry.getKey());
+          job.yieldRule(monitor);
+        }
       }
     }
+    return true;
   }
 
-  private static final class Request {
-    private final ISonarLintProject project;
+  // Visible for testing
+  public static final class Request {
     private final Map<URI, List<RaisedIssueDto>> issuesByFileUri;
     private final boolean issuesAreOnTheFly;
+    private final boolean applyIssueFiltersOnly;
 
-    private Request(ISonarLintProject project, Map<URI, List<RaisedIssueDto>> issuesByFileUri, boolean issuesAreOnTheFly) {
-      this.project = project;
+    private Request(Map<URI, List<RaisedIssueDto>> issuesByFileUri, boolean issuesAreOnTheFly, boolean applyIssueFiltersOnly) {
       this.issuesByFileUri = issuesByFileUri;
       this.issuesAreOnTheFly = issuesAreOnTheFly;
+      this.applyIssueFiltersOnly = applyIssueFiltersOnly;
+    }
+
+    public Map<URI, List<RaisedIssueDto>> getIssuesByFileUri() {
+      return issuesByFileUri;
     }
   }
 }
@@ -0,0 +1,130 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.jobs;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.JobGroup;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  Runs the analyses of multiple projects in parallel instead of one after another, as SLCORE can handle multiple
+ *  analyses at the same time. The number of projects analyzed at once is bounded and can be configured via
+ *  "-Dsonarlint.analysis.parallelProjects=4" for example, with "1" restoring the sequential behavior.
+ *
+ *  The progress is reported to the job dispatching the analyses, the analyses of the projects themselves are system
+ *  jobs. Cancelling the dispatching job cancels all of them.
+ */
+public class MultiProjectAnalysis {
+  private static final int PARALLEL_PROJECTS = Math.max(1, Integer.getInteger("sonarlint.analysis.parallelProjects",
+    Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+  /** How long to wait for the next analysis to finish before checking the dispatching job for cancellation */
+  private static final long CANCELLATION_CHECK_INTERVAL_MS = 500;
+
+  private MultiProjectAnalysis() {
+    // utility class, forbidden constructor
+  }
+
+  /** @param monitor has to be converted with the number of requests as work, every finished request is one unit */
+  static IStatus run(String name, Collection<AnalyzeProjectRequest> requests, SubMonitor monitor) throws InterruptedException {
+    var jobs = requests.stream()
+      .map(request -> {
+        var job = AnalyzeProjectJob.create(request);
+        job.setSystem(true);
+        job.setRule(projectRule(request.getProject()));
+        return (Job) job;
+      })
+      .collect(Collectors.toList());
+    return run(name, jobs, PARALLEL_PROJECTS, monitor);
+  }
+
+  // Visible for testing
+  public static IStatus run(String name, List<Job> jobs, int maxThreads, SubMonitor monitor) throws InterruptedException {
+    var group = new JobGroup(name, maxThreads, jobs.size());
+    // Released by every finished job, so that the dispatching thread wakes up as soon as there is progress to report
+    var finished = new Semaphore(0);
+    for (var job : jobs) {
+      job.setJobGroup(group);
+      job.addJobChangeListener(new JobChangeAdapter() {
+        @Override
+        public void done(IJobChangeEvent event) {
+          finished.release();
+        }
+      });
+      job.schedule();
+    }
+
+    // The monitor is not thread-safe, therefore the progress is only reported from the dispatching thread
+    var reported = 0;
+    try {
+      while (reported < jobs.size()) {
+        if (monitor.isCanceled()) {
+          group.cancel();
+          return Status.CANCEL_STATUS;
+        }
+        if (finished.tryAcquire(CANCELLATION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          // Report the analyses that finished at the same time at once
+          var count = 1 + finished.drainPermits();
+          reported += count;
+          monitor.worked(count);
+          monitor.subTask(reported + "/" + jobs.size() + " projects analyzed");
+        }
+      }
+    } catch (InterruptedException e) {
+      group.cancel();
+      throw e;
+    }
+    return Status.OK_STATUS;
+  }
+
+  // Visible for testing
+  public static ISchedulingRule projectRule(ISonarLintProject project) {
+    return new ProjectRule(project);
+  }
+
+  /** Analyses of the same project are not run at the same time, but without blocking any workspace operation */
+  private static class ProjectRule implements ISchedulingRule {
+    private final ISonarLintProject project;
+
+    private ProjectRule(ISonarLintProject project) {
+      this.project = project;
+    }
+
+    @Override
+    public boolean contains(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    @Override
+    public boolean isConflicting(ISchedulingRule rule) {
+      return rule instanceof ProjectRule && ((ProjectRule) rule).project.equals(project);
+    }
+  }
+}
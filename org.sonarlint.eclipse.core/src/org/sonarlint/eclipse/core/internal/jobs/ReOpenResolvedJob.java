@@ -53,7 +53,7 @@ public class ReOpenResolvedJob extends Job {
     if (!isTaint) {
       var request = new AnalyzeProjectRequest(project, List.of(new FileWithDocument(file, null)),
         TriggerType.AFTER_RESOLVE, false);
-      AnalyzeProjectJob.create(request).schedule();
+      AnalysisScheduler.get().schedule(request);
     }
     return Status.OK_STATUS;
   }
@@ -20,9 +20,13 @@
 package org.sonarlint.eclipse.core.internal.jobs;
 
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,6 +39,9 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
@@ -42,7 +49,8 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
-import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
+import org.sonarlint.eclipse.core.internal.cache.RaisedIssuesCache;
+import org.sonarlint.eclipse.core.internal.cache.TaintVulnerabilitiesCache;
 import org.sonarlint.eclipse.core.internal.engine.connected.ConnectionFacade;
 import org.sonarlint.eclipse.core.internal.markers.MarkerFlow;
 import org.sonarlint.eclipse.core.internal.markers.MarkerFlowLocation;
@@ -54,7 +62,6 @@ import org.sonarlint.eclipse.core.internal.quickfixes.MarkerQuickFix;
 import org.sonarlint.eclipse.core.internal.quickfixes.MarkerQuickFixes;
 import org.sonarlint.eclipse.core.internal.quickfixes.MarkerTextEdit;
 import org.sonarlint.eclipse.core.internal.utils.DigestUtils;
-import org.sonarlint.eclipse.core.internal.utils.JobUtils;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.listener.TaintVulnerabilitiesListener;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
@@ -87,6 +94,7 @@ public class SonarLintMarkerUpdater {
         p.deleteAllMarkers(SonarLintCorePlugin.MARKER_REPORT_ID);
         p.deleteAllMarkers(SonarLintCorePlugin.MARKER_REPORT_FLOW_ID);
       });
+    RaisedIssuesCache.INSTANCE.removeAllReportIssues();
   }
 
   public static void deleteAllMarkersFromTaint() {
@@ -111,10 +119,13 @@ public class SonarLintMarkerUpdater {
   }
 
   public static void clearMarkers(ISonarLintFile file) {
+    RaisedIssuesCache.INSTANCE.remove(file, true);
     try {
-      file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, false, IResource.DEPTH_ZERO);
-      file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID, false, IResource.DEPTH_ZERO);
-      file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID, false, IResource.DEPTH_ZERO);
+      runOnFile(file, m -> {
+        file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, false, IResource.DEPTH_ZERO);
+        file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID, false, IResource.DEPTH_ZERO);
+        file.getResource().deleteMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID, false, IResource.DEPTH_ZERO);
+      });
     } catch (CoreException e) {
       SonarLintLogger.get().error(e.getMessage(), e);
     }
@@ -122,77 +133,158 @@ public class SonarLintMarkerUpdater {
 
   public static void createOrUpdateMarkers(ISonarLintFile file, List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, final boolean issuesIncludingResolved,
     final boolean issuesOnlyNewCode, final boolean viableForStatusChange) {
+    try (var documents = new BatchDocuments()) {
+      createOrUpdateMarkers(file, issues, issuesAreOnTheFly, issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange, documents);
+    }
+  }
 
+  /** @param documents shared by all the files of a batch of marker updates */
+  static void createOrUpdateMarkers(ISonarLintFile file, List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, final boolean issuesIncludingResolved,
+    final boolean issuesOnlyNewCode, final boolean viableForStatusChange, BatchDocuments documents) {
+    RaisedIssuesCache.INSTANCE.put(file, issues, issuesAreOnTheFly, viableForStatusChange);
     try {
-      var markersForFile = Stream.of(file.getResource().findMarkers(
-        issuesAreOnTheFly ? SonarLintCorePlugin.MARKER_ON_THE_FLY_ID : SonarLintCorePlugin.MARKER_REPORT_ID,
-        false,
-        IResource.DEPTH_ZERO))
-        .collect(Collectors.toMap(MarkerUtils::getTrackedIssueId, marker -> marker));
-
-      var issueIds = issues.stream().map(issue -> issue.getId()).collect(Collectors.toSet());
-
-      // All markers that have no associated issue (anymore)
-      // -> markers not to be shown based on New Code / Issue Filter will be determined one by one and deleted directly
-      Set<IMarker> previousMarkersToDelete = markersForFile.entrySet().stream()
-        .filter(entry -> !issueIds.contains(entry.getKey()))
-        .map(Entry::getValue)
-        .collect(Collectors.toSet());
-
-      if (!issues.isEmpty()) {
-        createOrUpdateMarkers(file, markersForFile, issues, issuesAreOnTheFly, issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange);
-      }
+      runOnFile(file, m -> updateMarkers(file, issues, issuesAreOnTheFly, issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange,
+        documents));
+    } catch (CoreException e) {
+      SonarLintLogger.get().error(e.getMessage(), e);
+    }
+  }
 
-      for (var marker : previousMarkersToDelete) {
-        marker.delete();
-      }
+  /**
+   *  All the marker changes of one file are done in a single workspace operation, so that listeners like the Problems
+   *  view or the decorators are only notified once per file (or once per batch when already inside an operation).
+   */
+  private static void runOnFile(ISonarLintIssuable file, IWorkspaceRunnable action) throws CoreException {
+    var workspace = ResourcesPlugin.getWorkspace();
+    workspace.run(action, workspace.getRuleFactory().markerRule(file.getResource()), IWorkspace.AVOID_UPDATE, null);
+  }
+
+  /**
+   *  Applies changed issue filter preferences to the markers of a file based on the issues it last raised, see
+   *  {@link RaisedIssuesCache}. Only the markers of issues now hidden are deleted and the ones of issues now shown are
+   *  created, all the others are not touched.
+   */
+  static void applyIssueFilters(ISonarLintFile file, List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, final boolean issuesIncludingResolved,
+    final boolean issuesOnlyNewCode, final boolean viableForStatusChange, BatchDocuments documents) {
+    try {
+      runOnFile(file, m -> {
+        var markersForFile = findMarkersPerIssueId(file, issuesAreOnTheFly);
+        var issuesToShow = new ArrayList<RaisedIssueDto>();
+        for (var issue : issues) {
+          var markerForIssue = markersForFile.get(issue.getId());
+          var hidden = shouldHideResolvedIssueMarker(issue, issuesIncludingResolved)
+            || shouldHidePreNewCodeIssueMarker(issue, issuesOnlyNewCode);
+          if (hidden && markerForIssue != null) {
+            deleteMarkerAndSecondaryMarkers(markerForIssue);
+          } else if (!hidden && markerForIssue == null) {
+            issuesToShow.add(issue);
+          }
+        }
+        if (!issuesToShow.isEmpty()) {
+          createOrUpdateMarkers(file, markersForFile, issuesToShow, issuesAreOnTheFly, issuesIncludingResolved, issuesOnlyNewCode,
+            viableForStatusChange, documents);
+        }
+      });
     } catch (CoreException e) {
       SonarLintLogger.get().error(e.getMessage(), e);
     }
   }
 
-  public static void refreshMarkersForTaint(ISonarLintFile currentFile, ConnectionFacade facade, final boolean issuesIncludingResolved,
-    final boolean issuesOnlyNewCode, IProgressMonitor monitor) throws InterruptedException, ExecutionException {
-    deleteTaintMarkers(currentFile);
+  private static Map<UUID, IMarker> findMarkersPerIssueId(ISonarLintFile file, boolean issuesAreOnTheFly) throws CoreException {
+    return Stream.of(file.getResource().findMarkers(
+      issuesAreOnTheFly ? SonarLintCorePlugin.MARKER_ON_THE_FLY_ID : SonarLintCorePlugin.MARKER_REPORT_ID,
+      false,
+      IResource.DEPTH_ZERO))
+      .collect(Collectors.toMap(MarkerUtils::getTrackedIssueId, marker -> marker));
+  }
+
+  private static void updateMarkers(ISonarLintFile file, List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, final boolean issuesIncludingResolved,
+    final boolean issuesOnlyNewCode, final boolean viableForStatusChange, BatchDocuments documents) throws CoreException {
+    var markersForFile = findMarkersPerIssueId(file, issuesAreOnTheFly);
+
+    var issueIds = issues.stream().map(issue -> issue.getId()).collect(Collectors.toSet());
+
+    // All markers that have no associated issue (anymore)
+    // -> markers not to be shown based on New Code / Issue Filter will be determined one by one and deleted directly
+    Set<IMarker> previousMarkersToDelete = markersForFile.entrySet().stream()
+      .filter(entry -> !issueIds.contains(entry.getKey()))
+      .map(Entry::getValue)
+      .collect(Collectors.toSet());
 
-    var project = currentFile.getProject();
+    if (!issues.isEmpty()) {
+      createOrUpdateMarkers(file, markersForFile, issues, issuesAreOnTheFly, issuesIncludingResolved, issuesOnlyNewCode, viableForStatusChange,
+        documents);
+    }
+
+    for (var marker : previousMarkersToDelete) {
+      deleteMarkerAndSecondaryMarkers(marker);
+    }
+    deleteOrphanSecondaryMarkers(file, issuesAreOnTheFly);
+  }
+
+  /**
+   *  Refreshes the taint markers of the given files of one project, the taint vulnerabilities are only fetched once
+   *  for the project (see {@link TaintVulnerabilitiesCache}) and then looked up per file.
+   */
+  public static void refreshMarkersForTaint(ISonarLintProject project, Collection<ISonarLintFile> files, ConnectionFacade facade,
+    final boolean issuesIncludingResolved, final boolean issuesOnlyNewCode, IProgressMonitor monitor) throws InterruptedException, ExecutionException {
     var config = SonarLintCorePlugin.loadConfig(project);
     var projectBinding = config.getProjectBinding();
     if (projectBinding.isEmpty()) {
+      files.forEach(SonarLintMarkerUpdater::deleteTaintMarkers);
       return;
     }
     var binding = projectBinding.get();
 
-    var future = SonarLintBackendService.get().listAllTaintVulnerabilities(project);
-    var response = JobUtils.waitForFuture(monitor, future);
-
-    var taintVulnerabilities = response.getTaintVulnerabilities();
+    var taintVulnerabilities = TaintVulnerabilitiesCache.INSTANCE.getTaintVulnerabilities(project, monitor);
 
     var boundSiblingProjects = facade.getBoundProjects(binding.getProjectKey());
     var bindings = boundSiblingProjects.stream()
       .collect(Collectors.toMap(p -> p, p -> SonarLintCorePlugin.loadConfig(p).getProjectBinding().get()));
 
+    var actualTaintMarkersCreated = new boolean[1];
+    try (var documents = new BatchDocuments()) {
+      for (var currentFile : files) {
+        if (monitor.isCanceled()) {
+          break;
+        }
+        var taintVulnerabilitiesOfFile = taintVulnerabilities.get(Path.of(currentFile.getProjectRelativePath()));
+        // The previous markers are only replaced once the taint vulnerabilities are known, in the same workspace operation
+        try {
+          runOnFile(currentFile, m -> {
+            deleteTaintMarkers(currentFile);
+            actualTaintMarkersCreated[0] |= createTaintMarkers(currentFile, taintVulnerabilitiesOfFile, bindings, issuesIncludingResolved,
+              issuesOnlyNewCode, documents);
+          });
+        } catch (CoreException e) {
+          SonarLintLogger.get().error(e.getMessage(), e);
+        }
+        documents.release(currentFile);
+      }
+    }
+    if (actualTaintMarkersCreated[0] && taintVulnerabilitiesListener != null) {
+      taintVulnerabilitiesListener.markersCreated(facade.isSonarCloud());
+    }
+  }
+
+  private static boolean createTaintMarkers(ISonarLintFile currentFile, List<TaintVulnerabilityDto> taintVulnerabilities,
+    Map<ISonarLintProject, EclipseProjectBinding> bindings, final boolean issuesIncludingResolved, final boolean issuesOnlyNewCode,
+    BatchDocuments documents) {
     var actualTaintMarkersCreated = false;
     for (var taintIssue : taintVulnerabilities) {
       if (!(shouldHideResolvedTaintMarker(taintIssue, issuesIncludingResolved)
         || shouldHidePreNewCodeTaintMarker(taintIssue, issuesOnlyNewCode))) {
+        // The same path could be resolved by a sibling project first, then the taint vulnerability is not for this file
         var optFileForTaint = findFileForLocationInBoundProjects(bindings, taintIssue.getIdeFilePath());
-        if (optFileForTaint.isEmpty()) {
-          continue;
-        }
-        var fileForTaint = optFileForTaint.get();
-        if (!fileForTaint.equals(currentFile)) {
+        if (optFileForTaint.isEmpty() || !optFileForTaint.get().equals(currentFile)) {
           continue;
         }
 
-        createTaintMarker(fileForTaint.getDocument(), fileForTaint, taintIssue, bindings);
+        createTaintMarker(documents.get(currentFile), currentFile, taintIssue, bindings, documents);
         actualTaintMarkersCreated = true;
       }
     }
-    if (actualTaintMarkersCreated && taintVulnerabilitiesListener != null) {
-      taintVulnerabilitiesListener.markersCreated(facade.isSonarCloud());
-    }
-
+    return actualTaintMarkersCreated;
   }
 
   private static Optional<ISonarLintFile> findFileForLocationInBoundProjects(Map<ISonarLintProject, EclipseProjectBinding> bindingsPerProjects, Path filePath) {
@@ -207,9 +299,9 @@ public class SonarLintMarkerUpdater {
 
   private static void createOrUpdateMarkers(ISonarLintFile file, Map<UUID, IMarker> markersForFile,
     List<RaisedIssueDto> issues, boolean issuesAreOnTheFly, final boolean issuesIncludingResolved,
-    final boolean issuesOnlyNewCode, final boolean viableForStatusChange) throws CoreException {
+    final boolean issuesOnlyNewCode, final boolean viableForStatusChange, BatchDocuments documents) throws CoreException {
 
-    var lazyInitDocument = file.getDocument();
+    var lazyInitDocument = documents.get(file);
 
     for (var issue : issues) {
       var issueId = issue.getId();
@@ -219,26 +311,73 @@ public class SonarLintMarkerUpdater {
       if (shouldHideResolvedIssueMarker(issue, issuesIncludingResolved)
         || shouldHidePreNewCodeIssueMarker(issue, issuesOnlyNewCode)) {
         if (markerForIssue != null) {
-          markerForIssue.delete();
+          deleteMarkerAndSecondaryMarkers(markerForIssue);
         }
         continue;
       }
 
+      // the flow and quick fix markers of the previous analysis are reused when still matching, the others deleted
+      var reusableMarkers = markerForIssue != null ? new ReusableMarkers(markerForIssue) : ReusableMarkers.NONE;
+      var attributes = issueMarkerAttributes(lazyInitDocument, issue, viableForStatusChange);
+      attributes.put(MarkerUtils.SONAR_MARKER_EXTRA_LOCATIONS_ATTR,
+        createFlowMarkersForLocalIssues(lazyInitDocument, file, issue, issuesAreOnTheFly, reusableMarkers));
+      if (issuesAreOnTheFly) {
+        attributes.put(MarkerUtils.SONAR_MARKER_QUICK_FIXES_ATTR, createQuickFixMarkersForLocalIssues(lazyInitDocument, file, issue, reusableMarkers));
+      }
+      reusableMarkers.deleteUnused();
+
       // try to update the marker (if possible), otherwise create it
       if (markerForIssue == null) {
-        markerForIssue = createMarker(issueId, file, issuesAreOnTheFly);
+        attributes.put(MarkerUtils.SONAR_MARKER_TRACKED_ISSUE_ID_ATTR, MarkerUtils.encodeUuid(issueId));
+        createMarker(file.getResource(), issuesAreOnTheFly ? SonarLintCorePlugin.MARKER_ON_THE_FLY_ID : SonarLintCorePlugin.MARKER_REPORT_ID,
+          attributes);
+      } else {
+        setMarkerAttributesIfDifferent(markerForIssue, attributes);
       }
+    }
+  }
+
+  private static void deleteMarkerAndSecondaryMarkers(IMarker marker) throws CoreException {
+    ReusableMarkers.secondaryMarkersOf(marker).forEach(SonarLintMarkerUpdater::deleteQuietly);
+    marker.delete();
+  }
 
-      updateMarkerAttributes(lazyInitDocument, issue, markerForIssue, viableForStatusChange);
-      createFlowMarkersForLocalIssues(lazyInitDocument, file, issue, markerForIssue, issuesAreOnTheFly);
-      createQuickFixMarkersForLocalIssues(lazyInitDocument, file, issue, markerForIssue, issuesAreOnTheFly);
+  /**
+   *  Secondary markers not referenced by any primary marker of the file anymore, e.g. left behind by an analysis that
+   *  failed midway or by previous versions that did not reuse them, are removed as they would never be cleaned up.
+   */
+  private static void deleteOrphanSecondaryMarkers(ISonarLintFile file, boolean issuesAreOnTheFly) throws CoreException {
+    var resource = file.getResource();
+    var referenced = new HashSet<IMarker>();
+    for (var marker : resource.findMarkers(issuesAreOnTheFly ? SonarLintCorePlugin.MARKER_ON_THE_FLY_ID : SonarLintCorePlugin.MARKER_REPORT_ID,
+      false, IResource.DEPTH_ZERO)) {
+      referenced.addAll(ReusableMarkers.secondaryMarkersOf(marker));
+    }
+    var secondaryMarkerIds = issuesAreOnTheFly
+      ? List.of(SonarLintCorePlugin.MARKER_ON_THE_FLY_FLOW_ID, SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID)
+      : List.of(SonarLintCorePlugin.MARKER_REPORT_FLOW_ID);
+    for (var markerId : secondaryMarkerIds) {
+      for (var marker : resource.findMarkers(markerId, false, IResource.DEPTH_ZERO)) {
+        if (!referenced.contains(marker)) {
+          marker.delete();
+        }
+      }
     }
   }
 
-  private static IMarker createMarker(UUID id, ISonarLintIssuable issuable, boolean issuesAreOnTheFly) throws CoreException {
-    var marker = issuable.getResource()
-      .createMarker(issuesAreOnTheFly ? SonarLintCorePlugin.MARKER_ON_THE_FLY_ID : SonarLintCorePlugin.MARKER_REPORT_ID);
-    marker.setAttribute(MarkerUtils.SONAR_MARKER_TRACKED_ISSUE_ID_ATTR, MarkerUtils.encodeUuid(id));
+  private static void deleteQuietly(IMarker marker) {
+    try {
+      marker.delete();
+    } catch (CoreException e) {
+      SonarLintLogger.get().error(e.getMessage(), e);
+    }
+  }
+
+  /** Creates the marker with all its attributes at once, attributes without value are not set at all */
+  private static IMarker createMarker(IResource resource, String markerId, Map<String, Object> attributes) throws CoreException {
+    var marker = resource.createMarker(markerId);
+    attributes.values().removeIf(Objects::isNull);
+    marker.setAttributes(attributes);
     return marker;
   }
 
@@ -247,26 +386,26 @@ public class SonarLintMarkerUpdater {
   }
 
   private static void createTaintMarker(IDocument document, ISonarLintIssuable issuable, TaintVulnerabilityDto taintIssue,
-    Map<ISonarLintProject, EclipseProjectBinding> bindingsPerProjects) {
+    Map<ISonarLintProject, EclipseProjectBinding> bindingsPerProjects, BatchDocuments documents) {
     try {
-      var marker = issuable.getResource().createMarker(SonarLintCorePlugin.MARKER_TAINT_ID);
+      var attributes = new HashMap<String, Object>();
 
-      setMarkerViewUtilsAttributes(issuable, marker);
+      setMarkerViewUtilsAttributes(issuable, attributes);
 
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_TRACKED_ISSUE_ID_ATTR, MarkerUtils.encodeUuid(taintIssue.getId()));
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_RULE_KEY_ATTR, taintIssue.getRuleKey());
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_RULE_DESC_CONTEXT_KEY_ATTR, taintIssue.getRuleDescriptionContextKey());
-      marker.setAttribute(IMarker.SEVERITY, SonarLintGlobalConfiguration.getMarkerSeverity());
+      attributes.put(MarkerUtils.SONAR_MARKER_TRACKED_ISSUE_ID_ATTR, MarkerUtils.encodeUuid(taintIssue.getId()));
+      attributes.put(MarkerUtils.SONAR_MARKER_RULE_KEY_ATTR, taintIssue.getRuleKey());
+      attributes.put(MarkerUtils.SONAR_MARKER_RULE_DESC_CONTEXT_KEY_ATTR, taintIssue.getRuleDescriptionContextKey());
+      attributes.put(IMarker.SEVERITY, SonarLintGlobalConfiguration.getMarkerSeverity());
 
-      marker.setAttribute(IMarker.MESSAGE, taintIssue.getMessage());
+      attributes.put(IMarker.MESSAGE, taintIssue.getMessage());
 
       // File level issues (line == null) are displayed on line 1
-      marker.setAttribute(IMarker.LINE_NUMBER, taintIssue.getTextRange() != null ? taintIssue.getTextRange().getStartLine() : 1);
+      attributes.put(IMarker.LINE_NUMBER, taintIssue.getTextRange() != null ? taintIssue.getTextRange().getStartLine() : 1);
 
       var position = MarkerUtils.getPosition(document, taintIssue.getTextRange());
       if (position != null) {
-        marker.setAttribute(IMarker.CHAR_START, position.getOffset());
-        marker.setAttribute(IMarker.CHAR_END, position.getOffset() + position.getLength());
+        attributes.put(IMarker.CHAR_START, position.getOffset());
+        attributes.put(IMarker.CHAR_END, position.getOffset() + position.getLength());
       } else {
         SonarLintLogger.get().debug("Position cannot be set for taint issue '" + taintIssue.getId() + "' in '" + taintIssue.getIdeFilePath() + "'");
       }
@@ -274,89 +413,93 @@ public class SonarLintMarkerUpdater {
       var severityModeEither = taintIssue.getSeverityMode();
       if (severityModeEither.isLeft()) {
         var standardModeDetails = severityModeEither.getLeft();
-        marker.setAttribute(IMarker.PRIORITY, getPriority(standardModeDetails.getSeverity()));
-        marker.setAttribute(MarkerUtils.SONAR_MARKER_ISSUE_SEVERITY_ATTR, standardModeDetails.getSeverity().name());
-        marker.setAttribute(MarkerUtils.SONAR_MARKER_ISSUE_TYPE_ATTR, standardModeDetails.getType().name());
+        attributes.put(IMarker.PRIORITY, getPriority(standardModeDetails.getSeverity()));
+        attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_SEVERITY_ATTR, standardModeDetails.getSeverity().name());
+        attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_TYPE_ATTR, standardModeDetails.getType().name());
       } else {
         var mqrModeDetails = severityModeEither.getRight();
-        marker.setAttribute(MarkerUtils.SONAR_MARKER_ISSUE_ATTRIBUTE_ATTR, mqrModeDetails.getCleanCodeAttribute());
+        attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_ATTRIBUTE_ATTR, mqrModeDetails.getCleanCodeAttribute());
         var highestImpactSeverityEncoded = MarkerUtils.encodeHighestImpact(mqrModeDetails.getImpacts());
-        marker.setAttribute(MarkerUtils.SONAR_MARKER_ISSUE_HIGHEST_IMPACT_ATTR,
+        attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_HIGHEST_IMPACT_ATTR,
           highestImpactSeverityEncoded);
-        marker.setAttribute(IMarker.PRIORITY, highestImpactSeverityEncoded);
+        attributes.put(IMarker.PRIORITY, highestImpactSeverityEncoded);
       }
 
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_SERVER_ISSUE_KEY_ATTR, taintIssue.getSonarServerKey());
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_RESOLVED_ATTR, taintIssue.isResolved());
+      attributes.put(MarkerUtils.SONAR_MARKER_SERVER_ISSUE_KEY_ATTR, taintIssue.getSonarServerKey());
+      attributes.put(MarkerUtils.SONAR_MARKER_RESOLVED_ATTR, taintIssue.isResolved());
 
       var creationDate = taintIssue.getIntroductionDate().toEpochMilli();
-      marker.setAttribute(MarkerUtils.SONAR_MARKER_CREATION_DATE_ATTR, String.valueOf(creationDate));
+      attributes.put(MarkerUtils.SONAR_MARKER_CREATION_DATE_ATTR, String.valueOf(creationDate));
 
-      createFlowMarkersForTaint(taintIssue, marker, bindingsPerProjects);
+      attributes.put(MarkerUtils.SONAR_MARKER_EXTRA_LOCATIONS_ATTR, createFlowMarkersForTaint(taintIssue, issuable, bindingsPerProjects,
+        documents));
+      createMarker(issuable.getResource(), SonarLintCorePlugin.MARKER_TAINT_ID, attributes);
     } catch (CoreException e) {
       SonarLintLogger.get().error("Unable to create marker", e);
     }
   }
 
-  private static void setMarkerViewUtilsAttributes(ISonarLintIssuable issuable, IMarker marker) throws CoreException {
+  private static void setMarkerViewUtilsAttributes(ISonarLintIssuable issuable, Map<String, Object> attributes) {
     // See MarkerViewUtil
-    marker.setAttribute("org.eclipse.ui.views.markers.name", issuable.getResourceNameForMarker());
-    marker.setAttribute("org.eclipse.ui.views.markers.path", issuable.getResourceContainerForMarker());
+    attributes.put("org.eclipse.ui.views.markers.name", issuable.getResourceNameForMarker());
+    attributes.put("org.eclipse.ui.views.markers.path", issuable.getResourceContainerForMarker());
   }
 
-  private static void updateMarkerAttributes(IDocument document, RaisedIssueDto issue, IMarker marker,
-    final boolean viableForStatusChange) throws CoreException {
-    var existingAttributes = marker.getAttributes();
+  /** All the attributes of an issue marker, the ones without value are removed from existing markers */
+  private static Map<String, Object> issueMarkerAttributes(IDocument document, RaisedIssueDto issue, final boolean viableForStatusChange) {
+    var attributes = new LinkedHashMap<String, Object>();
 
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_RULE_KEY_ATTR, issue.getRuleKey());
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_RULE_DESC_CONTEXT_KEY_ATTR,
+    attributes.put(MarkerUtils.SONAR_MARKER_RULE_KEY_ATTR, issue.getRuleKey());
+    attributes.put(MarkerUtils.SONAR_MARKER_RULE_DESC_CONTEXT_KEY_ATTR,
       issue.getRuleDescriptionContextKey());
-    setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.SEVERITY, SonarLintGlobalConfiguration.getMarkerSeverity());
-    setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.MESSAGE, issue.getPrimaryMessage());
+    attributes.put(IMarker.SEVERITY, SonarLintGlobalConfiguration.getMarkerSeverity());
+    attributes.put(IMarker.MESSAGE, issue.getPrimaryMessage());
+    attributes.put(MarkerUtils.SONAR_MARKER_PROVISIONAL_ATTR, null);
 
     var textRange = issue.getTextRange();
     var position = MarkerUtils.getPosition(document, textRange);
 
     // File level issues (line == null) are displayed on line 1
-    setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.LINE_NUMBER, textRange != null ? textRange.getStartLine() : 1);
+    attributes.put(IMarker.LINE_NUMBER, textRange != null ? textRange.getStartLine() : 1);
 
-    setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.CHAR_START, position != null ? position.getOffset() : null);
-    setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.CHAR_END, position != null ? (position.getOffset() + position.getLength()) : null);
+    attributes.put(IMarker.CHAR_START, position != null ? position.getOffset() : null);
+    attributes.put(IMarker.CHAR_END, position != null ? (position.getOffset() + position.getLength()) : null);
 
     var severityModeEither = issue.getSeverityMode();
     if (severityModeEither.isLeft()) {
       var standardModeDetails = severityModeEither.getLeft();
-      setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.PRIORITY,
+      attributes.put(IMarker.PRIORITY,
         getPriority(standardModeDetails.getSeverity()));
-      setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_ISSUE_SEVERITY_ATTR,
+      attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_SEVERITY_ATTR,
         standardModeDetails.getSeverity());
-      setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_ISSUE_TYPE_ATTR,
+      attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_TYPE_ATTR,
         standardModeDetails.getType());
     } else {
       var mqrModeDetails = severityModeEither.getRight();
-      setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_ISSUE_ATTRIBUTE_ATTR,
+      attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_ATTRIBUTE_ATTR,
         mqrModeDetails.getCleanCodeAttribute());
       var highestImpactSeverityEncoded = MarkerUtils.encodeHighestImpact(mqrModeDetails.getImpacts());
-      setMarkerAttributeIfDifferent(marker, existingAttributes, IMarker.PRIORITY,
+      attributes.put(IMarker.PRIORITY,
         getPriority(highestImpactSeverityEncoded));
-      setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_ISSUE_HIGHEST_IMPACT_ATTR,
+      attributes.put(MarkerUtils.SONAR_MARKER_ISSUE_HIGHEST_IMPACT_ATTR,
         highestImpactSeverityEncoded);
     }
 
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_SERVER_ISSUE_KEY_ATTR,
+    attributes.put(MarkerUtils.SONAR_MARKER_SERVER_ISSUE_KEY_ATTR,
       issue.getServerKey());
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_ANTICIPATED_ISSUE_ATTR,
+    attributes.put(MarkerUtils.SONAR_MARKER_ANTICIPATED_ISSUE_ATTR,
       viableForStatusChange);
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_RESOLVED_ATTR,
+    attributes.put(MarkerUtils.SONAR_MARKER_RESOLVED_ATTR,
       issue.isResolved());
 
     var introductionDate = issue.getIntroductionDate().toEpochMilli();
-    setMarkerAttributeIfDifferent(marker, existingAttributes, MarkerUtils.SONAR_MARKER_CREATION_DATE_ATTR,
+    attributes.put(MarkerUtils.SONAR_MARKER_CREATION_DATE_ATTR,
       String.valueOf(introductionDate));
+    return attributes;
   }
 
-  private static void createFlowMarkersForLocalIssues(IDocument document, ISonarLintIssuable issuable, RaisedIssueDto issue, IMarker marker, boolean issuesAreOnTheFly)
-    throws CoreException {
+  private static MarkerFlows createFlowMarkersForLocalIssues(IDocument document, ISonarLintIssuable issuable, RaisedIssueDto issue, boolean issuesAreOnTheFly,
+    ReusableMarkers reusableMarkers) {
     var flowMarkerId = markerIdForFlows(issuesAreOnTheFly);
     var flows = new ArrayList<MarkerFlow>();
     var i = 1;
@@ -367,26 +510,25 @@ public class SonarLintMarkerUpdater {
       Collections.reverse(locations);
       for (var l : locations) {
         var flowLocation = new MarkerFlowLocation(flow, l.getMessage());
-        createMarkerForTextRange(document, issuable.getResource(), flowMarkerId, l.getMessage(), l.getTextRange()).ifPresent(flowLocation::setMarker);
+        createMarkerForTextRange(document, issuable.getResource(), flowMarkerId, l.getMessage(), l.getTextRange(), reusableMarkers)
+          .ifPresent(flowLocation::setMarker);
       }
       i++;
     }
-    marker.setAttribute(MarkerUtils.SONAR_MARKER_EXTRA_LOCATIONS_ATTR, new MarkerFlows(flows));
+    return new MarkerFlows(flows);
   }
 
-  private static void createQuickFixMarkersForLocalIssues(IDocument document, ISonarLintIssuable issuable, RaisedIssueDto issue, IMarker marker, boolean issuesAreOnTheFly)
-    throws CoreException {
-    if (!issuesAreOnTheFly) {
-      return;
-    }
+  private static MarkerQuickFixes createQuickFixMarkersForLocalIssues(IDocument document, ISonarLintIssuable issuable, RaisedIssueDto issue,
+    ReusableMarkers reusableMarkers) {
     var qfs = new ArrayList<MarkerQuickFix>();
     for (var engineQuickFix : issue.getQuickFixes()) {
-      createQuickFix(document, issuable, qfs, engineQuickFix);
+      createQuickFix(document, issuable, qfs, engineQuickFix, reusableMarkers);
     }
-    marker.setAttribute(MarkerUtils.SONAR_MARKER_QUICK_FIXES_ATTR, new MarkerQuickFixes(qfs));
+    return new MarkerQuickFixes(qfs);
   }
 
-  private static void createQuickFix(IDocument document, ISonarLintIssuable issuable, List<MarkerQuickFix> qfs, QuickFixDto rpcQuickFix) {
+  private static void createQuickFix(IDocument document, ISonarLintIssuable issuable, List<MarkerQuickFix> qfs, QuickFixDto rpcQuickFix,
+    ReusableMarkers reusableMarkers) {
     var qf = new MarkerQuickFix(rpcQuickFix.message());
     for (var edits : rpcQuickFix.fileEdits()) {
       var fileWithEdit = SonarLintUtils.findFileFromUri(edits.target());
@@ -397,7 +539,7 @@ public class SonarLintMarkerUpdater {
       // should we discard the quick fix if the document has changed since the analysis?
       for (var txtEditFromEngine : edits.textEdits()) {
         var markerForTextEdit = createMarkerForTextRange(document, issuable.getResource(), SonarLintCorePlugin.MARKER_ON_THE_FLY_QUICK_FIX_ID, null,
-          txtEditFromEngine.range());
+          txtEditFromEngine.range(), reusableMarkers);
         if (markerForTextEdit.isPresent()) {
           var textEdit = new MarkerTextEdit(markerForTextEdit.get(), txtEditFromEngine.newText());
           qf.addTextEdit(textEdit);
@@ -410,34 +552,39 @@ public class SonarLintMarkerUpdater {
     qfs.add(qf);
   }
 
-  private static Optional<IMarker> createMarkerForTextRange(IDocument document, IResource resource, String markerId, @Nullable String message, @Nullable TextRangeDto textRange) {
+  private static Optional<IMarker> createMarkerForTextRange(IDocument document, IResource resource, String markerId, @Nullable String message,
+    @Nullable TextRangeDto textRange, ReusableMarkers reusableMarkers) {
     try {
-      var marker = resource.createMarker(markerId);
+      var attributes = new HashMap<String, Object>();
       if (message != null) {
-        marker.setAttribute(IMarker.MESSAGE, message);
+        attributes.put(IMarker.MESSAGE, message);
       }
       if (textRange == null) {
         // File level
-        marker.setAttribute(IMarker.LINE_NUMBER, 1);
+        attributes.put(IMarker.LINE_NUMBER, 1);
       } else {
-        marker.setAttribute(IMarker.LINE_NUMBER, textRange.getStartLine());
+        attributes.put(IMarker.LINE_NUMBER, textRange.getStartLine());
         var position = MarkerUtils.getPosition(document, textRange);
         if (position != null) {
-          marker.setAttribute(IMarker.CHAR_START, position.getOffset());
-          marker.setAttribute(IMarker.CHAR_END, position.getOffset() + position.getLength());
+          attributes.put(IMarker.CHAR_START, position.getOffset());
+          attributes.put(IMarker.CHAR_END, position.getOffset() + position.getLength());
         } else {
           SonarLintLogger.get().debug("Position cannot be set on resource '" + resource.getFullPath() + "'");
         }
       }
-      return Optional.of(marker);
+      var reused = reusableMarkers.take(markerId, attributes);
+      if (reused != null) {
+        return Optional.of(reused);
+      }
+      return Optional.of(createMarker(resource, markerId, attributes));
     } catch (Exception e) {
       SonarLintLogger.get().debug("Unable to create marker", e);
       return Optional.empty();
     }
   }
 
-  private static void createFlowMarkersForTaint(TaintVulnerabilityDto taintIssue, IMarker primaryLocationMarker, Map<ISonarLintProject, EclipseProjectBinding> bindingsPerProjects)
-    throws CoreException {
+  private static MarkerFlows createFlowMarkersForTaint(TaintVulnerabilityDto taintIssue, ISonarLintIssuable issuable,
+    Map<ISonarLintProject, EclipseProjectBinding> bindingsPerProjects, BatchDocuments documents) {
     var flows = new ArrayList<MarkerFlow>();
     var i = 1;
     for (var rpcFlow : taintIssue.getFlows()) {
@@ -459,7 +606,7 @@ public class SonarLintMarkerUpdater {
         }
         var file = locationFile.get();
         try {
-          var marker = createMarker(file, l);
+          var marker = createMarker(file, l, documents.getReferenced(file, issuable));
           if (marker != null) {
             flowLocation.setMarker(marker);
           } else {
@@ -471,12 +618,11 @@ public class SonarLintMarkerUpdater {
       }
       i++;
     }
-    primaryLocationMarker.setAttribute(MarkerUtils.SONAR_MARKER_EXTRA_LOCATIONS_ATTR, new MarkerFlows(flows));
+    return new MarkerFlows(flows);
   }
 
   @Nullable
-  private static IMarker createMarker(ISonarLintFile file, LocationDto l) throws BadLocationException, CoreException {
-    var document = file.getDocument();
+  private static IMarker createMarker(ISonarLintFile file, LocationDto l, IDocument document) throws BadLocationException, CoreException {
     var textRange = l.getTextRange();
     if (textRange != null) {
       return createMarkerIfCodeMatches(file, document, textRange, l);
@@ -486,10 +632,10 @@ public class SonarLintMarkerUpdater {
   }
 
   private static IMarker createFileLevelMarker(ISonarLintFile file, LocationDto l) throws CoreException {
-    var marker = file.getResource().createMarker(SonarLintCorePlugin.MARKER_TAINT_FLOW_ID);
-    marker.setAttribute(IMarker.MESSAGE, l.getMessage());
-    marker.setAttribute(IMarker.LINE_NUMBER, 1);
-    return marker;
+    var attributes = new HashMap<String, Object>();
+    attributes.put(IMarker.MESSAGE, l.getMessage());
+    attributes.put(IMarker.LINE_NUMBER, 1);
+    return createMarker(file.getResource(), SonarLintCorePlugin.MARKER_TAINT_FLOW_ID, attributes);
   }
 
   @Nullable
@@ -500,25 +646,35 @@ public class SonarLintMarkerUpdater {
     var inEditorCode = document.get(startOffset, endOffset - startOffset);
     var inEditorDigest = DigestUtils.digest(inEditorCode);
     if (inEditorDigest.equals(textRange.getHash())) {
-      var marker = file.getResource().createMarker(SonarLintCorePlugin.MARKER_TAINT_FLOW_ID);
-      marker.setAttribute(IMarker.MESSAGE, l.getMessage());
-      marker.setAttribute(IMarker.LINE_NUMBER, textRange.getStartLine());
+      var attributes = new HashMap<String, Object>();
+      attributes.put(IMarker.MESSAGE, l.getMessage());
+      attributes.put(IMarker.LINE_NUMBER, textRange.getStartLine());
       var flowPosition = MarkerUtils.getPosition(document, textRange);
       if (flowPosition != null) {
-        marker.setAttribute(IMarker.CHAR_START, flowPosition.getOffset());
-        marker.setAttribute(IMarker.CHAR_END, flowPosition.getOffset() + flowPosition.getLength());
+        attributes.put(IMarker.CHAR_START, flowPosition.getOffset());
+        attributes.put(IMarker.CHAR_END, flowPosition.getOffset() + flowPosition.getLength());
       } else {
         SonarLintLogger.get().debug("Position cannot be set for flow on '" + file.getProjectRelativePath() + "'");
       }
-      return marker;
+      return createMarker(file.getResource(), SonarLintCorePlugin.MARKER_TAINT_FLOW_ID, attributes);
     }
     return null;
   }
 
-  private static void setMarkerAttributeIfDifferent(IMarker marker, @Nullable Map<String, Object> existingAttributes, String attributeName, @Nullable Object value)
-    throws CoreException {
-    if (!Objects.equals(value, existingAttributes != null ? existingAttributes.get(attributeName) : null)) {
-      marker.setAttribute(attributeName, value);
+  /** Only the attributes that changed are written, all at once so that a single marker delta is created */
+  private static void setMarkerAttributesIfDifferent(IMarker marker, Map<String, Object> attributes) throws CoreException {
+    var existingAttributes = marker.getAttributes();
+    var names = new ArrayList<String>();
+    var values = new ArrayList<Object>();
+    for (var attribute : attributes.entrySet()) {
+      var value = attribute.getValue();
+      if (!Objects.equals(value, existingAttributes != null ? existingAttributes.get(attribute.getKey()) : null)) {
+        names.add(attribute.getKey());
+        values.add(value);
+      }
+    }
+    if (!names.isEmpty()) {
+      marker.setAttributes(names.toArray(new String[0]), values.toArray());
     }
   }
 
@@ -569,4 +725,69 @@ public class SonarLintMarkerUpdater {
   private static boolean shouldHidePreNewCodeTaintMarker(TaintVulnerabilityDto issue, final boolean issuesOnlyNewCode) {
     return issuesOnlyNewCode && !issue.isOnNewCode();
   }
+
+  /**
+   *  The flow and quick fix markers created for an issue by the previous analysis. Instead of creating new ones every
+   *  time an issue is raised again, the ones with the very same type and attributes are reused and only the remaining
+   *  ones are deleted afterwards. This way a re-analysis without changes neither creates nor deletes secondary markers.
+   */
+  private static class ReusableMarkers {
+    private static final ReusableMarkers NONE = new ReusableMarkers();
+
+    private final Map<String, Map<Map<String, Object>, ArrayDeque<IMarker>>> markersPerTypeAndAttributes = new HashMap<>();
+
+    private ReusableMarkers() {
+      // no markers to reuse for a new issue
+    }
+
+    private ReusableMarkers(IMarker primaryMarker) {
+      for (var marker : secondaryMarkersOf(primaryMarker)) {
+        try {
+          var attributes = marker.getAttributes();
+          markersPerTypeAndAttributes.computeIfAbsent(marker.getType(), k -> new HashMap<>())
+            .computeIfAbsent(attributes != null ? attributes : Map.of(), k -> new ArrayDeque<>())
+            .add(marker);
+        } catch (CoreException e) {
+          // The marker no longer exists, nothing to reuse
+        }
+      }
+    }
+
+    private static Set<IMarker> secondaryMarkersOf(IMarker primaryMarker) {
+      var markers = new HashSet<IMarker>();
+      MarkerUtils.getIssueFlows(primaryMarker).allLocationsAsStream()
+        .map(MarkerFlowLocation::getMarker)
+        .filter(Objects::nonNull)
+        .forEach(markers::add);
+      MarkerUtils.getIssueQuickFixes(primaryMarker).getQuickFixes().stream()
+        .flatMap(qf -> qf.getTextEdits().stream())
+        .map(MarkerTextEdit::getMarker)
+        .forEach(markers::add);
+      return markers;
+    }
+
+    @Nullable
+    private IMarker take(String markerId, Map<String, Object> attributes) {
+      var markersPerAttributes = markersPerTypeAndAttributes.get(markerId);
+      if (markersPerAttributes == null) {
+        return null;
+      }
+      var markers = markersPerAttributes.get(attributes);
+      while (markers != null && !markers.isEmpty()) {
+        var marker = markers.poll();
+        if (marker.exists()) {
+          return marker;
+        }
+      }
+      return null;
+    }
+
+    private void deleteUnused() {
+      markersPerTypeAndAttributes.values().stream()
+        .flatMap(markersPerAttributes -> markersPerAttributes.values().stream())
+        .flatMap(ArrayDeque::stream)
+        .forEach(SonarLintMarkerUpdater::deleteQuietly);
+      markersPerTypeAndAttributes.clear();
+    }
+  }
 }
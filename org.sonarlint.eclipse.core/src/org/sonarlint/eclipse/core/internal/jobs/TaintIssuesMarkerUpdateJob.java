@@ -36,6 +36,7 @@ import org.sonarlint.eclipse.core.resource.ISonarLintProject;
  *  {@link TaintIssuesUpdateOnFileOpenedJob}, because the information was just fetched!
  */
 public class TaintIssuesMarkerUpdateJob extends Job {
+  private final ISonarLintProject project;
   private final Collection<ISonarLintFile> issuables;
   private final ConnectionFacade engineFacade;
 
@@ -43,6 +44,7 @@ public class TaintIssuesMarkerUpdateJob extends Job {
     ISonarLintProject project,
     Collection<ISonarLintFile> issuables) {
     super("Refresh synced taint issues for " + project.getName());
+    this.project = project;
     this.engineFacade = engineFacade;
     setPriority(DECORATE);
     this.issuables = issuables;
@@ -55,13 +57,8 @@ public class TaintIssuesMarkerUpdateJob extends Job {
       var issuesIncludingResolved = SonarLintGlobalConfiguration.issuesIncludingResolved();
       var issuesOnlyNewCode = SonarLintGlobalConfiguration.issuesOnlyNewCode();
 
-      for (var issuable : issuables) {
-        if (monitor.isCanceled()) {
-          return Status.CANCEL_STATUS;
-        }
-        SonarLintMarkerUpdater.refreshMarkersForTaint(issuable, engineFacade, issuesIncludingResolved, issuesOnlyNewCode, monitor);
-      }
-      return Status.OK_STATUS;
+      SonarLintMarkerUpdater.refreshMarkersForTaint(project, issuables, engineFacade, issuesIncludingResolved, issuesOnlyNewCode, monitor);
+      return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
     } catch (Throwable t) {
       // note: without catching Throwable, any exceptions raised in the thread will not be visible
       SonarLintLogger.get().error("Error while refreshing synced taint issues", t);
@@ -20,6 +20,7 @@
 package org.sonarlint.eclipse.core.internal.jobs;
 
 import java.util.Collection;
+import java.util.stream.Collectors;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -37,6 +38,7 @@ import org.sonarlint.eclipse.core.resource.ISonarLintProject;
  *  {@link TaintIssuesUpdateOnFileOpenedJob}, where it was already fetched before!
  */
 public class TaintIssuesUpdateOnFileOpenedJob extends Job {
+  private final ISonarLintProject project;
   private final Collection<ISonarLintIssuable> issuables;
   private final ConnectionFacade engineFacade;
 
@@ -44,6 +46,7 @@ public class TaintIssuesUpdateOnFileOpenedJob extends Job {
     ISonarLintProject project,
     Collection<ISonarLintIssuable> issuables) {
     super("Fetch server taint issues for " + project.getName());
+    this.project = project;
     this.engineFacade = engineFacade;
     setPriority(DECORATE);
     this.issuables = issuables;
@@ -56,16 +59,12 @@ public class TaintIssuesUpdateOnFileOpenedJob extends Job {
       var issuesIncludingResolved = SonarLintGlobalConfiguration.issuesIncludingResolved();
       var issuesOnlyNewCode = SonarLintGlobalConfiguration.issuesOnlyNewCode();
 
-      for (var issuable : issuables) {
-        if (monitor.isCanceled()) {
-          return Status.CANCEL_STATUS;
-        }
-        if (issuable instanceof ISonarLintFile) {
-          var file = ((ISonarLintFile) issuable);
-          SonarLintMarkerUpdater.refreshMarkersForTaint(file, engineFacade, issuesIncludingResolved, issuesOnlyNewCode, monitor);
-        }
-      }
-      return Status.OK_STATUS;
+      var files = issuables.stream()
+        .filter(ISonarLintFile.class::isInstance)
+        .map(ISonarLintFile.class::cast)
+        .collect(Collectors.toList());
+      SonarLintMarkerUpdater.refreshMarkersForTaint(project, files, engineFacade, issuesIncludingResolved, issuesOnlyNewCode, monitor);
+      return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
     } catch (Throwable t) {
       // note: without catching Throwable, any exceptions raised in the thread will not be visible
       SonarLintLogger.get().error("Error while fetching server taint issues", t);
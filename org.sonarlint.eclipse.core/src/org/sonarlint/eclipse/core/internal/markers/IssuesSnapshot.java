@@ -0,0 +1,335 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.markers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  The on-the-fly markers are not persistent, therefore after a restart they only reappear once SLCORE is ready and
+ *  the files were analyzed again, which can take a while. To bridge that gap, a snapshot of the on-the-fly issues is
+ *  written on shutdown and restored right away on the next startup.
+ *
+ *  The snapshot is a compact binary file in the state location of the plug-in, containing the simple attributes of
+ *  the primary markers per file URI together with the modification time and length of the file, as hashing the
+ *  content of every file would slow down the shutdown. Only the markers of files that did not change in the meantime
+ *  are restored, and they are marked as provisional until an analysis of the file replaces them. Once a project is
+ *  ready for analysis, the provisional markers of the files not about to be analyzed are removed, as nothing would
+ *  confirm them. Provisional markers are not written to the snapshot again, so that issues never confirmed by an
+ *  analysis don't survive more than one restart. Flows and quick fixes are not part of the snapshot.
+ */
+public class IssuesSnapshot {
+  private static final String SNAPSHOT_FILENAME = "issues-snapshot.bin";
+  private static final int MAGIC = 0x534c4953;
+  private static final int VERSION = 2;
+
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_INTEGER = 1;
+  private static final byte TYPE_BOOLEAN = 2;
+
+  /** Whether any marker was restored, so that there are provisional markers to discard at all */
+  private static volatile boolean restoredAny;
+
+  private IssuesSnapshot() {
+    // utility class
+  }
+
+  private static Path getSnapshotPath() {
+    return SonarLintCorePlugin.getInstance().getStateLocation().toFile().toPath().resolve(SNAPSHOT_FILENAME);
+  }
+
+  /** Writes the current on-the-fly markers of all the files, called when shutting down */
+  public static void save() {
+    try {
+      var markersPerFile = new LinkedHashMap<IFile, List<Map<String, Object>>>();
+      var markers = ResourcesPlugin.getWorkspace().getRoot()
+        .findMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, false, IResource.DEPTH_INFINITE);
+      for (var marker : markers) {
+        var resource = marker.getResource();
+        var attributes = marker.getAttributes();
+        if (resource instanceof IFile && attributes != null
+          && !Boolean.TRUE.equals(attributes.get(MarkerUtils.SONAR_MARKER_PROVISIONAL_ATTR))) {
+          markersPerFile.computeIfAbsent((IFile) resource, f -> new ArrayList<>()).add(attributes);
+        }
+      }
+
+      var snapshots = new ArrayList<FileSnapshot>(markersPerFile.size());
+      for (var entry : markersPerFile.entrySet()) {
+        var file = entry.getKey();
+        var uri = file.getLocationURI();
+        var location = file.getLocation();
+        if (uri != null && location != null) {
+          var ioFile = location.toFile();
+          snapshots.add(new FileSnapshot(uri, ioFile.lastModified(), ioFile.length(), entry.getValue()));
+        }
+      }
+      write(getSnapshotPath(), snapshots);
+    } catch (CoreException | IOException | RuntimeException err) {
+      SonarLintLogger.get().debug("Unable to save the issues snapshot", err);
+    }
+  }
+
+  // Visible for testing
+  public static void write(Path snapshotPath, Collection<FileSnapshot> snapshots) throws IOException {
+    var tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+    try (var output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath))))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      for (var snapshot : snapshots) {
+        output.writeBoolean(true);
+        output.writeUTF(snapshot.uri.toString());
+        output.writeLong(snapshot.lastModified);
+        output.writeLong(snapshot.length);
+        output.writeInt(snapshot.markers.size());
+        for (var attributes : snapshot.markers) {
+          writeAttributes(output, attributes);
+        }
+      }
+      output.writeBoolean(false);
+    }
+    Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** @return the files of the snapshot, none when it was written by another version */
+  // Visible for testing
+  public static List<FileSnapshot> read(Path snapshotPath) throws IOException {
+    var snapshots = new ArrayList<FileSnapshot>();
+    try (var input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath))))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        return snapshots;
+      }
+      while (input.readBoolean()) {
+        var uri = URI.create(input.readUTF());
+        var lastModified = input.readLong();
+        var length = input.readLong();
+        var count = input.readInt();
+        var markers = new ArrayList<Map<String, Object>>(count);
+        for (var i = 0; i < count; i++) {
+          markers.add(readAttributes(input));
+        }
+        snapshots.add(new FileSnapshot(uri, lastModified, length, markers));
+      }
+    }
+    return snapshots;
+  }
+
+  /** Restores the markers of the files that did not change since the snapshot was written */
+  public static void restoreAsync() {
+    var snapshotPath = getSnapshotPath();
+    if (!Files.isRegularFile(snapshotPath)) {
+      return;
+    }
+    var job = new WorkspaceJob("Restore SonarLint issues") {
+      @Override
+      public IStatus runInWorkspace(IProgressMonitor monitor) {
+        restore(snapshotPath, monitor);
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.setPriority(Job.SHORT);
+    job.schedule();
+  }
+
+  private static void restore(Path snapshotPath, IProgressMonitor monitor) {
+    var restored = 0;
+    try {
+      var root = ResourcesPlugin.getWorkspace().getRoot();
+      for (var snapshot : read(snapshotPath)) {
+        if (monitor.isCanceled()) {
+          break;
+        }
+        for (var file : root.findFilesForLocationURI(snapshot.uri)) {
+          if (file.isAccessible() && snapshot.isUnchanged(file) && restore(file, snapshot.markers)) {
+            restored += snapshot.markers.size();
+          }
+        }
+      }
+    } catch (CoreException | IOException | RuntimeException err) {
+      SonarLintLogger.get().debug("Unable to restore the issues snapshot", err);
+    }
+    if (restored > 0) {
+      restoredAny = true;
+      SonarLintLogger.get().debug("Restored " + restored + " provisional issue(s) from the last session");
+    }
+  }
+
+  /** Markers are only restored when no analysis created some in the meantime */
+  private static boolean restore(IFile file, List<Map<String, Object>> markers) throws CoreException {
+    var created = new boolean[1];
+    ResourcesPlugin.getWorkspace().run(m -> {
+      if (file.findMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, false, IResource.DEPTH_ZERO).length > 0) {
+        return;
+      }
+      for (var attributes : markers) {
+        var marker = file.createMarker(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID);
+        attributes.put(MarkerUtils.SONAR_MARKER_PROVISIONAL_ATTR, Boolean.TRUE);
+        marker.setAttributes(attributes);
+      }
+      created[0] = true;
+    }, file, IResource.NONE, null);
+    return created[0];
+  }
+
+  /**
+   *  Removes the provisional markers of the files of a project that just got ready for analysis, except the ones of the
+   *  files about to be analyzed, which are replaced by the analysis.
+   */
+  public static void discardProvisionalMarkersAsync(ISonarLintProject project, Collection<ISonarLintFile> analyzedFiles) {
+    if (!restoredAny) {
+      return;
+    }
+    var keptResources = analyzedFiles.stream().map(ISonarLintFile::getResource).collect(Collectors.toCollection(HashSet::new));
+    var job = new WorkspaceJob("Discard provisional SonarLint issues") {
+      @Override
+      public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+        if (!project.isOpen()) {
+          return Status.OK_STATUS;
+        }
+        for (var marker : project.getResource().findMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, false, IResource.DEPTH_INFINITE)) {
+          if (marker.getAttribute(MarkerUtils.SONAR_MARKER_PROVISIONAL_ATTR, false)
+            && !keptResources.contains(marker.getResource())) {
+            marker.delete();
+          }
+        }
+        return Status.OK_STATUS;
+      }
+    };
+    job.setRule(project.getResource());
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  /** Only the simple attributes are written, the others (e.g. flows) are recreated by the analysis */
+  private static void writeAttributes(DataOutputStream output, Map<String, Object> attributes) throws IOException {
+    var simpleAttributes = new HashMap<String, Object>();
+    attributes.forEach((key, value) -> {
+      if (value instanceof String || value instanceof Integer || value instanceof Boolean) {
+        simpleAttributes.put(key, value);
+      }
+    });
+    output.writeInt(simpleAttributes.size());
+    for (var attribute : simpleAttributes.entrySet()) {
+      output.writeUTF(attribute.getKey());
+      var value = attribute.getValue();
+      if (value instanceof String) {
+        output.writeByte(TYPE_STRING);
+        // Not using "writeUTF" as it is limited to 64k bytes, which a message could exceed
+        var bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      } else if (value instanceof Integer) {
+        output.writeByte(TYPE_INTEGER);
+        output.writeInt((Integer) value);
+      } else {
+        output.writeByte(TYPE_BOOLEAN);
+        output.writeBoolean((Boolean) value);
+      }
+    }
+  }
+
+  private static Map<String, Object> readAttributes(DataInputStream input) throws IOException {
+    var count = input.readInt();
+    var attributes = new HashMap<String, Object>(count * 2);
+    for (var i = 0; i < count; i++) {
+      var key = input.readUTF();
+      var type = input.readByte();
+      switch (type) {
+        case TYPE_STRING:
+          var bytes = new byte[input.readInt()];
+          input.readFully(bytes);
+          attributes.put(key, new String(bytes, StandardCharsets.UTF_8));
+          break;
+        case TYPE_INTEGER:
+          attributes.put(key, input.readInt());
+          break;
+        case TYPE_BOOLEAN:
+          attributes.put(key, input.readBoolean());
+          break;
+        default:
+          throw new IOException("Unknown attribute type: " + type);
+      }
+    }
+    return attributes;
+  }
+
+  /** The primary markers of a file, with what is needed for checking that it did not change since */
+  public static class FileSnapshot {
+    private final URI uri;
+    private final long lastModified;
+    private final long length;
+    private final List<Map<String, Object>> markers;
+
+    public FileSnapshot(URI uri, long lastModified, long length, List<Map<String, Object>> markers) {
+      this.uri = uri;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.markers = markers;
+    }
+
+    public URI getUri() {
+      return uri;
+    }
+
+    public List<Map<String, Object>> getMarkers() {
+      return markers;
+    }
+
+    private boolean isUnchanged(IFile file) {
+      var location = file.getLocation();
+      if (location == null) {
+        return false;
+      }
+      var ioFile = location.toFile();
+      return ioFile.lastModified() == lastModified && ioFile.length() == length;
+    }
+  }
+}
@@ -28,8 +28,8 @@ import java.util.UUID;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import org.eclipse.core.resources.IMarker;
-import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.annotation.Nullable;
@@ -74,6 +74,9 @@ public final class MarkerUtils {
   // anticipated issues as resolved.
   public static final String SONAR_MARKER_ANTICIPATED_ISSUE_ATTR = "anticipatedIssue";
 
+  // Indicates a marker was restored from the issues snapshot on startup and not yet confirmed by an analysis
+  public static final String SONAR_MARKER_PROVISIONAL_ATTR = "provisional";
+
   public static final Set<String> SONARLINT_PRIMARY_MARKER_IDS = Set.of(
     SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, SonarLintCorePlugin.MARKER_REPORT_ID, SonarLintCorePlugin.MARKER_TAINT_ID);
 
@@ -87,14 +90,17 @@ public final class MarkerUtils {
   private MarkerUtils() {
   }
 
+  /** All the markers are updated in one workspace operation, only the ones with a different severity are touched */
   public static void updateAllSonarMarkerSeverity() throws CoreException {
-    for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
-      if (project.isAccessible()) {
-        for (IMarker marker : project.findMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, true, IResource.DEPTH_INFINITE)) {
-          marker.setAttribute(IMarker.SEVERITY, SonarLintGlobalConfiguration.getMarkerSeverity());
+    var workspace = ResourcesPlugin.getWorkspace();
+    var severity = SonarLintGlobalConfiguration.getMarkerSeverity();
+    workspace.run(m -> {
+      for (var marker : workspace.getRoot().findMarkers(SonarLintCorePlugin.MARKER_ON_THE_FLY_ID, true, IResource.DEPTH_INFINITE)) {
+        if (marker.getAttribute(IMarker.SEVERITY, -1) != severity) {
+          marker.setAttribute(IMarker.SEVERITY, severity);
         }
       }
-    }
+    }, null, IWorkspace.AVOID_UPDATE, null);
   }
 
   @Nullable
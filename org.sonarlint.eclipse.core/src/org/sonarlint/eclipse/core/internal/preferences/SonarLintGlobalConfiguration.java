@@ -77,6 +77,7 @@ public class SonarLintGlobalConfiguration {
   public static final int PREF_MARKER_SEVERITY_DEFAULT = IMarker.SEVERITY_INFO;
   public static final String PREF_ISSUE_INCLUDE_RESOLVED = "allIssuesIncludingResolved"; //$NON-NLS-1$
   public static final String PREF_ISSUE_ONLY_NEW_CODE = "onlyIssuesNewCode"; //$NON-NLS-1$
+  public static final String PREF_ANALYZE_WHILE_TYPING = "analyzeWhileTyping"; //$NON-NLS-1$
   public static final String PREF_EXTRA_ARGS = "extraArgs"; //$NON-NLS-1$
   public static final String PREF_FILE_EXCLUSIONS = "fileExclusions"; //$NON-NLS-1$
   public static final String PREF_RULES_CONFIG = "rulesConfig"; //$NON-NLS-1$
@@ -171,6 +172,10 @@ public class SonarLintGlobalConfiguration {
     return getPreferenceBoolean(PREF_ISSUE_ONLY_NEW_CODE);
   }
 
+  public static boolean analyzeWhileTyping() {
+    return getPreferenceBoolean(PREF_ANALYZE_WHILE_TYPING);
+  }
+
   public static int getMarkerSeverity() {
     return Platform.getPreferencesService().getInt(SonarLintCorePlugin.UI_PLUGIN_ID, PREF_MARKER_SEVERITY, PREF_MARKER_SEVERITY_DEFAULT, null);
   }
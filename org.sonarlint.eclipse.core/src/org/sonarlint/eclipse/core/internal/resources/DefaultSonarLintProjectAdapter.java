@@ -22,17 +22,14 @@ package org.sonarlint.eclipse.core.internal.resources;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.team.core.RepositoryProvider;
 import org.eclipse.team.core.TeamException;
@@ -41,10 +38,11 @@ import org.eclipse.team.core.synchronize.SyncInfo;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
 import org.sonarlint.eclipse.core.internal.backend.FileSystemSynchronizer;
-import org.sonarlint.eclipse.core.internal.cache.DefaultSonarLintProjectAdapterCache;
 import org.sonarlint.eclipse.core.internal.cache.IProjectScopeProviderCache;
-import org.sonarlint.eclipse.core.internal.extension.SonarLintExtensionTracker;
+import org.sonarlint.eclipse.core.internal.utils.PathClassifier;
+import org.sonarlint.eclipse.core.internal.utils.PathPrefixMatcher;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
+import org.sonarlint.eclipse.core.internal.vcs.VcsService;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
@@ -83,16 +81,17 @@ public class DefaultSonarLintProjectAdapter implements ISonarLintProject {
     return project;
   }
 
+  /**
+   *  The files are provided by the {@link ProjectFilesIndex} of the project which is only built (or loaded) once and
+   *  then kept up-to-date based on the resource changes.
+   */
   @Override
   public Collection<ISonarLintFile> files() {
-    var configScopeId = getConfigScopeId();
-
-    var cachedFiles = DefaultSonarLintProjectAdapterCache.INSTANCE.getEntry(configScopeId);
-    if (cachedFiles != null) {
-      return cachedFiles;
-    }
+    return ProjectFilesIndexManager.INSTANCE.getFiles(this, IProjectScopeProviderCache.INSTANCE.getExclusions(this));
+  }
 
-    var exclusions = getExclusions(configScopeId);
+  /** Walks the whole project, this is only used for building the {@link ProjectFilesIndex} */
+  Collection<ISonarLintFile> collectFiles(PathPrefixMatcher exclusions) {
     var result = new ArrayList<ISonarLintFile>();
     try {
       project.accept(new IResourceVisitor() {
@@ -102,17 +101,15 @@ public class DefaultSonarLintProjectAdapter implements ISonarLintProject {
 
           // Immediately rule out files in the VCS and files related to Node.js "metadata" / storage or Python virtual
           // environments. We don't care for these ones no matter if removed, changed, or added!
-          // INFO: We also exclude buggy Eclipse PDE files!
-          if (SonarLintUtils.insideVCSFolder(fullPath)
-            || SonarLintUtils.isNodeJsRelated(fullPath)
-            || SonarLintUtils.isPythonRelated(fullPath)
-            || SonarLintUtils.isIncorrectEclipsePDE(fullPath)) {
+          // INFO: We also exclude buggy Eclipse PDE files and the directories ignored by the user! For containers the
+          //       whole sub-tree is skipped instead of checking every child.
+          if (PathClassifier.shouldSkip(fullPath, resource.getType() != IResource.FILE)) {
             return false;
           }
 
           // Compared to "FileSystemSynchronizer#visitDeltaPostChange" this is on all files and folders and not only
-          // the delta. Therefore we can check for a folder whether its "whole" path is in there!
-          if (exclusions.contains(fullPath)) {
+          // the delta. Therefore excluded folders are not visited at all!
+          if (exclusions.matches(fullPath)) {
             return false;
           }
 
@@ -127,7 +124,7 @@ public class DefaultSonarLintProjectAdapter implements ISonarLintProject {
             return false;
           }
           var sonarLintFile = SonarLintUtils.adapt(resource, ISonarLintFile.class,
-            "[DefaultSonarLintProjectAdapter#files] Try get file of resource '" + resource + "'");
+            "[DefaultSonarLintProjectAdapter#collectFiles] Try get file of resource '" + resource + "'");
           if (sonarLintFile != null) {
             if (!SonarLintUtils.hasSupportedCharset(sonarLintFile)) {
               return false;
@@ -141,41 +138,28 @@ public class DefaultSonarLintProjectAdapter implements ISonarLintProject {
     } catch (CoreException e) {
       SonarLintLogger.get().error("Error collecting files in project " + project.getName(), e);
     }
-
-    DefaultSonarLintProjectAdapterCache.INSTANCE.putEntry(getConfigScopeId(), result);
     return result;
   }
 
-  /**
-   *  When the user has opted out of using Eclipse plug-ins for the indexing and exclusions, we don't call the
-   *  extension points to get them and skip the whole process.
-   *
-   *  Otherwise, we try to load it from the cache first and if that is not possible, we access the extension points!
-   *
-   *  @param configScopeId used in the cache as a key
-   *  @return based on the user decision to opt out or not, no exclusions or the ones coming from the extension points
-   */
-  private Set<IPath> getExclusions(String configScopeId) {
-    Set<IPath> exclusions;
-    if (SonarLintCorePlugin.loadConfig(this).isIndexingBasedOnEclipsePlugIns()) {
-      exclusions = IProjectScopeProviderCache.INSTANCE.getEntry(configScopeId);
-      if (exclusions == null) {
-        exclusions = new HashSet<>();
-        for (var projectScopeProvider : SonarLintExtensionTracker.getInstance().getProjectScopeProviders()) {
-          exclusions.addAll(projectScopeProvider.getExclusions(project));
+  public Collection<ISonarLintFile> getScmChangedFiles(IProgressMonitor monitor) {
+    var result = new ArrayList<ISonarLintFile>();
+
+    // Asking Git directly is a lot faster than refreshing the subscriber, and doesn't require a Team provider
+    var changedPaths = VcsService.getChangedFiles(this);
+    if (changedPaths.isPresent()) {
+      for (var path : changedPaths.get()) {
+        var file = project.getFile(path);
+        if (file.exists() && SonarLintUtils.isSonarLintFileCandidate(file)) {
+          var sonarLintFile = SonarLintUtils.adapt(file, ISonarLintFile.class,
+            "[DefaultSonarLintProjectAdapter#getScmChangedFiles] Try get file of Eclipse file '" + file + "'");
+          if (sonarLintFile != null) {
+            result.add(sonarLintFile);
+          }
         }
-        IProjectScopeProviderCache.INSTANCE.putEntry(configScopeId, exclusions);
       }
-    } else {
-      SonarLintLogger.get().traceIdeMessage("[DefaultSonarLintProjectAdapter#files] No exclusions calculated as '"
-        + this.getName() + "' opted out of indexing based on other Eclipse plug-ins!");
-      exclusions = new HashSet<>();
+      return result;
     }
-    return exclusions;
-  }
 
-  public Collection<ISonarLintFile> getScmChangedFiles(IProgressMonitor monitor) {
-    var result = new ArrayList<ISonarLintFile>();
     var provider = RepositoryProvider.getProvider(project);
     if (provider == null) {
       SonarLintLogger.get().debug("Project " + project.getName() + " doesn't have any RepositoryProvider");
@@ -246,9 +230,4 @@ public class DefaultSonarLintProjectAdapter implements ISonarLintProject {
     var other = (DefaultSonarLintProjectAdapter) obj;
     return Objects.equals(project, other.project);
   }
-
-  // Because we are "inside" of our implementation of ISonarLintProject, we don't access ConfigScopeSynchronizer!
-  private String getConfigScopeId() {
-    return getResource().getLocationURI().toString();
-  }
 }
@@ -0,0 +1,448 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.resources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.backend.FileSystemSynchronizer;
+import org.sonarlint.eclipse.core.internal.utils.PathClassifier;
+import org.sonarlint.eclipse.core.internal.utils.PathPrefixMatcher;
+import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+
+/**
+ *  Index of all the files of one project that are relevant for SonarLint, replacing the full walk over the project
+ *  tree done every time {@link DefaultSonarLintProjectAdapter#files()} was called with a cold cache.
+ *
+ *  The index is built once (either by walking the project or by loading the file persisted in the project working
+ *  directory on the last workspace save) and then kept up-to-date in place from the resource deltas visited by the
+ *  {@link ProjectFilesIndexManager}. Every modification increases the version, so consumers can check whether their
+ *  view on the index is still current.
+ *
+ *  Changes happening before the index is built, or while it is being built, are recorded as pending changes of this
+ *  build attempt. They are applied to the files walked (or loaded) at the very moment the built index is published,
+ *  so that no change is lost in between.
+ *
+ *  When the exclusions coming from the {@link org.sonarlint.eclipse.core.resource.IProjectScopeProvider} change, the
+ *  index is built again as it is not possible to know which files were affected by the change.
+ */
+public class ProjectFilesIndex {
+  static final String INDEX_FILE_NAME = "files.index";
+  private static final int FORMAT_VERSION = 1;
+  /** When that many changes happen while walking the project, it is walked again instead of applying them */
+  private static final int MAX_WALK_ATTEMPTS = 3;
+
+  private final DefaultSonarLintProjectAdapter project;
+  private final Object changesLock = new Object();
+  private final AtomicLong version = new AtomicLong();
+  private volatile Map<String, ISonarLintFile> filesByRelativePath = new ConcurrentHashMap<>();
+
+  /** The exclusions the index was built with, null as long as the index was not built (or loaded) */
+  @Nullable
+  private volatile PathPrefixMatcher exclusions;
+  /**
+   *  Changes of the current build attempt, null once the index is built. Before the index is built the first time,
+   *  these are all the changes since the persisted index was written.
+   */
+  @Nullable
+  private PendingChanges pendingChanges = new PendingChanges();
+  /** Changes that cannot be applied file by file (e.g. a folder no longer derived), the project is walked again */
+  private volatile boolean invalidated;
+  private volatile boolean dirty;
+
+  // Visible for testing
+  public ProjectFilesIndex(DefaultSonarLintProjectAdapter project) {
+    this.project = project;
+  }
+
+  /** Increases with every modification of the index, starting from 0 before the index was built */
+  public long getVersion() {
+    return version.get();
+  }
+
+  public boolean isBuilt() {
+    return exclusions != null;
+  }
+
+  /**
+   *  Get the files of the index, building (or loading) it first when it was not yet built, the exclusions changed
+   *  or it was invalidated in between.
+   *
+   *  @param currentExclusions exclusions based on the {@link org.sonarlint.eclipse.core.resource.IProjectScopeProvider}
+   *  @param persistedSaveNumber number of the last workspace save the persisted index must match, -1 if none
+   *  @return a snapshot of the indexed files
+   */
+  // Visible for testing
+  public Collection<ISonarLintFile> getFiles(PathPrefixMatcher currentExclusions, int persistedSaveNumber) {
+    if (invalidated || !currentExclusions.equals(exclusions)) {
+      synchronized (this) {
+        if (invalidated || !currentExclusions.equals(exclusions)) {
+          build(currentExclusions, persistedSaveNumber);
+        }
+      }
+    }
+    return List.copyOf(filesByRelativePath.values());
+  }
+
+  /**
+   *  Called for a file added to the project, or a file whose encoding or derived flag changed. It is checked again
+   *  against all the filters, and added or removed from the index accordingly.
+   */
+  public void fileChanged(IFile file) {
+    var relativePath = file.getProjectRelativePath();
+    synchronized (changesLock) {
+      var changes = pendingChanges;
+      if (changes != null) {
+        changes.fileAdded(relativePath);
+      }
+      var currentExclusions = exclusions;
+      if (currentExclusions != null && refresh(filesByRelativePath, relativePath, currentExclusions)) {
+        modified();
+      }
+    }
+  }
+
+  /** Called for a file removed from the project */
+  public void fileRemoved(IPath projectRelativePath) {
+    synchronized (changesLock) {
+      var changes = pendingChanges;
+      if (changes != null) {
+        changes.fileRemoved(projectRelativePath);
+      }
+      if (isBuilt() && filesByRelativePath.remove(projectRelativePath.toString()) != null) {
+        modified();
+      }
+    }
+  }
+
+  /** The files affected by a change are unknown, therefore the project will be walked again on the next access */
+  public void invalidate() {
+    invalidated = true;
+  }
+
+  private void modified() {
+    version.incrementAndGet();
+    dirty = true;
+  }
+
+  private void build(PathPrefixMatcher currentExclusions, int persistedSaveNumber) {
+    boolean canLoad;
+    synchronized (changesLock) {
+      // An invalidation happening from now on is not necessarily seen by the walk, and leads to another one
+      var changes = pendingChanges;
+      canLoad = !isBuilt() && !invalidated && changes != null && !changes.isOverflown();
+      invalidated = false;
+      if (!canLoad) {
+        // Only the changes happening while walking the project are relevant, the walk sees all the previous ones
+        pendingChanges = new PendingChanges();
+      }
+    }
+
+    if (canLoad) {
+      var startTime = System.currentTimeMillis();
+      var loaded = tryLoad(currentExclusions, persistedSaveNumber);
+      if (loaded != null && publish(loaded, currentExclusions, false, false)) {
+        SonarLintLogger.get().debug("Loaded files index of project '" + project.getName() + "' with "
+          + loaded.size() + " files in " + (System.currentTimeMillis() - startTime) + "ms");
+        return;
+      }
+      synchronized (changesLock) {
+        pendingChanges = new PendingChanges();
+      }
+    }
+
+    for (var attempt = 1;; attempt++) {
+      var startTime = System.currentTimeMillis();
+      var walked = new ConcurrentHashMap<String, ISonarLintFile>();
+      for (var file : project.collectFiles(currentExclusions)) {
+        walked.put(file.getProjectRelativePath(), file);
+      }
+      if (publish(walked, currentExclusions, true, attempt == MAX_WALK_ATTEMPTS)) {
+        SonarLintLogger.get().debug("Indexed " + walked.size() + " files of project '" + project.getName() + "' in "
+          + (System.currentTimeMillis() - startTime) + "ms");
+        return;
+      }
+    }
+  }
+
+  /**
+   *  Applies the changes recorded while building the index and publishes it, atomically with recording new changes.
+   *
+   *  @param walked whether the files were walked, otherwise they were loaded and the index only has to be written
+   *         again when changes were applied
+   *  @param force publish even when too many changes were recorded to be applied
+   *  @return false when too many changes were recorded and the index was not published
+   */
+  private boolean publish(Map<String, ISonarLintFile> files, PathPrefixMatcher currentExclusions, boolean walked, boolean force) {
+    synchronized (changesLock) {
+      var changes = pendingChanges;
+      if (changes == null) {
+        changes = new PendingChanges();
+      } else if (changes.isOverflown() && !force) {
+        pendingChanges = new PendingChanges();
+        return false;
+      }
+      for (var removed : changes.getRemoved()) {
+        files.remove(removed.toString());
+      }
+      for (var added : changes.getAdded()) {
+        refresh(files, added, currentExclusions);
+      }
+      filesByRelativePath = files;
+      exclusions = currentExclusions;
+      pendingChanges = null;
+      version.incrementAndGet();
+      dirty = walked || !changes.isEmpty();
+      return true;
+    }
+  }
+
+  /** @return whether the file was added or removed from the given files */
+  private boolean refresh(Map<String, ISonarLintFile> files, IPath relativePath, PathPrefixMatcher currentExclusions) {
+    var file = toIndexedFile(((IProject) project.getResource()).getFile(relativePath), currentExclusions);
+    if (file == null) {
+      return files.remove(relativePath.toString()) != null;
+    }
+    return files.put(file.getProjectRelativePath(), file) == null;
+  }
+
+  /**
+   *  Try loading the index persisted on the last workspace save. The file is only accepted when it was written on the
+   *  very same save the workspace was restored from and with the same exclusions. The changes that happened since are
+   *  applied on top of it when publishing.
+   */
+  @Nullable
+  private Map<String, ISonarLintFile> tryLoad(PathPrefixMatcher currentExclusions, int persistedSaveNumber) {
+    if (persistedSaveNumber < 0) {
+      return null;
+    }
+    var indexFile = getIndexFile();
+    if (!Files.isRegularFile(indexFile)) {
+      return null;
+    }
+
+    var eclipseProject = (IProject) project.getResource();
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != FORMAT_VERSION || in.readInt() != persistedSaveNumber) {
+        return null;
+      }
+      var exclusionsCount = in.readInt();
+      var persistedExclusions = new HashSet<IPath>(exclusionsCount);
+      for (var i = 0; i < exclusionsCount; i++) {
+        persistedExclusions.add(org.eclipse.core.runtime.Path.fromPortableString(in.readUTF()));
+      }
+      if (!persistedExclusions.equals(currentExclusions.getPaths())) {
+        return null;
+      }
+
+      var files = new ConcurrentHashMap<String, ISonarLintFile>();
+      var filesCount = in.readInt();
+      for (var i = 0; i < filesCount; i++) {
+        var relativePath = in.readUTF();
+        // Persisted files already passed all the filters, only make sure they (still) exist
+        var file = adapt(eclipseProject.getFile(relativePath));
+        if (file != null) {
+          files.put(relativePath, file);
+        }
+      }
+      return files;
+    } catch (IOException | RuntimeException err) {
+      SonarLintLogger.get().debug("Unable to load the files index of project '" + project.getName() + "'", err);
+      return null;
+    }
+  }
+
+  /**
+   *  Persist the index in the project working directory, only done when there were changes since it was loaded or
+   *  persisted the last time. Writing to a temporary file first prevents half-written files on crashes.
+   */
+  // Visible for testing
+  public synchronized void save(int saveNumber) {
+    var currentExclusions = exclusions;
+    if (currentExclusions == null) {
+      return;
+    }
+
+    var indexFile = getIndexFile();
+    if (!dirty && Files.isRegularFile(indexFile)) {
+      // Content is unchanged, only the save number has to be bumped
+      try {
+        touch(indexFile, saveNumber);
+        return;
+      } catch (IOException err) {
+        SonarLintLogger.get().debug("Unable to update the files index of project '" + project.getName() + "'", err);
+      }
+    }
+
+    try {
+      Files.createDirectories(indexFile.getParent());
+      var tempFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(saveNumber);
+        var exclusionPaths = currentExclusions.getPaths();
+        out.writeInt(exclusionPaths.size());
+        for (var exclusion : exclusionPaths) {
+          out.writeUTF(exclusion.toPortableString());
+        }
+        var relativePaths = List.copyOf(filesByRelativePath.keySet());
+        out.writeInt(relativePaths.size());
+        for (var relativePath : relativePaths) {
+          out.writeUTF(relativePath);
+        }
+      }
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+      dirty = false;
+    } catch (IOException err) {
+      SonarLintLogger.get().debug("Unable to persist the files index of project '" + project.getName() + "'", err);
+    }
+  }
+
+  /** The save number is the second integer after the format version, therefore it can be overwritten in place */
+  private static void touch(Path indexFile, int saveNumber) throws IOException {
+    try (var channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+      var buffer = ByteBuffer.allocate(Integer.BYTES).putInt(saveNumber);
+      buffer.flip();
+      channel.write(buffer, Integer.BYTES);
+    }
+  }
+
+  private Path getIndexFile() {
+    return project.getWorkingDir().resolve(INDEX_FILE_NAME);
+  }
+
+  /**
+   *  Same rules as applied when walking the project in {@link DefaultSonarLintProjectAdapter#collectFiles(PathPrefixMatcher)}, but
+   *  for a single file. Used when files are added or changed.
+   */
+  @Nullable
+  private static ISonarLintFile toIndexedFile(IFile file, PathPrefixMatcher exclusions) {
+    var fullPath = file.getFullPath();
+    if (PathClassifier.shouldSkip(fullPath, false)
+      || insideHiddenFolder(file.getProjectRelativePath())
+      || exclusions.matches(fullPath)
+      || !SonarLintUtils.isSonarLintFileCandidate(file)) {
+      return null;
+    }
+
+    return adapt(file);
+  }
+
+  @Nullable
+  private static ISonarLintFile adapt(IFile file) {
+    if (!file.exists()) {
+      return null;
+    }
+    var sonarLintFile = SonarLintUtils.adapt(file, ISonarLintFile.class,
+      "[ProjectFilesIndex#adapt] Try get file of resource '" + file + "'");
+    if (sonarLintFile == null || !SonarLintUtils.hasSupportedCharset(sonarLintFile)) {
+      return null;
+    }
+    return sonarLintFile;
+  }
+
+  /**
+   *  The walk over the project doesn't descend into folders starting with a dot (e.g. ".settings"), except for the
+   *  one containing the shared Connected Mode configuration files. The resource deltas contain them nonetheless.
+   */
+  static boolean insideHiddenFolder(IPath projectRelativePath) {
+    for (var i = 0; i < projectRelativePath.segmentCount() - 1; i++) {
+      var segment = projectRelativePath.segment(i);
+      if (segment.startsWith(".") && !FileSystemSynchronizer.SONARLINT_FOLDER.equals(segment)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   *  Files added, changed or removed from a project while its index is not built. They will be applied on top of the
+   *  files walked or loaded once the index is published. When there are too many changes, the project is just walked
+   *  again.
+   */
+  static class PendingChanges {
+    private static final int MAX_PENDING_CHANGES = 10_000;
+
+    private final Set<IPath> added = new HashSet<>();
+    private final Set<IPath> removed = new HashSet<>();
+    private boolean overflown;
+
+    synchronized void fileAdded(IPath projectRelativePath) {
+      removed.remove(projectRelativePath);
+      added.add(projectRelativePath);
+      checkOverflow();
+    }
+
+    synchronized void fileRemoved(IPath projectRelativePath) {
+      added.remove(projectRelativePath);
+      removed.add(projectRelativePath);
+      checkOverflow();
+    }
+
+    synchronized void markOverflown() {
+      overflown = true;
+      added.clear();
+      removed.clear();
+    }
+
+    private void checkOverflow() {
+      if (added.size() + removed.size() > MAX_PENDING_CHANGES) {
+        markOverflown();
+      }
+    }
+
+    synchronized boolean isOverflown() {
+      return overflown;
+    }
+
+    synchronized boolean isEmpty() {
+      return added.isEmpty() && removed.isEmpty();
+    }
+
+    synchronized Set<IPath> getAdded() {
+      return Set.copyOf(added);
+    }
+
+    synchronized Set<IPath> getRemoved() {
+      return Set.copyOf(removed);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.resources;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
+import org.sonarlint.eclipse.core.internal.utils.PathClassifier;
+import org.sonarlint.eclipse.core.internal.utils.PathPrefixMatcher;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+
+/**
+ *  Keeps the {@link ProjectFilesIndex} of all the projects and takes care of their lifecycle:
+ *
+ *  - indexes are persisted on full workspace saves (as a save participant) and tagged with the save number
+ *  - on startup, the resource changes since the last save are replayed and kept as pending changes per project, so
+ *    that the persisted index can be loaded and corrected instead of walking the whole project again
+ *  - all the following resource changes are passed to the indexes, whether they are built or not
+ *  - indexes are dropped when projects are closed or removed
+ *
+ *  This is the only resource change listener updating the indexes, and it is notified synchronously. Therefore the
+ *  changes are passed to an index in order, and none is missed while its build attempt is published.
+ */
+public class ProjectFilesIndexManager implements ISaveParticipant, IResourceChangeListener {
+  public static final ProjectFilesIndexManager INSTANCE = new ProjectFilesIndexManager();
+
+  private final ConcurrentHashMap<IProject, ProjectFilesIndex> indexes = new ConcurrentHashMap<>();
+  private volatile int lastSaveNumber = -1;
+
+  private ProjectFilesIndexManager() {
+    // singleton
+  }
+
+  public void init() {
+    try {
+      var lastState = ResourcesPlugin.getWorkspace().addSaveParticipant(SonarLintCorePlugin.PLUGIN_ID, this);
+      if (lastState != null) {
+        lastSaveNumber = lastState.getSaveNumber();
+        lastState.processResourceChangeEvents(this);
+      }
+    } catch (CoreException err) {
+      SonarLintLogger.get().error("Unable to restore the state of the project files indexes", err);
+    }
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+  }
+
+  public void stop() {
+    ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+    ResourcesPlugin.getWorkspace().removeSaveParticipant(SonarLintCorePlugin.PLUGIN_ID);
+    indexes.clear();
+  }
+
+  Collection<ISonarLintFile> getFiles(DefaultSonarLintProjectAdapter project, PathPrefixMatcher exclusions) {
+    var eclipseProject = (IProject) project.getResource();
+    return indexes.computeIfAbsent(eclipseProject, p -> new ProjectFilesIndex(project)).getFiles(exclusions, lastSaveNumber);
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    var delta = event.getDelta();
+    if (delta == null) {
+      return;
+    }
+    for (var projectDelta : delta.getAffectedChildren()) {
+      var project = projectDelta.getResource().getProject();
+      if (projectDelta.getKind() == IResourceDelta.REMOVED
+        || ((projectDelta.getFlags() & IResourceDelta.OPEN) != 0 && !project.isOpen())) {
+        indexes.remove(project);
+        continue;
+      }
+      if (!project.isOpen()) {
+        continue;
+      }
+      var index = indexes.computeIfAbsent(project, p -> new ProjectFilesIndex(new DefaultSonarLintProjectAdapter(p)));
+      try {
+        projectDelta.accept(fileDelta -> visitDelta(index, fileDelta));
+      } catch (CoreException err) {
+        index.invalidate();
+      }
+    }
+  }
+
+  private static boolean visitDelta(ProjectFilesIndex index, IResourceDelta delta) {
+    var resource = delta.getResource();
+    if (PathClassifier.shouldSkip(resource.getFullPath(), resource.getType() != IResource.FILE)) {
+      return false;
+    }
+    var flags = delta.getFlags();
+    if (resource.getType() != IResource.FILE) {
+      if (delta.getKind() == IResourceDelta.CHANGED && (flags & (IResourceDelta.DERIVED_CHANGED | IResourceDelta.ENCODING)) != 0) {
+        // The files inside are affected as well, but they are not part of the delta
+        index.invalidate();
+        return false;
+      }
+      return true;
+    }
+
+    // INFO: Becoming hidden doesn't produce any delta, files created hidden are filtered out when added
+    if (delta.getKind() == IResourceDelta.REMOVED) {
+      index.fileRemoved(resource.getProjectRelativePath());
+    } else if (delta.getKind() == IResourceDelta.ADDED
+      || (flags & (IResourceDelta.ENCODING | IResourceDelta.DERIVED_CHANGED | IResourceDelta.REPLACED)) != 0) {
+      // Encoding might have become unsupported (or supported), or the file (no longer) derived, therefore re-check it
+      index.fileChanged((IFile) resource);
+    }
+    return true;
+  }
+
+  @Override
+  public void saving(ISaveContext context) throws CoreException {
+    if (context.getKind() != ISaveContext.FULL_SAVE) {
+      return;
+    }
+    var saveNumber = context.getSaveNumber();
+    for (var index : indexes.values()) {
+      index.save(saveNumber);
+    }
+    context.needSaveNumber();
+    context.needDelta();
+  }
+
+  @Override
+  public void doneSaving(ISaveContext context) {
+    // Nothing to clean up, older index files are overwritten in place
+  }
+
+  @Override
+  public void prepareToSave(ISaveContext context) throws CoreException {
+    // Nothing to prepare
+  }
+
+  @Override
+  public void rollback(ISaveContext context) {
+    // The save number written to the index files won't match the workspace on the next startup, therefore they will
+    // just be ignored and the projects walked again
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.resources;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.utils.DigestUtils;
+import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.core.resource.ISonarLintProject;
+
+/**
+ *  Files of projects on remote file systems (e.g. RSE) have no local file that SLCORE and the analyzers could read.
+ *  Instead of copying them for every analysis, they are mirrored in the working directory of the project and only
+ *  copied again when they changed:
+ *
+ *  - the mirrored file gets the modification time of the remote one, when both have the same time and length the
+ *    mirror is up-to-date, this also works across sessions
+ *  - when the remote file system does not provide a modification time, the content is compared via its hash and the
+ *    mirrored file is only written when it differs
+ *
+ *  The path of a mirrored file is always the same (and has the original name), so that the caches of SLCORE and the
+ *  analyzers keep working.
+ */
+public class RemoteFileMirror {
+  private static final String MIRROR_FOLDER = "mirror";
+
+  /** Striped by the path of the mirror, so that the number of locks is bounded no matter how many files are mirrored */
+  private static final Object[] LOCKS = new Object[64];
+
+  static {
+    for (var i = 0; i < LOCKS.length; i++) {
+      LOCKS[i] = new Object();
+    }
+  }
+
+  private RemoteFileMirror() {
+    // utility class
+  }
+
+  /** @return the local mirror of the file, up-to-date with the remote file store */
+  public static Path mirror(ISonarLintFile file, IFileStore fileStore, IProgressMonitor monitor) throws CoreException, IOException {
+    var target = mirrorPath(file.getProject(), file.getProjectRelativePath());
+    synchronized (lockFor(target)) {
+      var info = fileStore.fetchInfo(EFS.NONE, monitor);
+      var lastModified = info.getLastModified();
+      if (lastModified != EFS.NONE) {
+        if (!isUpToDate(target, lastModified, info.getLength())) {
+          var tempFile = createTempFile(target);
+          fileStore.copy(EFS.getLocalFileSystem().fromLocalFile(tempFile.toFile()), EFS.OVERWRITE, monitor);
+          Files.setLastModifiedTime(tempFile, FileTime.fromMillis(lastModified));
+          replace(tempFile, target);
+          SonarLintLogger.get().debug("Mirrored remote file '" + file.getName() + "' to '" + target + "'");
+        }
+      } else {
+        byte[] content;
+        try (var input = fileStore.openInputStream(EFS.NONE, monitor)) {
+          content = input.readAllBytes();
+        }
+        if (!Files.isRegularFile(target) || !DigestUtils.digest(content).equals(DigestUtils.digest(Files.readAllBytes(target)))) {
+          var tempFile = createTempFile(target);
+          Files.write(tempFile, content);
+          replace(tempFile, target);
+          SonarLintLogger.get().debug("Mirrored remote file '" + file.getName() + "' to '" + target + "'");
+        }
+      }
+    }
+    return target.toRealPath();
+  }
+
+  /** Removed remote files don't need their mirror anymore, local files never have one */
+  public static void remove(IResource resource) {
+    var locationURI = resource.getLocationURI();
+    if (locationURI == null || "file".equals(locationURI.getScheme())) {
+      return;
+    }
+    var project = SonarLintUtils.adapt(resource.getProject(), ISonarLintProject.class,
+      "[RemoteFileMirror#remove] Try get project of removed file '" + resource + "'");
+    if (project == null) {
+      return;
+    }
+    var target = mirrorPath(project, resource.getProjectRelativePath().toString());
+    synchronized (lockFor(target)) {
+      try {
+        Files.deleteIfExists(target);
+      } catch (IOException err) {
+        SonarLintLogger.get().debug("Unable to delete the mirror of removed file '" + resource.getName() + "'", err);
+      }
+    }
+  }
+
+  private static Path mirrorPath(ISonarLintProject project, String projectRelativePath) {
+    return project.getWorkingDir().resolve(MIRROR_FOLDER).resolve(projectRelativePath);
+  }
+
+  private static Object lockFor(Path target) {
+    return LOCKS[Math.floorMod(target.hashCode(), LOCKS.length)];
+  }
+
+  private static boolean isUpToDate(Path target, long lastModified, long length) {
+    try {
+      return Files.isRegularFile(target)
+        && Files.getLastModifiedTime(target).toMillis() == lastModified
+        && Files.size(target) == length;
+    } catch (IOException err) {
+      return false;
+    }
+  }
+
+  /** Written next to the mirror first, so that a concurrent reader never sees a partially written file */
+  private static Path createTempFile(Path target) throws IOException {
+    Files.createDirectories(target.getParent());
+    return Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+  }
+
+  private static void replace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException err) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(source);
+    }
+  }
+}
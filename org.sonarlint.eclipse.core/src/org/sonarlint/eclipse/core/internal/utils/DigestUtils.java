@@ -38,6 +38,11 @@ public class DigestUtils {
     return encodeHexString(MD5_DIGEST.digest(content.replaceAll("[\\s]", "").getBytes(UTF_8)));
   }
 
+  /** Unlike {@link #digest(String)}, the whole content is taken into account */
+  public static String digest(byte[] content) {
+    return encodeHexString(getMd5Digest().digest(content));
+  }
+
   private static MessageDigest getMd5Digest() {
     return getDigest("MD5");
   }
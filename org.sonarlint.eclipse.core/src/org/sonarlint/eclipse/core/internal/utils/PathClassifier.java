@@ -0,0 +1,119 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ *  Classifies paths inside the Eclipse workspace that we don't care for, no matter if removed, changed, or added, when
+ *  indexing files or synchronizing the file system with SLCORE. This is done in one walk over the segments of the path
+ *  without creating any string, as it is called for every resource visited.
+ *
+ *  This was not moved to a sub-plugin implementing the "IProjectScopeProvider" as it would be a bit too costly and
+ *  also might have blown up the list of exclusions. It also wouldn't have made sense to rely (optionally) on Eclipse
+ *  plug-ins providing VCS support, Node.js, or Python support just to read the name of their "specific" directories.
+ *
+ *  Additional directory names can be ignored by providing them comma-separated via the system property
+ *  "sonarlint.indexing.ignoredDirectories", e.g. "-Dsonarlint.indexing.ignoredDirectories=.venv,bazel-out".
+ */
+public class PathClassifier {
+  public static final String IGNORED_DIRECTORIES_PROPERTY = "sonarlint.indexing.ignoredDirectories";
+
+  /** Nothing to skip the path for */
+  public static final int NONE = 0;
+  /** Inside a Git, Mercurial, or Apache Subversion directory, as they're the most common ones */
+  public static final int VCS = 1;
+  /** Node.js "metadata" / storage */
+  public static final int NODE_JS = 1 << 1;
+  /** The most common Python virtual environment names */
+  public static final int PYTHON = 1 << 2;
+  /**
+   *  On macOS/Linux Eclipse PDE while working with Maven/Tycho creates folders starting with "file:/" in every Eclipse
+   *  project that contains a `product` definition. In this folder unpacked parts of plug-ins will be saved and
+   *  therefore triggers a lot of events we don't want to react to.
+   *
+   *  @see <a href="https://sonarsource.atlassian.net/browse/SLE-1098">SLE-1098</a>
+   */
+  public static final int ECLIPSE_PDE = 1 << 3;
+  /** Directory names configured by the user */
+  public static final int IGNORED_DIRECTORY = 1 << 4;
+
+  private static final String NODE_JS_LOCK_FILE = "package-lock.json";
+  private static final Map<String, Integer> DIRECTORIES = createDirectories(System.getProperty(IGNORED_DIRECTORIES_PROPERTY));
+
+  private PathClassifier() {
+    // utility class, forbidden constructor
+  }
+
+  private static Map<String, Integer> createDirectories(@Nullable String ignoredDirectories) {
+    var directories = new HashMap<String, Integer>();
+    if (ignoredDirectories != null) {
+      for (var ignoredDirectory : ignoredDirectories.split(",")) {
+        var name = ignoredDirectory.trim();
+        if (!name.isEmpty()) {
+          directories.put(name, IGNORED_DIRECTORY);
+        }
+      }
+    }
+    directories.put(".git", VCS);
+    directories.put(".hg", VCS);
+    directories.put(".svn", VCS);
+    directories.put("node_modules", NODE_JS);
+    directories.put("venv", PYTHON);
+    directories.put("pyenv", PYTHON);
+    directories.put("pyvenv", PYTHON);
+    directories.put("virtualenv", PYTHON);
+    directories.put("file:", ECLIPSE_PDE);
+    return Map.copyOf(directories);
+  }
+
+  /**
+   *  @param path full path of the resource inside the workspace
+   *  @param container whether the resource is a container itself, then the last segment is checked as a directory
+   *         name as well and the whole container can be skipped instead of its children one by one
+   *  @return the bitmask of the reasons for skipping the resource, {@link #NONE} if it should not be skipped
+   */
+  public static int classify(IPath path, boolean container) {
+    var reasons = NONE;
+    var segmentCount = path.segmentCount();
+    var directoryCount = container ? segmentCount : (segmentCount - 1);
+    for (var i = 0; i < segmentCount; i++) {
+      var segment = path.segment(i);
+      if (i < directoryCount) {
+        var reason = DIRECTORIES.get(segment);
+        if (reason != null) {
+          reasons |= reason;
+        }
+      }
+      if (segment.startsWith(NODE_JS_LOCK_FILE)) {
+        reasons |= NODE_JS;
+      }
+    }
+    return reasons;
+  }
+
+  /** Shortcut for checking if there is any reason for skipping the resource */
+  public static boolean shouldSkip(IPath path, boolean container) {
+    return classify(path, container) != NONE;
+  }
+}
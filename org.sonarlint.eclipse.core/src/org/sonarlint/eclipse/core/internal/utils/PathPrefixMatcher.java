@@ -0,0 +1,102 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ *  Set of paths inside the Eclipse workspace compiled into a trie based on their segments. Checking whether a path is
+ *  one of them or a child of one of them only walks the segments of the path once, no matter how many paths there are
+ *  and without creating any string.
+ *
+ *  This is immutable and therefore safe to be shared between threads, e.g. by caching it per project.
+ */
+public class PathPrefixMatcher {
+  public static final PathPrefixMatcher EMPTY = new PathPrefixMatcher(Set.of());
+
+  private final Set<IPath> paths;
+  private final Node root = new Node();
+
+  public PathPrefixMatcher(Collection<IPath> paths) {
+    this.paths = Set.copyOf(paths);
+    for (var path : this.paths) {
+      var node = root;
+      for (var segment : path.segments()) {
+        node = node.children.computeIfAbsent(segment, s -> new Node());
+      }
+      node.terminal = true;
+    }
+  }
+
+  /** The paths this was compiled from */
+  public Set<IPath> getPaths() {
+    return paths;
+  }
+
+  public boolean isEmpty() {
+    return paths.isEmpty();
+  }
+
+  /** Whether the path is one of the paths or a child of one of them, based on the segments */
+  public boolean matches(IPath path) {
+    @Nullable
+    Node node = root;
+    if (node.terminal) {
+      return true;
+    }
+    var segmentCount = path.segmentCount();
+    for (var i = 0; i < segmentCount; i++) {
+      node = node.children.get(path.segment(i));
+      if (node == null) {
+        return false;
+      }
+      if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return paths.hashCode();
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    return paths.equals(((PathPrefixMatcher) obj).paths);
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private boolean terminal;
+  }
+}
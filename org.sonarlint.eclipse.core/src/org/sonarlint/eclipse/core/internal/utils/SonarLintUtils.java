@@ -272,61 +272,6 @@ public class SonarLintUtils {
     return possibleChildPath.startsWith(possibleParentPath);
   }
 
-  /**
-   *  This was not moved to a sub-plugin implementing the "IProjectScopeProvider" as it would be a bit too costly and
-   *  also might have blown up the list of exclusions. It also wouldn't have made sense to rely (optionally) on Eclipse
-   *  plug-ins providing VCS support just to read the name of their "specific" directory.
-   *
-   *  Here we catch Git, Mercurial, and Apache Subversion as they're the most common ones.
-   */
-  public static boolean insideVCSFolder(IPath path) {
-    var osString = path.makeAbsolute().toOSString().replace("\\", "/");
-    var satisfiesCheck = osString.contains("/.git/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/.hg/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/.svn/");
-    return satisfiesCheck;
-  }
-
-  /**
-   *  This was not moved to a sub-plugin implementing the "IProjectScopeProvider" as it would be a bit too costly and
-   *  also might have blown up the list of exclusions. It also wouldn't have made sense as there is no direct Eclipse
-   *  plug-in to rely on for getting these values.
-   */
-  public static boolean isNodeJsRelated(IPath path) {
-    var osString = path.makeAbsolute().toOSString().replace("\\", "/");
-    var satisfiesCheck = osString.contains("/node_modules/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/package-lock.json");
-    return satisfiesCheck;
-  }
-
-  /**
-   *  This was not moved to a sub-plugin implementing the "IProjectScopeProvider" as it would be a bit too costly and
-   *  also might have blown up the list of exclusions. It also wouldn't have made sense to rely (optionally) on the
-   *  Eclipse PyDev plug-in.
-   *
-   *  Here we catch the most common Python virtual environment names.
-   */
-  public static boolean isPythonRelated(IPath path) {
-    var osString = path.makeAbsolute().toOSString().replace("\\", "/");
-    var satisfiesCheck = osString.contains("/venv/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/pyenv/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/pyvenv/");
-    satisfiesCheck = satisfiesCheck || osString.contains("/virtualenv/");
-    return satisfiesCheck;
-  }
-
-  /**
-   *  On macOS/Linux Eclipse PDE while working with Maven/Tycho creates folders starting with "file:/" in every Eclipse
-   *  project that contains a `product` definition. In this folder unpacked parts of plug-ins will be saved and
-   *  therefore triggers a lot of events we don't want to react to.
-   *
-   *  @see <a href="https://sonarsource.atlassian.net/browse/SLE-1098">SLE-1098</a>
-   */
-  public static boolean isIncorrectEclipsePDE(IPath path) {
-    var osString = path.makeAbsolute().toOSString();
-    return osString.contains("/file:/");
-  }
-
   // This can also be used in sub-plug-ins!
   public static String getConfigScopeId(IProject project) {
     return project.getLocationURI().toString();
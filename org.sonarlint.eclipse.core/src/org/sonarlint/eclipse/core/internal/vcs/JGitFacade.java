@@ -20,14 +20,19 @@
 package org.sonarlint.eclipse.core.internal.vcs;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.jdt.annotation.Nullable;
 import org.sonarlint.eclipse.core.SonarLintLogger;
@@ -37,35 +42,49 @@ import org.sonarlint.eclipse.core.resource.ISonarLintFile;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 import org.sonarsource.sonarlint.core.client.utils.GitUtils;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.events.ListenerHandle;
-import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.ignore.IgnoreNode;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Constants;
-import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.ObjectLoader;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.FileMode;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.IndexDiff;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Ref;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Repository;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.revwalk.RevWalk;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.TreeWalk;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 /**
  *  Facade that only relies on the shaded JGit version coming from SonarLint CORE
+ *
+ *  The repository of every project is only resolved once and shared by all the projects inside of it, together with
+ *  an index from the repository to its projects used when refs change. Both are updated when projects are opened,
+ *  closed or moved. Projects found not to be in a repository are checked again after a while, as a repository might
+ *  be created afterwards.
  */
 public class JGitFacade {
   private static final SonarLintLogger LOG = SonarLintLogger.get();
+  private static final long NOT_IN_REPOSITORY_TTL_MS = 30_000;
 
   private ListenerHandle listenerHandle;
+  /** Keyed by the resource of the project */
+  private final ConcurrentHashMap<IResource, CachedRepository> repositoriesPerProject = new ConcurrentHashMap<>();
+  /** Keyed by the Git directory of the repository */
+  private final ConcurrentHashMap<File, RepositoryProjects> projectsPerRepository = new ConcurrentHashMap<>();
+  /** Whether all the projects were looked at once since the last change, so that the index is complete */
+  private volatile boolean allProjectsIndexed;
+  /** Keyed by the Git directory of the repository */
+  private final ConcurrentHashMap<File, RepositoryIgnoreRules> ignoreRules = new ConcurrentHashMap<>();
 
   public synchronized void addHeadRefsChangeListener(Consumer<List<ISonarLintProject>> listener) {
     removeHeadRefsChangeListener();
     listenerHandle = Repository.getGlobalListenerList().addRefsChangedListener(event -> {
-      List<ISonarLintProject> affectedProjects = new ArrayList<>();
-      SonarLintUtils.allProjects().forEach(p -> getRepo(p.getResource()).ifPresent(repo -> {
-        var repoDir = repo.getDirectory();
-        if (repoDir != null && repoDir.equals(event.getRepository().getDirectory())) {
-          affectedProjects.add(p);
-        }
-      }));
-      if (!affectedProjects.isEmpty()) {
-        listener.accept(affectedProjects);
+      indexAllProjects();
+      var repoDir = event.getRepository().getDirectory();
+      var repositoryProjects = repoDir == null ? null : projectsPerRepository.get(repoDir);
+      if (repositoryProjects != null && !repositoryProjects.projects.isEmpty()) {
+        listener.accept(new ArrayList<>(repositoryProjects.projects));
       }
     });
   }
@@ -76,29 +95,37 @@ public class JGitFacade {
     }
   }
 
-  /**
-   *  We want to check if a specific resource, e.g. a file/folder/project, is inside a repository.
-   *  The {@link org.eclipse.core.resources.IResource} should be coming from the
-   *  {@link org.sonarlint.eclipse.core.resource.ISonarLintIssuable#getResource()}!
-   */
-  public boolean inRepository(IResource resource) {
-    return getRepo(resource).isPresent();
+  /** We want to check if a specific project is inside a repository */
+  public boolean inRepository(ISonarLintProject project) {
+    return getRepo(project).isPresent();
   }
 
   public String electBestMatchingBranch(ISonarLintProject project, Set<String> serverCandidateNames, String serverMainBranch) {
-    return getRepo(project.getResource())
+    return getRepo(project)
       .map(repo -> GitUtils.electBestMatchingServerBranchForCurrentHead(repo, serverCandidateNames, serverMainBranch, new SonarLintUtilsLogOutput()))
       .orElse(serverMainBranch);
   }
 
   @Nullable
   public String getCurrentCommitRef(ISonarLintProject project) {
-    var repoOpt = getRepo(project.getResource());
+    var repoOpt = getRepo(project);
     return repoOpt.isEmpty()
       ? null
       : getHeadRef(repoOpt.get());
   }
 
+  /** HEAD is only read once per repository, even when it contains multiple projects */
+  public Map<ISonarLintProject, String> getCurrentCommitRefs(Collection<ISonarLintProject> projects) {
+    var headRefs = new HashMap<Repository, Optional<String>>();
+    var commitRefs = new HashMap<ISonarLintProject, String>();
+    for (var project : projects) {
+      getRepo(project)
+        .flatMap(repo -> headRefs.computeIfAbsent(repo, r -> Optional.ofNullable(getHeadRef(r))))
+        .ifPresent(ref -> commitRefs.put(project, ref));
+    }
+    return commitRefs;
+  }
+
   @Nullable
   private String getHeadRef(Repository repo) {
     try {
@@ -109,12 +136,79 @@ public class JGitFacade {
     }
   }
 
+  private Optional<Repository> getRepo(ISonarLintProject project) {
+    var cached = repositoriesPerProject.get(project.getResource());
+    if (cached != null && cached.isValid()) {
+      return Optional.ofNullable(cached.repository);
+    }
+
+    // Resolved one after another, so that projects of the same repository share the same instance
+    synchronized (repositoriesPerProject) {
+      cached = repositoriesPerProject.get(project.getResource());
+      if (cached != null && cached.isValid()) {
+        return Optional.ofNullable(cached.repository);
+      }
+      forget(project.getResource());
+
+      var repo = resolveRepo(project.getResource());
+      if (repo != null) {
+        var repositoryProjects = projectsPerRepository.get(repo.getDirectory());
+        if (repositoryProjects == null) {
+          repositoryProjects = new RepositoryProjects(repo);
+          projectsPerRepository.put(repo.getDirectory(), repositoryProjects);
+        } else {
+          repo.close();
+          repo = repositoryProjects.repository;
+        }
+        repositoryProjects.projects.add(project);
+      }
+      repositoriesPerProject.put(project.getResource(), new CachedRepository(project, repo));
+      return Optional.ofNullable(repo);
+    }
+  }
+
+  /** Resolves the repository of all the projects not yet known, only when something changed since the last time */
+  private void indexAllProjects() {
+    if (!allProjectsIndexed) {
+      allProjectsIndexed = true;
+      SonarLintUtils.allProjects().forEach(this::getRepo);
+    }
+  }
+
+  /**
+   *  Forgets the repository of a project that was opened, closed or moved, it might be in another repository now.
+   *  The repository is closed once no project is inside of it anymore.
+   */
+  public void projectChanged(IResource projectResource) {
+    allProjectsIndexed = false;
+    forget(projectResource);
+  }
+
+  private void forget(IResource projectResource) {
+    synchronized (repositoriesPerProject) {
+      var cached = repositoriesPerProject.remove(projectResource);
+      if (cached == null || cached.repository == null) {
+        return;
+      }
+      var repoDir = cached.repository.getDirectory();
+      var repositoryProjects = projectsPerRepository.get(repoDir);
+      if (repositoryProjects != null) {
+        repositoryProjects.projects.remove(cached.project);
+        if (repositoryProjects.projects.isEmpty()) {
+          projectsPerRepository.remove(repoDir);
+          ignoreRules.remove(repoDir);
+          repositoryProjects.repository.close();
+        }
+      }
+    }
+  }
+
   /** Assuming this resource provided is the main project resource */
-  private static Optional<Repository> getRepo(IResource resource) {
+  @Nullable
+  private static Repository resolveRepo(IResource resource) {
     try {
       var resourceRealPath = new File(resource.getLocationURI()).toPath().toRealPath();
-      var repo = GitUtils.getRepositoryForDir(resourceRealPath, new SonarLintUtilsLogOutput());
-      return repo == null ? Optional.empty() : Optional.of(repo);
+      return GitUtils.getRepositoryForDir(resourceRealPath, new SonarLintUtilsLogOutput());
     } catch (IOException err) {
       LOG.debug("Unable to get real path of resource: " + resource.getName(), err);
     } catch (IllegalStateException err) {
@@ -126,99 +220,246 @@ public class JGitFacade {
       LOG.debug("Unable to create file from resource: " + resource.getName(), err);
     }
 
-    return Optional.empty();
+    return null;
   }
 
   public boolean isIgnored(ISonarLintFile file) {
-    var repoOpt = getRepo(file.getProject().getResource());
-    if (repoOpt.isEmpty()) {
-      return false;
-    }
-    var repo = repoOpt.get();
+    return !getIgnored(List.of(file)).isEmpty();
+  }
+
+  /**
+   *  Checks a whole batch of files at once, the repository and its ignore rules only being resolved once per project.
+   *
+   *  @return the files ignored by Git
+   */
+  public Set<ISonarLintFile> getIgnored(Collection<ISonarLintFile> files) {
+    var ignored = new HashSet<ISonarLintFile>();
+    var filesPerProject = files.stream().collect(Collectors.groupingBy(ISonarLintFile::getProject));
+    filesPerProject.forEach((project, projectFiles) -> {
+      var repoOpt = getRepo(project);
+      if (repoOpt.isEmpty()) {
+        return;
+      }
+      var projectResource = project.getResource();
+      var rules = getIgnoreRules(repoOpt.get());
+      var projectRealPath = getRealPath(projectResource);
+      if (projectRealPath == null) {
+        return;
+      }
+      // For bare repositories the rules are relative to the project, like the work tree would be
+      var basePath = rules.getWorkTree() != null ? rules.getWorkTree() : projectRealPath;
+      if (!projectRealPath.startsWith(basePath)) {
+        return;
+      }
+      var projectPrefix = toGitPath(basePath.relativize(projectRealPath));
+
+      rules.refresh();
+      for (var file : projectFiles) {
+        var relativePath = getRelativePath(file, projectResource, projectPrefix, basePath);
+        if (relativePath != null && rules.isIgnored(relativePath, file.getResource().getType() == IResource.FOLDER)) {
+          ignored.add(file);
+        }
+      }
+    });
+    return ignored;
+  }
 
+  /**
+   *  The path of files inside the project location can be derived without resolving it on the file system, only
+   *  linked resources have to be resolved.
+   */
+  @Nullable
+  private static String getRelativePath(ISonarLintFile file, IResource projectResource, String projectPrefix,
+    Path basePath) {
     var fileResource = file.getResource();
-    var projectResource = file.getProject().getResource();
+    var projectLocation = projectResource.getLocation();
+    var fileLocation = fileResource.getLocation();
+    if (projectLocation != null && fileLocation != null && projectLocation.isPrefixOf(fileLocation)
+      && !fileResource.isLinked(IResource.CHECK_ANCESTORS)) {
+      var projectRelativePath = fileLocation.removeFirstSegments(projectLocation.segmentCount()).setDevice(null)
+        .toString();
+      return projectPrefix.isEmpty() ? projectRelativePath : (projectPrefix + "/" + projectRelativePath);
+    }
 
-    Path fileRealPath;
-    Path projectRealPath;
     try {
-      fileRealPath = new File(fileResource.getLocationURI()).toPath().toRealPath();
-      projectRealPath = new File(projectResource.getLocationURI()).toPath().toRealPath();
+      var fileRealPath = new File(fileResource.getLocationURI()).toPath().toRealPath();
+      return fileRealPath.startsWith(basePath) ? toGitPath(basePath.relativize(fileRealPath)) : null;
     } catch (IOException err) {
-      LOG.debug("Unable to get real path of resource: " + fileResource.getName()
-        + " or its project: " + projectResource.getName(), err);
-      return false;
+      LOG.debug("Unable to get real path of resource: " + fileResource.getName(), err);
     } catch (IllegalArgumentException err) {
-      // This happens for all URI schemes that are not "file", like "rse" which is coming from the Eclipse Remote
-      // System Explorer plug-in. Before these changes it was failing internally in the EGit integration as well and
-      // would therefore not be able to check if this file is ignored or not.
       LOG.debug("Unable to create file from resource: " + fileResource.getName(), err);
-      return false;
     }
-
-    var ignores = getGitignoreEntries(repo);
-    LOG.debug("For project '" + projectResource.getName() + "' the ignore rules found by Git are: "
-      + ignores.toString());
-
-    // Because the return value can be null we have to check it this way!
-    var isIgnored = ignores.checkIgnored(projectRealPath.relativize(fileRealPath).toString(),
-      file.getResource().getType() == IResource.FOLDER);
-    return isIgnored == null ? false : isIgnored;
+    return null;
   }
 
   /**
-   *  Get all the ignore rules for a specific Git repository
+   *  Collects the files of the project that differ from HEAD (staged, modified, untracked or conflicting) directly
+   *  from the Git repository, without having to refresh and walk the synchronization state of the Team provider.
    *
-   *  @param repository to check for ".gitignore" files
-   *  @return ignore rules, can be empty
+   *  @param baseBranch when provided, the files changed on HEAD since the merge base with this branch are included
+   *  @return the project relative paths, empty when the project is not inside a Git work tree
    */
-  private static IgnoreNode getGitignoreEntries(Repository repository) {
-    var ignoreNode = new IgnoreNode();
+  public Optional<Set<String>> getChangedFiles(ISonarLintProject project, @Nullable String baseBranch) {
+    var repoOpt = getRepo(project);
+    if (repoOpt.isEmpty() || repoOpt.get().isBare()) {
+      return Optional.empty();
+    }
+    var repo = repoOpt.get();
+    var projectRealPath = getRealPath(project.getResource());
+    var workTree = getIgnoreRules(repo).getWorkTree();
+    if (projectRealPath == null || workTree == null || !projectRealPath.startsWith(workTree)) {
+      return Optional.empty();
+    }
+    var projectPrefix = toGitPath(workTree.relativize(projectRealPath));
+
     try {
-      if (repository.isBare()) {
-        handleBareRepo(repository, ignoreNode);
-      } else {
-        handleNonBareRepo(repository, ignoreNode);
+      var indexDiff = new IndexDiff(repo, Constants.HEAD, new FileTreeIterator(repo));
+      if (!projectPrefix.isEmpty()) {
+        indexDiff.setFilter(PathFilter.create(projectPrefix));
       }
-    } catch (IOException err) {
-      LOG.debug("Cannot load ignored resources for the Git repository", err);
+      indexDiff.diff();
+      var changedPaths = new HashSet<String>();
+      changedPaths.addAll(indexDiff.getAdded());
+      changedPaths.addAll(indexDiff.getChanged());
+      changedPaths.addAll(indexDiff.getModified());
+      changedPaths.addAll(indexDiff.getUntracked());
+      changedPaths.addAll(indexDiff.getConflicting());
+      // Deleted files cannot be analyzed
+      changedPaths.removeAll(indexDiff.getRemoved());
+      changedPaths.removeAll(indexDiff.getMissing());
+      if (baseBranch != null) {
+        changedPaths.addAll(getChangedSinceMergeBase(repo, baseBranch, projectPrefix));
+      }
+
+      var projectRelativePaths = new HashSet<String>();
+      for (var path : changedPaths) {
+        if (projectPrefix.isEmpty()) {
+          projectRelativePaths.add(path);
+        } else if (path.startsWith(projectPrefix + "/")) {
+          projectRelativePaths.add(path.substring(projectPrefix.length() + 1));
+        }
+      }
+      return Optional.of(projectRelativePaths);
+    } catch (IOException | LinkageError err) {
+      // The JGit classes shaded in SonarLint CORE might not be complete, the Team provider is used as a fallback then
+      LOG.debug("Unable to collect changed files of project '" + project.getName() + "' from Git", err);
+      return Optional.empty();
     }
-    return ignoreNode;
   }
 
-  /** Handle non-bare repositories where the root directory can be accessed quite easily */
-  private static void handleNonBareRepo(Repository repository, IgnoreNode ignoreNode) throws IOException {
-    var rootDir = repository.getWorkTree();
-    var gitIgnoreFile = new File(rootDir, Constants.GITIGNORE_FILENAME);
-    try (var inputStream = new FileInputStream(gitIgnoreFile)) {
-      ignoreNode.parse(inputStream);
+  /** The files existing on HEAD that were changed since it diverged from the given branch */
+  private static Set<String> getChangedSinceMergeBase(Repository repo, String baseBranch, String projectPrefix)
+    throws IOException {
+    var branchRef = repo.exactRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + baseBranch);
+    if (branchRef == null) {
+      branchRef = repo.exactRef(Constants.R_HEADS + baseBranch);
     }
-  }
+    var headId = repo.resolve(Constants.HEAD);
+    if (branchRef == null || branchRef.getObjectId() == null || headId == null) {
+      LOG.debug("Unable to find branch '" + baseBranch + "' to compare HEAD with");
+      return Set.of();
+    }
+
+    var changedPaths = new HashSet<String>();
+    try (var revWalk = new RevWalk(repo)) {
+      var headCommit = revWalk.parseCommit(headId);
+      var branchCommit = revWalk.parseCommit(branchRef.getObjectId());
+      revWalk.setRevFilter(RevFilter.MERGE_BASE);
+      revWalk.markStart(headCommit);
+      revWalk.markStart(branchCommit);
+      var mergeBase = revWalk.next();
+      if (mergeBase == null) {
+        return changedPaths;
+      }
 
-  /** Handle bare repositories where the ".gitignore" can only be accessed by walking the tree */
-  private static void handleBareRepo(Repository repository, IgnoreNode ignoreNode) throws IOException {
-    var loader = readBareGitignore(repository);
-    if (loader.isPresent()) {
-      try (var inputStream = loader.get().openStream()) {
-        ignoreNode.parse(inputStream);
+      try (var treeWalk = new TreeWalk(repo)) {
+        treeWalk.addTree(mergeBase.getTree());
+        treeWalk.addTree(headCommit.getTree());
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(projectPrefix.isEmpty()
+          ? TreeFilter.ANY_DIFF
+          : AndTreeFilter.create(PathFilter.create(projectPrefix), TreeFilter.ANY_DIFF));
+        while (treeWalk.next()) {
+          if (treeWalk.getFileMode(1) != FileMode.MISSING) {
+            changedPaths.add(treeWalk.getPathString());
+          }
+        }
       }
     }
+    return changedPaths;
+  }
+
+  @Nullable
+  private static Path getRealPath(IResource projectResource) {
+    try {
+      return new File(projectResource.getLocationURI()).toPath().toRealPath();
+    } catch (IOException err) {
+      LOG.debug("Unable to get real path of project: " + projectResource.getName(), err);
+    } catch (IllegalArgumentException err) {
+      // This happens for all URI schemes that are not "file", like "rse" which is coming from the Eclipse Remote
+      // System Explorer plug-in. Before these changes it was failing internally in the EGit integration as well and
+      // would therefore not be able to work with its files.
+      LOG.debug("Unable to create file from resource: " + projectResource.getName(), err);
+    }
+    return null;
+  }
+
+  private static String toGitPath(Path relativePath) {
+    return relativePath.toString().replace(File.separatorChar, '/');
   }
 
-  private static Optional<ObjectLoader> readBareGitignore(Repository repository) throws IOException {
-    var headId = repository.resolve(Constants.HEAD);
+  private RepositoryIgnoreRules getIgnoreRules(Repository repo) {
+    return ignoreRules.computeIfAbsent(repo.getDirectory(), d -> new RepositoryIgnoreRules(repo));
+  }
 
-    try (var revWalk = new RevWalk(repository)) {
-      var commit = revWalk.parseCommit(headId);
+  public static boolean isIgnoreFile(IResource resource) {
+    return resource.getType() == IResource.FILE && Constants.GITIGNORE_FILENAME.equals(resource.getName());
+  }
 
-      try (var treeWalk = new TreeWalk(repository)) {
-        treeWalk.addTree(commit.getTree());
-        treeWalk.setRecursive(true);
-        treeWalk.setFilter(PathFilter.create(Constants.GITIGNORE_FILENAME));
-        return !treeWalk.next()
-          ? Optional.empty()
-          : Optional.of(repository.open(treeWalk.getObjectId(0)));
+  /** Drops the parsed rules of a ".gitignore" file that was added, changed or removed */
+  public void ignoreFileChanged(IResource ignoreFile) {
+    var location = ignoreFile.getParent().getLocation();
+    if (location == null) {
+      return;
+    }
+    Path directory;
+    try {
+      directory = location.toFile().toPath().toRealPath();
+    } catch (IOException err) {
+      // The directory was removed together with the file, invalidate everything to be on the safe side
+      ignoreRules.clear();
+      return;
+    }
+    ignoreRules.values().forEach(rules -> {
+      var workTree = rules.getWorkTree();
+      if (workTree != null && directory.startsWith(workTree)) {
+        rules.invalidate(toGitPath(workTree.relativize(directory)));
       }
+    });
+  }
+
+  private static class CachedRepository {
+    private final ISonarLintProject project;
+    @Nullable
+    private final Repository repository;
+    private final long resolvedAt = System.currentTimeMillis();
+
+    private CachedRepository(ISonarLintProject project, @Nullable Repository repository) {
+      this.project = project;
+      this.repository = repository;
+    }
+
+    private boolean isValid() {
+      return repository != null || System.currentTimeMillis() - resolvedAt < NOT_IN_REPOSITORY_TTL_MS;
+    }
+  }
+
+  private static class RepositoryProjects {
+    private final Repository repository;
+    private final Set<ISonarLintProject> projects = ConcurrentHashMap.newKeySet();
+
+    private RepositoryProjects(Repository repository) {
+      this.repository = repository;
     }
   }
 }
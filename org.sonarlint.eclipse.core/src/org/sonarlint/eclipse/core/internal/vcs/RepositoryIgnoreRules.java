@@ -0,0 +1,321 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.core.internal.vcs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jdt.annotation.Nullable;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.ignore.IgnoreNode;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.ConfigConstants;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Constants;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.ObjectLoader;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.lib.Repository;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.revwalk.RevWalk;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.TreeWalk;
+import org.sonarsource.sonarlint.shaded.org.eclipse.jgit.treewalk.filter.PathFilter;
+
+/**
+ *  The ignore rules of one Git repository, evaluated the way Git does it: The ".gitignore" file of the deepest directory
+ *  matching a path wins over the ones of its parents, then ".git/info/exclude" and the global excludes file configured
+ *  via "core.excludesFile" are checked. Everything inside an ignored directory is ignored as well.
+ *
+ *  The ".gitignore" files are only parsed once per directory, when first needed. The ones inside the workspace have to
+ *  be invalidated when they change, based on the resource deltas. The ones outside of it (e.g. at the root of a
+ *  repository containing nested Maven or Gradle modules as projects) never produce a delta, therefore they are checked
+ *  for modifications on disk like the repository-wide files, once per batch of files. For bare repositories only the
+ *  root ".gitignore" of HEAD is taken into account.
+ */
+public class RepositoryIgnoreRules {
+  private static final SonarLintLogger LOG = SonarLintLogger.get();
+
+  private final Repository repository;
+  @Nullable
+  private final Path workTree;
+  /** Whether changes to the files in a directory are notified via resource deltas */
+  private final Predicate<Path> insideWorkspace;
+  /** Keyed by the directory relative to the work tree, "" being the root */
+  private final ConcurrentHashMap<String, CachedNode> nodesPerDirectory = new ConcurrentHashMap<>();
+  /** Result of the checks of the parent directories, shared by all the files inside */
+  private final ConcurrentHashMap<String, Boolean> ignoredDirectories = new ConcurrentHashMap<>();
+  private final List<RepositoryIgnoreFile> repositoryIgnoreFiles = new ArrayList<>();
+
+  RepositoryIgnoreRules(Repository repository) {
+    this(repository, RepositoryIgnoreRules::isInsideWorkspace);
+  }
+
+  // Visible for testing
+  public RepositoryIgnoreRules(Repository repository, Predicate<Path> insideWorkspace) {
+    this.repository = repository;
+    this.insideWorkspace = insideWorkspace;
+    this.workTree = repository.isBare() ? null : realPath(repository.getWorkTree());
+    if (!repository.isBare()) {
+      repositoryIgnoreFiles.add(new RepositoryIgnoreFile(new File(repository.getDirectory(), Constants.INFO_EXCLUDE)));
+      var excludesFile = repository.getConfig().getString(ConfigConstants.CONFIG_CORE_SECTION, null,
+        ConfigConstants.CONFIG_KEY_EXCLUDESFILE);
+      repositoryIgnoreFiles.add(new RepositoryIgnoreFile(excludesFile != null
+        ? resolveExcludesFile(excludesFile)
+        : defaultExcludesFile()));
+    }
+  }
+
+  /** The real path of the work tree, null for bare repositories */
+  @Nullable
+  Path getWorkTree() {
+    return workTree;
+  }
+
+  /**
+   *  Reloads the repository-wide ignore files, and the ".gitignore" files outside the workspace, when they were
+   *  changed since the last time
+   */
+  // Visible for testing
+  public void refresh() {
+    var changed = false;
+    for (var ignoreFile : repositoryIgnoreFiles) {
+      changed |= ignoreFile.refresh();
+    }
+    for (var entry : nodesPerDirectory.entrySet()) {
+      var cached = entry.getValue();
+      if (!cached.insideWorkspace && cached.isModified()) {
+        changed |= nodesPerDirectory.remove(entry.getKey(), cached);
+      }
+    }
+    if (changed) {
+      ignoredDirectories.clear();
+    }
+  }
+
+  /** @param directory the directory of the ".gitignore" file that changed, relative to the work tree */
+  // Visible for testing
+  public void invalidate(String directory) {
+    nodesPerDirectory.remove(directory);
+    ignoredDirectories.clear();
+  }
+
+  /** @param path relative to the work tree (or the project for bare repositories), separated by "/" */
+  // Visible for testing
+  public boolean isIgnored(String path, boolean isDirectory) {
+    var slash = path.indexOf('/');
+    while (slash > 0) {
+      var parent = path.substring(0, slash);
+      if (ignoredDirectories.computeIfAbsent(parent, p -> matches(p, true))) {
+        return true;
+      }
+      slash = path.indexOf('/', slash + 1);
+    }
+    return matches(path, isDirectory);
+  }
+
+  private boolean matches(String path, boolean isDirectory) {
+    var separator = path.lastIndexOf('/');
+    while (true) {
+      var node = getNode(separator < 0 ? "" : path.substring(0, separator));
+      if (node != null) {
+        // Because the return value can be null we have to check it this way!
+        var result = node.checkIgnored(path.substring(separator + 1), isDirectory);
+        if (result != null) {
+          return result;
+        }
+      }
+      if (separator < 0) {
+        break;
+      }
+      separator = separator == 0 ? -1 : path.lastIndexOf('/', separator - 1);
+    }
+
+    for (var ignoreFile : repositoryIgnoreFiles) {
+      var node = ignoreFile.node;
+      var result = node != null ? node.checkIgnored(path, isDirectory) : null;
+      if (result != null) {
+        return result;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private IgnoreNode getNode(String directory) {
+    return nodesPerDirectory.computeIfAbsent(directory, this::loadNode).node;
+  }
+
+  private CachedNode loadNode(String directory) {
+    if (workTree == null) {
+      IgnoreNode node = null;
+      try {
+        node = directory.isEmpty() ? loadBareGitignore() : null;
+      } catch (IOException err) {
+        LOG.debug("Cannot load ignored resources for the Git repository", err);
+      }
+      // The ".gitignore" of HEAD only changes together with the refs, and the repository is resolved again then
+      return new CachedNode(null, true, node);
+    }
+
+    var directoryPath = workTree.resolve(directory);
+    var file = directoryPath.resolve(Constants.GITIGNORE_FILENAME).toFile();
+    // Taken before parsing, so that a modification while parsing is not missed
+    var cached = new CachedNode(file, insideWorkspace.test(directoryPath), null);
+    try {
+      cached.node = parse(file);
+    } catch (IOException err) {
+      LOG.debug("Cannot load ignored resources for the Git repository", err);
+    }
+    return cached;
+  }
+
+  /** Based on the projects of the workspace, the files of closed projects or outside of any project are not watched */
+  private static boolean isInsideWorkspace(Path directory) {
+    return Stream.of(ResourcesPlugin.getWorkspace().getRoot().findContainersForLocationURI(directory.toUri()))
+      .anyMatch(IResource::isAccessible);
+  }
+
+  /** Handle bare repositories where the ".gitignore" can only be accessed by walking the tree */
+  @Nullable
+  private IgnoreNode loadBareGitignore() throws IOException {
+    var loader = readBareGitignore();
+    if (loader.isEmpty()) {
+      return null;
+    }
+    var ignoreNode = new IgnoreNode();
+    try (var inputStream = loader.get().openStream()) {
+      ignoreNode.parse(inputStream);
+    }
+    return ignoreNode;
+  }
+
+  private Optional<ObjectLoader> readBareGitignore() throws IOException {
+    var headId = repository.resolve(Constants.HEAD);
+    if (headId == null) {
+      return Optional.empty();
+    }
+
+    try (var revWalk = new RevWalk(repository)) {
+      var commit = revWalk.parseCommit(headId);
+
+      try (var treeWalk = new TreeWalk(repository)) {
+        treeWalk.addTree(commit.getTree());
+        treeWalk.setFilter(PathFilter.create(Constants.GITIGNORE_FILENAME));
+        return !treeWalk.next()
+          ? Optional.empty()
+          : Optional.of(repository.open(treeWalk.getObjectId(0)));
+      }
+    }
+  }
+
+  @Nullable
+  private static IgnoreNode parse(File ignoreFile) throws IOException {
+    if (!ignoreFile.isFile()) {
+      return null;
+    }
+    var ignoreNode = new IgnoreNode();
+    try (var inputStream = new FileInputStream(ignoreFile)) {
+      ignoreNode.parse(inputStream);
+    }
+    return ignoreNode.getRules().isEmpty() ? null : ignoreNode;
+  }
+
+  private static File resolveExcludesFile(String path) {
+    if (path.startsWith("~/")) {
+      return new File(System.getProperty("user.home"), path.substring(2));
+    }
+    return new File(path);
+  }
+
+  /** Git reads "$XDG_CONFIG_HOME/git/ignore" (or "~/.config/git/ignore") when "core.excludesFile" is not set */
+  private static File defaultExcludesFile() {
+    var xdgConfigHome = System.getenv("XDG_CONFIG_HOME");
+    var configHome = xdgConfigHome != null && !xdgConfigHome.isEmpty()
+      ? new File(xdgConfigHome)
+      : new File(System.getProperty("user.home"), ".config");
+    return new File(new File(configHome, "git"), "ignore");
+  }
+
+  @Nullable
+  private static Path realPath(File file) {
+    try {
+      return file.toPath().toRealPath();
+    } catch (IOException err) {
+      LOG.debug("Unable to get real path of Git work tree: " + file, err);
+      return null;
+    }
+  }
+
+  /** The parsed ".gitignore" of a directory, the file is null for bare repositories */
+  private static class CachedNode {
+    @Nullable
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final boolean insideWorkspace;
+    @Nullable
+    private IgnoreNode node;
+
+    private CachedNode(@Nullable File file, boolean insideWorkspace, @Nullable IgnoreNode node) {
+      this.file = file;
+      this.lastModified = file != null ? file.lastModified() : 0;
+      this.length = file != null ? file.length() : 0;
+      this.insideWorkspace = file == null || insideWorkspace;
+      this.node = node;
+    }
+
+    /** Both are 0 when the file does not exist, so that creating it is detected as well */
+    private boolean isModified() {
+      var ignoreFile = file;
+      return ignoreFile != null && (ignoreFile.lastModified() != lastModified || ignoreFile.length() != length);
+    }
+  }
+
+  /** A repository-wide ignore file, only parsed again when modified on disk */
+  private static class RepositoryIgnoreFile {
+    private final File file;
+    private long lastModified = -1;
+    @Nullable
+    private volatile IgnoreNode node;
+
+    private RepositoryIgnoreFile(File file) {
+      this.file = file;
+    }
+
+    private synchronized boolean refresh() {
+      var modified = file.lastModified();
+      if (modified == lastModified) {
+        return false;
+      }
+      lastModified = modified;
+      try {
+        node = parse(file);
+      } catch (IOException err) {
+        LOG.debug("Cannot load ignored resources from: " + file, err);
+        node = null;
+      }
+      return true;
+    }
+  }
+}
@@ -19,6 +19,8 @@
  */
 package org.sonarlint.eclipse.core.internal.vcs;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,6 +43,9 @@ import static java.util.stream.Collectors.joining;
 public class VcsService {
   private static final SonarLintLogger LOG = SonarLintLogger.get();
   private static final JGitFacade FACADE = new JGitFacade();
+  private static final BranchChangeJob BRANCH_CHANGE_JOB = new BranchChangeJob();
+  private static final boolean CHANGED_FILES_SINCE_MATCHED_BRANCH = Boolean.getBoolean(
+    "sonarlint.changedFiles.sinceMatchedBranch");
 
   private static final Map<ISonarLintProject, Object> previousCommitRefCache = new ConcurrentHashMap<>();
   private static final Map<ISonarLintProject, String> matchedSonarProjectBranchCache = new ConcurrentHashMap<>();
@@ -52,8 +57,36 @@ public class VcsService {
     return FACADE.isIgnored(file);
   }
 
-  public static boolean inRepository(IResource resource) {
-    return FACADE.inRepository(resource);
+  public static Set<ISonarLintFile> getIgnored(Collection<ISonarLintFile> files) {
+    return FACADE.getIgnored(files);
+  }
+
+  /**
+   *  The files changed compared to HEAD, read from Git directly. With "-Dsonarlint.changedFiles.sinceMatchedBranch=true"
+   *  the files changed since HEAD diverged from the matched branch are included as well, when connected.
+   *
+   *  @return project relative paths, empty when the project is not inside a Git repository
+   */
+  public static Optional<Set<String>> getChangedFiles(ISonarLintProject project) {
+    var baseBranch = CHANGED_FILES_SINCE_MATCHED_BRANCH ? matchedSonarProjectBranchCache.get(project) : null;
+    return FACADE.getChangedFiles(project, baseBranch);
+  }
+
+  public static boolean isIgnoreFile(IResource resource) {
+    return JGitFacade.isIgnoreFile(resource);
+  }
+
+  public static void ignoreFileChanged(IResource ignoreFile) {
+    FACADE.ignoreFileChanged(ignoreFile);
+  }
+
+  public static boolean inRepository(ISonarLintProject project) {
+    return FACADE.inRepository(project);
+  }
+
+  /** The project was opened, closed or moved, its repository has to be resolved again */
+  public static void projectRepositoryChanged(IResource projectResource) {
+    FACADE.projectChanged(projectResource);
   }
 
   @Nullable
@@ -65,7 +98,10 @@ public class VcsService {
   }
 
   private static void saveCurrentCommitRef(ISonarLintProject project) {
-    Object newCommitRef = FACADE.getCurrentCommitRef(project);
+    saveCommitRef(project, FACADE.getCurrentCommitRef(project));
+  }
+
+  private static void saveCommitRef(ISonarLintProject project, @Nullable Object newCommitRef) {
     if (newCommitRef == null) {
       previousCommitRefCache.remove(project);
     } else {
@@ -89,29 +125,61 @@ public class VcsService {
   }
 
   public static void installBranchChangeListener() {
-    FACADE.addHeadRefsChangeListener(projects -> new BranchChangeJob(projects).schedule());
+    FACADE.addHeadRefsChangeListener(BRANCH_CHANGE_JOB::projectsAffected);
   }
 
   public static void removeBranchChangeListener() {
     FACADE.removeHeadRefsChangeListener();
+    BRANCH_CHANGE_JOB.cancel();
   }
 
+  /**
+   *  A rebase, a fetch or a checkout fires a lot of refs changed events in a row. The projects affected are collected
+   *  until no event came in for a short while (but not longer than a few seconds in total), then HEAD is only read
+   *  once per repository and SLCORE is notified at most once per project.
+   */
   private static class BranchChangeJob extends Job {
-    private final List<ISonarLintProject> affectedProjects;
+    private static final long QUIET_WINDOW_MS = 500;
+    private static final long MAX_DELAY_MS = 5_000;
+
+    private final Set<ISonarLintProject> affectedProjects = new LinkedHashSet<>();
+    private long firstEventTime = -1;
 
-    public BranchChangeJob(List<ISonarLintProject> affectedProjects) {
+    public BranchChangeJob() {
       super("Refresh SonarLint matching branches");
-      this.affectedProjects = affectedProjects;
       setPriority(LONG);
       setSystem(true);
     }
 
+    synchronized void projectsAffected(List<ISonarLintProject> projects) {
+      affectedProjects.addAll(projects);
+      var now = System.currentTimeMillis();
+      if (firstEventTime < 0) {
+        firstEventTime = now;
+      }
+      // A job that is already running is not cancelled but scheduled again afterwards
+      cancel();
+      schedule(Math.max(0, Math.min(QUIET_WINDOW_MS, firstEventTime + MAX_DELAY_MS - now)));
+    }
+
+    private synchronized Set<ISonarLintProject> drainAffectedProjects() {
+      var projects = new LinkedHashSet<>(affectedProjects);
+      affectedProjects.clear();
+      firstEventTime = -1;
+      return projects;
+    }
+
     @Override
     protected IStatus run(IProgressMonitor monitor) {
-      affectedProjects.forEach(project -> {
-        Object newCommitRef = FACADE.getCurrentCommitRef(project);
+      var projects = drainAffectedProjects();
+      if (projects.isEmpty()) {
+        return Status.OK_STATUS;
+      }
+      var commitRefs = FACADE.getCurrentCommitRefs(projects);
+      projects.forEach(project -> {
+        Object newCommitRef = commitRefs.get(project);
         if (shouldRecomputeMatchingBranch(project, newCommitRef)) {
-          saveCurrentCommitRef(project);
+          saveCommitRef(project, newCommitRef);
           SonarLintBackendService.get().didVcsRepositoryChange(project);
         }
       });
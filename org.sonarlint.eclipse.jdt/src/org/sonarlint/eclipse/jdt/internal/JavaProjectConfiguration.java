@@ -30,6 +30,7 @@ public class JavaProjectConfiguration {
   private final Set<String> testLibraries = new LinkedHashSet<>();
   private final Set<String> binaries = new LinkedHashSet<>();
   private final Set<String> testBinaries = new LinkedHashSet<>();
+  private boolean complete = true;
 
   public Set<Object> dependentProjects() {
     return dependentProjects;
@@ -55,4 +56,13 @@ public class JavaProjectConfiguration {
     return testBinaries;
   }
 
+  /** Some library or output directory was not found (yet), e.g. before the first build */
+  public void markIncomplete() {
+    complete = false;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
 }
@@ -0,0 +1,248 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.jdt.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ *  Caches the classpath information of Java projects used for configuring the analysis, as computing it requires the
+ *  resolved classpath of the project and all the projects it depends on, as well as checking every library and output
+ *  directory on the file system. This is done on two levels:
+ *
+ *  - the resolved classpath of every project with its libraries and output directories found on the file system,
+ *    shared by all the projects depending on it
+ *  - the whole configuration of a project analyzed, depending on the ones of all the projects on its classpath
+ *
+ *  Both are invalidated by JDT classpath changes of the project or of any project it depends on. Paths not found on
+ *  the file system are not cached, as e.g. output directories are only created by the first build. For the same
+ *  reason, configurations with missing paths are computed again on the next analysis. As output directories and
+ *  libraries inside the workspace can be deleted or created without any classpath change (e.g. "mvn clean"), the
+ *  resource deltas of these locations invalidate the project as well. Reading the cache never checks the file system.
+ */
+public class JavaProjectConfigurationCache implements IElementChangedListener, IResourceChangeListener {
+  private static final int CLASSPATH_CHANGED = IJavaElementDelta.F_CLASSPATH_CHANGED
+    | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+    | IJavaElementDelta.F_OPENED
+    | IJavaElementDelta.F_CLOSED;
+  private static final int ROOT_CHANGED = IJavaElementDelta.F_ADDED_TO_CLASSPATH
+    | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH;
+
+  @Nullable
+  private static JavaProjectConfigurationCache instance;
+
+  private final ConcurrentHashMap<IJavaProject, ProjectClasspath> classpaths = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<IJavaProject, CachedConfiguration> configurations = new ConcurrentHashMap<>();
+  /** Incremented on every invalidation, so that results computed in the meantime are not cached */
+  private final AtomicLong generation = new AtomicLong();
+
+  private JavaProjectConfigurationCache() {
+    // singleton, only created when JDT is present
+  }
+
+  public static synchronized JavaProjectConfigurationCache get() {
+    if (instance == null) {
+      instance = new JavaProjectConfigurationCache();
+      JavaCore.addElementChangedListener(instance, ElementChangedEvent.POST_CHANGE);
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(instance, IResourceChangeEvent.POST_CHANGE);
+    }
+    return instance;
+  }
+
+  /** Unregisters the listeners when the cache was used, only to be called when JDT is present */
+  public static synchronized void stop() {
+    if (instance != null) {
+      JavaCore.removeElementChangedListener(instance);
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance);
+      instance = null;
+    }
+  }
+
+  @FunctionalInterface
+  interface ConfigurationComputer {
+    JavaProjectConfiguration compute(IJavaProject javaProject) throws JavaModelException;
+  }
+
+  JavaProjectConfiguration getConfiguration(IJavaProject javaProject, ConfigurationComputer computer) throws JavaModelException {
+    var cached = configurations.get(javaProject);
+    if (cached != null) {
+      return cached.configuration;
+    }
+    var currentGeneration = generation.get();
+    var configuration = computer.compute(javaProject);
+    if (configuration.isComplete() && currentGeneration == generation.get()) {
+      var projects = new HashSet<Object>(configuration.dependentProjects());
+      projects.addAll(configuration.testDependentProjects());
+      configurations.put(javaProject, new CachedConfiguration(configuration, projects));
+    }
+    return configuration;
+  }
+
+  ProjectClasspath getClasspath(IJavaProject javaProject) throws JavaModelException {
+    var cached = classpaths.get(javaProject);
+    if (cached != null) {
+      return cached;
+    }
+    var currentGeneration = generation.get();
+    var classpath = new ProjectClasspath(javaProject.getResolvedClasspath(true), javaProject.getOutputLocation());
+    if (currentGeneration == generation.get()) {
+      classpaths.put(javaProject, classpath);
+    }
+    return classpath;
+  }
+
+  @Override
+  public void elementChanged(ElementChangedEvent event) {
+    processDelta(event.getDelta());
+  }
+
+  /** Output directories or libraries inside the workspace that were created or deleted */
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    var delta = event.getDelta();
+    if (delta == null) {
+      return;
+    }
+    for (var entry : classpaths.entrySet()) {
+      for (var path : entry.getValue().watchedPaths) {
+        var memberDelta = delta.findMember(path);
+        if (memberDelta != null && (memberDelta.getKind() & (IResourceDelta.ADDED | IResourceDelta.REMOVED)) != 0) {
+          invalidate(entry.getKey());
+          break;
+        }
+      }
+    }
+  }
+
+  private void processDelta(IJavaElementDelta delta) {
+    var element = delta.getElement();
+    if (element.getElementType() == IJavaElement.JAVA_MODEL) {
+      for (var child : delta.getAffectedChildren()) {
+        processDelta(child);
+      }
+    } else if (element.getElementType() == IJavaElement.JAVA_PROJECT) {
+      var javaProject = (IJavaProject) element;
+      if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGED) != 0) {
+        invalidate(javaProject);
+        return;
+      }
+      for (var child : delta.getAffectedChildren()) {
+        if (child.getElement().getElementType() == IJavaElement.PACKAGE_FRAGMENT_ROOT
+          && (child.getKind() != IJavaElementDelta.CHANGED || (child.getFlags() & ROOT_CHANGED) != 0)) {
+          invalidate(javaProject);
+          return;
+        }
+      }
+    }
+  }
+
+  /** Drops the classpath of the project and the configuration of every project depending on it */
+  // Visible for testing
+  public void invalidate(IJavaProject javaProject) {
+    generation.incrementAndGet();
+    classpaths.remove(javaProject);
+    configurations.entrySet().removeIf(e -> e.getKey().equals(javaProject) || e.getValue().projects.contains(javaProject));
+  }
+
+  /** The resolved classpath of a project, the paths are only cached when found on the file system */
+  static class ProjectClasspath {
+    private final IClasspathEntry[] entries;
+    private final IPath outputLocation;
+    private final ConcurrentHashMap<IPath, String> libraries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<IPath, String> absolutePaths = new ConcurrentHashMap<>();
+    /** Workspace paths whose creation or deletion changes the configuration, without any classpath change */
+    private final List<IPath> watchedPaths = new ArrayList<>();
+
+    private ProjectClasspath(IClasspathEntry[] entries, IPath outputLocation) {
+      this.entries = entries;
+      this.outputLocation = outputLocation;
+      if (outputLocation != null) {
+        watchedPaths.add(outputLocation);
+      }
+      for (var entry : entries) {
+        if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE && entry.getOutputLocation() != null) {
+          watchedPaths.add(entry.getOutputLocation());
+        } else if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY && entry.getPath() != null) {
+          watchedPaths.add(entry.getPath());
+        }
+      }
+    }
+
+    IClasspathEntry[] getEntries() {
+      return entries;
+    }
+
+    IPath getOutputLocation() {
+      return outputLocation;
+    }
+
+    @Nullable
+    String getLibrary(IPath path, Function<IPath, String> resolver) {
+      return getExisting(libraries, path, resolver);
+    }
+
+    @Nullable
+    String getAbsolutePath(IPath path, Function<IPath, String> resolver) {
+      return getExisting(absolutePaths, path, resolver);
+    }
+
+    @Nullable
+    private static String getExisting(ConcurrentHashMap<IPath, String> paths, IPath path, Function<IPath, String> resolver) {
+      var cached = paths.get(path);
+      if (cached != null) {
+        return cached;
+      }
+      var resolved = resolver.apply(path);
+      if (resolved != null) {
+        paths.put(path, resolved);
+      }
+      return resolved;
+    }
+  }
+
+  private static class CachedConfiguration {
+    private final JavaProjectConfiguration configuration;
+    private final Set<Object> projects;
+
+    private CachedConfiguration(JavaProjectConfiguration configuration, Set<Object> projects) {
+      this.configuration = configuration;
+      this.projects = projects;
+    }
+  }
+}
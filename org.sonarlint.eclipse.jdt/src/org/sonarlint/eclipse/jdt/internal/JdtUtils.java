@@ -48,6 +48,7 @@ import org.sonarlint.eclipse.core.analysis.IPreAnalysisContext;
 import org.sonarlint.eclipse.core.internal.utils.BundleUtils;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.jdt.internal.JavaProjectConfigurationCache.ProjectClasspath;
 
 public class JdtUtils {
 
@@ -113,15 +114,20 @@ public class JdtUtils {
     context.setAnalysisProperty("sonar.java.enablePreview", javaPreview.equalsIgnoreCase(JavaCore.ENABLED) ? "true" : "false");
 
     try {
-      var configuration = new JavaProjectConfiguration();
-      configuration.dependentProjects().add(javaProject);
-      addClassPathToSonarProject(javaProject, configuration, true, false, false);
+      var configuration = JavaProjectConfigurationCache.get().getConfiguration(javaProject, JdtUtils::computeConfiguration);
       configurationToProperties(context, configuration);
     } catch (JavaModelException e) {
       SonarLintLogger.get().error(e.getMessage(), e);
     }
   }
 
+  private static JavaProjectConfiguration computeConfiguration(IJavaProject javaProject) throws JavaModelException {
+    var configuration = new JavaProjectConfiguration();
+    configuration.dependentProjects().add(javaProject);
+    addClassPathToSonarProject(javaProject, configuration, true, false, false);
+    return configuration;
+  }
+
   /**
    * Adds the classpath of an eclipse project to the sonarProject recursively, i.e
    * it iterates all dependent projects. Libraries and output folders of dependent projects
@@ -134,14 +140,14 @@ public class JdtUtils {
    */
   private static void addClassPathToSonarProject(IJavaProject javaProject, JavaProjectConfiguration context, boolean topProject, boolean isTestEntry, boolean isWithoutTestCode)
     throws JavaModelException {
-    var classPath = javaProject.getResolvedClasspath(true);
-    for (var entry : classPath) {
+    var classPath = JavaProjectConfigurationCache.get().getClasspath(javaProject);
+    for (var entry : classPath.getEntries()) {
       switch (entry.getEntryKind()) {
         case IClasspathEntry.CPE_SOURCE:
-          processSourceEntry(entry, context, topProject, isTestEntry, isWithoutTestCode);
+          processSourceEntry(entry, classPath, context, topProject, isTestEntry, isWithoutTestCode);
           break;
         case IClasspathEntry.CPE_LIBRARY:
-          processLibraryEntry(entry, javaProject, context, topProject, isTestEntry, isWithoutTestCode);
+          processLibraryEntry(entry, javaProject, classPath, context, topProject, isTestEntry, isWithoutTestCode);
           break;
         case IClasspathEntry.CPE_PROJECT:
           processProjectEntry(entry, javaProject, context, isTestEntry, isWithoutTestCode);
@@ -152,7 +158,7 @@ public class JdtUtils {
       }
     }
 
-    processOutputDir(javaProject.getOutputLocation(), context, topProject, isTestEntry);
+    processOutputDir(classPath.getOutputLocation(), classPath, context, topProject, isTestEntry);
   }
 
   @Nullable
@@ -187,8 +193,9 @@ public class JdtUtils {
     return null;
   }
 
-  private static void processOutputDir(IPath outputDir, JavaProjectConfiguration context, boolean topProject, boolean testEntry) throws JavaModelException {
-    var outDir = getAbsolutePathAsString(outputDir);
+  private static void processOutputDir(IPath outputDir, ProjectClasspath classPath, JavaProjectConfiguration context, boolean topProject,
+    boolean testEntry) {
+    var outDir = classPath.getAbsolutePath(outputDir, JdtUtils::getAbsolutePathAsString);
     if (outDir != null) {
       if (topProject) {
         if (testEntry) {
@@ -207,33 +214,35 @@ public class JdtUtils {
         }
       }
     } else {
+      context.markIncomplete();
       SonarLintLogger.get().debug("Binary directory '" + outputDir + "' was not added because it was not found. Maybe you should enable auto build of your project.");
     }
   }
 
-  private static void processSourceEntry(IClasspathEntry entry, JavaProjectConfiguration context, boolean topProject, boolean testEntry, boolean isWithoutTestCode)
-    throws JavaModelException {
+  private static void processSourceEntry(IClasspathEntry entry, ProjectClasspath classPath, JavaProjectConfiguration context, boolean topProject,
+    boolean testEntry, boolean isWithoutTestCode) {
     if (isSourceExcluded(entry) || (isTest(entry) && isWithoutTestCode)) {
       return;
     }
     if (entry.getOutputLocation() != null) {
-      processOutputDir(entry.getOutputLocation(), context, topProject, testEntry || isTest(entry));
+      processOutputDir(entry.getOutputLocation(), classPath, context, topProject, testEntry || isTest(entry));
     }
   }
 
-  private static void processLibraryEntry(IClasspathEntry entry, IJavaProject javaProject, JavaProjectConfiguration context, boolean topProject, boolean testEntry,
-    boolean isWithoutTestCode)
-    throws JavaModelException {
+  private static void processLibraryEntry(IClasspathEntry entry, IJavaProject javaProject, ProjectClasspath classPath, JavaProjectConfiguration context,
+    boolean topProject, boolean testEntry, boolean isWithoutTestCode) {
     if ((isTest(entry) && isWithoutTestCode) || (!topProject && !entry.isExported())) {
       return;
     }
-    final var libPath = resolveLibrary(javaProject, entry);
+    final var libPath = classPath.getLibrary(entry.getPath(), path -> resolveLibrary(javaProject, path));
     if (libPath != null) {
       if (testEntry || isTest(entry)) {
         context.testLibraries().add(libPath);
       } else {
         addMainClasspathEntry(context, libPath);
       }
+    } else {
+      context.markIncomplete();
     }
   }
 
@@ -258,20 +267,20 @@ public class JdtUtils {
   }
 
   @Nullable
-  private static String resolveLibrary(IJavaProject javaProject, IClasspathEntry entry) {
+  private static String resolveLibrary(IJavaProject javaProject, IPath entryPath) {
     final String libPath;
-    var member = findPath(javaProject.getProject(), entry.getPath());
+    var member = findPath(javaProject.getProject(), entryPath);
     if (member != null) {
       var location = member.getLocation();
       if (location == null) {
-        SonarLintLogger.get().error("Library at '" + entry.getPath() + "' could not be resolved correctly on project '"
+        SonarLintLogger.get().error("Library at '" + entryPath + "' could not be resolved correctly on project '"
           + javaProject.getPath() + "' from workspace member: " + member);
         return null;
       }
 
       libPath = location.toOSString();
     } else {
-      libPath = entry.getPath().makeAbsolute().toOSString();
+      libPath = entryPath.makeAbsolute().toOSString();
     }
     if (!new File(libPath).exists()) {
       return null;
@@ -19,22 +19,32 @@
  */
 package org.sonarlint.eclipse.ui.internal;
 
+import java.util.Set;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
 import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
-import org.sonarlint.eclipse.core.internal.cache.DefaultSonarLintProjectAdapterCache;
-import org.sonarlint.eclipse.core.internal.cache.IProjectScopeProviderCache;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache;
+import org.sonarlint.eclipse.core.internal.cache.AbstractConfigScopeIdCache.InvalidationEvent;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisWorkDirPool;
+import org.sonarlint.eclipse.core.internal.jobs.DeferredAnalysisQueue;
+import org.sonarlint.eclipse.core.internal.jobs.IssuesMarkerUpdateJob;
 import org.sonarlint.eclipse.core.internal.utils.SonarLintUtils;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
 /**
- *  This is used for cleaning all the caches linked to a project (via its configuration scope id) when it is closed.
- *  We want to remove the cache entries immediately instead of waiting for the caches to clean themselves.
+ *  This is used for invalidating all the caches linked to a project (via its configuration scope id) when it is
+ *  closed, or when one of the files describing the build model of the project (Eclipse, JDT, CDT, Maven, Gradle)
+ *  was changed. The caches don't expire on their own!
  */
 public class ConfigScopeIdCacheCleaner implements IResourceChangeListener {
+  private static final String SETTINGS_FOLDER = ".settings";
+  private static final Set<String> BUILD_MODEL_FILES = Set.of(".project", ".classpath", ".cproject", "pom.xml",
+    "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts", "gradle.properties");
+
   @Override
   public void resourceChanged(IResourceChangeEvent event) {
     if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
@@ -47,20 +57,41 @@ public class ConfigScopeIdCacheCleaner implements IResourceChangeListener {
   }
 
   private static boolean visitDelta(IResourceDelta delta) {
+    if (delta.getResource().getType() != IResource.PROJECT) {
+      // We didn't reach a project yet, maybe a container containing a project. Therefore, dig deeper!
+      return delta.getResource().getType() == IResource.ROOT;
+    }
+
+    var project = SonarLintUtils.adapt(delta.getResource(), ISonarLintProject.class,
+      "[ConfigScopeIdCacheCleaner#visitDelta] Try get project of event '" + delta.getResource() + "'");
+    if (project == null) {
+      return false;
+    }
+
     if ((delta.getFlags() & IResourceDelta.OPEN) != 0) {
-      var project = SonarLintUtils.adapt(delta.getResource(), ISonarLintProject.class,
-        "[DefaultSonarLintProjectAdapterCacheCleaner#visitDelta] Try get project of event '" + delta.getResource()
-          + "'");
-      if (project != null && (!project.isOpen())) {
+      if (!project.isOpen()) {
         var configScopeId = ConfigScopeSynchronizer.getConfigScopeId(project);
-
-        DefaultSonarLintProjectAdapterCache.INSTANCE.removeEntry(configScopeId);
-        IProjectScopeProviderCache.INSTANCE.removeEntry(configScopeId);
+        AbstractConfigScopeIdCache.invalidate(configScopeId, InvalidationEvent.PROJECT_CLOSED);
+        DeferredAnalysisQueue.get().discard(configScopeId);
+        AnalysisWorkDirPool.get().discard(project);
+        IssuesMarkerUpdateJob.INSTANCE.discard(project);
+        AbstractConfigScopeIdCache.traceStatistics();
       }
-      return false;
+    } else if (project.isOpen() && buildModelChanged(delta)) {
+      AbstractConfigScopeIdCache.invalidate(ConfigScopeSynchronizer.getConfigScopeId(project),
+        InvalidationEvent.BUILD_MODEL_CHANGED);
     }
+    return false;
+  }
 
-    // We didn't close a project, maybe a container containing a project. Therefore, dig deeper!
-    return true;
+  /** Only the files directly in the project (or its settings folder) are relevant */
+  private static boolean buildModelChanged(IResourceDelta projectDelta) {
+    for (var child : projectDelta.getAffectedChildren()) {
+      var name = child.getResource().getName();
+      if (BUILD_MODEL_FILES.contains(name) || SETTINGS_FOLDER.equals(name)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,321 @@
+/*
+ * SonarLint for Eclipse
+ * Copyright (C) SonarSource Sàrl
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.eclipse.ui.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IPartListener2;
+import org.eclipse.ui.IWorkbenchPartReference;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.texteditor.ITextEditor;
+import org.sonarlint.eclipse.core.SonarLintLogger;
+import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
+import org.sonarlint.eclipse.core.internal.TriggerType;
+import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisScheduler;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest;
+import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest.FileWithDocument;
+import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
+import org.sonarlint.eclipse.core.resource.ISonarLintFile;
+import org.sonarlint.eclipse.ui.internal.binding.actions.AnalysisJobsScheduler;
+
+import static org.sonarlint.eclipse.ui.internal.util.PlatformUtils.doIfSonarLintFileInEditor;
+
+/**
+ *  When enabled in the preferences, files opened in a text editor are analyzed while the user is typing, without the
+ *  need to save them first. For that, the unsaved content of the document is sent to SLCORE before the analysis.
+ *
+ *  In order to not queue up analyses of outdated content when typing fast, the analysis is debounced: It is only
+ *  triggered once the user stopped typing for a moment, the delay adapting to the typing speed and to the duration of
+ *  the previous analyses of the file. An analysis still running when the user continues typing is cancelled.
+ *
+ *  All the part and document events are received on the UI thread, the communication with SLCORE is done in a job.
+ *  When the preference is changed, the editors already open are attached or detached accordingly.
+ */
+public class LiveAnalysisTrigger implements IPartListener2 {
+  private static final long MIN_DELAY_MS = 200;
+  private static final long MAX_DELAY_MS = 1_500;
+
+  private final Map<IEditorPart, DocumentTracker> trackersPerEditor = new HashMap<>();
+  private final Map<IDocument, DocumentTracker> trackersPerDocument = new HashMap<>();
+
+  @Override
+  public void partOpened(IWorkbenchPartReference partRef) {
+    doIfSonarLintFileInEditor(partRef, this::track);
+  }
+
+  /** Editors restored on startup are not opened (again) but only become visible */
+  @Override
+  public void partVisible(IWorkbenchPartReference partRef) {
+    doIfSonarLintFileInEditor(partRef, this::track);
+  }
+
+  @Override
+  public void partClosed(IWorkbenchPartReference partRef) {
+    var part = partRef.getPart(false);
+    if (!(part instanceof IEditorPart)) {
+      return;
+    }
+    var tracker = trackersPerEditor.remove(part);
+    if (tracker != null && --tracker.editors == 0) {
+      trackersPerDocument.remove(tracker.document);
+      tracker.close();
+    }
+  }
+
+  /** Has to be called on the UI thread after the preference to analyze while typing changed */
+  void analyzeWhileTypingChanged() {
+    if (!SonarLintGlobalConfiguration.analyzeWhileTyping()) {
+      // Closing the trackers makes SLCORE go back to the content on disk of the files with unsaved changes
+      trackersPerDocument.values().forEach(DocumentTracker::close);
+      trackersPerDocument.clear();
+      trackersPerEditor.clear();
+      return;
+    }
+    if (!PlatformUI.isWorkbenchRunning()) {
+      return;
+    }
+    for (var window : PlatformUI.getWorkbench().getWorkbenchWindows()) {
+      for (var page : window.getPages()) {
+        for (var editorRef : page.getEditorReferences()) {
+          // Editors not yet restored are tracked once they become visible
+          var editor = editorRef.getEditor(false);
+          if (editor != null) {
+            doIfSonarLintFileInEditor(editor, this::track);
+          }
+        }
+      }
+    }
+  }
+
+  private void track(ISonarLintFile file, IEditorPart editorPart) {
+    if (!(editorPart instanceof ITextEditor) || trackersPerEditor.containsKey(editorPart)
+      || !SonarLintGlobalConfiguration.analyzeWhileTyping()) {
+      return;
+    }
+    var textEditor = (ITextEditor) editorPart;
+    var document = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+    if (document == null) {
+      return;
+    }
+
+    // The same document can be shown in multiple editors, e.g. when splitting the editor
+    var tracker = trackersPerDocument.computeIfAbsent(document, d -> {
+      var newTracker = new DocumentTracker(file, d);
+      newTracker.schedule();
+      return newTracker;
+    });
+    tracker.editors++;
+    trackersPerEditor.put(editorPart, tracker);
+  }
+
+  @Override
+  public void partInputChanged(IWorkbenchPartReference partRef) {
+    // Nothing to do
+  }
+
+  @Override
+  public void partHidden(IWorkbenchPartReference partRef) {
+    // Nothing to do
+  }
+
+  @Override
+  public void partDeactivated(IWorkbenchPartReference partRef) {
+    // Nothing to do
+  }
+
+  @Override
+  public void partBroughtToTop(IWorkbenchPartReference partRef) {
+    // Nothing to do
+  }
+
+  @Override
+  public void partActivated(IWorkbenchPartReference partRef) {
+    // Nothing to do
+  }
+
+  /** Keeps track of the changes to one document and synchronizes them with SLCORE one after another */
+  // Visible for testing
+  public static class DocumentTracker extends Job implements IDocumentListener {
+    private final ISonarLintFile file;
+    private final IDocument document;
+    private int editors;
+
+    private volatile boolean closed;
+    private volatile boolean changed;
+    private volatile long lastChange;
+    private volatile long typingInterval = MIN_DELAY_MS / 2;
+    private volatile long analysisDuration;
+    @Nullable
+    private volatile AnalysisScheduler.ScheduledRequest analysisRequest;
+
+    // Only accessed inside the job, therefore one at a time
+    private boolean opened;
+    private boolean contentSent;
+
+    /** The job has to be scheduled once by the caller in order to open the file in SLCORE */
+    // Visible for testing
+    public DocumentTracker(ISonarLintFile file, IDocument document) {
+      super("SonarLint - Synchronize unsaved changes of " + file.getName());
+      this.file = file;
+      this.document = document;
+      setSystem(true);
+      document.addDocumentListener(this);
+    }
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+      // Nothing to do
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+      var now = currentTimeMillis();
+      var interval = now - lastChange;
+      lastChange = now;
+      if (interval < MAX_DELAY_MS) {
+        // Longer intervals are pauses and not the typing speed
+        typingInterval = (typingInterval * 7 + interval * 3) / 10;
+      }
+      changed = true;
+
+      // The user typed past the content that is currently analyzed, no need to wait for its issues. Only this request
+      // is withdrawn, the analysis continues when other requests (e.g. on save) were merged with it.
+      var runningAnalysis = analysisRequest;
+      if (runningAnalysis != null) {
+        runningAnalysis.cancel();
+      }
+
+      // Trailing debounce: The job only runs once the user stopped typing for the given delay
+      cancel();
+      schedule(delay());
+    }
+
+    /** Wait a bit longer than the usual pause between two keystrokes, and don't analyze more often than it takes */
+    // Visible for testing
+    public long delay() {
+      var delay = Math.max(typingInterval * 2, analysisDuration / 2);
+      return Math.min(MAX_DELAY_MS, Math.max(MIN_DELAY_MS, delay));
+    }
+
+    // Visible for testing
+    public void close() {
+      document.removeDocumentListener(this);
+      closed = true;
+      var runningAnalysis = analysisRequest;
+      if (runningAnalysis != null) {
+        runningAnalysis.cancel();
+      }
+      // When the job is currently running, it will run once more afterwards
+      schedule();
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      try {
+        if (closed) {
+          if (opened) {
+            // When the editor was closed without saving, SLCORE has to go back to the content on disk
+            if (contentSent) {
+              didChangeFileContent(null);
+            }
+            didCloseFile();
+          }
+          return Status.OK_STATUS;
+        }
+        if (!opened) {
+          didOpenFile();
+          opened = true;
+        }
+        if (!changed || monitor.isCanceled()) {
+          return Status.OK_STATUS;
+        }
+        if (!isEnabled()) {
+          return Status.OK_STATUS;
+        }
+
+        changed = false;
+        didChangeFileContent(document.get());
+        contentSent = true;
+        if (monitor.isCanceled()) {
+          return Status.CANCEL_STATUS;
+        }
+
+        var request = new AnalyzeProjectRequest(file.getProject(), List.of(new FileWithDocument(file, document)),
+          TriggerType.EDITOR_TYPING, false);
+        var scheduledRequest = scheduleAnalysis(request);
+        if (scheduledRequest != null) {
+          var start = currentTimeMillis();
+          scheduledRequest.addDoneListener(result -> {
+            if (result.isOK()) {
+              analysisDuration = currentTimeMillis() - start;
+            }
+          });
+          analysisRequest = scheduledRequest;
+        }
+      } catch (Exception err) {
+        SonarLintLogger.get().error("Unable to synchronize the unsaved changes of '" + file.getName() + "'", err);
+      }
+      return Status.OK_STATUS;
+    }
+
+    // Visible for testing
+    protected long currentTimeMillis() {
+      return System.currentTimeMillis();
+    }
+
+    // Visible for testing
+    protected boolean isEnabled() {
+      return SonarLintGlobalConfiguration.analyzeWhileTyping()
+        && SonarLintCorePlugin.loadConfig(file.getProject()).isAutoEnabled();
+    }
+
+    // Visible for testing
+    protected void didOpenFile() {
+      SonarLintBackendService.get().didOpenFile(file);
+    }
+
+    // Visible for testing
+    protected void didChangeFileContent(@Nullable String unsavedContent) {
+      SonarLintBackendService.get().didChangeFileContent(file, unsavedContent);
+    }
+
+    // Visible for testing
+    protected void didCloseFile() {
+      SonarLintBackendService.get().didCloseFile(file);
+    }
+
+    // Visible for testing
+    @Nullable
+    protected AnalysisScheduler.ScheduledRequest scheduleAnalysis(AnalyzeProjectRequest request) {
+      return AnalysisJobsScheduler.scheduleAutoAnalysisIfEnabled(request);
+    }
+  }
+}
@@ -197,6 +197,9 @@ public class SonarLintUiPlugin extends AbstractUIPlugin {
         } catch (CoreException e) {
           SonarLintLogger.get().error("Unable to update marker severity", e);
         }
+      } else if (event.getProperty().equals(SonarLintGlobalConfiguration.PREF_ANALYZE_WHILE_TYPING)
+        && PlatformUI.isWorkbenchRunning()) {
+        Display.getDefault().asyncExec(WindowOpenCloseListener::analyzeWhileTypingChanged);
       }
     };
 
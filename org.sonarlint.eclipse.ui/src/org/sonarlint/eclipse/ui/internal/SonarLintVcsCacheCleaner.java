@@ -19,6 +19,7 @@
  */
 package org.sonarlint.eclipse.ui.internal;
 
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
@@ -29,6 +30,8 @@ import org.sonarlint.eclipse.core.internal.vcs.VcsService;
 import org.sonarlint.eclipse.core.resource.ISonarLintProject;
 
 public class SonarLintVcsCacheCleaner implements IResourceChangeListener {
+  private static final int PROJECT_REPOSITORY_CHANGED = IResourceDelta.OPEN | IResourceDelta.DESCRIPTION
+    | IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO;
 
   @Override
   public void resourceChanged(IResourceChangeEvent event) {
@@ -42,6 +45,11 @@ public class SonarLintVcsCacheCleaner implements IResourceChangeListener {
   }
 
   private static boolean visitDelta(IResourceDelta delta) {
+    var resource = delta.getResource();
+    if (resource.getType() == IResource.PROJECT && (delta.getKind() != IResourceDelta.CHANGED
+      || (delta.getFlags() & PROJECT_REPOSITORY_CHANGED) != 0)) {
+      VcsService.projectRepositoryChanged(resource);
+    }
     if ((delta.getFlags() & IResourceDelta.OPEN) != 0) {
       var project = SonarLintUtils.adapt(delta.getResource(), ISonarLintProject.class,
         "[SonarLintVcsCacheCleaner#visitDelta] Try get project of event '" + delta.getResource() + "'");
@@ -50,6 +58,10 @@ public class SonarLintVcsCacheCleaner implements IResourceChangeListener {
       }
       return false;
     }
+    if (VcsService.isIgnoreFile(resource) && (delta.getKind() != IResourceDelta.CHANGED
+      || (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)) {
+      VcsService.ignoreFileChanged(resource);
+    }
     return true;
   }
 }
@@ -28,6 +28,7 @@ import org.sonarlint.eclipse.ui.internal.flowlocations.SonarLintFlowAnnotator;
 class WindowOpenCloseListener implements IWindowListener {
 
   private static final OpenEditorAnalysisTrigger OPEN_EDITOR_ANALYSIS_TRIGGER = new OpenEditorAnalysisTrigger();
+  private static final LiveAnalysisTrigger LIVE_ANALYSIS_TRIGGER = new LiveAnalysisTrigger();
   private static final TaintMarkersPartListener TAINT_MARKER_PART_LISTENER = new TaintMarkersPartListener();
 
   private static final IPageListener PAGE_OPEN_CLOSE_LISTENER = new IPageListener() {
@@ -72,6 +73,11 @@ class WindowOpenCloseListener implements IWindowListener {
     // Nothing to do when user come back
   }
 
+  /** Has to be called on the UI thread */
+  static void analyzeWhileTypingChanged() {
+    LIVE_ANALYSIS_TRIGGER.analyzeWhileTypingChanged();
+  }
+
   static void addListenerToAllPages(IWorkbenchWindow window) {
     for (var page : window.getPages()) {
       addListenersToPage(page);
@@ -80,6 +86,7 @@ class WindowOpenCloseListener implements IWindowListener {
 
   private static void addListenersToPage(IWorkbenchPage page) {
     page.addPartListener(OPEN_EDITOR_ANALYSIS_TRIGGER);
+    page.addPartListener(LIVE_ANALYSIS_TRIGGER);
     page.addPartListener(TAINT_MARKER_PART_LISTENER);
     page.addPartListener(SonarLintFlowAnnotator.PART_LISTENER);
     page.addPostSelectionListener(SonarLintUiPlugin.getSonarlintMarkerSelectionService());
@@ -93,6 +100,7 @@ class WindowOpenCloseListener implements IWindowListener {
 
   private static void removeListenersFromPage(IWorkbenchPage page) {
     page.removePartListener(OPEN_EDITOR_ANALYSIS_TRIGGER);
+    page.removePartListener(LIVE_ANALYSIS_TRIGGER);
     page.removePartListener(TAINT_MARKER_PART_LISTENER);
     page.removePartListener(SonarLintFlowAnnotator.PART_LISTENER);
     page.removePostSelectionListener(SonarLintUiPlugin.getSonarlintMarkerSelectionService());
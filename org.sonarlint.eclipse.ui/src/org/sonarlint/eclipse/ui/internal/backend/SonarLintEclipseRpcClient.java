@@ -39,7 +39,8 @@ import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
 import org.sonarlint.eclipse.core.internal.TriggerType;
 import org.sonarlint.eclipse.core.internal.backend.ConfigScopeSynchronizer;
 import org.sonarlint.eclipse.core.internal.backend.SonarLintEclipseHeadlessRpcClient;
-import org.sonarlint.eclipse.core.internal.jobs.AnalysisReadyStatusCache;
+import org.sonarlint.eclipse.core.internal.cache.TaintVulnerabilitiesCache;
+import org.sonarlint.eclipse.core.internal.jobs.DeferredAnalysisQueue;
 import org.sonarlint.eclipse.core.internal.jobs.TaintIssuesMarkerUpdateJob;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
 import org.sonarlint.eclipse.core.internal.telemetry.SonarLintTelemetry;
@@ -262,6 +263,7 @@ public class SonarLintEclipseRpcClient extends SonarLintEclipseHeadlessRpcClient
   @Override
   public void didSynchronizeConfigurationScopes(Set<String> configurationScopeIds) {
     super.didSynchronizeConfigurationScopes(configurationScopeIds);
+    configurationScopeIds.forEach(TaintVulnerabilitiesCache.INSTANCE::didSynchronize);
     configurationScopeIds.stream()
       .map(SonarLintUtils::tryResolveProject)
       .filter(Optional::isPresent)
@@ -354,6 +356,9 @@ public class SonarLintEclipseRpcClient extends SonarLintEclipseHeadlessRpcClient
   @Override
   public void didChangeTaintVulnerabilities(String configurationScopeId, Set<UUID> closedTaintVulnerabilityIds, List<TaintVulnerabilityDto> addedTaintVulnerabilities,
     List<TaintVulnerabilityDto> updatedTaintVulnerabilities) {
+    TaintVulnerabilitiesCache.INSTANCE.update(configurationScopeId, closedTaintVulnerabilityIds, addedTaintVulnerabilities,
+      updatedTaintVulnerabilities);
+
     var projectOpt = SonarLintUtils.tryResolveProject(configurationScopeId);
     if (projectOpt.isEmpty()) {
       return;
@@ -412,11 +417,12 @@ public class SonarLintEclipseRpcClient extends SonarLintEclipseHeadlessRpcClient
         + "' changed ready status for analysis to: " + areReadyForAnalysis);
     }
 
-    configurationScopeIds.stream()
-      .forEach(configurationScopeId -> AnalysisReadyStatusCache.changeAnalysisReadiness(configurationScopeId, areReadyForAnalysis));
-    if (areReadyForAnalysis) {
-      AnalysisJobsScheduler.scheduleAnalysisOfOpenFiles(projects, TriggerType.ANALYSIS_READY);
-    }
+    // Requests parked while the projects were not ready are replayed. The open files are only analyzed when the
+    // projects were not ready before, and not on every notification.
+    DeferredAnalysisQueue.get().changeAnalysisReadiness(configurationScopeIds, areReadyForAnalysis,
+      project -> project.isOpen() && SonarLintCorePlugin.loadConfig(project).isAutoEnabled()
+        ? PlatformUtils.collectOpenedFiles(project, f -> true).getOrDefault(project, List.of())
+        : List.of());
   }
 
   /**
@@ -28,7 +28,7 @@ import org.eclipse.ui.PlatformUI;
 import org.sonarlint.eclipse.core.internal.SonarLintCorePlugin;
 import org.sonarlint.eclipse.core.internal.TriggerType;
 import org.sonarlint.eclipse.core.internal.engine.connected.ConnectionFacade;
-import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectJob;
+import org.sonarlint.eclipse.core.internal.jobs.AnalysisScheduler;
 import org.sonarlint.eclipse.core.internal.jobs.AnalyzeProjectRequest;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintProjectConfiguration.EclipseProjectBinding;
 import org.sonarlint.eclipse.core.internal.utils.JobUtils;
@@ -43,15 +43,18 @@ public class AnalysisJobsScheduler {
     // utility class, forbidden constructor
   }
 
-  public static void scheduleAutoAnalysisIfEnabled(AnalyzeProjectRequest request) {
+  /** @return the scheduled request, so that it can be cancelled when outdated, or null if nothing was scheduled */
+  @Nullable
+  public static AnalysisScheduler.ScheduledRequest scheduleAutoAnalysisIfEnabled(AnalyzeProjectRequest request) {
     var project = request.getProject();
     if (!project.isOpen()) {
-      return;
+      return null;
     }
     var projectConfiguration = SonarLintCorePlugin.loadConfig(project);
-    if (projectConfiguration.isAutoEnabled()) {
-      AnalyzeProjectJob.create(request).schedule();
+    if (!projectConfiguration.isAutoEnabled()) {
+      return null;
     }
+    return AnalysisScheduler.get().schedule(request);
   }
 
   /**
@@ -39,6 +39,8 @@ import org.sonarlint.eclipse.core.SonarLintLogger;
 import org.sonarlint.eclipse.core.documentation.SonarLintDocumentation;
 import org.sonarlint.eclipse.core.internal.TriggerType;
 import org.sonarlint.eclipse.core.internal.backend.SonarLintBackendService;
+import org.sonarlint.eclipse.core.internal.cache.RaisedIssuesCache;
+import org.sonarlint.eclipse.core.internal.jobs.IssuesMarkerUpdateJob;
 import org.sonarlint.eclipse.core.internal.jobs.TestFileClassifier;
 import org.sonarlint.eclipse.core.internal.preferences.SonarLintGlobalConfiguration;
 import org.sonarlint.eclipse.core.internal.utils.JavaRuntimeUtils;
@@ -89,6 +91,12 @@ public class SonarLintPreferencePage extends FieldEditorPreferencePage implement
 
     PlatformUtils.createHorizontalSpacer(getFieldEditorParent(), 1);
 
+    addField(new BooleanFieldEditor(SonarLintGlobalConfiguration.PREF_ANALYZE_WHILE_TYPING,
+      "Analyze opened files while typing, without having to save them",
+      getFieldEditorParent()));
+
+    PlatformUtils.createHorizontalSpacer(getFieldEditorParent(), 1);
+
     addField(new BooleanFieldEditor(SonarLintGlobalConfiguration.PREF_ISSUE_INCLUDE_RESOLVED,
       "Show SonarQube markers for open and resolved issues",
       getFieldEditorParent()));
@@ -235,8 +243,9 @@ public class SonarLintPreferencePage extends FieldEditorPreferencePage implement
     var issueFilterChanged = issuesIncludingResolved != SonarLintGlobalConfiguration.issuesIncludingResolved();
     var issuePeriodChanged = issuesOnlyNewCode != SonarLintGlobalConfiguration.issuesOnlyNewCode();
     if (issueFilterChanged || issuePeriodChanged) {
+      // The markers are updated from the issues last raised, there is no need to analyze the files again
+      IssuesMarkerUpdateJob.INSTANCE.applyIssueFilters();
       TaintIssuesJobsScheduler.scheduleUpdateAfterPreferenceChange();
-      anyPreferenceChanged = true;
     }
     if (!previousTestFileGlobPatterns.equals(SonarLintGlobalConfiguration.getTestFileGlobPatterns())) {
       TestFileClassifier.get().reload();
@@ -250,6 +259,10 @@ public class SonarLintPreferencePage extends FieldEditorPreferencePage implement
     }
     if (anyPreferenceChanged) {
       AnalysisJobsScheduler.scheduleAnalysisOfOpenFiles((ISonarLintProject) null, TriggerType.STANDALONE_CONFIG_CHANGE);
+    } else if (issueFilterChanged || issuePeriodChanged) {
+      // The issues of files not cached (anymore) are unknown, these files have to be analyzed again
+      AnalysisJobsScheduler.scheduleAnalysisOfOpenFiles((ISonarLintProject) null, TriggerType.STANDALONE_CONFIG_CHANGE,
+        f -> !RaisedIssuesCache.INSTANCE.contains(f, true));
     }
     if (openIssueContext != null) {
       // INFO: We cannot schedule it immediately as the OpenIssueInEclipseJob might be faster than the preferences
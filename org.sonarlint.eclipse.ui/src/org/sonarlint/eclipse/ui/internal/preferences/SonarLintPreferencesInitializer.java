@@ -37,6 +37,7 @@ public class SonarLintPreferencesInitializer extends AbstractPreferenceInitializ
     node.putInt(SonarLintGlobalConfiguration.PREF_MARKER_SEVERITY, SonarLintGlobalConfiguration.PREF_MARKER_SEVERITY_DEFAULT);
     node.putBoolean(SonarLintGlobalConfiguration.PREF_ISSUE_INCLUDE_RESOLVED, false);
     node.putBoolean(SonarLintGlobalConfiguration.PREF_ISSUE_ONLY_NEW_CODE, false);
+    node.putBoolean(SonarLintGlobalConfiguration.PREF_ANALYZE_WHILE_TYPING, false);
     node.put(SonarLintGlobalConfiguration.PREF_EXTRA_ARGS, SonarLintGlobalConfiguration.PREF_DEFAULT);
     node.put(SonarLintGlobalConfiguration.PREF_TEST_FILE_GLOB_PATTERNS, SonarLintGlobalConfiguration.PREF_TEST_FILE_GLOB_PATTERNS_DEFAULT);
   }